@@ -1,16 +1,16 @@
 package org.howard.edu.lsp.assignment2;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.howard.edu.lsp.util.Cents;
+import org.howard.edu.lsp.util.CsvTokenizer;
+
 class Products {
 	private int productId;
     private String name;
@@ -33,10 +33,8 @@ class Products {
         	this.price = this.price - (this.price*0.10);
         }
     	
-    	BigDecimal bd = new BigDecimal(this.price);
-    	bd = bd.setScale(2, RoundingMode.HALF_UP);
-    
-    	this.price = bd.doubleValue();
+    	// same result as BigDecimal.setScale(2, HALF_UP), without the allocation
+    	this.price = Cents.round(this.price);
     	
     }
     
@@ -55,7 +53,15 @@ class Products {
     }
     // used to write to the csv file
     public String toCSVLine() {
-        return productId + "," + name + "," + price + "," + category + "," + priceRange();
+        return productId + "," + csvField(name) + "," + price + "," + csvField(category) + "," + priceRange();
+    }
+
+    // quotes a field holding a comma or a double quote, so the row still has five columns
+    private static String csvField(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
     }
     
     @Override
@@ -70,6 +76,11 @@ public class ETLPipeline {
     	String inputPath = "data/products.csv";
         String outputPath = "data/transformed_products.csv";
         
+        run(inputPath, outputPath);
+    }
+
+    // runs the whole pipeline on the given files (also used by the benchmarks)
+    public static void run(String inputPath, String outputPath) {
         File inputFile = new File(inputPath);
 
         if (!inputFile.exists()) {
@@ -100,33 +111,30 @@ public class ETLPipeline {
         int rowsTransformed = 0;
         int rowsSkipped = 0;
 
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-        	br.readLine(); // skip header
+        try (FileReader reader = new FileReader(path)) {
+        	CsvTokenizer csv = new CsvTokenizer(reader);
+        	csv.next(); // skip header
         	
-        	String line;
-            while ((line = br.readLine()) != null) {
+            while (csv.next()) {
             	rowsRead++;
-            	
-                String[] fields = line.split(",");
                 
-                if (fields.length == 4) {
-                	for (int i = 0; i < fields.length; i++) {
-                        fields[i] = fields[i].trim().replaceAll("^\"|\"$", "");
-                    }
-                	
+                if (csv.error() != null) {
+                    System.out.println("Skipping malformed line (" + csv.error() + "): " + csv.line());
+                    rowsSkipped++;
+                } else if (csv.fieldCount() == 4) {
                 	try {
-                		int productId = Integer.parseInt(fields[0].trim());
-                		String name = fields[1].trim();
-                		double price = Double.parseDouble(fields[2].trim());
-                		String category = fields[3].trim();
+                		int productId = csv.intField(0);
+                		String name = csv.field(1);
+                		double price = csv.doubleField(2);
+                		String category = csv.field(3);
                 		product.add(new Products(productId, name, price, category));
                 		rowsTransformed++;
                 	} catch (NumberFormatException e) {
-                		System.out.println("Skipping malformed row (invalid number): " + line);
+                		System.out.println("Skipping malformed row (invalid number): " + csv.line());
                 		rowsSkipped++;
                 	}
                 } else {
-                    System.out.println("Skipping malformed line (wrong number of columns): " + line);
+                    System.out.println("Skipping malformed line (wrong number of columns): " + csv.line());
                     rowsSkipped++;
                 }
             }
@@ -0,0 +1,344 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+import org.howard.edu.lsp.util.Compression;
+
+/**
+ * Runs the pipeline over many input files in one JVM, several files at a
+ * time on a fixed pool of threads, so start-up and JIT warm-up are paid
+ * once per batch instead of once per file.
+ * <p>
+ * Each file is streamed through its own Extractor (with its own category
+ * dictionary and reject log) while the Transformer and Loader are shared.
+ * Outputs are either one file per input, named {@code transformed_<input>}
+ * in an output directory, or a single merged file with the rows of every
+ * input in input order under one header. For a merged output each file is
+ * first written to a part file next to it; the parts are then joined and
+ * the result moved into place. Inputs and outputs ending in {@code .gz} are
+ * decompressed and compressed on the fly.
+ * <p>
+ * A file that fails does not stop the others. In per-file mode its error
+ * is reported in the results; a merged output is not written if any file
+ * failed.
+ */
+public class BatchPipeline {
+    /** Prefix of per-file output names. */
+    public static final String OUTPUT_PREFIX = "transformed_";
+
+    private final int threads;
+    private final boolean mapped;
+    private final int rejectLogRate;
+    private final PipelineMetrics metrics;
+    private final Loader loader = new Loader();
+
+    private final List<FileResult> results = new ArrayList<>();
+
+    /**
+     * Creates a batch pipeline that reads through buffered readers and
+     * samples malformed rows to the console at the default rate.
+     *
+     * @param threads number of files processed at once
+     */
+    public BatchPipeline(int threads) {
+        this(threads, false, RejectLog.DEFAULT_CONSOLE_PER_SECOND, PipelineMetrics.disabled());
+    }
+
+    /**
+     * Creates a batch pipeline.
+     *
+     * @param threads number of files processed at once
+     * @param mapped whether to read inputs through memory mappings
+     * @param rejectLogRate console messages per second for each file's malformed rows
+     * @param metrics where stage timings go, shared by all files
+     */
+    public BatchPipeline(int threads, boolean mapped, int rejectLogRate, PipelineMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+        this.mapped = mapped;
+        this.rejectLogRate = rejectLogRate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Lists the input files named by a directory or a glob pattern, in
+     * path order. A directory stands for the {@code .csv} and
+     * {@code .csv.gz} files directly in it. A glob may use wildcards in any path segment, such as
+     * {@code data/shards/*.csv} or {@code data/2024-*}{@code /*.csv}.
+     *
+     * @param dirOrGlob a directory or glob pattern
+     * @return the matching regular files, sorted
+     * @throws IOException if a directory cannot be listed
+     */
+    public static List<Path> expand(String dirOrGlob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path dir = Paths.get(dirOrGlob);
+        if (!hasWildcard(dirOrGlob) && Files.isDirectory(dir)) {
+            try (Stream<Path> entries = Files.list(dir)) {
+                entries.filter(p -> Files.isRegularFile(p) && isCsv(p)).forEach(files::add);
+            }
+        } else if (hasWildcard(dirOrGlob)) {
+            // Walk from the last directory before the first wildcard, as deep as the pattern goes.
+            String[] segments = dirOrGlob.split("[/\\\\]", -1);
+            int fixed = 0;
+            while (fixed < segments.length && !hasWildcard(segments[fixed])) {
+                fixed++;
+            }
+            Path base = fixed == 0 ? Paths.get("")
+                : Paths.get(String.join("/", Arrays.copyOfRange(segments, 0, fixed)));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + dirOrGlob);
+            if (Files.isDirectory(base)) {
+                try (Stream<Path> entries = Files.walk(base, segments.length - fixed)) {
+                    entries.filter(p -> Files.isRegularFile(p) && matcher.matches(p)).forEach(files::add);
+                }
+            }
+        } else if (Files.isRegularFile(dir)) {
+            files.add(dir);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static boolean isCsv(Path p) {
+        String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".csv" + Compression.GZIP_SUFFIX);
+    }
+
+    private static boolean hasWildcard(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0 || s.indexOf('[') >= 0 || s.indexOf('{') >= 0;
+    }
+
+    /**
+     * Transforms each input into its own output file in a directory.
+     *
+     * @param inputs the input CSV files
+     * @param transformer the transformation rules, shared by all files
+     * @param outputDir where the outputs go; created if missing
+     * @throws IOException if the output directory cannot be created, two
+     *         inputs would write the same output, or the batch is interrupted
+     */
+    public void runPerFile(List<Path> inputs, Transformer transformer, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        List<Path> outputs = new ArrayList<>();
+        Set<Path> seen = new HashSet<>();
+        for (Path input : inputs) {
+            Path output = outputDir.resolve(OUTPUT_PREFIX + input.getFileName());
+            if (!seen.add(output)) {
+                throw new IOException("More than one input would be written to " + output);
+            }
+            outputs.add(output);
+        }
+        runAll(inputs, outputs, transformer);
+    }
+
+    /**
+     * Transforms all inputs into one output file, with one header and the
+     * rows of each input in the order the inputs are given.
+     *
+     * @param inputs the input CSV files
+     * @param transformer the transformation rules, shared by all files
+     * @param output the merged output file
+     * @throws IOException if any input fails or the output cannot be written
+     */
+    public void runMerged(List<Path> inputs, Transformer transformer, Path output) throws IOException {
+        List<Path> parts = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            parts.add(output.resolveSibling(output.getFileName() + ".part" + i));
+        }
+        try {
+            runAll(inputs, parts, transformer);
+            for (FileResult r : results) {
+                if (r.getError() != null) {
+                    throw new IOException("Not writing " + output + ": " + r.getInput() + " failed: "
+                        + r.getError().getMessage(), r.getError());
+                }
+            }
+            join(parts, output);
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private void runAll(List<Path> inputs, List<Path> outputs, Transformer transformer) throws IOException {
+        results.clear();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, inputs.size())));
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                Path input = inputs.get(i);
+                Path output = outputs.get(i);
+                Callable<FileResult> task = () -> process(input, output, transformer);
+                futures.add(pool.submit(task));
+            }
+            for (Future<FileResult> f : futures) {
+                results.add(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            // process() catches everything but Errors.
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Streams one file from input to output. Runs on a pool thread. */
+    private FileResult process(Path input, Path output, Transformer transformer) {
+        FileResult result = new FileResult(input, output);
+        metrics.threadStarted();
+        RejectLog rejects = null;
+        try {
+            rejects = new RejectLog(null, rejectLogRate);
+            Extractor extractor = new Extractor(rejects);
+            try (ProductIterator products = mapped
+                    ? extractor.iterateMapped(input.toString())
+                    : extractor.iterate(input.toString())) {
+                loader.load(metrics.isEnabled()
+                    ? ETLPipeline.timed(products, transformer, metrics)
+                    : transformer.transform(products), output.toString());
+            } finally {
+                rejects.close();
+                result.rowsRead = extractor.getRowsRead();
+                result.rowsSkipped = extractor.getRowsSkipped();
+                for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+                    result.rejects[reason.ordinal()] = rejects.getCount(reason);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            result.error = e;
+        } finally {
+            metrics.threadFinished();
+        }
+        return result;
+    }
+
+    /**
+     * Concatenates the part files, keeping only the first header, then moves
+     * the result into place. Parts are plain CSV; a gzip output is
+     * compressed in this one pass.
+     */
+    private static void join(List<Path> parts, Path output) throws IOException {
+        long headerBytes = ProductCsvWriter.HEADER.getBytes(Charset.defaultCharset()).length;
+        Path temp = output.resolveSibling(output.getFileName() + ".tmp");
+        try (WritableByteChannel out = Compression.isCompressed(output)
+                ? Compression.gzip(Files.newOutputStream(temp))
+                : FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (parts.isEmpty()) {
+                out.write(Charset.defaultCharset().encode(ProductCsvWriter.HEADER));
+            }
+            for (int i = 0; i < parts.size(); i++) {
+                try (FileChannel in = FileChannel.open(parts.get(i), StandardOpenOption.READ)) {
+                    long position = i == 0 ? 0 : headerBytes;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** @return the result of each file of the last run, in input order */
+    public List<FileResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /** @return rows read from all files of the last run */
+    public long getRowsRead() {
+        long total = 0;
+        for (FileResult r : results) {
+            total += r.rowsRead;
+        }
+        return total;
+    }
+
+    /** @return rows skipped in all files of the last run */
+    public long getRowsSkipped() {
+        long total = 0;
+        for (FileResult r : results) {
+            total += r.rowsSkipped;
+        }
+        return total;
+    }
+
+    /**
+     * @param reason a reject reason
+     * @return rows rejected for that reason in all files of the last run
+     */
+    public long getRejectCount(RejectLog.Reason reason) {
+        long total = 0;
+        for (FileResult r : results) {
+            total += r.rejects[reason.ordinal()];
+        }
+        return total;
+    }
+
+    /** @return the number of files of the last run that failed */
+    public int getFilesFailed() {
+        int failed = 0;
+        for (FileResult r : results) {
+            if (r.error != null) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /** What happened to one input file. */
+    public static final class FileResult {
+        private final Path input;
+        private final Path output;
+        private int rowsRead;
+        private int rowsSkipped;
+        private final long[] rejects = new long[RejectLog.Reason.values().length];
+        private Exception error;
+
+        FileResult(Path input, Path output) {
+            this.input = input;
+            this.output = output;
+        }
+
+        /** @return the input file */
+        public Path getInput() { return input; }
+        /** @return the file the rows were written to (a part file when merging) */
+        public Path getOutput() { return output; }
+        /** @return rows read from the input */
+        public int getRowsRead() { return rowsRead; }
+        /** @return rows skipped as malformed */
+        public int getRowsSkipped() { return rowsSkipped; }
+        /** @return why the file failed, or null if it succeeded */
+        public Exception getError() { return error; }
+    }
+}
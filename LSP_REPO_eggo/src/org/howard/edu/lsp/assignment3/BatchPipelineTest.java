@@ -0,0 +1,102 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+import org.howard.edu.lsp.util.Compression;
+
+public class BatchPipelineTest {
+    @TempDir
+    Path dir;
+
+    private Path writeShard(String name, int first, int count) throws IOException {
+        return PipelineTestData.writeRows(dir.resolve(name), first, count);
+    }
+
+    @Test
+    public void testExpandListsDirectoriesAndGlobs() throws IOException {
+        Path a = writeShard("in/a.csv", 0, 1);
+        Path b = writeShard("in/b.csv", 1, 1);
+        Files.writeString(dir.resolve("in/notes.txt"), "not a feed");
+        Path c = writeShard("in/2024-01/c.csv", 2, 1);
+
+        Path gz = dir.resolve("in/d.csv.gz");
+        Files.write(gz, new byte[0]);
+
+        assertEquals(Arrays.asList(a, b, gz), BatchPipeline.expand(dir.resolve("in").toString()));
+        assertEquals(Arrays.asList(c), BatchPipeline.expand(dir.resolve("in").toString() + "/2024-*/*.csv"));
+        assertEquals(Arrays.asList(a), BatchPipeline.expand(dir.resolve("in").toString() + "/a.*"));
+        assertEquals(Arrays.asList(b), BatchPipeline.expand(b.toString()));
+        assertTrue(BatchPipeline.expand(dir.resolve("in").toString() + "/*.json").isEmpty());
+    }
+
+    @Test
+    public void testPerFileOutputsMatchSingleRuns() throws IOException {
+        List<Path> inputs = Arrays.asList(writeShard("in/a.csv", 0, 5000), writeShard("in/b.csv", 5000, 3000),
+            writeShard("in/c.csv", 8000, 0));
+        Path outDir = dir.resolve("out");
+        BatchPipeline batch = new BatchPipeline(2, false, 0, PipelineMetrics.disabled());
+        batch.runPerFile(inputs, new Transformer(), outDir);
+
+        assertEquals(0, batch.getFilesFailed());
+        assertEquals(8000, batch.getRowsRead());
+        assertEquals(8000 / 7 + 1, batch.getRowsSkipped());
+        assertEquals(batch.getRowsSkipped(), batch.getRejectCount(RejectLog.Reason.INVALID_PRICE));
+        for (Path input : inputs) {
+            assertEquals(PipelineTestData.streamingOutput(input),
+                Files.readString(outDir.resolve(BatchPipeline.OUTPUT_PREFIX + input.getFileName())), input.toString());
+        }
+    }
+
+    @Test
+    public void testMergedOutputHasOneHeader() throws IOException {
+        Path whole = writeShard("whole.csv", 0, 9000);
+        List<Path> inputs = Arrays.asList(writeShard("in/a.csv", 0, 4000), writeShard("in/b.csv", 4000, 1),
+            writeShard("in/c.csv", 4001, 4999));
+        Path merged = dir.resolve("merged.csv");
+        BatchPipeline batch = new BatchPipeline(3, true, 0, PipelineMetrics.disabled());
+        batch.runMerged(inputs, new Transformer(), merged);
+
+        assertEquals(PipelineTestData.streamingOutput(whole), Files.readString(merged));
+        assertEquals(9000, batch.getRowsRead());
+
+        Path gzip = dir.resolve("merged.csv.gz");
+        batch.runMerged(inputs, new Transformer(), gzip);
+        try (InputStream in = Compression.newInputStream(gzip)) {
+            assertEquals(Files.readString(merged), new String(in.readAllBytes()));
+        }
+        try (Stream<Path> left = Files.list(dir)) {
+            assertFalse(left.anyMatch(p -> p.getFileName().toString().matches("merged\\.csv.*\\.(part\\d+|tmp)")));
+        }
+    }
+
+    @Test
+    public void testFailedFileIsReported() throws IOException {
+        Path good = writeShard("in/a.csv", 0, 10);
+        Path missing = dir.resolve("in/missing.csv");
+        BatchPipeline batch = new BatchPipeline(2);
+        batch.runPerFile(Arrays.asList(good, missing), new Transformer(), dir.resolve("out"));
+
+        assertEquals(1, batch.getFilesFailed());
+        assertNull(batch.getResults().get(0).getError());
+        assertEquals(missing, batch.getResults().get(1).getInput());
+        assertNotNull(batch.getResults().get(1).getError());
+        assertEquals(10, batch.getRowsRead());
+
+        Path merged = dir.resolve("merged.csv");
+        assertThrows(IOException.class,
+            () -> batch.runMerged(Arrays.asList(good, missing), new Transformer(), merged));
+        assertFalse(Files.exists(merged));
+    }
+}
@@ -0,0 +1,118 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.nio.charset.Charset;
+
+/**
+ * A product category, shared by every product with the same category name.
+ * Categories are normally interned in a {@link CategoryDictionary}, which
+ * gives each one a small int code; what the pipeline needs per category
+ * (the rule that applies to it, the category a rule promotes it to, its
+ * encoded bytes) is worked out once here instead of once per row.
+ */
+public final class Category {
+    /** Category the default {@link TransformRules} discount (compared ignoring case). */
+    public static final String ELECTRONICS = "Electronics";
+    /** Category the default {@link TransformRules} promote discounted Electronics to. */
+    public static final String PREMIUM_ELECTRONICS = "Premium Electronics";
+
+    private final CategoryDictionary dictionary;
+    private final String name;
+    private final int code;
+
+    private volatile Category related;
+    private volatile Encoded encoded;
+    /** The rule the last {@link TransformRules} looked up for this category. */
+    volatile TransformRules.Binding ruleBinding;
+
+    Category(CategoryDictionary dictionary, String name, int code) {
+        this.dictionary = dictionary;
+        this.name = name;
+        this.code = code;
+    }
+
+    /**
+     * Creates a category that does not belong to any dictionary. Used for
+     * products built directly from a category name.
+     *
+     * @param name the category name, or null
+     * @return the category, or null if name is null
+     */
+    public static Category of(String name) {
+        return name == null ? null : new Category(null, name, -1);
+    }
+
+    /** @return the category name */
+    public String getName() { return name; }
+    /** @return the code in the owning dictionary, or -1 for a standalone category */
+    public int getCode() { return code; }
+    /** @return the dictionary this category was interned in, or null */
+    public CategoryDictionary getDictionary() { return dictionary; }
+
+    /**
+     * Returns another category from the same dictionary, such as the one a
+     * rule promotes products to. The last one asked for is cached, so a rule
+     * that always promotes to the same category looks it up once.
+     *
+     * @param name the other category's name
+     * @return the category
+     */
+    public Category related(String name) {
+        Category r = related;
+        if (r == null || !r.name.equals(name)) {
+            r = dictionary != null ? dictionary.intern(name) : of(name);
+            related = r;
+        }
+        return r;
+    }
+
+    /**
+     * Returns the name encoded in a charset. The last encoding is cached, so
+     * a writer pays for it once per category rather than once per row.
+     *
+     * @param charset the output charset
+     * @return the encoded name; must not be modified
+     */
+    byte[] encoded(Charset charset) {
+        return encodings(charset).bytes;
+    }
+
+    /**
+     * Returns the name as a CSV field encoded in a charset: quoted if it
+     * contains a comma or a double quote, otherwise the same bytes as
+     * {@link #encoded(Charset)}. Cached along with them.
+     *
+     * @param charset the output charset
+     * @return the encoded field; must not be modified
+     */
+    byte[] csvEncoded(Charset charset) {
+        return encodings(charset).csvBytes;
+    }
+
+    private Encoded encodings(Charset charset) {
+        Encoded e = encoded;
+        if (e == null || !e.charset.equals(charset)) {
+            byte[] bytes = name.getBytes(charset);
+            String field = ProductCsvWriter.csvField(name);
+            e = new Encoded(charset, bytes, field == name ? bytes : field.getBytes(charset));
+            encoded = e;
+        }
+        return e;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static final class Encoded {
+        final Charset charset;
+        final byte[] bytes;
+        final byte[] csvBytes;
+
+        Encoded(Charset charset, byte[] bytes, byte[] csvBytes) {
+            this.charset = charset;
+            this.bytes = bytes;
+            this.csvBytes = csvBytes;
+        }
+    }
+}
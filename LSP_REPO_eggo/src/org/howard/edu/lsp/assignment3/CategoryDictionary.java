@@ -0,0 +1,64 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps category names to shared {@link Category} objects with dense int
+ * codes (0, 1, 2, ... in order of first appearance). Catalogs have a few
+ * dozen categories across millions of rows, so interning means each name
+ * is stored and classified once.
+ * <p>
+ * Safe for use by several threads: lookups of known names do not lock, and
+ * only adding a new name takes the dictionary's lock.
+ */
+public class CategoryDictionary {
+    private final ConcurrentHashMap<String, Category> byName = new ConcurrentHashMap<>();
+    private volatile Category[] byCode = new Category[16];
+    private volatile int size;
+
+    /**
+     * Returns the category with the given name, adding it if it is new.
+     *
+     * @param name the category name
+     * @return the shared category for that name
+     */
+    public Category intern(String name) {
+        Category category = byName.get(name);
+        if (category != null) {
+            return category;
+        }
+        synchronized (this) {
+            category = byName.get(name);
+            if (category == null) {
+                int code = size;
+                if (code == byCode.length) {
+                    byCode = Arrays.copyOf(byCode, code * 2);
+                }
+                category = new Category(this, name, code);
+                byCode[code] = category;
+                byName.put(name, category);
+                size = code + 1; // publishes byCode[code]
+            }
+            return category;
+        }
+    }
+
+    /**
+     * Returns the category with the given code.
+     *
+     * @param code a code below {@link #size()}
+     * @return the category
+     */
+    public Category get(int code) {
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("No category with code " + code);
+        }
+        return byCode[code];
+    }
+
+    /** @return the number of categories interned so far */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,64 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class CategoryDictionaryTest {
+
+    @Test
+    public void testInternReturnsSharedCategoryWithDenseCodes() {
+        CategoryDictionary dictionary = new CategoryDictionary();
+        Category books = dictionary.intern("Books");
+        Category electronics = dictionary.intern("electronics");
+        assertSame(books, dictionary.intern(new String("Books")));
+        assertEquals(0, books.getCode());
+        assertEquals(1, electronics.getCode());
+        assertSame(electronics, dictionary.get(1));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void testRelatedComesFromTheSameDictionary() {
+        CategoryDictionary dictionary = new CategoryDictionary();
+        Category premium = dictionary.intern("Electronics").related(Category.PREMIUM_ELECTRONICS);
+        assertSame(dictionary.intern(Category.PREMIUM_ELECTRONICS), premium);
+        assertEquals(Category.PREMIUM_ELECTRONICS,
+                Category.of("Electronics").related(Category.PREMIUM_ELECTRONICS).getName());
+    }
+
+    @Test
+    public void testConcurrentInterningAgreesOnCodes() throws Exception {
+        CategoryDictionary dictionary = new CategoryDictionary();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Category[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    Category[] seen = new Category[500];
+                    for (int i = 0; i < seen.length; i++) {
+                        seen[i] = dictionary.intern("Category" + i);
+                    }
+                    return seen;
+                }));
+            }
+            Category[] first = results.get(0).get();
+            for (Future<Category[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(500, dictionary.size());
+        for (int code = 0; code < dictionary.size(); code++) {
+            assertEquals(code, dictionary.get(code).getCode());
+            assertSame(dictionary.get(code), dictionary.intern(dictionary.get(code).getName()));
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+import org.howard.edu.lsp.metrics.StageTimer;
+import org.howard.edu.lsp.util.AtomicFiles;
+import org.howard.edu.lsp.util.MappedCsvReader;
+
+/**
+ * Runs the pipeline with periodic checkpoints, so a run that dies part way
+ * through can be resumed instead of started over.
+ * <p>
+ * Every so many input rows the output is flushed and forced to disk, and
+ * then a small checkpoint file records how far the run got: the byte offset
+ * in the input just past the last row read, the row and reject counts, and
+ * the length of the output at that point. The checkpoint is written to a
+ * temporary file, forced to disk and moved into place, so a crash leaves
+ * either the old checkpoint or the new one, never a torn one.
+ * <p>
+ * A resumed run cuts the output back to the recorded length (dropping rows
+ * written after the checkpoint), continues reading the input at the
+ * recorded offset and starts its counters from the recorded values. The
+ * result is the same file an uninterrupted run would have written. The
+ * checkpoint is only used if it was written for the same input file (same
+ * size and modification time) and the same transformation rules and output
+ * settings; otherwise the run starts from the beginning. A run that
+ * finishes deletes its checkpoint.
+ * <p>
+ * The interval trades overhead against redone work: each checkpoint costs
+ * two forced writes, and a resumed run repeats at most one interval of rows.
+ * The input is read through a {@link MappedCsvReader}, whose record offsets
+ * the checkpoint records, so it must be an uncompressed file.
+ * <p>
+ * With metrics enabled, rows and time are recorded per stage as in
+ * {@link IncrementalPipeline}; bytes are counted at each checkpoint and at
+ * the end, and a resumed run counts only the input and output it handles
+ * itself.
+ */
+public class CheckpointedPipeline {
+    /** Rows between checkpoints unless another interval is given. */
+    public static final int DEFAULT_INTERVAL_ROWS = 1_000_000;
+
+    private final String checkpointPath;
+    private final int intervalRows;
+    private final RejectLog rejects;
+    private final PipelineMetrics metrics;
+
+    private int rowsRead;
+    private int rowsSkipped;
+    private int rowsResumed;
+    private int checkpoints;
+
+    /**
+     * @param checkpointPath where the checkpoint of the run is kept
+     * @param intervalRows input rows between checkpoints
+     * @param rejects where malformed rows are reported; the caller closes it
+     */
+    public CheckpointedPipeline(String checkpointPath, int intervalRows, RejectLog rejects) {
+        this(checkpointPath, intervalRows, rejects, PipelineMetrics.disabled());
+    }
+
+    /**
+     * @param checkpointPath where the checkpoint of the run is kept
+     * @param intervalRows input rows between checkpoints
+     * @param rejects where malformed rows are reported; the caller closes it
+     * @param metrics where stage timings and byte counts go; only the part
+     *                of the input this run reads is counted
+     */
+    public CheckpointedPipeline(String checkpointPath, int intervalRows, RejectLog rejects,
+            PipelineMetrics metrics) {
+        if (intervalRows <= 0) {
+            throw new IllegalArgumentException("intervalRows must be positive: " + intervalRows);
+        }
+        this.checkpointPath = checkpointPath;
+        this.intervalRows = intervalRows;
+        this.rejects = rejects;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs the pipeline, checkpointing as it goes.
+     *
+     * @param inputPath relative path to the input CSV file
+     * @param transformer applied to every row
+     * @param outputPath relative path to the output CSV file
+     * @param resume whether to continue from the checkpoint of an earlier
+     *               run; without it any old checkpoint is discarded
+     * @throws IOException if a file cannot be read or written
+     */
+    public void run(String inputPath, Transformer transformer, String outputPath, boolean resume)
+            throws IOException {
+        File inputFile = new File(inputPath);
+
+        if (!inputFile.exists()) {
+            throw new FileNotFoundException("The file " + inputPath + " does not exist.");
+        }
+
+        Path input = inputFile.toPath();
+        Path output = Paths.get(outputPath);
+        Path checkpointFile = Paths.get(checkpointPath);
+        String fingerprint = IncrementalPipeline.fingerprint(transformer);
+        long inputSize = Files.size(input);
+        long inputModified = Files.getLastModifiedTime(input).to(TimeUnit.NANOSECONDS);
+
+        Checkpoint last = resume
+            ? Checkpoint.load(checkpointFile, fingerprint, inputSize, inputModified, output)
+            : null;
+        if (last == null) {
+            // A stale checkpoint must not outlive the output it describes.
+            Files.deleteIfExists(checkpointFile);
+        }
+        CategoryDictionary categories = new CategoryDictionary();
+
+        try (MappedCsvReader csv = new MappedCsvReader(input);
+             FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             ProductCsvWriter writer = new ProductCsvWriter(channel)) {
+            long outputStart = 0;
+            if (last != null) {
+                channel.truncate(last.outputLength);
+                channel.position(last.outputLength);
+                csv.seek(last.inputOffset);
+                outputStart = last.outputLength;
+                rowsRead = last.rowsRead;
+                rowsSkipped = last.rowsSkipped;
+                rowsResumed = last.rowsRead;
+                for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+                    rejects.addCount(reason, last.rejected[reason.ordinal()]);
+                }
+            } else {
+                channel.truncate(0);
+                writer.writeHeader();
+                csv.next(); // skip header
+            }
+
+            // Bytes are counted at each checkpoint; a resumed run only counts what it reads itself.
+            long inputCounted = last != null ? last.inputOffset : 0;
+            long outputCounted = 0;
+            StageTimer timer = new StageTimer(metrics, ConcurrentPipeline.DEFAULT_BATCH_SIZE);
+            int sinceCheckpoint = 0;
+            while (csv.next()) {
+                rowsRead++;
+                Product p = Extractor.parseRecord(csv, categories, rejects, 1 + rowsRead);
+                timer.lap(StageTimer.EXTRACT);
+                if (p == null) {
+                    rowsSkipped++;
+                } else {
+                    transformer.transform(p);
+                    timer.lap(StageTimer.TRANSFORM);
+                    writer.write(p);
+                    timer.lap(StageTimer.LOAD);
+                }
+                if (++sinceCheckpoint == intervalRows) {
+                    sinceCheckpoint = 0;
+                    writer.flush();
+                    channel.force(false);
+                    Checkpoint current = new Checkpoint(fingerprint, inputSize, inputModified);
+                    current.inputOffset = csv.position();
+                    current.rowsRead = rowsRead;
+                    current.rowsSkipped = rowsSkipped;
+                    for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+                        current.rejected[reason.ordinal()] = rejects.getCount(reason);
+                    }
+                    current.outputLength = outputStart + writer.getBytesWritten();
+                    current.save(checkpointFile);
+                    checkpoints++;
+                    metrics.stage(PipelineMetrics.EXTRACT).addBytes(current.inputOffset - inputCounted);
+                    metrics.stage(PipelineMetrics.LOAD).addBytes(writer.getBytesWritten() - outputCounted);
+                    inputCounted = current.inputOffset;
+                    outputCounted = writer.getBytesWritten();
+                    timer.restart();
+                }
+            }
+            writer.flush();
+            channel.force(false);
+            timer.finish();
+            metrics.stage(PipelineMetrics.EXTRACT).addBytes(csv.position() - inputCounted);
+            metrics.stage(PipelineMetrics.LOAD).addBytes(writer.getBytesWritten() - outputCounted);
+        }
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    /** @return rows read from the input, including those before a resume */
+    public int getRowsRead() { return rowsRead; }
+    /** @return rows skipped as malformed, including those before a resume */
+    public int getRowsSkipped() { return rowsSkipped; }
+    /** @return rows the run did not read again because it resumed after them; 0 for a run from the start */
+    public int getRowsResumed() { return rowsResumed; }
+    /** @return checkpoints written by this run */
+    public int getCheckpointsWritten() { return checkpoints; }
+
+    /** How far a run got, and its on-disk form. */
+    private static final class Checkpoint {
+        private static final int MAGIC = 0x45544c43; // "ETLC"
+        private static final int VERSION = 1;
+
+        final String fingerprint;
+        final long inputSize;
+        final long inputModified;
+        long inputOffset;
+        int rowsRead;
+        int rowsSkipped;
+        final long[] rejected = new long[RejectLog.Reason.values().length];
+        long outputLength;
+
+        Checkpoint(String fingerprint, long inputSize, long inputModified) {
+            this.fingerprint = fingerprint;
+            this.inputSize = inputSize;
+            this.inputModified = inputModified;
+        }
+
+        /**
+         * Reads the checkpoint of an earlier run.
+         *
+         * @return the checkpoint, or null if there is none usable for this
+         *         input, these rules and this output file
+         */
+        static Checkpoint load(Path path, String fingerprint, long inputSize, long inputModified, Path output) {
+            if (!Files.exists(path) || !Files.exists(output)) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(fingerprint)
+                        || in.readLong() != inputSize || in.readLong() != inputModified) {
+                    return null;
+                }
+                Checkpoint checkpoint = new Checkpoint(fingerprint, inputSize, inputModified);
+                checkpoint.inputOffset = in.readLong();
+                checkpoint.rowsRead = in.readInt();
+                checkpoint.rowsSkipped = in.readInt();
+                int reasons = in.readInt();
+                if (reasons != checkpoint.rejected.length) {
+                    return null;
+                }
+                for (int i = 0; i < reasons; i++) {
+                    checkpoint.rejected[i] = in.readLong();
+                }
+                checkpoint.outputLength = in.readLong();
+                if (checkpoint.inputOffset > inputSize || checkpoint.outputLength > Files.size(output)) {
+                    return null;
+                }
+                return checkpoint;
+            } catch (IOException e) {
+                // A damaged checkpoint only costs a run from the start.
+                return null;
+            }
+        }
+
+        void save(Path path) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(fingerprint);
+                out.writeLong(inputSize);
+                out.writeLong(inputModified);
+                out.writeLong(inputOffset);
+                out.writeInt(rowsRead);
+                out.writeInt(rowsSkipped);
+                out.writeInt(rejected.length);
+                for (long count : rejected) {
+                    out.writeLong(count);
+                }
+                out.writeLong(outputLength);
+            }
+            Path temp = Paths.get(path + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+                bytes.writeTo(out);
+                out.getFD().sync();
+            }
+            AtomicFiles.replace(temp, path);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+
+public class CheckpointedPipelineTest {
+    @TempDir
+    Path dir;
+
+    private String input() { return dir.resolve("products.csv").toString(); }
+    private String output() { return dir.resolve("out.csv").toString(); }
+    private String checkpoint() { return dir.resolve("out.csv.checkpoint").toString(); }
+
+    /** Fails on a chosen product, like a run killed part way through. */
+    private static class CrashingTransformer extends Transformer {
+        private final int crashAt;
+        private int seen;
+
+        CrashingTransformer(int crashAt) {
+            this.crashAt = crashAt;
+        }
+
+        @Override
+        public void transform(Product p) {
+            if (++seen == crashAt) {
+                throw new IllegalStateException("crash");
+            }
+            super.transform(p);
+        }
+    }
+
+    private void writeInput(int rows) throws IOException {
+        PipelineTestData.writeRows(Path.of(input()), 1, rows);
+    }
+
+    private String fullRun() throws IOException {
+        return PipelineTestData.streamingOutput(Path.of(input()));
+    }
+
+    @Test
+    public void testRunMatchesStreamingRunAndRemovesCheckpoint() throws IOException {
+        writeInput(100);
+        CheckpointedPipeline run = new CheckpointedPipeline(checkpoint(), 10, new RejectLog());
+        run.run(input(), new Transformer(), output(), false);
+
+        assertEquals(fullRun(), Files.readString(Path.of(output())));
+        assertEquals(100, run.getRowsRead());
+        assertEquals(14, run.getRowsSkipped());
+        assertEquals(10, run.getCheckpointsWritten());
+        assertFalse(Files.exists(Path.of(checkpoint())));
+    }
+
+    @Test
+    public void testResumeAfterCrashGivesIdenticalOutput() throws IOException {
+        writeInput(100);
+        CheckpointedPipeline crashed = new CheckpointedPipeline(checkpoint(), 10, new RejectLog());
+        assertThrows(IllegalStateException.class,
+            () -> crashed.run(input(), new CrashingTransformer(60), output(), false));
+        assertTrue(Files.exists(Path.of(checkpoint())));
+
+        RejectLog rejects = new RejectLog();
+        CheckpointedPipeline resumed = new CheckpointedPipeline(checkpoint(), 10, rejects);
+        resumed.run(input(), new Transformer(), output(), true);
+
+        assertEquals(fullRun(), Files.readString(Path.of(output())));
+        assertEquals(60, resumed.getRowsResumed());
+        assertEquals(100, resumed.getRowsRead());
+        assertEquals(14, resumed.getRowsSkipped());
+        assertEquals(14, rejects.getTotal());
+        assertFalse(Files.exists(Path.of(checkpoint())));
+    }
+
+    @Test
+    public void testResumedRunOnlyCountsWhatItReads() throws IOException {
+        writeInput(100);
+        CheckpointedPipeline crashed = new CheckpointedPipeline(checkpoint(), 10, new RejectLog());
+        assertThrows(IllegalStateException.class,
+            () -> crashed.run(input(), new CrashingTransformer(60), output(), false));
+
+        PipelineMetrics metrics = PipelineMetrics.start(dir.resolve("metrics.json").toString());
+        CheckpointedPipeline resumed = new CheckpointedPipeline(checkpoint(), 10, new RejectLog(), metrics);
+        resumed.run(input(), new Transformer(), output(), true);
+        metrics.close();
+
+        int skipped = resumed.getRowsResumed();
+        int tail = 100 - skipped;
+        int tailGood = tail - (100 / 7 - skipped / 7);
+        assertEquals(tail, metrics.stage(PipelineMetrics.EXTRACT).getRows());
+        assertEquals(tailGood, metrics.stage(PipelineMetrics.TRANSFORM).getRows());
+        assertEquals(tailGood, metrics.stage(PipelineMetrics.LOAD).getRows());
+        assertEquals(Files.size(Path.of(input())) - lineBytes(input(), 1 + skipped, 1),
+            metrics.stage(PipelineMetrics.EXTRACT).getBytes());
+        assertEquals(Files.size(Path.of(output())) - lineBytes(output(), 1 + skipped - skipped / 7,
+                System.lineSeparator().length()),
+            metrics.stage(PipelineMetrics.LOAD).getBytes());
+    }
+
+    /** @return the bytes of the first lines of an ASCII file: a header ending in \n, then rows */
+    private static long lineBytes(String path, int lines, int separatorBytes) throws IOException {
+        long bytes = 0;
+        int n = 0;
+        for (String line : Files.readAllLines(Path.of(path))) {
+            if (n == lines) {
+                break;
+            }
+            bytes += line.length() + (n == 0 ? 1 : separatorBytes);
+            n++;
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testCheckpointForChangedInputIsIgnored() throws IOException {
+        writeInput(100);
+        CheckpointedPipeline crashed = new CheckpointedPipeline(checkpoint(), 10, new RejectLog());
+        assertThrows(IllegalStateException.class,
+            () -> crashed.run(input(), new CrashingTransformer(50), output(), false));
+
+        writeInput(30);
+        CheckpointedPipeline resumed = new CheckpointedPipeline(checkpoint(), 10, new RejectLog());
+        resumed.run(input(), new Transformer(), output(), true);
+
+        assertEquals(0, resumed.getRowsResumed());
+        assertEquals(fullRun(), Files.readString(Path.of(output())));
+    }
+}
@@ -0,0 +1,287 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+import org.howard.edu.lsp.metrics.StageMetrics;
+import org.howard.edu.lsp.metrics.TimedIterator;
+
+/**
+ * Runs extract, transform and load as concurrent stages so that reading,
+ * CPU work and writing overlap.
+ * <p>
+ * One thread pulls products from the source and groups them into batches,
+ * a configurable number of workers transform batches, and one thread writes
+ * them through the {@link Loader} in their original order. Stages are
+ * connected by bounded queues, and the total number of batches in flight
+ * is capped, so a slow stage holds back the ones before it instead of
+ * letting memory grow. If any stage fails, the others are interrupted,
+ * the source is closed, and the first error is rethrown.
+ */
+public class ConcurrentPipeline {
+    /** Products per batch unless configured otherwise. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    /** Batches each queue can hold unless configured otherwise. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final Batch END = new Batch(-1, new ArrayList<>());
+
+    private final int transformWorkers;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final PipelineMetrics metrics;
+
+    /**
+     * Creates a pipeline with default batch size and queue capacity.
+     *
+     * @param transformWorkers number of threads running the Transformer
+     */
+    public ConcurrentPipeline(int transformWorkers) {
+        this(transformWorkers, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param transformWorkers number of threads running the Transformer
+     * @param batchSize products per batch passed between stages
+     * @param queueCapacity batches each queue can hold
+     */
+    public ConcurrentPipeline(int transformWorkers, int batchSize, int queueCapacity) {
+        this(transformWorkers, batchSize, queueCapacity, PipelineMetrics.disabled());
+    }
+
+    /**
+     * Creates a pipeline that records each stage's batch timings.
+     *
+     * @param transformWorkers number of threads running the Transformer
+     * @param batchSize products per batch passed between stages
+     * @param queueCapacity batches each queue can hold
+     * @param metrics where stage timings go
+     */
+    public ConcurrentPipeline(int transformWorkers, int batchSize, int queueCapacity, PipelineMetrics metrics) {
+        if (transformWorkers < 1 || batchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("workers, batch size and queue capacity must be positive");
+        }
+        this.transformWorkers = transformWorkers;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Runs the pipeline to completion. The source is always closed.
+     *
+     * @param source products to transform, usually from the Extractor
+     * @param transformer the transformation rules
+     * @param loader writes the output file
+     * @param outputPath relative path to the output CSV file
+     * @throws IOException if reading or writing fails
+     */
+    public void run(ProductIterator source, Transformer transformer, Loader loader, String outputPath)
+            throws IOException {
+        BlockingQueue<Batch> toTransform = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Batch> toLoad = new ArrayBlockingQueue<>(queueCapacity);
+        // Bounds the reorder buffer in the load stage as well as the queues.
+        Semaphore inFlight = new Semaphore(2 * queueCapacity + transformWorkers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(transformWorkers + 2);
+        CompletionService<Void> stages = new ExecutorCompletionService<>(executor);
+        int running = 0;
+        try {
+            stages.submit(() -> {
+                metrics.threadStarted();
+                try {
+                    extract(source, toTransform, inFlight);
+                } finally {
+                    metrics.threadFinished();
+                }
+                return null;
+            });
+            running++;
+            for (int i = 0; i < transformWorkers; i++) {
+                stages.submit(() -> {
+                    metrics.threadStarted();
+                    try {
+                        transform(transformer, toTransform, toLoad);
+                    } finally {
+                        metrics.threadFinished();
+                    }
+                    return null;
+                });
+                running++;
+            }
+            stages.submit(() -> {
+                metrics.threadStarted();
+                try {
+                    // Time the loader spends between pulls is the time it spends writing.
+                    Iterator<Product> ordered = new OrderedBatches(toLoad, inFlight);
+                    loader.load(metrics.isEnabled()
+                        ? new TimedIterator<>(ordered, null, metrics.stage(PipelineMetrics.LOAD), null, batchSize)
+                        : ordered, outputPath);
+                } finally {
+                    metrics.threadFinished();
+                }
+                return null;
+            });
+            running++;
+
+            while (running > 0) {
+                stages.take().get();
+                running--;
+            }
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            throw asIOException(e.getCause());
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Pipeline interrupted", e);
+        } finally {
+            executor.shutdownNow();
+            source.close();
+        }
+    }
+
+    private void extract(ProductIterator source, BlockingQueue<Batch> out, Semaphore inFlight)
+            throws IOException, InterruptedException {
+        try {
+            StageMetrics stage = metrics.stage(PipelineMetrics.EXTRACT);
+            long seq = 0;
+            List<Product> products = new ArrayList<>(batchSize);
+            long start = System.nanoTime();
+            while (source.hasNext()) {
+                products.add(source.next());
+                if (products.size() == batchSize) {
+                    stage.recordBatch(batchSize, System.nanoTime() - start);
+                    inFlight.acquire();
+                    out.put(new Batch(seq++, products));
+                    products = new ArrayList<>(batchSize);
+                    start = System.nanoTime();
+                }
+            }
+            if (!products.isEmpty()) {
+                stage.recordBatch(products.size(), System.nanoTime() - start);
+                inFlight.acquire();
+                out.put(new Batch(seq, products));
+            }
+            for (int i = 0; i < transformWorkers; i++) {
+                out.put(END);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            source.close();
+        }
+    }
+
+    private void transform(Transformer transformer, BlockingQueue<Batch> in, BlockingQueue<Batch> out)
+            throws InterruptedException {
+        StageMetrics stage = metrics.stage(PipelineMetrics.TRANSFORM);
+        Batch batch;
+        while ((batch = in.take()) != END) {
+            long start = System.nanoTime();
+            transformer.transform(batch.products);
+            stage.recordBatch(batch.products.size(), System.nanoTime() - start);
+            out.put(batch);
+        }
+        out.put(END);
+    }
+
+    private static IOException asIOException(Throwable t) {
+        if (t instanceof IOException) {
+            return (IOException) t;
+        }
+        if (t instanceof UncheckedIOException) {
+            return ((UncheckedIOException) t).getCause();
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IOException(t.getMessage(), t);
+    }
+
+    /**
+     * Products in a batch plus its position in the input.
+     */
+    private static class Batch {
+        final long seq;
+        final List<Product> products;
+
+        Batch(long seq, List<Product> products) {
+            this.seq = seq;
+            this.products = products;
+        }
+    }
+
+    /**
+     * Feeds the Loader the products of transformed batches in input order,
+     * holding back batches that finish early.
+     */
+    private class OrderedBatches implements Iterator<Product> {
+        private final BlockingQueue<Batch> in;
+        private final Semaphore inFlight;
+        private final Map<Long, Batch> early = new HashMap<>();
+        private int workersDone;
+        private long nextSeq;
+        private Iterator<Product> current = new ArrayList<Product>().iterator();
+
+        OrderedBatches(BlockingQueue<Batch> in, Semaphore inFlight) {
+            this.in = in;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                Batch batch = early.remove(nextSeq);
+                try {
+                    while (batch == null && workersDone < transformWorkers) {
+                        Batch b = in.take();
+                        if (b == END) {
+                            workersDone++;
+                        } else if (b.seq == nextSeq) {
+                            batch = b;
+                        } else {
+                            early.put(b.seq, b);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Pipeline stopped");
+                }
+                if (batch == null) {
+                    return false;
+                }
+                inFlight.release();
+                nextSeq++;
+                current = batch.products.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentPipelineTest {
+    /** Long enough that a hang fails the test rather than the build. */
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Products numbered from zero. Fails with failure once that many have
+     * been produced, if set; a negative count never ends.
+     */
+    private static final class Source implements ProductIterator {
+        final AtomicLong produced = new AtomicLong();
+        final long count;
+        volatile boolean closed;
+        RuntimeException failure;
+        long failAt = -1;
+
+        Source(long count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (produced.get() == failAt) {
+                throw failure;
+            }
+            return count < 0 || produced.get() < count;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long id = produced.getAndIncrement();
+            return new Product((int) id, "item " + id, id % 1000 + 0.5, id % 2 == 0 ? "Electronics" : "Books");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /** Collects what the pipeline loads instead of writing a file. */
+    private static class Sink extends Loader {
+        final List<Integer> ids = new ArrayList<>();
+
+        @Override
+        public void load(Iterator<Product> products, String outputPath) throws IOException {
+            while (products.hasNext()) {
+                Product p = products.next();
+                ids.add(p.getProductId());
+                loaded(p);
+            }
+        }
+
+        void loaded(Product p) throws IOException {
+        }
+    }
+
+    @Test
+    public void testOutputKeepsInputOrderWithManyWorkers() throws IOException {
+        int count = 5_003;
+        Source source = new Source(count);
+        // Batches take different times, so workers finish them out of order.
+        Transformer uneven = new Transformer() {
+            @Override
+            public void transform(List<Product> products) {
+                try {
+                    Thread.sleep(products.get(0).getProductId() * 7 % 3);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.transform(products);
+            }
+        };
+        Sink sink = new Sink();
+        assertTimeoutPreemptively(TIMEOUT,
+            () -> new ConcurrentPipeline(4, 10, 2).run(source, uneven, sink, "unused.csv"));
+
+        assertEquals(count, sink.ids.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, (int) sink.ids.get(i));
+        }
+        assertTrue(source.closed);
+    }
+
+    @Test
+    public void testSlowSinkHoldsBackTheSource() throws IOException {
+        int workers = 3;
+        int batchSize = 10;
+        int queueCapacity = 2;
+        Source source = new Source(3_000);
+        AtomicLong maxAhead = new AtomicLong();
+        Sink slow = new Sink() {
+            @Override
+            void loaded(Product p) {
+                maxAhead.accumulateAndGet(source.produced.get() - ids.size(), Math::max);
+                if (ids.size() % batchSize == 0) {
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        assertTimeoutPreemptively(TIMEOUT, () -> new ConcurrentPipeline(workers, batchSize, queueCapacity)
+            .run(source, new Transformer(), slow, "unused.csv"));
+
+        assertEquals(3_000, slow.ids.size());
+        // Batches in flight, plus the one the source is filling and the one being loaded.
+        long bound = (2L * queueCapacity + workers + 2) * batchSize;
+        assertTrue(maxAhead.get() <= bound, "source ran " + maxAhead.get() + " products ahead; bound " + bound);
+        assertTrue(maxAhead.get() > batchSize, "the source should still run ahead of a slow sink");
+    }
+
+    @Test
+    public void testFailingTransformStopsEveryStage() {
+        Source endless = new Source(-1);
+        IllegalStateException boom = new IllegalStateException("bad batch");
+        Transformer failing = new Transformer() {
+            @Override
+            public void transform(List<Product> products) {
+                if (products.get(0).getProductId() >= 500) {
+                    throw boom;
+                }
+                super.transform(products);
+            }
+        };
+        Sink sink = new Sink();
+        IOException e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IOException.class,
+            () -> new ConcurrentPipeline(4, 10, 2).run(endless, failing, sink, "unused.csv")));
+        assertSame(boom, e.getCause());
+        assertTrue(endless.closed);
+        assertTrue(sink.ids.size() <= 500, "nothing after the failed batch is loaded");
+    }
+
+    @Test
+    public void testFailingSourceRethrowsItsException() {
+        Source source = new Source(-1);
+        IOException disk = new IOException("disk error");
+        source.failure = new UncheckedIOException(disk);
+        source.failAt = 777;
+        Sink sink = new Sink();
+        IOException e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IOException.class,
+            () -> new ConcurrentPipeline(2, 10, 2).run(source, new Transformer(), sink, "unused.csv")));
+        assertSame(disk, e);
+        assertTrue(source.closed);
+        assertTrue(sink.ids.size() <= 777);
+    }
+
+    @Test
+    public void testFailingSinkCancelsABlockedSource() {
+        Source endless = new Source(-1);
+        AtomicInteger loaded = new AtomicInteger();
+        IOException full = new IOException("disk full");
+        Sink failing = new Sink() {
+            @Override
+            void loaded(Product p) throws IOException {
+                if (loaded.incrementAndGet() == 250) {
+                    throw full;
+                }
+            }
+        };
+        IOException e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IOException.class,
+            () -> new ConcurrentPipeline(3, 10, 2).run(endless, new Transformer(), failing, "unused.csv")));
+        assertSame(full, e);
+        assertTrue(endless.closed);
+    }
+}
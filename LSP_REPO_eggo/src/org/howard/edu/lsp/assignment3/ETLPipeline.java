@@ -1,56 +1,417 @@
-package org.howard.edu.lsp.assignment3;
-
-import java.util.*;
-
-/**
- * Coordinates the ETL (Extract-Transform-Load) pipeline.
- * Orchestrates reading input data, applying transformations,
- * and writing the output file. Also prints a run summary.
- */
-public class ETLPipeline {
-	/**
-     * Main entry point for the ETL pipeline.
-     *
-     * @param args command line arguments (not used)
-     */
-    public static void main(String[] args) {
-        String inputPath = "data/products.csv";
-        String outputPath = "data/transformed_products.csv";
-
-        Extractor extractor = new Extractor();
-        Transformer transformer = new Transformer();
-        Loader loader = new Loader();
-
-        try {
-            List<Product> products = extractor.extract(inputPath);
-
-            if (products.isEmpty()) {
-                System.out.println("Input file is empty (only header). Output will only contain header.");
-            }
-
-            transformer.transform(products);
-            loader.load(products, outputPath);
-
-            int rowsRead = extractor.getRowsRead();
-            int rowsSkipped = extractor.getRowsSkipped();
-            int rowsTransformed = rowsRead - rowsSkipped;
-
-            /**
-             * Prints a summary of the run including rows read, transformed, and skipped.
-             *
-             * @param rowsRead number of rows read from input
-             * @param rowsTransformed number of rows successfully transformed
-             * @param rowsSkipped number of rows skipped due to errors
-             * @param outputPath path of the written output file
-             */
-            System.out.println("=== Run Summary ===");
-            System.out.println("Rows read: " + rowsRead);
-            System.out.println("Rows transformed: " + rowsTransformed);
-            System.out.println("Rows skipped: " + rowsSkipped);
-            System.out.println("Output written to: " + outputPath);
-
-        } catch (Exception e) {
-            System.err.println("Error: " + e.getMessage());
-        }
-    }
-}
+package org.howard.edu.lsp.assignment3;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+import org.howard.edu.lsp.metrics.StageMetrics;
+import org.howard.edu.lsp.metrics.TimedIterator;
+
+/**
+ * Coordinates the ETL (Extract-Transform-Load) pipeline.
+ * Orchestrates reading input data, applying transformations,
+ * and writing the output file. Also prints a run summary.
+ */
+public class ETLPipeline {
+	/**
+     * Main entry point for the ETL pipeline.
+     *
+     * Options:
+     * <ul>
+     *   <li>{@code --input=FILE} read FILE instead of data/products.csv</li>
+     *   <li>{@code --output=FILE} write FILE instead of
+     *       data/transformed_products.csv</li>
+     *   <li>{@code --parallel} extract with one worker per core</li>
+     *   <li>{@code --parallel=N} extract with N workers</li>
+     *   <li>{@code --mmap} stream the input through a memory mapping</li>
+     *   <li>{@code --pipelined} run extract, transform and load concurrently
+     *       with one transform worker per core</li>
+     *   <li>{@code --pipelined=N} the same with N transform workers</li>
+     *   <li>{@code --incremental} only transform rows that changed since the
+     *       last incremental run, reusing the rest of the previous output</li>
+     *   <li>{@code --checkpoint-every=ROWS} record a checkpoint every ROWS
+     *       input rows so a run that dies can be resumed</li>
+     *   <li>{@code --resume} continue from the checkpoint of an earlier run
+     *       that did not finish, or start over if there is none; the
+     *       checkpoint is kept next to the output</li>
+     *   <li>{@code --format=binary} or {@code --format=binary-deflate} write
+     *       data/transformed_products.bin in the binary format instead of CSV</li>
+     *   <li>{@code --sort} write the output sorted by category and then
+     *       price, spilling sorted runs to temporary files when the rows
+     *       do not fit in the sort memory</li>
+     *   <li>{@code --sort-memory=MB} memory for sorting before rows are
+     *       spilled (default 64)</li>
+     *   <li>{@code --aggregate=FILE} also write the count, minimum, maximum
+     *       and average price per category and price range to FILE</li>
+     *   <li>{@code --join=FILE} add the columns of FILE's row with the same
+     *       ProductID (its first column) to each output row, leaving them
+     *       empty for products without one</li>
+     *   <li>{@code --join-index=FILE} keep the join's index in FILE and read
+     *       it through memory mappings instead of loading the reference into
+     *       memory; FILE is rebuilt when the reference file changes</li>
+     *   <li>{@code --rules=FILE} read the transformation rules from FILE
+     *       instead of data/rules.properties</li>
+     *   <li>{@code --metrics=FILE} record per-stage timings, batch latencies
+     *       and GC/allocation figures and write them to FILE at the end of
+     *       the run (Prometheus text format if FILE ends in {@code .prom},
+     *       JSON otherwise)</li>
+     *   <li>{@code --metrics-interval=SECONDS} also rewrite the metrics file
+     *       every SECONDS while the run is in progress</li>
+     *   <li>{@code --rejects=FILE} write every malformed row to FILE with its
+     *       line number and the reason it was rejected</li>
+     *   <li>{@code --reject-log-rate=N} print at most N malformed rows to the
+     *       console per second (default 10, 0 for none)</li>
+     *   <li>{@code --batch=DIR} or {@code --batch=GLOB} process every CSV file
+     *       in DIR, or every file matching GLOB, in this one JVM; needs
+     *       {@code --output-dir=DIR} (one output per input) or
+     *       {@code --merge=FILE} (all rows in one file)</li>
+     *   <li>{@code --threads=N} process N batch files at once (default one per core)</li>
+     * </ul>
+     * Without options the pipeline streams rows one at a time. Input and
+     * output files whose names end in {@code .gz} are decompressed and
+     * compressed on the fly; the input is inflated on its own thread, ahead
+     * of parsing.
+     *
+     * @param args command line options
+     */
+    public static void main(String[] args) {
+        EtlOptions options;
+        try {
+            options = EtlOptions.parse(args);
+            options.validate();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+
+        Loader loader = new Loader(options.format);
+        PipelineMetrics metrics = options.metricsPath != null
+            ? PipelineMetrics.start(options.metricsPath)
+            : PipelineMetrics.disabled();
+        if (options.metricsInterval > 0) {
+            metrics.startReporting(options.metricsInterval * 1000);
+        }
+
+        try {
+            // Rules are compiled once here; without a rules file the built-in ones apply.
+            TransformRules rules = TransformRules.defaults();
+            if (options.rulesPath != null) {
+                rules = TransformRules.load(Paths.get(options.rulesPath));
+            } else if (Files.exists(Paths.get(TransformRules.DEFAULT_PATH))) {
+                rules = TransformRules.load(Paths.get(TransformRules.DEFAULT_PATH));
+            }
+            Transformer transformer = new Transformer(rules);
+
+            if (options.batch != null) {
+                runBatch(options.batch, options.outputDir, options.mergePath,
+                    new BatchPipeline(options.threads, options.mapped, options.rejectLogRate, metrics),
+                    transformer, metrics);
+                return;
+            }
+
+            // Malformed rows are counted by reason and written out on a background thread.
+            RejectLog rejects = new RejectLog(options.rejectsPath, options.rejectLogRate);
+            Extractor extractor = new Extractor(rejects);
+            if (metrics.isEnabled() && !options.incremental && !options.isCheckpointed()) {
+                // Live byte counts, so periodic dumps show throughput while the run goes on.
+                Path output = Paths.get(options.outputPath);
+                metrics.stage(PipelineMetrics.EXTRACT).trackBytes(extractor::getBytesRead);
+                metrics.stage(PipelineMetrics.LOAD).trackBytes(() -> sizeSoFar(output));
+            }
+
+            IncrementalPipeline delta = null;
+            CheckpointedPipeline checkpoints = null;
+            ExternalSorter sorter = options.sort
+                ? new ExternalSorter(ExternalSorter.BY_CATEGORY_AND_PRICE, options.sortMemory, null)
+                : null;
+            ProductAggregator aggregator = options.aggregatePath != null ? new ProductAggregator() : null;
+            ReferenceIndex index = null;
+            ReferenceJoin join = null;
+            try {
+                if (options.joinPath != null) {
+                    // Index the reference file once; each product then costs one probe.
+                    index = options.joinIndexPath != null
+                        ? MappedReferenceIndex.open(Paths.get(options.joinPath), Paths.get(options.joinIndexPath))
+                        : HeapReferenceIndex.load(Paths.get(options.joinPath));
+                    join = new ReferenceJoin(index);
+                    loader = new Loader(options.format, join.getHeader());
+                }
+                if (options.incremental) {
+                    // Reuse the previous output for rows that did not change.
+                    delta = new IncrementalPipeline(options.outputPath + ".state", rejects, metrics);
+                    delta.run(options.inputPath, transformer, options.outputPath);
+                } else if (options.isCheckpointed()) {
+                    // Checkpoint the input offset and output length as rows go by.
+                    checkpoints = new CheckpointedPipeline(options.outputPath + ".checkpoint",
+                        options.checkpointEvery, rejects, metrics);
+                    checkpoints.run(options.inputPath, transformer, options.outputPath, options.resume);
+                } else if (options.parallelism > 0) {
+                    // Parse on all workers, then transform and write in file order.
+                    long start = System.nanoTime();
+                    List<Product> products = extractor.extractParallel(options.inputPath, options.parallelism);
+                    long extracted = System.nanoTime();
+                    transformer.transform(products);
+                    long transformed = System.nanoTime();
+                    ReferenceJoin streamJoin = join;
+                    if (join != null && sorter == null) {
+                        join.join(products, options.parallelism);
+                        streamJoin = null;
+                    }
+                    if (sorter != null || streamJoin != null || aggregator != null) {
+                        try (ProductIterator sorted = finish(products.iterator(), sorter, streamJoin, aggregator)) {
+                            loader.load(sorted, options.outputPath);
+                        }
+                    } else {
+                        loader.load(products, options.outputPath);
+                    }
+                    long loaded = System.nanoTime();
+                    int rows = products.size();
+                    metrics.stage(PipelineMetrics.EXTRACT).recordBatch(rows, extracted - start);
+                    metrics.stage(PipelineMetrics.TRANSFORM).recordBatch(rows, transformed - extracted);
+                    metrics.stage(PipelineMetrics.LOAD).recordBatch(rows, loaded - transformed);
+                } else if (options.transformWorkers > 0) {
+                    // Overlap reading, transforming and writing on separate threads.
+                    ProductIterator products = options.mapped
+                        ? extractor.iterateMapped(options.inputPath)
+                        : extractor.iterate(options.inputPath);
+                    new ConcurrentPipeline(options.transformWorkers, ConcurrentPipeline.DEFAULT_BATCH_SIZE,
+                        ConcurrentPipeline.DEFAULT_QUEUE_CAPACITY, metrics)
+                        .run(products, transformer, loader, options.outputPath);
+                } else {
+                    // Stream rows from input to output one at a time so memory use
+                    // stays constant regardless of the input size.
+                    try (ProductIterator products = options.mapped
+                            ? extractor.iterateMapped(options.inputPath)
+                            : extractor.iterate(options.inputPath)) {
+                        Iterator<Product> transformed = metrics.isEnabled()
+                            ? timed(products, transformer, metrics)
+                            : transformer.transform(products);
+                        if (sorter != null || join != null || aggregator != null) {
+                            try (ProductIterator sorted = finish(transformed, sorter, join, aggregator)) {
+                                loader.load(sorted, options.outputPath);
+                            }
+                        } else {
+                            loader.load(transformed, options.outputPath);
+                        }
+                    }
+                }
+            } finally {
+                // Flushes the rejects file and prints how many console messages were left out.
+                rejects.close();
+                if (sorter != null) {
+                    sorter.close();
+                }
+                if (index != null) {
+                    index.close();
+                }
+            }
+            if (aggregator != null) {
+                aggregator.write(options.aggregatePath);
+            }
+
+            int rowsRead = delta != null ? delta.getRowsRead()
+                : checkpoints != null ? checkpoints.getRowsRead() : extractor.getRowsRead();
+            int rowsSkipped = delta != null ? delta.getRowsSkipped()
+                : checkpoints != null ? checkpoints.getRowsSkipped() : extractor.getRowsSkipped();
+            int rowsTransformed = rowsRead - rowsSkipped;
+            metrics.setCounter("rows_read", rowsRead);
+            metrics.setCounter("rows_transformed", rowsTransformed);
+            metrics.setCounter("rows_skipped", rowsSkipped);
+
+            if (rowsTransformed == 0) {
+                System.out.println("Input file is empty (only header). Output will only contain header.");
+            }
+
+            /**
+             * Prints a summary of the run including rows read, transformed, and skipped.
+             *
+             * @param rowsRead number of rows read from input
+             * @param rowsTransformed number of rows successfully transformed
+             * @param rowsSkipped number of rows skipped due to errors
+             * @param outputPath path of the written output file
+             */
+            System.out.println("=== Run Summary ===");
+            System.out.println("Rows read: " + rowsRead);
+            System.out.println("Rows transformed: " + rowsTransformed);
+            System.out.println("Rows skipped: " + rowsSkipped);
+            for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+                long count = rejects.getCount(reason);
+                metrics.setCounter("rows_rejected_" + reason.code(), count);
+                if (count > 0) {
+                    System.out.println("  " + reason.getDescription() + ": " + count);
+                }
+            }
+            if (rejects.getPath() != null) {
+                System.out.println("Rejected rows written to: " + rejects.getPath());
+            }
+            if (sorter != null) {
+                metrics.setCounter("sort_runs_spilled", sorter.getRunsSpilled());
+                System.out.println("Sorted by category and price (" + sorter.getRunsSpilled() + " runs spilled)");
+            }
+            if (join != null) {
+                metrics.setCounter("rows_joined", join.getMatched());
+                metrics.setCounter("rows_not_joined", join.getUnmatched());
+                System.out.println("Joined with " + options.joinPath + ": " + join.getMatched() + " matched, "
+                    + join.getUnmatched() + " without a reference row (" + index.size() + " reference rows, "
+                    + index.getRowsSkipped() + " skipped)");
+            }
+            if (aggregator != null) {
+                System.out.println("Aggregates written to: " + options.aggregatePath
+                    + " (" + aggregator.getGroups().size() + " groups)");
+            }
+            if (checkpoints != null) {
+                metrics.setCounter("checkpoints_written", checkpoints.getCheckpointsWritten());
+                metrics.setCounter("rows_resumed", checkpoints.getRowsResumed());
+                if (checkpoints.getRowsResumed() > 0) {
+                    System.out.println("Resumed after row " + checkpoints.getRowsResumed() + " from the last checkpoint.");
+                } else if (options.resume) {
+                    System.out.println("No usable checkpoint; started from the beginning.");
+                }
+                System.out.println("Checkpoints written: " + checkpoints.getCheckpointsWritten());
+            }
+            if (delta != null) {
+                System.out.println("Rows unchanged: " + delta.getRowsUnchanged());
+                System.out.println("Rows inserted: " + delta.getRowsInserted());
+                System.out.println("Rows updated: " + delta.getRowsUpdated());
+                System.out.println("Rows deleted: " + delta.getRowsDeleted());
+                metrics.setCounter("rows_unchanged", delta.getRowsUnchanged());
+                metrics.setCounter("rows_inserted", delta.getRowsInserted());
+                metrics.setCounter("rows_updated", delta.getRowsUpdated());
+                metrics.setCounter("rows_deleted", delta.getRowsDeleted());
+                if (delta.isInputUnchanged()) {
+                    System.out.println("Input unchanged since the last run.");
+                } else if (!delta.isOutputRewritten()) {
+                    System.out.println("No changes; output left as is.");
+                }
+            }
+            if (metrics.isEnabled()) {
+                for (String name : new String[] {PipelineMetrics.EXTRACT, PipelineMetrics.TRANSFORM,
+                        PipelineMetrics.LOAD}) {
+                    StageMetrics stage = metrics.stage(name);
+                    System.out.printf(Locale.ROOT, "%-10s %10d rows %9.3f s %12.0f rows/s%n",
+                        name + ":", stage.getRows(), stage.getNanos() / 1e9, stage.getRowsPerSecond());
+                }
+            }
+            System.out.println("Output written to: " + options.outputPath);
+
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+        } finally {
+            try {
+                metrics.close();
+                if (options.metricsPath != null) {
+                    System.out.println("Metrics written to: " + options.metricsPath);
+                }
+            } catch (IOException e) {
+                System.err.println("Error: could not write metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the optional stages after transform: the external sort, the
+     * reference join (after the sort, whose runs do not keep joined
+     * columns), then the aggregator, which sees the products in the order
+     * they are written.
+     */
+    private static ProductIterator finish(Iterator<Product> transformed, ExternalSorter sorter,
+            ReferenceJoin join, ProductAggregator aggregator) throws IOException {
+        ProductIterator sorted = sorter != null ? sorter.sort(transformed) : null;
+        Iterator<Product> out = sorted != null ? sorted : transformed;
+        if (join != null) {
+            out = join.join(out);
+        }
+        if (aggregator != null) {
+            out = aggregator.observe(out);
+        }
+        Iterator<Product> result = out;
+        return new ProductIterator() {
+            @Override
+            public boolean hasNext() {
+                return result.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                return result.next();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (sorted != null) {
+                    sorted.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs a batch of files and prints a combined summary.
+     */
+    private static void runBatch(String batch, String outputDir, String mergePath, BatchPipeline pipeline,
+            Transformer transformer, PipelineMetrics metrics) throws IOException {
+        List<Path> inputs = BatchPipeline.expand(batch);
+        if (inputs.isEmpty()) {
+            throw new IOException("No input files match " + batch);
+        }
+        if (mergePath != null) {
+            pipeline.runMerged(inputs, transformer, Paths.get(mergePath));
+        } else {
+            pipeline.runPerFile(inputs, transformer, Paths.get(outputDir));
+        }
+
+        long rowsRead = pipeline.getRowsRead();
+        long rowsSkipped = pipeline.getRowsSkipped();
+        metrics.setCounter("files", inputs.size());
+        metrics.setCounter("files_failed", pipeline.getFilesFailed());
+        metrics.setCounter("rows_read", rowsRead);
+        metrics.setCounter("rows_transformed", rowsRead - rowsSkipped);
+        metrics.setCounter("rows_skipped", rowsSkipped);
+
+        System.out.println("=== Batch Summary ===");
+        System.out.println("Files: " + inputs.size() + " (" + pipeline.getFilesFailed() + " failed)");
+        System.out.println("Rows read: " + rowsRead);
+        System.out.println("Rows transformed: " + (rowsRead - rowsSkipped));
+        System.out.println("Rows skipped: " + rowsSkipped);
+        for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+            long count = pipeline.getRejectCount(reason);
+            metrics.setCounter("rows_rejected_" + reason.code(), count);
+            if (count > 0) {
+                System.out.println("  " + reason.getDescription() + ": " + count);
+            }
+        }
+        for (BatchPipeline.FileResult r : pipeline.getResults()) {
+            if (r.getError() != null) {
+                System.out.println("Failed: " + r.getInput() + ": " + r.getError().getMessage());
+            }
+        }
+        System.out.println("Output written to: " + (mergePath != null ? mergePath : outputDir));
+    }
+
+    /** @return the size of a file being written, or 0 before it exists */
+    private static long sizeSoFar(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Chains the streaming stages through timed iterators, so the time spent
+     * reading, transforming and writing each batch of rows is recorded.
+     */
+    static Iterator<Product> timed(ProductIterator products, Transformer transformer,
+            PipelineMetrics metrics) {
+        int batchRows = ConcurrentPipeline.DEFAULT_BATCH_SIZE;
+        TimedIterator<Product> extracted = new TimedIterator<>(products,
+            metrics.stage(PipelineMetrics.EXTRACT), null, null, batchRows);
+        return new TimedIterator<>(transformer.transform(extracted), metrics.stage(PipelineMetrics.TRANSFORM),
+            metrics.stage(PipelineMetrics.LOAD), extracted, batchRows);
+    }
+}
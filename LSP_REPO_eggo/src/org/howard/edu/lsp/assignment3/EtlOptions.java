@@ -0,0 +1,227 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.nio.file.Paths;
+
+import org.howard.edu.lsp.util.Compression;
+
+/**
+ * The command line options of {@link ETLPipeline#main}, which documents
+ * each one. {@link #parse} only reads the options; {@link #validate} then
+ * checks how they combine and fills in the defaults that depend on other
+ * options.
+ * <p>
+ * Each run mode accepts only some of the other options:
+ * <ul>
+ *   <li>{@code --parallel}: not {@code --mmap} or {@code --pipelined}</li>
+ *   <li>{@code --incremental}: only {@code --input}, an uncompressed
+ *       {@code --output}, {@code --rules}, {@code --metrics},
+ *       {@code --rejects} and {@code --reject-log-rate}</li>
+ *   <li>{@code --checkpoint-every} and {@code --resume}: the same as
+ *       {@code --incremental}, with an uncompressed {@code --input} too,
+ *       and without {@code --rejects} when resuming</li>
+ *   <li>{@code --batch}: exactly one of {@code --output-dir} or
+ *       {@code --merge}, plus {@code --mmap}, {@code --threads},
+ *       {@code --rules}, {@code --metrics} and {@code --reject-log-rate}</li>
+ *   <li>{@code --sort}, {@code --aggregate} and {@code --join}: the
+ *       streaming or {@code --parallel} modes, and for {@code --join} only
+ *       the CSV format</li>
+ * </ul>
+ * Options that do not apply to a mode, such as {@code --threads} without
+ * {@code --batch}, are ignored.
+ */
+final class EtlOptions {
+    String inputPath = "data/products.csv";
+    /** Defaults by format in {@link #validate}. */
+    String outputPath;
+    int parallelism;
+    boolean mapped;
+    int transformWorkers;
+    boolean incremental;
+    /** Defaults to {@link CheckpointedPipeline#DEFAULT_INTERVAL_ROWS} with {@code --resume}. */
+    int checkpointEvery;
+    boolean resume;
+    Loader.Format format = Loader.Format.CSV;
+    String rulesPath;
+    String metricsPath;
+    long metricsInterval;
+    String rejectsPath;
+    int rejectLogRate = RejectLog.DEFAULT_CONSOLE_PER_SECOND;
+    String batch;
+    String outputDir;
+    String mergePath;
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean sort;
+    long sortMemory = ExternalSorter.DEFAULT_MEMORY_BYTES;
+    String aggregatePath;
+    String joinPath;
+    String joinIndexPath;
+
+    /**
+     * Reads the options without checking how they combine.
+     *
+     * @param args command line options
+     * @return the options
+     * @throws IllegalArgumentException for an unknown option or a bad number
+     */
+    static EtlOptions parse(String[] args) {
+        EtlOptions o = new EtlOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--input=")) {
+                o.inputPath = value(arg);
+            } else if (arg.startsWith("--output=")) {
+                o.outputPath = value(arg);
+            } else if (arg.equals("--parallel")) {
+                o.parallelism = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--parallel=")) {
+                o.parallelism = intNumber(arg);
+            } else if (arg.equals("--pipelined")) {
+                o.transformWorkers = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--pipelined=")) {
+                o.transformWorkers = intNumber(arg);
+            } else if (arg.equals("--mmap")) {
+                o.mapped = true;
+            } else if (arg.equals("--incremental")) {
+                o.incremental = true;
+            } else if (arg.startsWith("--checkpoint-every=")) {
+                o.checkpointEvery = intNumber(arg);
+            } else if (arg.equals("--resume")) {
+                o.resume = true;
+            } else if (arg.equals("--format=csv")) {
+                o.format = Loader.Format.CSV;
+            } else if (arg.equals("--format=binary")) {
+                o.format = Loader.Format.BINARY;
+            } else if (arg.equals("--format=binary-deflate")) {
+                o.format = Loader.Format.BINARY_DEFLATE;
+            } else if (arg.equals("--sort")) {
+                o.sort = true;
+            } else if (arg.startsWith("--sort-memory=")) {
+                o.sortMemory = number(arg) << 20;
+            } else if (arg.startsWith("--aggregate=")) {
+                o.aggregatePath = value(arg);
+            } else if (arg.startsWith("--join=")) {
+                o.joinPath = value(arg);
+            } else if (arg.startsWith("--join-index=")) {
+                o.joinIndexPath = value(arg);
+            } else if (arg.startsWith("--rules=")) {
+                o.rulesPath = value(arg);
+            } else if (arg.startsWith("--metrics=")) {
+                o.metricsPath = value(arg);
+            } else if (arg.startsWith("--metrics-interval=")) {
+                o.metricsInterval = number(arg);
+            } else if (arg.startsWith("--rejects=")) {
+                o.rejectsPath = value(arg);
+            } else if (arg.startsWith("--reject-log-rate=")) {
+                o.rejectLogRate = intNumber(arg);
+            } else if (arg.startsWith("--batch=")) {
+                o.batch = value(arg);
+            } else if (arg.startsWith("--output-dir=")) {
+                o.outputDir = value(arg);
+            } else if (arg.startsWith("--merge=")) {
+                o.mergePath = value(arg);
+            } else if (arg.startsWith("--threads=")) {
+                o.threads = intNumber(arg);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        return o;
+    }
+
+    /**
+     * Checks that the options can be used together, then fills in the
+     * output path and checkpoint interval if they were not given.
+     *
+     * @throws IllegalArgumentException naming the options that conflict
+     */
+    void validate() {
+        if (joinIndexPath != null && joinPath == null) {
+            throw new IllegalArgumentException("--join-index needs --join");
+        }
+        if (metricsInterval > 0 && metricsPath == null) {
+            throw new IllegalArgumentException("--metrics-interval needs --metrics");
+        }
+        if (batch == null && (outputDir != null || mergePath != null)) {
+            throw new IllegalArgumentException("--output-dir and --merge need --batch");
+        }
+
+        boolean csv = format == Loader.Format.CSV;
+        if (parallelism > 0 && (mapped || transformWorkers > 0)) {
+            throw new IllegalArgumentException("--parallel cannot be combined with --mmap or --pipelined");
+        }
+        if (incremental) {
+            if (parallelism > 0 || mapped || transformWorkers > 0 || !csv) {
+                throw new IllegalArgumentException("--incremental cannot be combined with other options");
+            }
+            if (compressed(outputPath)) {
+                throw new IllegalArgumentException("--incremental cannot write a compressed output");
+            }
+        }
+        if (resume && checkpointEvery == 0) {
+            checkpointEvery = CheckpointedPipeline.DEFAULT_INTERVAL_ROWS;
+        }
+        if (isCheckpointed()) {
+            if (parallelism > 0 || mapped || transformWorkers > 0 || incremental || !csv || batch != null
+                    || sort || aggregatePath != null || joinPath != null) {
+                throw new IllegalArgumentException(
+                    "--checkpoint-every and --resume cannot be combined with other options");
+            }
+            if (compressed(inputPath) || compressed(outputPath)) {
+                throw new IllegalArgumentException(
+                    "--checkpoint-every and --resume cannot read or write compressed files");
+            }
+            if (resume && rejectsPath != null) {
+                throw new IllegalArgumentException("--resume cannot be combined with --rejects");
+            }
+        }
+        if (batch != null) {
+            if ((outputDir == null) == (mergePath == null)) {
+                throw new IllegalArgumentException("--batch needs exactly one of --output-dir or --merge");
+            }
+            if (parallelism > 0 || transformWorkers > 0 || incremental || !csv || rejectsPath != null) {
+                throw new IllegalArgumentException("--batch can only be combined with --mmap, --threads, "
+                    + "--rules, --metrics and --reject-log-rate");
+            }
+        }
+        if ((sort || aggregatePath != null) && (transformWorkers > 0 || incremental || batch != null)) {
+            throw new IllegalArgumentException("--sort and --aggregate cannot be combined with --pipelined, "
+                + "--incremental or --batch");
+        }
+        if (joinPath != null && (transformWorkers > 0 || incremental || batch != null || !csv)) {
+            throw new IllegalArgumentException("--join cannot be combined with --pipelined, --incremental, "
+                + "--batch or a binary format");
+        }
+
+        if (outputPath == null) {
+            outputPath = csv ? "data/transformed_products.csv" : "data/transformed_products.bin";
+        }
+    }
+
+    /** @return whether the run records checkpoints, after {@link #validate} */
+    boolean isCheckpointed() {
+        return checkpointEvery > 0;
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static long number(String arg) {
+        try {
+            return Long.parseLong(value(arg));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + arg);
+        }
+    }
+
+    private static int intNumber(String arg) {
+        try {
+            return Integer.parseInt(value(arg));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + arg);
+        }
+    }
+
+    private static boolean compressed(String path) {
+        return path != null && Compression.isCompressed(Paths.get(path));
+    }
+}
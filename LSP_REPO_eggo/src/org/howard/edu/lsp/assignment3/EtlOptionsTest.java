@@ -0,0 +1,66 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EtlOptionsTest {
+    private static EtlOptions valid(String... args) {
+        EtlOptions options = EtlOptions.parse(args);
+        options.validate();
+        return options;
+    }
+
+    private static String rejected(String... args) {
+        return assertThrows(IllegalArgumentException.class, () -> valid(args)).getMessage();
+    }
+
+    @Test
+    public void testDefaults() {
+        EtlOptions options = valid();
+        assertEquals("data/products.csv", options.inputPath);
+        assertEquals("data/transformed_products.csv", options.outputPath);
+        assertFalse(options.isCheckpointed());
+        assertEquals("data/transformed_products.bin", valid("--format=binary").outputPath);
+        assertEquals("out.bin", valid("--format=binary", "--output=out.bin").outputPath);
+    }
+
+    @Test
+    public void testBadOptions() {
+        assertEquals("Unknown option --fast", rejected("--fast"));
+        assertEquals("Not a number: --parallel=four", rejected("--parallel=four"));
+        assertEquals("Not a number: --threads=99999999999", rejected("--threads=99999999999"));
+        assertEquals(8L << 20, valid("--sort", "--sort-memory=8").sortMemory);
+    }
+
+    @Test
+    public void testResume() {
+        EtlOptions options = valid("--resume", "--input=in.csv", "--output=out.csv", "--rules=r.properties",
+            "--metrics=m.json", "--metrics-interval=5", "--reject-log-rate=0", "--format=csv");
+        assertTrue(options.isCheckpointed());
+        assertEquals(CheckpointedPipeline.DEFAULT_INTERVAL_ROWS, options.checkpointEvery);
+        assertEquals(500, valid("--resume", "--checkpoint-every=500").checkpointEvery);
+
+        String combined = "--checkpoint-every and --resume cannot be combined with other options";
+        for (String other : new String[] {"--parallel=2", "--mmap", "--pipelined=2", "--incremental",
+                "--format=binary", "--batch=in", "--sort", "--aggregate=a.csv", "--join=ref.csv"}) {
+            assertEquals(combined, rejected("--resume", other), other);
+        }
+        assertEquals("--checkpoint-every and --resume cannot read or write compressed files",
+            rejected("--resume", "--input=in.csv.gz"));
+        assertEquals("--resume cannot be combined with --rejects", rejected("--resume", "--rejects=r.csv"));
+        valid("--checkpoint-every=100", "--rejects=r.csv");
+    }
+
+    @Test
+    public void testModeConflicts() {
+        assertEquals("--parallel cannot be combined with --mmap or --pipelined", rejected("--parallel=2", "--mmap"));
+        assertEquals("--incremental cannot write a compressed output", rejected("--incremental", "--output=o.csv.gz"));
+        assertEquals("--batch needs exactly one of --output-dir or --merge", rejected("--batch=in"));
+        assertEquals("--output-dir and --merge need --batch", rejected("--merge=all.csv"));
+        assertEquals("--join-index needs --join", rejected("--join-index=ref.idx"));
+        assertEquals("--metrics-interval needs --metrics", rejected("--metrics-interval=5"));
+        valid("--batch=in", "--merge=all.csv", "--mmap", "--threads=2", "--metrics=m.json");
+        valid("--parallel=2", "--sort", "--aggregate=a.csv", "--join=ref.csv", "--join-index=ref.idx");
+    }
+}
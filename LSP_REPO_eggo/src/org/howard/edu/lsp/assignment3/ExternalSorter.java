@@ -0,0 +1,288 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts transformed products that may not fit in memory.
+ * <p>
+ * Products are collected until their estimated size reaches the memory
+ * budget, sorted, and spilled to a temporary file as a run in the
+ * uncompressed {@link ProductBinaryWriter} format, so spilled rows are read
+ * back without any text parsing. The last rows stay in memory. The runs are
+ * then merged with a priority queue; if there are more than
+ * {@link #MAX_FAN_IN} of them, neighbouring runs are first merged into
+ * larger ones. The sort is stable: rows that compare equal keep their
+ * input order.
+ * <p>
+ * Row sizes are estimated rather than measured, so the budget is
+ * approximate. Merging holds one block of rows per run in memory. Temporary
+ * files are deleted as soon as they are merged and, at the latest, when the
+ * sorter is closed.
+ */
+public class ExternalSorter implements Closeable {
+    /** Orders products by category name (no category first), then by price. */
+    public static final Comparator<Product> BY_CATEGORY_AND_PRICE = (a, b) -> {
+        Category ca = a.getCategoryEntry();
+        Category cb = b.getCategoryEntry();
+        if (ca != cb) {
+            if (ca == null || cb == null) {
+                return ca == null ? -1 : 1;
+            }
+            int c = ca.getName().compareTo(cb.getName());
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Double.compare(a.getPrice(), b.getPrice());
+    };
+
+    /** Memory budget unless another is given. */
+    public static final long DEFAULT_MEMORY_BYTES = 64L << 20;
+    /** Most runs merged at once. */
+    public static final int MAX_FAN_IN = 64;
+
+    /** Estimated bytes per product besides its name: the object, its list slot and the name's String. */
+    static final int ROW_OVERHEAD_BYTES = 112;
+
+    private final Comparator<Product> order;
+    private final long memoryBytes;
+    private final Path tempDir;
+    private final List<Path> runs = new ArrayList<>();
+    private int runsSpilled;
+
+    /**
+     * Creates a sorter.
+     *
+     * @param order the sort order
+     * @param memoryBytes roughly how many bytes of products to hold before spilling a run
+     * @param tempDir where to put runs, or null for the system temporary directory
+     */
+    public ExternalSorter(Comparator<Product> order, long memoryBytes, Path tempDir) {
+        if (memoryBytes <= 0) {
+            throw new IllegalArgumentException("memoryBytes must be positive: " + memoryBytes);
+        }
+        this.order = order;
+        this.memoryBytes = memoryBytes;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Sorts products. The input is consumed before the first sorted product
+     * is returned.
+     *
+     * @param products the products to sort, consumed once
+     * @return the products in sorted order; closing it deletes the remaining runs
+     * @throws IOException if a run cannot be written or read
+     */
+    public ProductIterator sort(Iterator<Product> products) throws IOException {
+        List<Product> buffer = new ArrayList<>();
+        long used = 0;
+        try {
+            while (products.hasNext()) {
+                Product p = products.next();
+                buffer.add(p);
+                used += ROW_OVERHEAD_BYTES + (p.getName() != null ? p.getName().length() : 0);
+                if (used >= memoryBytes) {
+                    runs.add(spill(buffer));
+                    buffer.clear();
+                    used = 0;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        buffer.sort(order);
+
+        while (runs.size() > MAX_FAN_IN) {
+            // Merge the first runs into one; keeping it first keeps the sort stable.
+            List<Path> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+            Path merged = newRun();
+            try (ProductIterator it = new Merge(group, null);
+                 ProductBinaryWriter writer = newRunWriter(merged)) {
+                while (it.hasNext()) {
+                    writer.write(it.next());
+                }
+            } catch (IOException | UncheckedIOException e) {
+                Files.deleteIfExists(merged);
+                throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : (IOException) e;
+            }
+            runs.subList(0, MAX_FAN_IN).clear();
+            runs.add(0, merged);
+        }
+        ProductIterator sorted = new Merge(new ArrayList<>(runs), buffer);
+        runs.clear(); // now deleted by the merge
+        return sorted;
+    }
+
+    /** @return how many runs the last sort spilled to disk, not counting merged runs */
+    public int getRunsSpilled() {
+        return runsSpilled;
+    }
+
+    /**
+     * Deletes any runs left behind by a sort that failed.
+     *
+     * @throws IOException if a run cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private Path spill(List<Product> buffer) throws IOException {
+        buffer.sort(order);
+        Path run = newRun();
+        try (ProductBinaryWriter writer = newRunWriter(run)) {
+            for (Product p : buffer) {
+                writer.write(p);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(run);
+            throw e;
+        }
+        runsSpilled++;
+        return run;
+    }
+
+    private Path newRun() throws IOException {
+        return tempDir != null
+            ? Files.createTempFile(tempDir, "etl-sort-", ".run")
+            : Files.createTempFile("etl-sort-", ".run");
+    }
+
+    private static ProductBinaryWriter newRunWriter(Path run) throws IOException {
+        return new ProductBinaryWriter(FileChannel.open(run, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING), false);
+    }
+
+    /** One sorted source being merged: a run file or the rows still in memory. */
+    private static final class Source {
+        final int index;
+        final Path path;
+        final ProductBinaryReader reader;
+        Iterator<Product> block;
+        Product head;
+
+        Source(int index, Path path, ProductBinaryReader reader, Iterator<Product> block) {
+            this.index = index;
+            this.path = path;
+            this.reader = reader;
+            this.block = block;
+        }
+
+        /** Moves to the next product; returns false when the source is used up. */
+        boolean advance() throws IOException {
+            while (!block.hasNext()) {
+                ProductBatch batch = reader != null ? reader.nextBatch() : null;
+                if (batch == null) {
+                    head = null;
+                    return false;
+                }
+                block = batch.toProducts().iterator();
+            }
+            head = block.next();
+            return true;
+        }
+    }
+
+    /** K-way merge of sorted sources; ties go to the earlier source. */
+    private final class Merge implements ProductIterator {
+        private final PriorityQueue<Source> queue;
+        private final List<Source> open = new ArrayList<>();
+
+        Merge(List<Path> paths, List<Product> memory) throws IOException {
+            queue = new PriorityQueue<>(Math.max(1, paths.size() + 1), (a, b) -> {
+                int c = order.compare(a.head, b.head);
+                return c != 0 ? c : Integer.compare(a.index, b.index);
+            });
+            try {
+                for (Path path : paths) {
+                    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                    ProductBinaryReader reader;
+                    try {
+                        reader = new ProductBinaryReader(channel);
+                    } catch (IOException e) {
+                        channel.close();
+                        throw e;
+                    }
+                    Source source = new Source(open.size(), path, reader, Collections.emptyIterator());
+                    open.add(source);
+                    if (source.advance()) {
+                        queue.add(source);
+                    }
+                }
+                if (memory != null) {
+                    Source source = new Source(open.size(), null, null, memory.iterator());
+                    open.add(source);
+                    if (source.advance()) {
+                        queue.add(source);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Product next() {
+            Source source = queue.poll();
+            if (source == null) {
+                throw new NoSuchElementException();
+            }
+            Product p = source.head;
+            try {
+                if (source.advance()) {
+                    queue.add(source);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return p;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (Source source : open) {
+                if (source.reader == null) {
+                    continue;
+                }
+                try {
+                    source.reader.close();
+                    Files.deleteIfExists(source.path);
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            open.clear();
+            queue.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
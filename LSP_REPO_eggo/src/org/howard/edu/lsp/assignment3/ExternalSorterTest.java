@@ -0,0 +1,88 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class ExternalSorterTest {
+    private static final String[] CATEGORIES = {"Toys", "Electronics", "Books", "Garden", ""};
+
+    @TempDir
+    Path dir;
+
+    private static List<Product> products(int count) {
+        CategoryDictionary categories = new CategoryDictionary();
+        Random random = new Random(5);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            Product p = Product.ofCents(i, "Item" + i, random.nextInt(500), categories.intern(category));
+            p.setPriceRange(ProductBatch.PRICE_RANGES[random.nextInt(ProductBatch.PRICE_RANGES.length)]);
+            products.add(p);
+        }
+        return products;
+    }
+
+    private List<String> sortedRows(List<Product> products, long memoryBytes, int[] runs) throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (ExternalSorter sorter = new ExternalSorter(ExternalSorter.BY_CATEGORY_AND_PRICE, memoryBytes, dir);
+             ProductIterator sorted = sorter.sort(products.iterator())) {
+            while (sorted.hasNext()) {
+                rows.add(sorted.next().toString());
+            }
+            runs[0] = sorter.getRunsSpilled();
+        }
+        return rows;
+    }
+
+    @Test
+    public void testSpilledSortMatchesInMemoryStableSort() throws IOException {
+        List<Product> products = products(50_000);
+        List<Product> expected = new ArrayList<>(products);
+        expected.sort(ExternalSorter.BY_CATEGORY_AND_PRICE);
+        List<String> expectedRows = new ArrayList<>();
+        for (Product p : expected) {
+            expectedRows.add(p.toString());
+        }
+
+        int[] runs = new int[1];
+        assertEquals(expectedRows, sortedRows(products, Long.MAX_VALUE, runs));
+        assertEquals(0, runs[0]);
+
+        // small enough for more runs than one merge takes
+        long memory = 50_000L * ExternalSorter.ROW_OVERHEAD_BYTES / (ExternalSorter.MAX_FAN_IN * 2);
+        assertEquals(expectedRows, sortedRows(products, memory, runs));
+        assertTrue(runs[0] > ExternalSorter.MAX_FAN_IN, "runs " + runs[0]);
+
+        try (Stream<Path> left = Files.list(dir)) {
+            assertEquals(0, left.count());
+        }
+    }
+
+    @Test
+    public void testClosingEarlyDeletesRuns() throws IOException {
+        try (ExternalSorter sorter = new ExternalSorter(ExternalSorter.BY_CATEGORY_AND_PRICE, 10_000, dir)) {
+            ProductIterator sorted = sorter.sort(products(1000).iterator());
+            assertTrue(sorted.hasNext());
+            sorted.next();
+            sorted.close();
+        }
+        try (Stream<Path> left = Files.list(dir)) {
+            assertEquals(0, left.count());
+        }
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        assertTrue(sortedRows(new ArrayList<>(), 1000, new int[1]).isEmpty());
+    }
+}
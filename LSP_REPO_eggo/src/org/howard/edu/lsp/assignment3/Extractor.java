@@ -1,69 +1,483 @@
-package org.howard.edu.lsp.assignment3;
-
-import java.io.*;
-import java.util.*;
-
-/**
- * Handles extracting product data from a CSV file.
- * Reads the file line by line and converts each row into a Product object.
- */
-
-public class Extractor {
-    private int rowsRead = 0;
-    private int rowsSkipped = 0;
-    
-    /**
-     * Reads products from a CSV file and returns them as a list.
-     *
-     * @param inputPath relative path to the input CSV file
-     * @return list of Product objects extracted from the file
-     * @throws IOException if the file cannot be read
-     */
-
-    public List<Product> extract(String inputPath) throws IOException {
-        List<Product> products = new ArrayList<>();
-        File inputFile = new File(inputPath);
-
-        if (!inputFile.exists()) {
-            throw new FileNotFoundException("The file " + inputPath + " does not exist.");
-        }
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
-            String header = reader.readLine(); // skip header
-            if (header == null) return products; // empty file case
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                rowsRead++;
-                String[] cols = line.split(",");
-
-                // enforce exactly 4 columns
-                if (cols.length != 4) {
-                	System.out.println("Skipping malformed line: " + line);
-                    rowsSkipped++;
-                    continue;
-                }
-
-                // Trim and strip quotes
-                for (int i = 0; i < cols.length; i++) {
-                    cols[i] = cols[i].trim().replaceAll("^\"|\"$", "");
-                }
-
-                try {
-                    int id = Integer.parseInt(cols[0]);
-                    String name = cols[1];
-                    double price = Double.parseDouble(cols[2]);
-                    String category = cols[3];
-                    products.add(new Product(id, name, price, category));
-                } catch (NumberFormatException e) {
-                	System.out.println("Skipping malformed line: " + line);
-                    rowsSkipped++;
-                }
-            }
-        }
-        return products;
-    }
-
-    public int getRowsRead() { return rowsRead; }
-    public int getRowsSkipped() { return rowsSkipped; }
-}
+package org.howard.edu.lsp.assignment3;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.howard.edu.lsp.util.Cents;
+import org.howard.edu.lsp.util.Compression;
+import org.howard.edu.lsp.util.CsvReader;
+import org.howard.edu.lsp.util.CsvTokenizer;
+import org.howard.edu.lsp.util.MappedCsvReader;
+
+/**
+ * Handles extracting product data from a CSV file.
+ * Reads the file line by line and converts each row into a Product object.
+ * Rows are split with {@link CsvTokenizer}, which parses the numeric
+ * columns straight from its buffer. Category names are interned in a
+ * {@link CategoryDictionary} owned by the extractor, so all products with
+ * the same category share one {@link Category}.
+ * Inputs whose name ends in {@code .gz} are decompressed on the fly by
+ * {@link Compression}.
+ */
+
+public class Extractor {
+    /** Smallest byte range worth handing to a separate worker. */
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    /** Chunks per worker, so uneven rows still balance across the pool. */
+    private static final int CHUNKS_PER_WORKER = 4;
+    /** Rows between updates of the byte count while reading a mapped file. */
+    private static final int MAPPED_PROGRESS_ROWS = 4096;
+
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final RejectLog rejects;
+    private int rowsRead = 0;
+    private int rowsSkipped = 0;
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * Creates an extractor that counts malformed rows and prints each one
+     * to the console (see {@link RejectLog#RejectLog()}).
+     */
+    public Extractor() {
+        this(new RejectLog());
+    }
+
+    /**
+     * Creates an extractor that reports malformed rows to a reject log.
+     *
+     * @param rejects where malformed rows go; the caller closes it
+     */
+    public Extractor(RejectLog rejects) {
+        this.rejects = rejects;
+    }
+    
+    /**
+     * Reads products from a CSV file and returns them as a list.
+     *
+     * @param inputPath relative path to the input CSV file
+     * @return list of Product objects extracted from the file
+     * @throws IOException if the file cannot be read
+     */
+
+    public List<Product> extract(String inputPath) throws IOException {
+        List<Product> products = new ArrayList<>();
+        try (ProductIterator it = iterate(inputPath)) {
+            while (it.hasNext()) {
+                products.add(it.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return products;
+    }
+
+    /**
+     * Opens a CSV file for streaming extraction. Rows are read and parsed
+     * only as the returned iterator is advanced, so memory use does not grow
+     * with the size of the file. The row counters of this extractor are
+     * updated as rows are consumed.
+     *
+     * @param inputPath relative path to the input CSV file
+     * @return an iterator over the valid products in the file; must be closed
+     * @throws IOException if the file cannot be opened
+     */
+    public ProductIterator iterate(String inputPath) throws IOException {
+        File inputFile = new File(inputPath);
+
+        if (!inputFile.exists()) {
+            throw new FileNotFoundException("The file " + inputPath + " does not exist.");
+        }
+
+        InputStream in = new CountingInputStream(Compression.newInputStream(inputFile.toPath()), bytesRead);
+        return open(new CsvTokenizer(new InputStreamReader(in)));
+    }
+
+    /**
+     * Opens a CSV file for streaming extraction through a memory mapping.
+     * The mapped bytes are tokenized in place and only the name and category
+     * of each row become Strings, which avoids decoding the whole file to
+     * chars. The input must be ASCII or UTF-8. A compressed file cannot be
+     * mapped and is streamed as by {@link #iterate(String)} instead.
+     *
+     * @param inputPath relative path to the input CSV file
+     * @return an iterator over the valid products in the file; must be closed
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public ProductIterator iterateMapped(String inputPath) throws IOException {
+        File inputFile = new File(inputPath);
+
+        if (!inputFile.exists()) {
+            throw new FileNotFoundException("The file " + inputPath + " does not exist.");
+        }
+
+        if (Compression.isCompressed(inputFile.toPath())) {
+            return iterate(inputPath);
+        }
+        return open(new MappedCsvReader(inputFile.toPath()));
+    }
+
+    private ProductIterator open(CsvReader csv) throws IOException {
+        try {
+            csv.next(); // skip header (false for an empty file)
+        } catch (IOException e) {
+            csv.close();
+            throw e;
+        }
+        return new RecordIterator(csv);
+    }
+
+    private ProductIterator open(MappedCsvReader csv) throws IOException {
+        ProductIterator records = open((CsvReader) csv);
+        bytesRead.add(csv.position());
+        return records;
+    }
+
+    /**
+     * Reads products from a CSV file using several threads and returns them
+     * as a list in file order. The file is cut into byte ranges that start
+     * and end on line boundaries, each range is parsed on a fork-join pool,
+     * and the per-range results and row counts are merged in order. A
+     * compressed file cannot be split into ranges and is read as by
+     * {@link #extract(String)} instead.
+     *
+     * @param inputPath relative path to the input CSV file
+     * @param parallelism number of worker threads to use
+     * @return list of Product objects extracted from the file
+     * @throws IOException if the file cannot be read
+     */
+    public List<Product> extractParallel(String inputPath, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        File inputFile = new File(inputPath);
+
+        if (!inputFile.exists()) {
+            throw new FileNotFoundException("The file " + inputPath + " does not exist.");
+        }
+        if (Compression.isCompressed(inputFile.toPath())) {
+            return extract(inputPath);
+        }
+
+        long[] bounds;
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            bounds = splitAtLines(channel, parallelism * CHUNKS_PER_WORKER);
+        }
+
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(pool.submit(() -> parseChunk(inputFile, start, end)));
+            }
+
+            List<Chunk> chunks = new ArrayList<>(tasks.size());
+            int total = 0;
+            for (ForkJoinTask<Chunk> task : tasks) {
+                Chunk chunk = task.join();
+                chunks.add(chunk);
+                total += chunk.products.size();
+            }
+
+            List<Product> products = new ArrayList<>(total);
+            for (Chunk chunk : chunks) {
+                products.addAll(chunk.products);
+                // Every row is one line, so earlier chunks give this chunk's first line number.
+                chunk.rejects.replayInto(rejects, 1 + rowsRead);
+                rowsRead += chunk.rowsRead;
+                rowsSkipped += chunk.rowsSkipped;
+            }
+            return products;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes chunk boundaries for parallel parsing. The first boundary is
+     * the end of the header line and every boundary is the start of a line.
+     *
+     * @param channel the open input file
+     * @param chunks the desired number of chunks
+     * @return ascending byte offsets; chunk i spans [bounds[i], bounds[i + 1])
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] splitAtLines(FileChannel channel, int chunks) throws IOException {
+        long size = channel.size();
+        long dataStart = endOfLine(channel, 0, size);
+        long dataBytes = size - dataStart;
+        int count = (int) Math.max(1, Math.min(chunks, dataBytes / MIN_CHUNK_BYTES));
+
+        long[] bounds = new long[count + 1];
+        bounds[0] = dataStart;
+        for (int i = 1; i < count; i++) {
+            long target = dataStart + dataBytes * i / count;
+            bounds[i] = Math.max(bounds[i - 1], endOfLine(channel, target, size));
+        }
+        bounds[count] = size;
+        return bounds;
+    }
+
+    /**
+     * Finds the offset just past the line terminator (\n, \r or \r\n)
+     * of the line containing the given position, or the end of the file.
+     */
+    private static long endOfLine(FileChannel channel, long from, long size) throws IOException {
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(from)));
+        long pos = from;
+        int b;
+        while ((b = in.read()) != -1) {
+            pos++;
+            if (b == '\n') {
+                return pos;
+            }
+            if (b == '\r') {
+                return (pos < size && in.read() == '\n') ? pos + 1 : pos;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Parses the lines in one byte range of the file. Runs on a pool thread,
+     * so it only touches its own result and never the shared counters.
+     */
+    private Chunk parseChunk(File inputFile, long start, long end) {
+        Chunk chunk = new Chunk();
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            channel.position(start);
+            InputStream range = new BoundedInputStream(
+                new CountingInputStream(Channels.newInputStream(channel), bytesRead), end - start);
+            CsvTokenizer csv = new CsvTokenizer(new InputStreamReader(range));
+            while (csv.next()) {
+                chunk.rowsRead++;
+                Product p = parseRecord(csv, categories, chunk.rejects, chunk.rowsRead);
+                if (p == null) {
+                    chunk.rowsSkipped++;
+                } else {
+                    chunk.products.add(p);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk;
+    }
+
+    /**
+     * Converts the current record into a product, reporting it if it is malformed.
+     *
+     * @param csv reader positioned on a data row
+     * @param categories dictionary to intern the category in
+     * @param rejects where a malformed row is reported
+     * @param line the row's line number, counting the header as line 1
+     * @return the parsed product, or null if the row should be skipped
+     */
+    static Product parseRecord(CsvReader csv, CategoryDictionary categories, RejectLog rejects, long line) {
+        // enforce exactly 4 columns
+        if (csv.error() != null) {
+            rejects.reject(line, RejectLog.Reason.MALFORMED_CSV, csv.line());
+            return null;
+        }
+        if (csv.fieldCount() != 4) {
+            rejects.reject(line, RejectLog.Reason.WRONG_COLUMN_COUNT, csv.line());
+            return null;
+        }
+
+        int id;
+        try {
+            id = csv.intField(0);
+        } catch (NumberFormatException e) {
+            rejects.reject(line, RejectLog.Reason.INVALID_ID, csv.line());
+            return null;
+        }
+        String name = csv.field(1);
+        long cents = csv.centsField(2);
+        double price = 0;
+        if (cents == Cents.NONE) {
+            try {
+                price = csv.doubleField(2);
+            } catch (NumberFormatException e) {
+                rejects.reject(line, RejectLog.Reason.INVALID_PRICE, csv.line());
+                return null;
+            }
+        }
+        Category category = categories.intern(csv.field(3));
+        if (cents != Cents.NONE) {
+            return Product.ofCents(id, name, cents, category);
+        }
+        return new Product(id, name, price, category);
+    }
+
+    /**
+     * Iterator that reads ahead exactly one valid row from the reader.
+     */
+    private class RecordIterator implements ProductIterator {
+        private final CsvReader csv;
+        private final MappedCsvReader mapped;
+        private long mappedCounted;
+        private int rowsSinceProgress;
+        private Product next;
+        private boolean done;
+
+        RecordIterator(CsvReader csv) {
+            this.csv = csv;
+            this.mapped = csv instanceof MappedCsvReader ? (MappedCsvReader) csv : null;
+            this.mappedCounted = mapped != null ? mapped.position() : 0;
+        }
+
+        /** Adds how far a mapped reader has got to the byte count; streams count themselves. */
+        private void countMapped() {
+            long position = mapped.position();
+            bytesRead.add(position - mappedCounted);
+            mappedCounted = position;
+            rowsSinceProgress = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                boolean more;
+                try {
+                    more = csv.next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (!more) {
+                    done = true;
+                    if (mapped != null) {
+                        countMapped();
+                    }
+                } else {
+                    if (mapped != null && ++rowsSinceProgress == MAPPED_PROGRESS_ROWS) {
+                        countMapped();
+                    }
+                    rowsRead++;
+                    next = parseRecord(csv, categories, rejects, 1 + rowsRead);
+                    if (next == null) {
+                        rowsSkipped++;
+                    }
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Product next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Product p = next;
+            next = null;
+            return p;
+        }
+
+        @Override
+        public void close() throws IOException {
+            done = true;
+            csv.close();
+        }
+    }
+
+    /**
+     * Rows read and products parsed from one byte range of the input.
+     */
+    private static class Chunk {
+        final List<Product> products = new ArrayList<>();
+        final RejectLog rejects = RejectLog.buffering();
+        int rowsRead;
+        int rowsSkipped;
+    }
+
+    /**
+     * Input stream that adds the bytes read through it to a shared count.
+     */
+    static class CountingInputStream extends FilterInputStream {
+        private final LongAdder count;
+
+        CountingInputStream(InputStream in, LongAdder count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count.add(n);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Input stream that stops after a fixed number of bytes, so a reader
+     * over one chunk never runs into the next.
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+    /** @return where malformed rows are reported */
+    public RejectLog getRejects() { return rejects; }
+    /** @return the dictionary holding the categories of extracted products */
+    public CategoryDictionary getCategories() { return categories; }
+    public int getRowsRead() { return rowsRead; }
+    public int getRowsSkipped() { return rowsSkipped; }
+
+    /**
+     * Returns the input bytes read so far, decompressed for a gzip input.
+     * Safe to call from another thread while rows are being read, such as a
+     * metrics reporter.
+     *
+     * @return bytes of the input consumed so far
+     */
+    public long getBytesRead() { return bytesRead.sum(); }
+}
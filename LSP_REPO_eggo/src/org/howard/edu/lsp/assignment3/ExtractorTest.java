@@ -0,0 +1,90 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ExtractorTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Writes about 6 MB of rows, several times the smallest chunk a worker
+     * gets, so chunk boundaries fall inside rows. Rows vary in length and
+     * mix whole-record-quoted lines, quoted names, prices that are not
+     * whole cents and malformed rows.
+     */
+    private Path writeInput(String name, String newline) throws IOException {
+        StringBuilder csv = new StringBuilder("ProductID,Name,Price,Category").append(newline);
+        for (int i = 1; csv.length() < 6 << 20; i++) {
+            String price = i % 5 == 0 ? (i % 1000) + ".125" : (i % 1000) + "." + (i % 100 < 10 ? "0" : "") + i % 100;
+            String item = "Item " + "x".repeat(i % 23);
+            if (i % 11 == 0) {
+                csv.append('"').append(i).append(',').append(item).append(',').append(price).append(",Toys\"");
+            } else if (i % 13 == 0) {
+                csv.append(i).append(',').append(item).append(",abc,Toys");
+            } else if (i % 17 == 0) {
+                csv.append(i).append(',').append(item);
+            } else if (i % 19 == 0) {
+                csv.append(i).append(",\"Lamp, \"\"desk\"\" ").append(i).append("\",").append(price).append(",Home");
+            } else {
+                csv.append(i).append(',').append(item).append(',').append(price)
+                    .append(i % 3 == 0 ? ",Electronics" : ",Books");
+            }
+            csv.append(newline);
+        }
+        Path file = dir.resolve(name);
+        Files.writeString(file, csv);
+        return file;
+    }
+
+    private void assertParallelMatchesSequential(Path input) throws IOException {
+        Path expectedRejects = dir.resolve("expected-rejects.csv");
+        RejectLog log = new RejectLog(expectedRejects.toString(), 0);
+        Extractor sequential = new Extractor(log);
+        List<Product> expected = sequential.extract(input.toString());
+        log.close();
+        assertTrue(sequential.getRowsSkipped() > 0);
+        assertTrue(expected.stream().anyMatch(p -> p.getProductId() == 11), "whole-record-quoted row parsed");
+        assertTrue(expected.stream().anyMatch(p -> p.getName().equals("Lamp, \"desk\" 19")), "quoted name parsed");
+
+        for (int workers : new int[] {1, 2, 3, 8}) {
+            Path actualRejects = dir.resolve("rejects-" + workers + ".csv");
+            RejectLog rejects = new RejectLog(actualRejects.toString(), 0);
+            Extractor parallel = new Extractor(rejects);
+            List<Product> actual = parallel.extractParallel(input.toString(), workers);
+            rejects.close();
+
+            String context = input.getFileName() + " with " + workers + " workers";
+            assertEquals(sequential.getRowsRead(), parallel.getRowsRead(), context);
+            assertEquals(sequential.getRowsSkipped(), parallel.getRowsSkipped(), context);
+            assertEquals(Files.readString(expectedRejects), Files.readString(actualRejects), context);
+            assertEquals(expected.size(), actual.size(), context);
+            for (int i = 0; i < expected.size(); i++) {
+                Product e = expected.get(i);
+                Product a = actual.get(i);
+                assertEquals(e.getProductId(), a.getProductId(), context);
+                assertEquals(e.getName(), a.getName(), context);
+                assertEquals(Double.doubleToLongBits(e.getPrice()), Double.doubleToLongBits(a.getPrice()), context);
+                assertEquals(e.getPriceCents(), a.getPriceCents(), context);
+                assertEquals(e.getCategory(), a.getCategory(), context);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        assertParallelMatchesSequential(writeInput("lf.csv", "\n"));
+    }
+
+    @Test
+    public void testParallelMatchesSequentialWithCrlf() throws IOException {
+        assertParallelMatchesSequential(writeInput("crlf.csv", "\r\n"));
+    }
+}
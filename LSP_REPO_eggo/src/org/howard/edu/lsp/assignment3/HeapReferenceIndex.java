@@ -0,0 +1,136 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reference index held in memory: an open-addressing hash table with
+ * linear probing over an {@code int[]} of ProductIDs, so keys are never
+ * boxed. A parallel {@code int[]} points each slot at the row's columns in
+ * a {@code String[]}; 0 marks an empty slot, so every int is a valid key.
+ * The table is kept at most half full. When a ProductID repeats, the first
+ * row wins.
+ */
+public class HeapReferenceIndex implements ReferenceIndex {
+    private final String header;
+    private int[] keys;
+    private int[] rows;
+    private String[] values;
+    private int mask;
+    private int size;
+    private int skipped;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param header the names of the reference columns after ProductID, comma-separated
+     */
+    public HeapReferenceIndex(String header) {
+        this.header = header;
+        this.keys = new int[16];
+        this.rows = new int[16];
+        this.values = new String[8];
+        this.mask = 15;
+    }
+
+    /**
+     * Reads a reference CSV file into a new index.
+     *
+     * @param reference the reference file; its first column is the ProductID
+     * @return the index
+     * @throws IOException if the file cannot be read or has no usable header
+     */
+    public static HeapReferenceIndex load(Path reference) throws IOException {
+        try (ReferenceRows in = new ReferenceRows(reference)) {
+            HeapReferenceIndex index = new HeapReferenceIndex(in.header());
+            while (in.next()) {
+                if (!index.put(in.id(), in.values())) {
+                    in.skip();
+                }
+            }
+            index.skipped = in.skipped();
+            return index;
+        }
+    }
+
+    /**
+     * Adds a row unless its ProductID is already present.
+     *
+     * @param productId the key
+     * @param columns the row's columns after ProductID, comma-separated
+     * @return false if the ProductID was already indexed
+     */
+    public boolean put(int productId, String columns) {
+        if (size * 2 >= keys.length) {
+            grow();
+        }
+        int slot = mix(productId) & mask;
+        while (rows[slot] != 0) {
+            if (keys[slot] == productId) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = columns;
+        keys[slot] = productId;
+        rows[slot] = ++size;
+        return true;
+    }
+
+    @Override
+    public String lookup(int productId) {
+        int slot = mix(productId) & mask;
+        for (int row = rows[slot]; row != 0; row = rows[slot]) {
+            if (keys[slot] == productId) {
+                return values[row - 1];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldRows = rows;
+        keys = new int[oldKeys.length * 2];
+        rows = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldRows[i] != 0) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (rows[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                rows[slot] = oldRows[i];
+            }
+        }
+    }
+
+    /** Spreads consecutive IDs across the table (the murmur3 finalizer). */
+    static int mix(int key) {
+        int h = key ^ (key >>> 16);
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String getHeader() { return header; }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public int getRowsSkipped() { return skipped; }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
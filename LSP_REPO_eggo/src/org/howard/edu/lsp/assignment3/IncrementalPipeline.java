@@ -0,0 +1,512 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+import org.howard.edu.lsp.metrics.StageTimer;
+import org.howard.edu.lsp.util.AtomicFiles;
+import org.howard.edu.lsp.util.Compression;
+import org.howard.edu.lsp.util.CsvTokenizer;
+
+/**
+ * Runs the pipeline incrementally, reusing the output of the previous run
+ * for every row that has not changed since.
+ * <p>
+ * A small binary state file remembers, for each output row of the last run,
+ * the ProductID, a hash of the raw input record and where the row's bytes
+ * sit in the output file. On the next run each input record is hashed; a
+ * record seen before is not parsed, transformed or formatted again, its
+ * output bytes are copied from the old file (adjacent rows in one transfer).
+ * Only new or changed records go through the Transformer. Inserted, updated
+ * and deleted rows are told apart by ProductID.
+ * <p>
+ * If the input file has the same size and modification time as last time,
+ * the run stops before reading it. If every row is reused in its old place,
+ * the output file is left untouched. Otherwise the new output is written to
+ * a temporary file and moved over the old one. The state is discarded (and
+ * the run is a full one) if it is missing, was written for different
+ * transformation rules or output settings, or the output file no longer
+ * matches it.
+ * <p>
+ * With metrics enabled, reading and hashing each record counts as extract,
+ * transforming new and changed rows as transform, and writing or reusing
+ * output rows as load. A run that stops early because the input is
+ * unchanged records nothing.
+ */
+public class IncrementalPipeline {
+    private final String statePath;
+    private final RejectLog rejects;
+    private final PipelineMetrics metrics;
+
+    private int rowsRead;
+    private int rowsSkipped;
+    private int unchanged;
+    private int inserted;
+    private int updated;
+    private int deleted;
+    private boolean inputUnchanged;
+    private boolean outputRewritten;
+
+    /**
+     * @param statePath where the state of the previous run is kept
+     */
+    public IncrementalPipeline(String statePath) {
+        this(statePath, new RejectLog());
+    }
+
+    /**
+     * @param statePath where the state of the previous run is kept
+     * @param rejects where malformed rows are reported; the caller closes it
+     */
+    public IncrementalPipeline(String statePath, RejectLog rejects) {
+        this(statePath, rejects, PipelineMetrics.disabled());
+    }
+
+    /**
+     * @param statePath where the state of the previous run is kept
+     * @param rejects where malformed rows are reported; the caller closes it
+     * @param metrics where stage timings and byte counts go
+     */
+    public IncrementalPipeline(String statePath, RejectLog rejects, PipelineMetrics metrics) {
+        this.statePath = statePath;
+        this.rejects = rejects;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Brings the output up to date with the input.
+     *
+     * @param inputPath relative path to the input CSV file
+     * @param transformer applied to new and changed rows
+     * @param outputPath relative path to the output CSV file
+     * @throws IOException if a file cannot be read or written
+     */
+    public void run(String inputPath, Transformer transformer, String outputPath) throws IOException {
+        File inputFile = new File(inputPath);
+
+        if (!inputFile.exists()) {
+            throw new FileNotFoundException("The file " + inputPath + " does not exist.");
+        }
+
+        Path input = inputFile.toPath();
+        Path output = Paths.get(outputPath);
+        Path temp = Paths.get(outputPath + ".tmp");
+        String fingerprint = fingerprint(transformer);
+        long inputSize = Files.size(input);
+        long inputModified = Files.getLastModifiedTime(input).to(TimeUnit.NANOSECONDS);
+
+        State previous = State.load(Paths.get(statePath), fingerprint, output);
+        if (previous != null && previous.inputSize == inputSize && previous.inputModified == inputModified) {
+            inputUnchanged = true;
+            rowsRead = previous.rowsRead;
+            rowsSkipped = previous.rowsSkipped;
+            unchanged = previous.count;
+            for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+                rejects.addCount(reason, previous.rejected[reason.ordinal()]);
+            }
+            return;
+        }
+
+        State current = new State(fingerprint, inputSize, inputModified);
+        long headerBytes = ProductCsvWriter.HEADER.getBytes(Charset.defaultCharset()).length;
+        CategoryDictionary categories = new CategoryDictionary();
+        boolean[] seen = previous != null ? new boolean[previous.distinctIds.length] : null;
+        long[] rejectedBefore = new long[current.rejected.length];
+        for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+            rejectedBefore[reason.ordinal()] = rejects.getCount(reason);
+        }
+
+        LongAdder bytesRead = new LongAdder();
+        metrics.stage(PipelineMetrics.EXTRACT).trackBytes(bytesRead::sum);
+        StageTimer timer = new StageTimer(metrics, ConcurrentPipeline.DEFAULT_BATCH_SIZE);
+        try (CsvTokenizer csv = new CsvTokenizer(new InputStreamReader(
+                 new Extractor.CountingInputStream(Compression.newInputStream(input), bytesRead)));
+             OutputPatch patch = new OutputPatch(
+                 previous != null ? FileChannel.open(output, StandardOpenOption.READ) : null, temp, headerBytes)) {
+            csv.next(); // skip header
+            while (csv.next()) {
+                rowsRead++;
+                long hash = csv.lineHash();
+                int entry = previous != null ? previous.claim(hash) : -1;
+                if (entry >= 0) {
+                    timer.lap(StageTimer.EXTRACT);
+                    unchanged++;
+                    previous.markSeen(seen, previous.ids[entry]);
+                    int length = previous.lengths[entry];
+                    current.add(previous.ids[entry], hash, patch.reuse(previous.offsets[entry], length), length);
+                    timer.lap(StageTimer.LOAD);
+                    continue;
+                }
+
+                Product p = Extractor.parseRecord(csv, categories, rejects, 1 + rowsRead);
+                timer.lap(StageTimer.EXTRACT);
+                if (p == null) {
+                    rowsSkipped++;
+                    continue;
+                }
+                if (previous != null && previous.markSeen(seen, p.getProductId())) {
+                    updated++;
+                } else {
+                    inserted++;
+                }
+                transformer.transform(p);
+                timer.lap(StageTimer.TRANSFORM);
+                long offset = patch.position();
+                patch.write(p);
+                current.add(p.getProductId(), hash, offset, (int) (patch.position() - offset));
+                timer.lap(StageTimer.LOAD);
+            }
+
+            if (previous != null) {
+                for (boolean s : seen) {
+                    if (!s) {
+                        deleted++;
+                    }
+                }
+            }
+            outputRewritten = patch.finish(previous != null ? previous.outputSize : -1);
+            timer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        if (outputRewritten) {
+            metrics.stage(PipelineMetrics.LOAD).addBytes(Files.size(temp));
+            AtomicFiles.replace(temp, output);
+        }
+        current.rowsRead = rowsRead;
+        current.rowsSkipped = rowsSkipped;
+        for (RejectLog.Reason reason : RejectLog.Reason.values()) {
+            current.rejected[reason.ordinal()] = rejects.getCount(reason) - rejectedBefore[reason.ordinal()];
+        }
+        current.save(Paths.get(statePath), output);
+    }
+
+    /**
+     * Describes everything that decides the bytes of an output row, so old
+     * rows are only reused when they would come out the same today.
+     */
+    static String fingerprint(Transformer transformer) {
+        String separator = System.lineSeparator().replace("\r", "\\r").replace("\n", "\\n");
+        return transformer.rulesFingerprint()
+            + "|" + Charset.defaultCharset().name()
+            + "|" + separator
+            + "|" + Locale.getDefault(Locale.Category.FORMAT).toLanguageTag();
+    }
+
+    /** @return rows read from the input (from the state if the input was unchanged) */
+    public int getRowsRead() { return rowsRead; }
+    /** @return rows skipped as malformed */
+    public int getRowsSkipped() { return rowsSkipped; }
+    /** @return rows whose output was reused from the previous run */
+    public int getRowsUnchanged() { return unchanged; }
+    /** @return rows with a ProductID the previous run did not have */
+    public int getRowsInserted() { return inserted; }
+    /** @return rows with a known ProductID but different contents */
+    public int getRowsUpdated() { return updated; }
+    /** @return ProductIDs of the previous run that are no longer in the input */
+    public int getRowsDeleted() { return deleted; }
+    /** @return whether the run stopped early because the input file was unchanged */
+    public boolean isInputUnchanged() { return inputUnchanged; }
+    /** @return whether the output file was written by this run */
+    public boolean isOutputRewritten() { return outputRewritten; }
+
+    /**
+     * Writes the new output lazily: as long as rows are reused in the same
+     * order as before, nothing is written at all. At the first difference
+     * the identical prefix is copied to a temporary file and from then on
+     * reused rows are copied in runs of adjacent bytes.
+     */
+    private static class OutputPatch implements Closeable {
+        private final FileChannel previous;
+        private final Path temp;
+        private final long headerBytes;
+        private ProductCsvWriter writer;
+        /** While writer is null: end of the prefix that matches the old output. */
+        private long matchedEnd;
+        private long pendingStart;
+        private long pendingLength;
+
+        OutputPatch(FileChannel previous, Path temp, long headerBytes) throws IOException {
+            this.previous = previous;
+            this.temp = temp;
+            this.headerBytes = headerBytes;
+            this.matchedEnd = headerBytes;
+            if (previous == null) {
+                diverge();
+            }
+        }
+
+        /** @return the offset the next row will have in the new output */
+        long position() {
+            return writer == null ? matchedEnd : writer.getBytesWritten() + pendingLength;
+        }
+
+        /**
+         * Queues an old row for copying.
+         *
+         * @return the row's offset in the new output
+         */
+        long reuse(long offset, int length) throws IOException {
+            if (writer == null) {
+                if (offset == matchedEnd) {
+                    matchedEnd += length;
+                    return offset;
+                }
+                diverge();
+            }
+            long position = position();
+            if (pendingLength > 0 && pendingStart + pendingLength == offset) {
+                pendingLength += length;
+            } else {
+                flushPending();
+                pendingStart = offset;
+                pendingLength = length;
+            }
+            return position;
+        }
+
+        void write(Product p) throws IOException {
+            if (writer == null) {
+                diverge();
+            }
+            flushPending();
+            writer.write(p);
+        }
+
+        /**
+         * Completes the new output.
+         *
+         * @param previousSize size of the old output, or -1 if there is none
+         * @return false if the old output already has exactly these rows
+         */
+        boolean finish(long previousSize) throws IOException {
+            if (writer == null && matchedEnd == previousSize) {
+                return false;
+            }
+            if (writer == null) {
+                diverge();
+            }
+            flushPending();
+            writer.close();
+            return true;
+        }
+
+        private void diverge() throws IOException {
+            writer = new ProductCsvWriter(FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+            writer.writeHeader();
+            pendingStart = headerBytes;
+            pendingLength = matchedEnd - headerBytes;
+        }
+
+        private void flushPending() throws IOException {
+            if (pendingLength > 0) {
+                writer.transferFrom(previous, pendingStart, pendingLength);
+                pendingLength = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } finally {
+                if (previous != null) {
+                    previous.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * The rows of one run's output, kept in parallel primitive arrays, and
+     * their on-disk form: a header (with the run's reject counts by reason)
+     * followed by 24 bytes per row.
+     */
+    private static final class State {
+        private static final int MAGIC = 0x45544c53; // "ETLS"
+        private static final int VERSION = 2;
+
+        final String fingerprint;
+        final long inputSize;
+        final long inputModified;
+        long outputSize;
+        long outputModified;
+        int rowsRead;
+        int rowsSkipped;
+        final long[] rejected = new long[RejectLog.Reason.values().length];
+
+        int count;
+        int[] ids = new int[1024];
+        long[] hashes = new long[1024];
+        long[] offsets = new long[1024];
+        int[] lengths = new int[1024];
+
+        // Lookup structures, built only for a loaded state.
+        int[] table;
+        boolean[] claimed;
+        int[] distinctIds;
+
+        State(String fingerprint, long inputSize, long inputModified) {
+            this.fingerprint = fingerprint;
+            this.inputSize = inputSize;
+            this.inputModified = inputModified;
+        }
+
+        void add(int id, long hash, long offset, int length) {
+            if (count == ids.length) {
+                int n = count * 2;
+                ids = Arrays.copyOf(ids, n);
+                hashes = Arrays.copyOf(hashes, n);
+                offsets = Arrays.copyOf(offsets, n);
+                lengths = Arrays.copyOf(lengths, n);
+            }
+            ids[count] = id;
+            hashes[count] = hash;
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+        }
+
+        /**
+         * Finds an unclaimed row with the given record hash and claims it.
+         *
+         * @return the row index, or -1 if there is none
+         */
+        int claim(long hash) {
+            int mask = table.length - 1;
+            for (int i = (int) (hash ^ (hash >>> 32)) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int row = table[i] - 1;
+                if (hashes[row] == hash && !claimed[row]) {
+                    claimed[row] = true;
+                    return row;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Marks a ProductID as still present.
+         *
+         * @return whether the previous run had this ProductID
+         */
+        boolean markSeen(boolean[] seen, int id) {
+            int i = Arrays.binarySearch(distinctIds, id);
+            if (i < 0) {
+                return false;
+            }
+            seen[i] = true;
+            return true;
+        }
+
+        private void index() {
+            int capacity = Integer.highestOneBit(Math.max(count, 8) * 2) * 2;
+            table = new int[capacity];
+            claimed = new boolean[count];
+            int mask = capacity - 1;
+            for (int row = 0; row < count; row++) {
+                long hash = hashes[row];
+                int i = (int) (hash ^ (hash >>> 32)) & mask;
+                while (table[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = row + 1;
+            }
+
+            int[] sorted = Arrays.copyOf(ids, count);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            distinctIds = Arrays.copyOf(sorted, distinct);
+        }
+
+        /**
+         * Reads the state of the previous run.
+         *
+         * @return the state, or null if there is no usable state for these
+         *         rules and this output file
+         */
+        static State load(Path path, String fingerprint, Path output) {
+            if (!Files.exists(path) || !Files.exists(output)) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(fingerprint)) {
+                    return null;
+                }
+                State state = new State(fingerprint, in.readLong(), in.readLong());
+                state.outputSize = in.readLong();
+                state.outputModified = in.readLong();
+                if (state.outputSize != Files.size(output)
+                        || state.outputModified != Files.getLastModifiedTime(output).to(TimeUnit.NANOSECONDS)) {
+                    return null;
+                }
+                state.rowsRead = in.readInt();
+                state.rowsSkipped = in.readInt();
+                int reasons = in.readInt();
+                if (reasons != state.rejected.length) {
+                    return null;
+                }
+                for (int i = 0; i < reasons; i++) {
+                    state.rejected[i] = in.readLong();
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    state.add(in.readInt(), in.readLong(), in.readLong(), in.readInt());
+                }
+                state.index();
+                return state;
+            } catch (IOException e) {
+                // A damaged or truncated state only costs a full run.
+                return null;
+            }
+        }
+
+        void save(Path path, Path output) throws IOException {
+            outputSize = Files.size(output);
+            outputModified = Files.getLastModifiedTime(output).to(TimeUnit.NANOSECONDS);
+            Path temp = Paths.get(path + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(fingerprint);
+                out.writeLong(inputSize);
+                out.writeLong(inputModified);
+                out.writeLong(outputSize);
+                out.writeLong(outputModified);
+                out.writeInt(rowsRead);
+                out.writeInt(rowsSkipped);
+                out.writeInt(rejected.length);
+                for (long n : rejected) {
+                    out.writeLong(n);
+                }
+                out.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    out.writeInt(ids[i]);
+                    out.writeLong(hashes[i]);
+                    out.writeLong(offsets[i]);
+                    out.writeInt(lengths[i]);
+                }
+            }
+            AtomicFiles.replace(temp, path);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.howard.edu.lsp.metrics.PipelineMetrics;
+
+public class IncrementalPipelineTest {
+    @TempDir
+    Path dir;
+
+    private String input() { return dir.resolve("products.csv").toString(); }
+    private String output() { return dir.resolve("out.csv").toString(); }
+    private String state() { return dir.resolve("out.csv.state").toString(); }
+
+    private IncrementalPipeline runIncremental(String csv) throws IOException {
+        if (csv != null) {
+            PipelineTestData.writeInput(Path.of(input()), csv);
+        }
+        IncrementalPipeline run = new IncrementalPipeline(state());
+        run.run(input(), new Transformer(), output());
+        return run;
+    }
+
+    /** Asserts the incremental output equals a full run over the same input. */
+    private void assertMatchesFullRun() throws IOException {
+        assertEquals(PipelineTestData.streamingOutput(Path.of(input())), Files.readString(Path.of(output())));
+    }
+
+    @Test
+    public void testFirstRunIsAFullRun() throws IOException {
+        IncrementalPipeline run = runIncremental("1,Book,12.99,Education\n2,Laptop,999.99,Electronics\nbad\n");
+        assertEquals(3, run.getRowsRead());
+        assertEquals(1, run.getRowsSkipped());
+        assertEquals(2, run.getRowsInserted());
+        assertTrue(run.isOutputRewritten());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void testUnchangedInputIsNotReadOrWritten() throws IOException {
+        runIncremental("1,Book,12.99,Education\n2,Laptop,999.99,Electronics\n");
+
+        IncrementalPipeline again = runIncremental(null);
+        assertTrue(again.isInputUnchanged());
+        assertEquals(2, again.getRowsRead());
+
+        // Same contents but a new timestamp: read, but nothing is rewritten.
+        Path in = Path.of(input());
+        Files.setLastModifiedTime(in, FileTime.fromMillis(Files.getLastModifiedTime(in).toMillis() + 5000));
+        IncrementalPipeline touched = runIncremental(null);
+        assertFalse(touched.isInputUnchanged());
+        assertFalse(touched.isOutputRewritten());
+        assertEquals(2, touched.getRowsUnchanged());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void testMetricsCoverEachStage() throws IOException {
+        PipelineTestData.writeInput(Path.of(input()), "1,Book,12.99,Education\n2,Laptop,999.99,Electronics\nbad\n");
+        PipelineMetrics metrics = PipelineMetrics.start(dir.resolve("metrics.json").toString());
+        new IncrementalPipeline(state(), new RejectLog(null, 0), metrics).run(input(), new Transformer(), output());
+        metrics.close();
+        assertEquals(3, metrics.stage(PipelineMetrics.EXTRACT).getRows());
+        assertEquals(2, metrics.stage(PipelineMetrics.TRANSFORM).getRows());
+        assertEquals(2, metrics.stage(PipelineMetrics.LOAD).getRows());
+        assertEquals(Files.size(Path.of(input())), metrics.stage(PipelineMetrics.EXTRACT).getBytes());
+        assertEquals(Files.size(Path.of(output())), metrics.stage(PipelineMetrics.LOAD).getBytes());
+
+        // Stopping early on an unchanged input reads and writes nothing.
+        PipelineMetrics again = PipelineMetrics.start(dir.resolve("again.json").toString());
+        IncrementalPipeline run = new IncrementalPipeline(state(), new RejectLog(null, 0), again);
+        run.run(input(), new Transformer(), output());
+        again.close();
+        assertTrue(run.isInputUnchanged());
+        for (String stage : new String[] {PipelineMetrics.EXTRACT, PipelineMetrics.TRANSFORM, PipelineMetrics.LOAD}) {
+            assertEquals(0, again.stage(stage).getRows(), stage);
+            assertEquals(0, again.stage(stage).getBytes(), stage);
+        }
+    }
+
+    @Test
+    public void testUnchangedInputKeepsRejectCountsByReason() throws IOException {
+        runIncremental("1,Book,12.99,Education\nbad\n2,Pen,cheap,Stationery\nx,Cup,1.00,Kitchen\n");
+
+        RejectLog rejects = new RejectLog();
+        IncrementalPipeline again = new IncrementalPipeline(state(), rejects);
+        again.run(input(), new Transformer(), output());
+        assertTrue(again.isInputUnchanged());
+        assertEquals(3, again.getRowsSkipped());
+        assertEquals(3, rejects.getTotal());
+        assertEquals(1, rejects.getCount(RejectLog.Reason.WRONG_COLUMN_COUNT));
+        assertEquals(1, rejects.getCount(RejectLog.Reason.INVALID_PRICE));
+        assertEquals(1, rejects.getCount(RejectLog.Reason.INVALID_ID));
+    }
+
+    @Test
+    public void testInsertUpdateDeleteOnlyTransformsTheDelta() throws IOException {
+        runIncremental("1,Book,12.99,Education\n2,Laptop,999.99,Electronics\n"
+            + "3,Pen,1.50,Stationery\n4,Phone,300.00,Electronics\n");
+
+        IncrementalPipeline run = runIncremental("1,Book,12.99,Education\n5,Tablet,700.00,electronics\n"
+            + "2,Laptop,499.99,Electronics\n4,Phone,300.00,Electronics\nnot,a,valid,row\n");
+        assertEquals(2, run.getRowsUnchanged());
+        assertEquals(1, run.getRowsInserted());
+        assertEquals(1, run.getRowsUpdated());
+        assertEquals(1, run.getRowsDeleted());
+        assertEquals(1, run.getRowsSkipped());
+        assertTrue(run.isOutputRewritten());
+        assertMatchesFullRun();
+
+        // Deleting only the last row still rewrites the output.
+        run = runIncremental("1,Book,12.99,Education\n5,Tablet,700.00,electronics\n"
+            + "2,Laptop,499.99,Electronics\n");
+        assertEquals(3, run.getRowsUnchanged());
+        assertEquals(1, run.getRowsDeleted());
+        assertMatchesFullRun();
+    }
+
+    @Test
+    public void testOutputChangedElsewhereForcesFullRun() throws IOException {
+        runIncremental("1,Book,12.99,Education\n2,Laptop,999.99,Electronics\n");
+        Files.writeString(Path.of(output()), "edited by hand\n");
+
+        IncrementalPipeline run = runIncremental("1,Book,12.99,Education\n2,Laptop,999.99,Electronics\n"
+            + "3,Pen,1.50,Stationery\n");
+        assertEquals(0, run.getRowsUnchanged());
+        assertEquals(3, run.getRowsInserted());
+        assertMatchesFullRun();
+    }
+}
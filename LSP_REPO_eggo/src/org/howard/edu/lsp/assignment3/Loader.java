@@ -1,28 +1,105 @@
-package org.howard.edu.lsp.assignment3;
-
-import java.io.*;
-import java.util.*;
-
-/**
- * Handles writing transformed products into a new CSV file.
- * Ensures the output file contains a header and transformed rows.
- */
-public class Loader {
-	/**
-     * Writes a list of products to a CSV file.
-     *
-     * @param outputPath relative path to the output CSV file
-     * @param products the list of transformed Product objects
-     * @throws IOException if the file cannot be written
-     */
-    public void load(List<Product> products, String outputPath) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath))) {
-            writer.write("ProductID,Name,Price,Category,PriceRange\n");
-
-            for (Product p : products) {
-                writer.write(p.toString());
-                writer.newLine();
-            }
-        }
-    }
-}
\ No newline at end of file
+package org.howard.edu.lsp.assignment3;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.util.*;
+
+import org.howard.edu.lsp.util.Compression;
+
+/**
+ * Handles writing transformed products into a new output file.
+ * Ensures the output file contains a header and transformed rows.
+ * Rows are encoded by {@link ProductCsvWriter} and written through a
+ * {@link FileChannel} in large batches. CSV is the default; a loader can
+ * instead write the binary format of {@link ProductBinaryWriter}, which
+ * downstream stages read back with {@link ProductBinaryReader}. An output
+ * path ending in {@code .gz} is gzip-compressed as it is written.
+ */
+public class Loader {
+    /** Output file formats. */
+    public enum Format {
+        /** Comma-separated text with a header row. */
+        CSV,
+        /** Column-oriented binary blocks. */
+        BINARY,
+        /** Binary blocks, each deflate-compressed. */
+        BINARY_DEFLATE
+    }
+
+    private final Format format;
+    private final String extraColumns;
+
+    /**
+     * Creates a loader that writes CSV.
+     */
+    public Loader() {
+        this(Format.CSV);
+    }
+
+    /**
+     * Creates a loader that writes the given format.
+     *
+     * @param format the output format
+     */
+    public Loader(Format format) {
+        this(format, null);
+    }
+
+    /**
+     * Creates a loader whose CSV rows carry extra columns after PriceRange,
+     * such as those added by a {@link ReferenceJoin}.
+     *
+     * @param format the output format; the extra columns are only written to CSV
+     * @param extraColumns comma-separated names of the extra columns for the header, or null for none
+     */
+    public Loader(Format format, String extraColumns) {
+        this.format = format;
+        this.extraColumns = extraColumns;
+    }
+
+
+	/**
+     * Writes a list of products to a file.
+     *
+     * @param outputPath relative path to the output file
+     * @param products the list of transformed Product objects
+     * @throws IOException if the file cannot be written
+     */
+    public void load(List<Product> products, String outputPath) throws IOException {
+        load(products.iterator(), outputPath);
+    }
+
+    /**
+     * Writes products to a file as they are pulled from the iterator.
+     * Each row is written as soon as it is available, so the output starts
+     * filling before the input has been fully read.
+     *
+     * @param products the transformed products, consumed once
+     * @param outputPath relative path to the output file
+     * @throws IOException if the file cannot be written or the input fails
+     */
+    public void load(Iterator<Product> products, String outputPath) throws IOException {
+        WritableByteChannel channel = Compression.newOutputChannel(Paths.get(outputPath));
+        try {
+            if (format == Format.CSV) {
+                try (ProductCsvWriter writer = new ProductCsvWriter(channel)) {
+                    writer.writeHeader(extraColumns);
+
+                    while (products.hasNext()) {
+                        writer.write(products.next());
+                    }
+                }
+            } else {
+                try (ProductBinaryWriter writer = new ProductBinaryWriter(channel, format == Format.BINARY_DEFLATE)) {
+                    while (products.hasNext()) {
+                        writer.write(products.next());
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
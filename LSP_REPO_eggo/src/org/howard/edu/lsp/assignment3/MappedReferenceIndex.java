@@ -0,0 +1,241 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference index kept in a file and read through memory mappings, for
+ * reference data too big for the heap. The operating system pages in the
+ * parts of the table and the rows that lookups touch.
+ * <p>
+ * The file starts with a fixed header: the magic bytes {@code LSPI}, a
+ * version, the size and modification time of the reference file it was
+ * built from, the table capacity, the row and skipped counts, and the
+ * offset of the column names. The hash table follows, one 12-byte slot per
+ * entry (the ProductID and the offset of its row, 0 for an empty slot),
+ * probed linearly from {@link HeapReferenceIndex#mix}. Rows come last, each
+ * a length-prefixed UTF-8 string, and then the column names. All numbers
+ * are little-endian.
+ * <p>
+ * {@link #open} reuses an existing index file if it was built from the
+ * same reference file (same size and modification time) and otherwise
+ * rebuilds it. Building reads the reference file twice: once to count the
+ * rows and size the table, and once to fill it. The table must fit in one
+ * 2 GB mapping, which allows about 67 million rows; the rows themselves
+ * may add up to any size.
+ */
+public class MappedReferenceIndex implements ReferenceIndex {
+    static final int MAGIC = 0x4950534c; // "LSPI" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+    static final int SLOT_BYTES = 12;
+    /** Longest row in bytes; a longer one is skipped. */
+    static final int MAX_ROW_BYTES = 1 << 16;
+    /** Bytes of rows each data mapping starts; mappings overlap by one row. */
+    static final long WINDOW_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final MappedByteBuffer[] windows;
+    private final long dataStart;
+    private final int mask;
+    private final int size;
+    private final int skipped;
+    private final String header;
+
+    private MappedReferenceIndex(Path indexFile) throws IOException {
+        channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+        try {
+            ByteBuffer h = map(0, HEADER_BYTES);
+            int capacity = h.getInt(24);
+            size = h.getInt(28);
+            skipped = h.getInt(32);
+            long headerOffset = h.getLong(36);
+            mask = capacity - 1;
+            table = map(HEADER_BYTES, (long) capacity * SLOT_BYTES);
+            dataStart = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+            long dataBytes = channel.size() - dataStart;
+            windows = new MappedByteBuffer[(int) ((dataBytes + WINDOW_BYTES - 1) / WINDOW_BYTES)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = dataStart + i * WINDOW_BYTES;
+                windows[i] = map(start, Math.min(WINDOW_BYTES + MAX_ROW_BYTES + 4, channel.size() - start));
+            }
+            header = readString(headerOffset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Opens the index of a reference file, building or rebuilding the index
+     * file first if it is missing or was built from a different version of
+     * the reference file.
+     *
+     * @param reference the reference CSV file; its first column is the ProductID
+     * @param indexFile where the index is kept
+     * @return the open index; close it to release the mappings' file
+     * @throws IOException if either file cannot be read or written
+     */
+    public static MappedReferenceIndex open(Path reference, Path indexFile) throws IOException {
+        long referenceSize = Files.size(reference);
+        long referenceModified = Files.getLastModifiedTime(reference).to(TimeUnit.NANOSECONDS);
+        if (!isCurrent(indexFile, referenceSize, referenceModified)) {
+            build(reference, indexFile, referenceSize, referenceModified);
+        }
+        return new MappedReferenceIndex(indexFile);
+    }
+
+    private static boolean isCurrent(Path indexFile, long referenceSize, long referenceModified) throws IOException {
+        if (!Files.isRegularFile(indexFile) || Files.size(indexFile) < HEADER_BYTES) {
+            return false;
+        }
+        try (FileChannel in = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (h.hasRemaining() && in.read(h) >= 0) {
+                // keep reading
+            }
+            return h.getInt(0) == MAGIC && h.getInt(4) == VERSION
+                && h.getLong(8) == referenceSize && h.getLong(16) == referenceModified;
+        }
+    }
+
+    private static void build(Path reference, Path indexFile, long referenceSize, long referenceModified)
+            throws IOException {
+        int rows = 0;
+        try (ReferenceRows in = new ReferenceRows(reference)) {
+            while (in.next()) {
+                rows++;
+            }
+        }
+        long capacity = Integer.highestOneBit(Math.max(rows, 1)) * 4L;
+        long tableBytes = capacity * SLOT_BYTES;
+        if (tableBytes > Integer.MAX_VALUE) {
+            throw new IOException(reference + " has too many rows for an index table: " + rows);
+        }
+
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             ReferenceRows in = new ReferenceRows(reference)) {
+            MappedByteBuffer table = out.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, tableBytes);
+            table.order(ByteOrder.LITTLE_ENDIAN);
+            int mask = (int) capacity - 1;
+            long position = HEADER_BYTES + tableBytes;
+            ByteBuffer data = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            int size = 0;
+            while (in.next()) {
+                byte[] bytes = in.values().getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > MAX_ROW_BYTES) {
+                    in.skip();
+                    continue;
+                }
+                int slot = HeapReferenceIndex.mix(in.id()) & mask;
+                boolean repeated = false;
+                while (table.getLong(slot * SLOT_BYTES + 4) != 0) {
+                    if (table.getInt(slot * SLOT_BYTES) == in.id()) {
+                        repeated = true;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                if (repeated) {
+                    in.skip();
+                    continue;
+                }
+                table.putInt(slot * SLOT_BYTES, in.id());
+                table.putLong(slot * SLOT_BYTES + 4, position + data.position());
+                if (data.remaining() < 4 + bytes.length) {
+                    position += writeFully(out, data, position);
+                }
+                data.putInt(bytes.length).put(bytes);
+                size++;
+            }
+            position += writeFully(out, data, position);
+
+            byte[] names = in.header().getBytes(StandardCharsets.UTF_8);
+            data.putInt(names.length).put(names);
+            long headerOffset = position;
+            writeFully(out, data, position);
+
+            ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            h.putInt(MAGIC).putInt(VERSION).putLong(referenceSize).putLong(referenceModified)
+                .putInt((int) capacity).putInt(size).putInt(in.skipped()).putLong(headerOffset);
+            writeFully(out, h, 0);
+            table.force();
+            out.force(true);
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Writes a buffer's contents at a position and clears it; returns the byte count. */
+    private static long writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += out.write(buffer, position + written);
+        }
+        buffer.clear();
+        return written;
+    }
+
+    @Override
+    public String lookup(int productId) {
+        int slot = HeapReferenceIndex.mix(productId) & mask;
+        while (true) {
+            long offset = table.getLong(slot * SLOT_BYTES + 4);
+            if (offset == 0) {
+                return null;
+            }
+            if (table.getInt(slot * SLOT_BYTES) == productId) {
+                return readString(offset);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private String readString(long offset) {
+        long relative = offset - dataStart;
+        MappedByteBuffer window = windows[(int) (relative / WINDOW_BYTES)];
+        int at = (int) (relative % WINDOW_BYTES);
+        int length = window.getInt(at);
+        byte[] bytes = new byte[length];
+        window.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String getHeader() { return header; }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public int getRowsSkipped() { return skipped; }
+
+    /**
+     * Closes the index file. The mappings stay valid until they are
+     * garbage collected, but the index must not be used after closing.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
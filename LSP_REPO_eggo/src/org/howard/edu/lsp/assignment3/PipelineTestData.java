@@ -0,0 +1,68 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Input files and reference output shared by the pipeline tests.
+ */
+final class PipelineTestData {
+    /** Header row of an input file. */
+    static final String HEADER = "ProductID,Name,Price,Category\n";
+
+    private PipelineTestData() {
+    }
+
+    /**
+     * Writes an input file with generated rows. Every seventh ProductID has
+     * the price "abc" and is rejected; every third is Electronics.
+     *
+     * @param file the file to write; missing directories are created
+     * @param first the first ProductID
+     * @param count the number of rows
+     * @return the file
+     */
+    static Path writeRows(Path file, int first, int count) throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            rows.append(i).append(",Item").append(i).append(',').append(i % 7 == 0 ? "abc" : (i % 900) + ".25")
+                .append(i % 3 == 0 ? ",Electronics\n" : ",Toys\n");
+        }
+        return writeInput(file, rows.toString());
+    }
+
+    /**
+     * Writes an input file with the header and the given rows.
+     *
+     * @param file the file to write; missing directories are created
+     * @param rows the data rows, each ending in a line terminator
+     * @return the file
+     */
+    static Path writeInput(Path file, String rows) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, HEADER + rows);
+        return file;
+    }
+
+    /**
+     * Runs the plain streaming pipeline, which the other modes must agree
+     * with, and returns its output.
+     *
+     * @param input the input file
+     * @return the text of the output file
+     */
+    static String streamingOutput(Path input) throws IOException {
+        Path expected = input.resolveSibling(input.getFileName() + ".expected");
+        try (ProductIterator products = new Extractor(new RejectLog(null, 0)).iterate(input.toString())) {
+            new Loader().load(new Transformer().transform(products), expected.toString());
+        }
+        try {
+            return Files.readString(expected);
+        } finally {
+            Files.delete(expected);
+        }
+    }
+}
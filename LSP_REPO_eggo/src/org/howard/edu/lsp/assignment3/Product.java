@@ -1,62 +1,117 @@
-package org.howard.edu.lsp.assignment3;
-
-/**
- * Represents a single product entry from the CSV file.
- * Encapsulates all fields related to a product and provides
- * getter/setter methods for transformations.
- */
-
-public class Product {
-    private int productId;
-    private String name;
-    private double price;
-    private String category;
-    private String priceRange;
-
-    /**
-     * Constructs a Product object with its initial values.
-     *
-     * @param productId the product ID
-     * @param name the product name
-     * @param price the product price
-     * @param category the product category
-     */
-    public Product(int productId, String name, double price, String category) {
-        this.productId = productId;
-        this.name = name;
-        this.price = price;
-        this.category = category;
-    }
-
-    // Getters and setters
-    /** @return the product ID */
-    public int getProductId() { return productId; }
-    /** @return the product name */
-    public String getName() { return name; }
-    /** @return the product price */
-    public double getPrice() { return price; }
-    /** @return the product category */
-    public String getCategory() { return category; }
-    /** @return the derived price range (Low, Medium, High, Premium) */
-    public String getPriceRange() { return priceRange; }
-
-    /** Updates the product name. */
-    public void setName(String name) { this.name = name; }
-    /** Updates the product price. */
-    public void setPrice(double price) { this.price = price; }
-    /** Updates the product category. */
-    public void setCategory(String category) { this.category = category; }
-    /** Updates the derived price range. */
-    public void setPriceRange(String priceRange) { this.priceRange = priceRange; }
-    
-    /**
-     * Returns a string representation of the product as a CSV row.
-     *
-     * @return the CSV-formatted string of the product
-     */
-
-    @Override
-    public String toString() {
-        return productId + "," + name + "," + String.format("%.2f", price) + "," + category + "," + priceRange;
-    }
-}
+package org.howard.edu.lsp.assignment3;
+
+import org.howard.edu.lsp.util.Cents;
+
+/**
+ * Represents a single product entry from the CSV file.
+ * Encapsulates all fields related to a product and provides
+ * getter/setter methods for transformations.
+ * Prices that are a whole number of cents are also kept as a {@code long}
+ * cent amount so transformations and output can use integer arithmetic.
+ * The category is held as a shared {@link Category}, so products from the
+ * same dictionary do not each carry their own category String.
+ */
+
+public class Product {
+    private int productId;
+    private String name;
+    private double price;
+    private long priceCents;
+    private Category category;
+    private String priceRange;
+    private String extraColumns;
+
+    /**
+     * Constructs a Product object with its initial values.
+     *
+     * @param productId the product ID
+     * @param name the product name
+     * @param price the product price
+     * @param category the product category
+     */
+    public Product(int productId, String name, double price, String category) {
+        this(productId, name, price, Category.of(category));
+    }
+
+    /**
+     * Constructs a Product object with an interned category.
+     *
+     * @param productId the product ID
+     * @param name the product name
+     * @param price the product price
+     * @param category the product category
+     */
+    public Product(int productId, String name, double price, Category category) {
+        this.productId = productId;
+        this.name = name;
+        this.category = category;
+        setPrice(price);
+    }
+
+    /**
+     * Creates a product whose price is given in cents.
+     *
+     * @param productId the product ID
+     * @param name the product name
+     * @param priceCents the product price in cents
+     * @param category the product category
+     * @return the new product
+     */
+    public static Product ofCents(int productId, String name, long priceCents, Category category) {
+        Product p = new Product(productId, name, 0.0, category);
+        p.setPriceCents(priceCents);
+        return p;
+    }
+
+    // Getters and setters
+    /** @return the product ID */
+    public int getProductId() { return productId; }
+    /** @return the product name */
+    public String getName() { return name; }
+    /** @return the product price */
+    public double getPrice() { return price; }
+    /** @return the product price in cents, or {@link Cents#NONE} if it is not a whole number of cents */
+    public long getPriceCents() { return priceCents; }
+    /** @return the product category */
+    public String getCategory() { return category == null ? null : category.getName(); }
+    /** @return the product category as a shared {@link Category} */
+    public Category getCategoryEntry() { return category; }
+    /** @return the derived price range (Low, Medium, High, Premium) */
+    public String getPriceRange() { return priceRange; }
+    /** @return columns joined from reference data, comma-separated, or null */
+    public String getExtraColumns() { return extraColumns; }
+
+    /** Updates the product name. */
+    public void setName(String name) { this.name = name; }
+    /** Updates the product price. */
+    public void setPrice(double price) {
+        this.price = price;
+        this.priceCents = Cents.of(price);
+    }
+    /** Updates the product price from a cent amount. */
+    public void setPriceCents(long priceCents) {
+        this.price = Cents.toDouble(priceCents);
+        this.priceCents = priceCents;
+    }
+    /** Updates the product category. */
+    public void setCategory(String category) { this.category = Category.of(category); }
+    /** Updates the product category to a shared {@link Category}. */
+    public void setCategory(Category category) { this.category = category; }
+    /** Updates the derived price range. */
+    public void setPriceRange(String priceRange) { this.priceRange = priceRange; }
+    /** Sets the columns joined from reference data, written after the price range. */
+    public void setExtraColumns(String extraColumns) { this.extraColumns = extraColumns; }
+    
+    /**
+     * Returns a string representation of the product as a CSV row.
+     *
+     * @return the CSV-formatted string of the product
+     */
+
+    @Override
+    public String toString() {
+        return productId + "," + ProductCsvWriter.csvField(name) + "," + String.format("%.2f", price) + ","
+            + ProductCsvWriter.csvField(getCategory()) + "," + priceRange
+            + (extraColumns != null ? "," + extraColumns : "");
+    }
+}
@@ -0,0 +1,193 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.howard.edu.lsp.util.Cents;
+
+/**
+ * Computes the count, minimum, maximum and average price of transformed
+ * products per category and price range, in a single pass.
+ * <p>
+ * Only one small group per (category, price range) pair is kept, never the
+ * products themselves, so the aggregator can watch a stream of any size on
+ * its way to the {@link Loader}. Whole-cent prices are summed as exact
+ * cents; other prices are summed as doubles. Groups are looked up by
+ * category name, with the last {@link Category} remembered so a run of
+ * rows in the same category skips the lookup.
+ * <p>
+ * Products from one thread at a time.
+ */
+public class ProductAggregator {
+    /** Header row of the aggregate CSV file. */
+    public static final String HEADER = "Category,PriceRange,Count,MinPrice,MaxPrice,AvgPrice\n";
+
+    /** Slot for products without a price range, after the {@link ProductBatch#PRICE_RANGES}. */
+    private static final int NO_RANGE = ProductBatch.PRICE_RANGES.length;
+
+    private final Map<String, Group[]> byCategory = new HashMap<>();
+    private Group[] noCategory;
+    private Category lastCategory;
+    private Group[] lastGroups;
+
+    /**
+     * Adds one product to its group.
+     *
+     * @param p a transformed product
+     */
+    public void add(Product p) {
+        Category category = p.getCategoryEntry();
+        Group[] groups;
+        if (category != null && category == lastCategory) {
+            groups = lastGroups;
+        } else {
+            groups = groupsFor(category);
+            lastCategory = category;
+            lastGroups = groups;
+        }
+        int code = ProductBatch.rangeCode(p.getPriceRange());
+        int slot = code == ProductBatch.NO_PRICE_RANGE ? NO_RANGE : code;
+        Group group = groups[slot];
+        if (group == null) {
+            group = new Group(category != null ? category.getName() : null,
+                slot == NO_RANGE ? null : ProductBatch.PRICE_RANGES[slot]);
+            groups[slot] = group;
+        }
+        group.add(p.getPrice(), p.getPriceCents());
+    }
+
+    private Group[] groupsFor(Category category) {
+        if (category == null) {
+            if (noCategory == null) {
+                noCategory = new Group[NO_RANGE + 1];
+            }
+            return noCategory;
+        }
+        return byCategory.computeIfAbsent(category.getName(), k -> new Group[NO_RANGE + 1]);
+    }
+
+    /**
+     * Wraps a stream of products so each one is added as it passes through.
+     *
+     * @param products the transformed products
+     * @return the same products, in the same order
+     */
+    public Iterator<Product> observe(Iterator<Product> products) {
+        return new Iterator<Product>() {
+            @Override
+            public boolean hasNext() {
+                return products.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                Product p = products.next();
+                add(p);
+                return p;
+            }
+        };
+    }
+
+    /**
+     * Returns the groups seen so far, by category name (no category first)
+     * and then in {@link ProductBatch#PRICE_RANGES} order (no range last).
+     *
+     * @return the groups
+     */
+    public List<Group> getGroups() {
+        List<Group> groups = new ArrayList<>();
+        addAll(groups, noCategory);
+        for (Group[] perRange : new TreeMap<>(byCategory).values()) {
+            addAll(groups, perRange);
+        }
+        return groups;
+    }
+
+    private static void addAll(List<Group> into, Group[] perRange) {
+        if (perRange == null) {
+            return;
+        }
+        for (Group g : perRange) {
+            if (g != null) {
+                into.add(g);
+            }
+        }
+    }
+
+    /**
+     * Writes the groups as CSV, one row per group in {@link #getGroups()}
+     * order, with prices to two decimals.
+     *
+     * @param outputPath the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String outputPath) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(outputPath))) {
+            out.write(HEADER);
+            for (Group g : getGroups()) {
+                out.write(g.toString());
+                out.newLine();
+            }
+        }
+    }
+
+    /** Running figures for one category and price range. */
+    public static final class Group {
+        private final String category;
+        private final String priceRange;
+        private long count;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private long sumCents;
+        private double sumOther;
+
+        Group(String category, String priceRange) {
+            this.category = category;
+            this.priceRange = priceRange;
+        }
+
+        void add(double price, long cents) {
+            count++;
+            if (price < min) {
+                min = price;
+            }
+            if (price > max) {
+                max = price;
+            }
+            if (cents != Cents.NONE) {
+                sumCents += cents;
+            } else {
+                sumOther += price;
+            }
+        }
+
+        /** @return the category name, or null for products without one */
+        public String getCategory() { return category; }
+        /** @return the price range label, or null for products without one */
+        public String getPriceRange() { return priceRange; }
+        /** @return the number of products */
+        public long getCount() { return count; }
+        /** @return the lowest price */
+        public double getMinPrice() { return min; }
+        /** @return the highest price */
+        public double getMaxPrice() { return max; }
+        /** @return the mean price */
+        public double getAveragePrice() { return (sumCents / 100.0 + sumOther) / count; }
+
+        /** @return the group as a CSV row, without a line separator */
+        @Override
+        public String toString() {
+            return (category != null ? ProductCsvWriter.csvField(category) : "") + "," + (priceRange != null ? priceRange : "") + ","
+                + count + "," + String.format("%.2f", min) + "," + String.format("%.2f", max) + ","
+                + String.format("%.2f", getAveragePrice());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class ProductAggregatorTest {
+
+    @TempDir
+    Path dir;
+
+    private static Product product(int id, double price, String category) {
+        Product p = new Product(id, "Item" + id, price, category);
+        new Transformer().transform(p);
+        return p;
+    }
+
+    @Test
+    public void testGroupsByCategoryAndPriceRange() throws IOException {
+        List<Product> products = Arrays.asList(
+            product(1, 5.00, "Toys"),
+            product(2, 7.50, "Toys"),
+            product(3, 250.00, "Toys"),
+            product(4, 1.125, "Toys"),
+            product(5, 20.00, "Books"),
+            product(6, 30.00, "Books"));
+        ProductAggregator aggregator = new ProductAggregator();
+        Iterator<Product> it = aggregator.observe(products.iterator());
+        int passed = 0;
+        while (it.hasNext()) {
+            assertSame(products.get(passed), it.next());
+            passed++;
+        }
+        assertEquals(6, passed);
+
+        List<ProductAggregator.Group> groups = aggregator.getGroups();
+        assertEquals(3, groups.size());
+        ProductAggregator.Group books = groups.get(0);
+        assertEquals("Books", books.getCategory());
+        assertEquals("Medium", books.getPriceRange());
+        assertEquals(25.0, books.getAveragePrice(), 1e-9);
+        ProductAggregator.Group toysLow = groups.get(1);
+        assertEquals("Low", toysLow.getPriceRange());
+        assertEquals(3, toysLow.getCount());
+        assertEquals(1.125, toysLow.getMinPrice());
+        assertEquals(7.50, toysLow.getMaxPrice());
+        assertEquals((5.00 + 7.50 + 1.125) / 3, toysLow.getAveragePrice(), 1e-9);
+
+        Path out = dir.resolve("aggregates.csv");
+        aggregator.write(out.toString());
+        String nl = System.lineSeparator();
+        assertEquals(ProductAggregator.HEADER
+            + "Books,Medium,2,20.00,30.00,25.00" + nl
+            + "Toys,Low,3,1.13,7.50,4.54" + nl
+            + "Toys,High,1,250.00,250.00,250.00" + nl, Files.readString(out));
+    }
+}
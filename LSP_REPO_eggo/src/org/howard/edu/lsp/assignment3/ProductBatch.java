@@ -0,0 +1,233 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.howard.edu.lsp.util.Cents;
+
+/**
+ * Column-oriented batch of products: each field is stored in its own
+ * primitive array instead of one heap object per row. Categories are
+ * stored as their int codes in a {@link CategoryDictionary} ({@link #NO_CATEGORY}
+ * for none), and price ranges are stored as indexes into {@link #PRICE_RANGES}.
+ * Prices are kept both as doubles and, when exact, as cents (otherwise
+ * {@link Cents#NONE}).
+ * <p>
+ * Transformations over a batch run as tight loops over arrays, which is far
+ * friendlier to the cache than walking a list of objects, and per-category
+ * decisions can be made once per distinct category rather than per row.
+ */
+public class ProductBatch {
+    /** Price range labels, indexed by the values in the price range column. */
+    public static final String[] PRICE_RANGES = {"Low", "Medium", "High", "Premium"};
+    /** Price range column value for a row that has not been transformed. */
+    public static final byte NO_PRICE_RANGE = -1;
+    /** Category column value for a row without a category. */
+    public static final int NO_CATEGORY = -1;
+
+    private int size;
+    private int[] ids;
+    private String[] names;
+    private double[] prices;
+    private long[] priceCents;
+    private int[] categoryCodes;
+    private byte[] priceRanges;
+
+    private final CategoryDictionary categories;
+
+    /**
+     * Creates an empty batch with its own category dictionary.
+     *
+     * @param capacity initial number of rows to make room for
+     */
+    public ProductBatch(int capacity) {
+        this(capacity, new CategoryDictionary());
+    }
+
+    /**
+     * Creates an empty batch whose category codes come from the given
+     * dictionary, typically the one the rows were extracted with.
+     *
+     * @param capacity initial number of rows to make room for
+     * @param categories the dictionary to encode categories with
+     */
+    public ProductBatch(int capacity, CategoryDictionary categories) {
+        this.categories = categories;
+        capacity = Math.max(capacity, 1);
+        ids = new int[capacity];
+        names = new String[capacity];
+        prices = new double[capacity];
+        priceCents = new long[capacity];
+        categoryCodes = new int[capacity];
+        priceRanges = new byte[capacity];
+    }
+
+    /**
+     * Builds a batch from products. Price ranges already set on the
+     * products are kept.
+     *
+     * @param products the products to copy
+     * @return a new batch holding the same rows
+     */
+    public static ProductBatch from(List<Product> products) {
+        ProductBatch batch = new ProductBatch(products.size());
+        for (Product p : products) {
+            batch.add(p.getProductId(), p.getName(), p.getPrice(), p.getCategoryEntry());
+            batch.priceCents[batch.size - 1] = p.getPriceCents();
+            batch.priceRanges[batch.size - 1] = rangeCode(p.getPriceRange());
+        }
+        return batch;
+    }
+
+    /**
+     * Converts the batch back to Product objects.
+     *
+     * @return one product per row, in order
+     */
+    public List<Product> toProducts() {
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Category category = getCategoryEntry(i);
+            Product p = priceCents[i] != Cents.NONE
+                ? Product.ofCents(ids[i], names[i], priceCents[i], category)
+                : new Product(ids[i], names[i], prices[i], category);
+            p.setPriceRange(getPriceRange(i));
+            products.add(p);
+        }
+        return products;
+    }
+
+    /**
+     * Appends an untransformed row.
+     *
+     * @param id the product ID
+     * @param name the product name
+     * @param price the product price
+     * @param category the product category
+     */
+    public void add(int id, String name, double price, String category) {
+        add(id, name, price, categories.intern(category));
+    }
+
+    /**
+     * Appends an untransformed row. A category from this batch's dictionary
+     * is stored by its code without a lookup.
+     *
+     * @param id the product ID
+     * @param name the product name
+     * @param price the product price
+     * @param category the product category, or null for none
+     */
+    public void add(int id, String name, double price, Category category) {
+        if (size == ids.length) {
+            int n = size * 2;
+            ids = Arrays.copyOf(ids, n);
+            names = Arrays.copyOf(names, n);
+            prices = Arrays.copyOf(prices, n);
+            priceCents = Arrays.copyOf(priceCents, n);
+            categoryCodes = Arrays.copyOf(categoryCodes, n);
+            priceRanges = Arrays.copyOf(priceRanges, n);
+        }
+        ids[size] = id;
+        names[size] = name;
+        prices[size] = price;
+        priceCents[size] = Cents.of(price);
+        categoryCodes[size] = category == null ? NO_CATEGORY
+            : category.getDictionary() == categories ? category.getCode()
+            : categories.intern(category.getName()).getCode();
+        priceRanges[size] = NO_PRICE_RANGE;
+        size++;
+    }
+
+    /**
+     * Returns the code for a category name, adding it to this batch's
+     * dictionary if it is new.
+     *
+     * @param category the category name
+     * @return the category's code in this batch
+     */
+    public int categoryCode(String category) {
+        return categories.intern(category).getCode();
+    }
+
+    /**
+     * Removes all rows. The category dictionary is kept, so codes stay valid
+     * and a batch can be refilled without reallocating its columns.
+     */
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Builds a batch around existing column arrays without copying them.
+     * Cent amounts are derived from the prices.
+     */
+    static ProductBatch wrap(int size, int[] ids, String[] names, double[] prices, int[] categoryCodes,
+            byte[] priceRanges, CategoryDictionary categories) {
+        ProductBatch batch = new ProductBatch(1, categories);
+        batch.size = size;
+        batch.ids = ids;
+        batch.names = names;
+        batch.prices = prices;
+        batch.priceCents = new long[prices.length];
+        for (int i = 0; i < size; i++) {
+            batch.priceCents[i] = Cents.of(prices[i]);
+        }
+        batch.categoryCodes = categoryCodes;
+        batch.priceRanges = priceRanges;
+        return batch;
+    }
+
+    /** @return the price range column value for a label, or {@link #NO_PRICE_RANGE} */
+    static byte rangeCode(String priceRange) {
+        for (byte i = 0; i < PRICE_RANGES.length; i++) {
+            if (PRICE_RANGES[i].equals(priceRange)) {
+                return i;
+            }
+        }
+        return NO_PRICE_RANGE;
+    }
+
+    /** @return the number of rows */
+    public int size() { return size; }
+    /** @return the number of distinct categories in the dictionary */
+    public int categoryCount() { return categories.size(); }
+    /** @return the category name for a code */
+    public String categoryName(int code) { return categories.get(code).getName(); }
+    /** @return the dictionary the category codes refer to */
+    public CategoryDictionary getCategories() { return categories; }
+
+    /** @return the product ID of a row */
+    public int getProductId(int row) { return ids[row]; }
+    /** @return the name of a row */
+    public String getName(int row) { return names[row]; }
+    /** @return the price of a row */
+    public double getPrice(int row) { return prices[row]; }
+    /** @return the price of a row in cents, or {@link Cents#NONE} */
+    public long getPriceCents(int row) { return priceCents[row]; }
+    /** @return the category name of a row, or null if it has none */
+    public String getCategory(int row) {
+        Category category = getCategoryEntry(row);
+        return category == null ? null : category.getName();
+    }
+    /** @return the category of a row as a shared {@link Category}, or null if it has none */
+    public Category getCategoryEntry(int row) {
+        int code = categoryCodes[row];
+        return code == NO_CATEGORY ? null : categories.get(code);
+    }
+    /** @return the price range label of a row, or null if not yet set */
+    public String getPriceRange(int row) {
+        byte code = priceRanges[row];
+        return code == NO_PRICE_RANGE ? null : PRICE_RANGES[code];
+    }
+
+    // Raw columns for transformation loops; valid up to size().
+    int[] ids() { return ids; }
+    String[] names() { return names; }
+    double[] prices() { return prices; }
+    long[] priceCents() { return priceCents; }
+    int[] categoryCodes() { return categoryCodes; }
+    byte[] priceRanges() { return priceRanges; }
+}
@@ -0,0 +1,223 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads files written by {@link ProductBinaryWriter}, one block at a time.
+ * IDs and prices are bulk-copied out of the block into the batch's columns;
+ * only the names have to be decoded.
+ */
+public class ProductBinaryReader implements Closeable {
+    private final ReadableByteChannel channel;
+    private final Inflater inflater;
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final ByteBuffer frame = ByteBuffer.allocate(ProductBinaryWriter.BLOCK_HEADER_BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer payload = ByteBuffer.allocate(0);
+    private ByteBuffer stored = ByteBuffer.allocate(0);
+    private final boolean noCategoryCode;
+    private boolean done;
+
+    /**
+     * Opens a reader and checks the file header.
+     *
+     * @param channel the binary product data; closed when this reader is closed
+     * @throws IOException if the channel fails or does not hold binary product data
+     */
+    public ProductBinaryReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header);
+        header.flip();
+        if (header.getInt() != ProductBinaryWriter.MAGIC) {
+            throw new IOException("Not a binary product file");
+        }
+        byte version = header.get();
+        if (version != ProductBinaryWriter.VERSION && version != ProductBinaryWriter.VERSION_WITHOUT_NO_CATEGORY) {
+            throw new IOException("Unsupported binary product file version " + version);
+        }
+        this.noCategoryCode = version != ProductBinaryWriter.VERSION_WITHOUT_NO_CATEGORY;
+        this.inflater = (header.get() & ProductBinaryWriter.FLAG_DEFLATE) != 0 ? new Inflater(true) : null;
+    }
+
+    /**
+     * Reads the next block.
+     *
+     * @return the block's rows, or null after the last block
+     * @throws IOException if the channel fails or the data is damaged
+     */
+    public ProductBatch nextBatch() throws IOException {
+        if (done) {
+            return null;
+        }
+        frame.clear();
+        readFully(frame);
+        frame.flip();
+        int rows = frame.getInt();
+        int length = frame.getInt();
+        int storedLength = frame.getInt();
+        if (rows == 0) {
+            done = true;
+            return null;
+        }
+        // Check the lengths against what the writer can produce before allocating anything.
+        if (rows < 0 || length < 0 || storedLength < 0
+                || length > ProductBinaryWriter.MAX_BLOCK_BYTES
+                || ProductBinaryWriter.BLOCK_FIXED_BYTES + (long) rows * ProductBinaryWriter.MIN_ROW_BYTES > length
+                || storedLength > ProductBinaryWriter.maxStoredBytes(length)) {
+            throw new IOException("Corrupt block header: " + rows + " rows, " + length + " bytes, "
+                + storedLength + " stored");
+        }
+
+        if (payload.capacity() < length) {
+            payload = ByteBuffer.allocate(length);
+        }
+        payload.clear().limit(length);
+        payload.order(ByteOrder.LITTLE_ENDIAN);
+        if (inflater == null) {
+            if (storedLength != length) {
+                throw new IOException("Corrupt block header");
+            }
+            readFully(payload);
+        } else {
+            if (stored.capacity() < storedLength) {
+                stored = ByteBuffer.allocate(storedLength);
+            }
+            stored.clear().limit(storedLength);
+            readFully(stored);
+            inflate(storedLength, length);
+        }
+        payload.flip();
+        return decode(rows);
+    }
+
+    /**
+     * Reads all remaining rows.
+     *
+     * @return the products, in file order
+     * @throws IOException if the channel fails or the data is damaged
+     */
+    public List<Product> readAll() throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (ProductBatch batch = nextBatch(); batch != null; batch = nextBatch()) {
+            products.addAll(batch.toProducts());
+        }
+        return products;
+    }
+
+    /** @return the categories read so far; batch category codes refer to it */
+    public CategoryDictionary getCategories() {
+        return categories;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inflater != null) {
+            inflater.end();
+        }
+        channel.close();
+    }
+
+    private ProductBatch decode(int rows) throws IOException {
+        try {
+            int newCategories = payload.getInt();
+            for (int i = 0; i < newCategories; i++) {
+                int expected = categories.size();
+                if (categories.intern(string(payload.getInt())).getCode() != expected) {
+                    throw new IOException("Corrupt block: repeated category");
+                }
+            }
+            int categoryCount = categories.size();
+
+            int[] ids = new int[rows];
+            payload.asIntBuffer().get(ids);
+            payload.position(payload.position() + rows * 4);
+            double[] prices = new double[rows];
+            payload.asDoubleBuffer().get(prices);
+            payload.position(payload.position() + rows * 8);
+
+            int[] codes = new int[rows];
+            int codeWidth = payload.get();
+            int noCategory = !noCategoryCode ? Integer.MIN_VALUE
+                : codeWidth == 1 ? 0xff : codeWidth == 2 ? 0xffff : -1;
+            for (int i = 0; i < rows; i++) {
+                int code = codeWidth == 1 ? payload.get() & 0xff
+                    : codeWidth == 2 ? payload.getShort() & 0xffff
+                    : payload.getInt();
+                if (code == noCategory) {
+                    codes[i] = ProductBatch.NO_CATEGORY;
+                    continue;
+                }
+                if (code < 0 || code >= categoryCount) {
+                    throw new IOException("Corrupt block: category code " + code);
+                }
+                codes[i] = code;
+            }
+
+            byte[] ranges = new byte[rows];
+            payload.get(ranges);
+            for (byte range : ranges) {
+                if (range < ProductBatch.NO_PRICE_RANGE || range >= ProductBatch.PRICE_RANGES.length) {
+                    throw new IOException("Corrupt block: price range " + range);
+                }
+            }
+
+            String[] names = new String[rows];
+            int lengths = payload.position();
+            payload.position(lengths + rows * 4);
+            for (int i = 0; i < rows; i++) {
+                int n = payload.getInt(lengths + i * 4);
+                names[i] = n < 0 ? null : string(n);
+            }
+            return ProductBatch.wrap(rows, ids, names, prices, codes, ranges, categories);
+        } catch (RuntimeException e) {
+            // Buffer underflows and bad lengths all mean the block is damaged.
+            throw new IOException("Corrupt block", e);
+        }
+    }
+
+    private String string(int length) {
+        String s = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return s;
+    }
+
+    private void inflate(int storedLength, int length) throws IOException {
+        inflater.reset();
+        inflater.setInput(stored.array(), 0, storedLength);
+        try {
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int got = inflater.inflate(payload.array(), n, length - n);
+                if (got == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += got;
+            }
+            if (n != length) {
+                throw new IOException("Corrupt block: expected " + length + " bytes, inflated " + n);
+            }
+            payload.position(length);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block", e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Binary product file is truncated");
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProductBinaryTest {
+
+    private static List<Product> sampleProducts(int count, int categories) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Product p = new Product(i - 5, i % 7 == 0 ? "Café " + i : "ITEM" + i,
+                i % 11 == 0 ? 0.1 + i / 3.0 : (i % 100_000) / 100.0, "Category" + (i % categories));
+            if (i % 13 != 0) {
+                p.setPriceRange(ProductBatch.PRICE_RANGES[i % 4]);
+            }
+            products.add(p);
+        }
+        return products;
+    }
+
+    private static byte[] write(List<Product> products, boolean compress, int blockRows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ProductBinaryWriter writer = new ProductBinaryWriter(Channels.newChannel(bytes), compress, blockRows)) {
+            for (Product p : products) {
+                writer.write(p);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Product> read(byte[] data) throws IOException {
+        try (ProductBinaryReader reader = new ProductBinaryReader(
+                Channels.newChannel(new ByteArrayInputStream(data)))) {
+            return reader.readAll();
+        }
+    }
+
+    private static void assertSameRows(List<Product> expected, List<Product> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Product e = expected.get(i);
+            Product a = actual.get(i);
+            assertEquals(e.getProductId(), a.getProductId());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(Double.doubleToLongBits(e.getPrice()), Double.doubleToLongBits(a.getPrice()));
+            assertEquals(e.getPriceCents(), a.getPriceCents());
+            assertEquals(e.getCategory(), a.getCategory());
+            assertEquals(e.getPriceRange(), a.getPriceRange());
+        }
+    }
+
+    @Test
+    public void testRoundTripAcrossBlocks() throws IOException {
+        List<Product> products = sampleProducts(10_000, 12);
+        assertSameRows(products, read(write(products, false, 999)));
+    }
+
+    @Test
+    public void testCompressedRoundTripIsSmaller() throws IOException {
+        List<Product> products = sampleProducts(10_000, 12);
+        byte[] plain = write(products, false, 4096);
+        byte[] compressed = write(products, true, 4096);
+        assertTrue(compressed.length < plain.length);
+        assertSameRows(products, read(compressed));
+    }
+
+    @Test
+    public void testWideCategoryCodes() throws IOException {
+        List<Product> products = sampleProducts(5_000, 1_000);
+        assertSameRows(products, read(write(products, true, 700)));
+    }
+
+    @Test
+    public void testNullCategoryRoundTrips() throws IOException {
+        // 255 and 256 categories sit either side of the switch to 2-byte codes; 70,000 needs 4-byte codes.
+        for (int categories : new int[] {3, 255, 256, 70_000}) {
+            List<Product> products = sampleProducts(Math.max(2 * categories, 1_000), categories);
+            for (int i = 0; i < products.size(); i += 19) {
+                products.get(i).setCategory((Category) null);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ProductBinaryWriter writer = new ProductBinaryWriter(Channels.newChannel(bytes), false, 300)) {
+                writer.write(ProductBatch.from(products.subList(0, 500)));
+                for (Product p : products.subList(500, products.size())) {
+                    writer.write(p);
+                }
+            }
+            try (ProductBinaryReader reader = new ProductBinaryReader(
+                    Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+                List<Product> read = reader.readAll();
+                assertSameRows(products, read);
+                assertNull(read.get(0).getCategoryEntry());
+                assertEquals(categories, reader.getCategories().size(), "no category named \"null\"");
+            }
+        }
+    }
+
+    @Test
+    public void testVersionOneFilesAreStillRead() throws IOException {
+        List<Product> products = sampleProducts(1_000, 12);
+        byte[] data = write(products, true, 300);
+        data[4] = ProductBinaryWriter.VERSION_WITHOUT_NO_CATEGORY;
+        assertSameRows(products, read(data));
+        data[4] = 9;
+        assertThrows(IOException.class, () -> read(data));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        assertTrue(read(write(new ArrayList<>(), false, 10)).isEmpty());
+    }
+
+    @Test
+    public void testDamagedInputIsRejected() throws IOException {
+        byte[] data = write(sampleProducts(100, 3), false, 64);
+        assertThrows(IOException.class, () -> read(Arrays.copyOf(data, data.length - 20)));
+        assertThrows(IOException.class, () -> read("ProductID,Name".getBytes()));
+    }
+
+    @Test
+    public void testDamagedBlockLengthsAreRejectedBeforeAllocating() throws IOException {
+        byte[] data = write(sampleProducts(100, 3), true, 64);
+        int frame = 6; // after the file header: rows, length, stored length
+        int[][] damage = {{4, 0x7fffffff}, {8, 0x7fffffff}, {0, 0x7fffffff}, {4, 10}};
+        for (int[] d : damage) {
+            ByteBuffer damaged = ByteBuffer.wrap(data.clone()).order(ByteOrder.LITTLE_ENDIAN);
+            damaged.putInt(frame + d[0], d[1]);
+            IOException e = assertThrows(IOException.class, () -> read(damaged.array()));
+            assertTrue(e.getMessage().startsWith("Corrupt block header"), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+/**
+ * Writes transformed products in a compact binary format that
+ * {@link ProductBinaryReader} loads back without any text parsing.
+ * <p>
+ * The file starts with the magic bytes {@code LSPB}, a version byte and a
+ * flags byte (bit 0: blocks are deflate-compressed). Rows follow in blocks
+ * of up to {@link #DEFAULT_BLOCK_ROWS} rows and {@link #MAX_BLOCK_BYTES}
+ * payload bytes, each framed by three little-endian ints: row count, payload length and stored (possibly
+ * compressed) length. A block with zero rows ends the file. The payload is
+ * column-oriented:
+ * <ol>
+ *   <li>categories first used in this block: a count, then length-prefixed UTF-8 names;
+ *       codes continue from the previous blocks</li>
+ *   <li>product IDs, 4 bytes each</li>
+ *   <li>prices as IEEE doubles, 8 bytes each, so they round-trip exactly</li>
+ *   <li>a code width byte (1, 2 or 4), then the category codes; the largest
+ *       value of the width (0xFF, 0xFFFF or -1) stands for no category</li>
+ *   <li>price range codes, one byte each (index into {@link ProductBatch#PRICE_RANGES}, -1 for none)</li>
+ *   <li>name byte lengths, 4 bytes each (-1 for null), then the UTF-8 names</li>
+ * </ol>
+ */
+public class ProductBinaryWriter implements Closeable {
+    /** Rows per block unless another size is given. */
+    public static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    static final int MAGIC = 0x4253504c; // "LSPB" read as a little-endian int
+    static final byte VERSION = 2;
+    /** Last version without a code for no category; its files are still read. */
+    static final byte VERSION_WITHOUT_NO_CATEGORY = 1;
+    static final byte FLAG_DEFLATE = 1;
+    /** Bytes in the frame before each block's payload. */
+    static final int BLOCK_HEADER_BYTES = 12;
+    /** Most payload bytes in a block; a block is written early rather than grow past it. */
+    static final int MAX_BLOCK_BYTES = 64 << 20;
+    /** Payload bytes in every block: the new category count and the code width. */
+    static final int BLOCK_FIXED_BYTES = 4 + 1;
+    /** Fewest payload bytes per row: ID, price, 1-byte category code, price range, name length. */
+    static final int MIN_ROW_BYTES = 4 + 8 + 1 + 1 + 4;
+    /** Most payload bytes per row besides its name, with 4-byte category codes. */
+    private static final int MAX_ROW_BYTES = 4 + 8 + 4 + 1 + 4;
+
+    private final WritableByteChannel channel;
+    private final Deflater deflater;
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final ProductBatch block;
+    private final int blockRows;
+    private int categoriesWritten;
+    private boolean headerWritten;
+    private long blockBytes = BLOCK_FIXED_BYTES; // upper bound on the current block's payload
+
+    private ByteBuffer payload = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private byte[] compressed = new byte[0];
+    private final ByteBuffer frame = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long bytesWritten;
+
+    /**
+     * Creates a writer with the default block size.
+     *
+     * @param channel where the bytes go; closed when this writer is closed
+     * @param compress whether to deflate each block
+     */
+    public ProductBinaryWriter(WritableByteChannel channel, boolean compress) {
+        this(channel, compress, DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Creates a writer.
+     *
+     * @param channel where the bytes go; closed when this writer is closed
+     * @param compress whether to deflate each block
+     * @param blockRows rows per block
+     */
+    public ProductBinaryWriter(WritableByteChannel channel, boolean compress, int blockRows) {
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("blockRows must be at least 1: " + blockRows);
+        }
+        this.channel = channel;
+        this.deflater = compress ? new Deflater(Deflater.BEST_SPEED, true) : null;
+        this.blockRows = blockRows;
+        this.block = new ProductBatch(blockRows, categories);
+    }
+
+    /**
+     * Adds a product to the current block, writing the block once it is full.
+     *
+     * @param p the transformed product
+     * @throws IOException if the channel fails or the product alone is too large for a block
+     */
+    public void write(Product p) throws IOException {
+        add(p.getProductId(), p.getName(), p.getPrice(), p.getCategoryEntry(),
+            ProductBatch.rangeCode(p.getPriceRange()));
+    }
+
+    /**
+     * Adds every row of a batch.
+     *
+     * @param batch the transformed rows
+     * @throws IOException if the channel fails or a row alone is too large for a block
+     */
+    public void write(ProductBatch batch) throws IOException {
+        byte[] ranges = batch.priceRanges();
+        for (int i = 0; i < batch.size(); i++) {
+            add(batch.getProductId(i), batch.getName(i), batch.getPrice(i), batch.getCategoryEntry(i), ranges[i]);
+        }
+    }
+
+    /**
+     * Adds a row to the current block, first writing the block if the row
+     * could take it past {@link #MAX_BLOCK_BYTES}, and afterwards if it is full.
+     */
+    private void add(int id, String name, double price, Category category, byte range) throws IOException {
+        long rowBytes = MAX_ROW_BYTES + maxUtf8Bytes(name);
+        long categoryBytes = category != null ? 4 + maxUtf8Bytes(category.getName()) : 0;
+        if (BLOCK_FIXED_BYTES + rowBytes + categoryBytes > MAX_BLOCK_BYTES) {
+            throw new IOException("Product " + id + " is too large for a block");
+        }
+        if (blockBytes + rowBytes + categoryBytes > MAX_BLOCK_BYTES) {
+            writeBlock();
+        }
+        int knownCategories = categories.size();
+        block.add(id, name, price, category);
+        block.priceRanges()[block.size() - 1] = range;
+        blockBytes += rowBytes + (categories.size() > knownCategories ? categoryBytes : 0);
+        if (block.size() == blockRows) {
+            writeBlock();
+        }
+    }
+
+    /** @return an upper bound on a string's UTF-8 length (3 bytes per char) */
+    private static long maxUtf8Bytes(String s) {
+        return s == null ? 0 : 3L * s.length();
+    }
+
+    /** @return the most bytes deflating a payload of the given length can take */
+    static long maxStoredBytes(int length) {
+        return length + length / 8 + 64;
+    }
+
+    /**
+     * Writes the rows added so far as a (possibly short) block.
+     *
+     * @throws IOException if the channel fails
+     */
+    public void flush() throws IOException {
+        writeHeader();
+        writeBlock();
+    }
+
+    /** @return the number of bytes handed to the channel */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Writes the remaining rows and the end marker, then closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            frame.clear();
+            frame.putInt(0).putInt(0).putInt(0).flip();
+            writeFully(frame);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            channel.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (headerWritten) {
+            return;
+        }
+        headerWritten = true;
+        ByteBuffer header = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).put(VERSION).put(deflater != null ? FLAG_DEFLATE : 0).flip();
+        writeFully(header);
+    }
+
+    private void writeBlock() throws IOException {
+        int rows = block.size();
+        if (rows == 0) {
+            return;
+        }
+        writeHeader();
+        encode(rows);
+
+        int length = payload.limit();
+        ByteBuffer stored = payload;
+        if (deflater != null) {
+            int n = deflate(length);
+            stored = ByteBuffer.wrap(compressed, 0, n);
+        }
+        frame.clear();
+        frame.putInt(rows).putInt(length).putInt(stored.remaining()).flip();
+        writeFully(frame);
+        writeFully(stored);
+        block.clear();
+        blockBytes = BLOCK_FIXED_BYTES;
+    }
+
+    private void encode(int rows) {
+        payload.clear();
+
+        int categoryCount = categories.size();
+        ensure(4);
+        payload.putInt(categoryCount - categoriesWritten);
+        for (int c = categoriesWritten; c < categoryCount; c++) {
+            byte[] name = categories.get(c).encoded(StandardCharsets.UTF_8);
+            ensure(4 + name.length);
+            payload.putInt(name.length).put(name);
+        }
+        categoriesWritten = categoryCount;
+
+        // Codes run up to categoryCount - 1; the all-ones value of the width is left for NO_CATEGORY.
+        int codeWidth = categoryCount <= 0xff ? 1 : categoryCount <= 0xffff ? 2 : 4;
+        ensure(rows * (4 + 8 + codeWidth + 1 + 4) + 1);
+
+        payload.asIntBuffer().put(block.ids(), 0, rows);
+        payload.position(payload.position() + rows * 4);
+        payload.asDoubleBuffer().put(block.prices(), 0, rows);
+        payload.position(payload.position() + rows * 8);
+
+        int[] codes = block.categoryCodes();
+        payload.put((byte) codeWidth);
+        for (int i = 0; i < rows; i++) {
+            // NO_CATEGORY (-1) narrows to all ones.
+            if (codeWidth == 1) {
+                payload.put((byte) codes[i]);
+            } else if (codeWidth == 2) {
+                payload.putShort((short) codes[i]);
+            } else {
+                payload.putInt(codes[i]);
+            }
+        }
+        payload.put(block.priceRanges(), 0, rows);
+
+        String[] names = block.names();
+        int lengths = payload.position();
+        payload.position(lengths + rows * 4);
+        for (int i = 0; i < rows; i++) {
+            if (names[i] == null) {
+                payload.putInt(lengths + i * 4, -1);
+                continue;
+            }
+            byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+            ensure(name.length);
+            payload.putInt(lengths + i * 4, name.length);
+            payload.put(name);
+        }
+        payload.flip();
+    }
+
+    /** Grows the payload buffer so at least n more bytes fit. */
+    private void ensure(int n) {
+        if (payload.remaining() < n) {
+            int needed = payload.position() + n;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(needed, payload.capacity() * 2))
+                .order(ByteOrder.LITTLE_ENDIAN);
+            payload.flip();
+            bigger.put(payload);
+            payload = bigger;
+        }
+    }
+
+    /** Compresses the payload into {@code compressed}; returns the compressed length. */
+    private int deflate(int length) {
+        deflater.reset();
+        deflater.setInput(payload.array(), 0, length);
+        deflater.finish();
+        if (compressed.length < length + 64) {
+            compressed = new byte[(int) maxStoredBytes(length)];
+        }
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == compressed.length) {
+                byte[] bigger = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, bigger, 0, n);
+                compressed = bigger;
+            }
+            n += deflater.deflate(compressed, n, compressed.length - n);
+        }
+        return n;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+    }
+}
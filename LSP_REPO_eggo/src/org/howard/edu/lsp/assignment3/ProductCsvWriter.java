@@ -0,0 +1,345 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import org.howard.edu.lsp.util.Cents;
+
+/**
+ * Writes transformed products as CSV rows into a reusable byte buffer and
+ * hands full buffers to a channel in large batches.
+ * <p>
+ * The bytes are identical to writing {@link Product#toString()} through a
+ * {@code BufferedWriter}: the header ends in {@code \n}, rows end in the
+ * platform line separator, and text is encoded with the default charset.
+ * Prices that are exactly a whole number of cents (see {@link Cents}) are
+ * formatted by a fixed two-decimal routine instead of {@code String.format("%.2f")};
+ * anything else (negative values, extra decimals, or a locale that does
+ * not print plain ASCII digits with a '.') still goes through
+ * {@code String.format}. Category names and price range labels are encoded
+ * once and then copied into the buffer as bytes.
+ * <p>
+ * Names and categories that contain a comma or a double quote are quoted
+ * the RFC 4180 way (see {@link #csvField(String)}), so every row reads back
+ * as five columns; all other fields are written as they are.
+ */
+public class ProductCsvWriter implements Closeable {
+    /** Header row of the transformed CSV file. */
+    public static final String HEADER = "ProductID,Name,Price,Category,PriceRange\n";
+
+    private static final int BUFFER_BYTES = 1 << 18;
+
+    private final WritableByteChannel channel;
+    private final Charset charset = Charset.defaultCharset();
+    private final boolean asciiCompatible = isAsciiCompatible(charset);
+    /** Encoded {@link ProductBatch#PRICE_RANGES} labels, written without re-encoding. */
+    private final byte[][] priceRangeBytes = new byte[ProductBatch.PRICE_RANGES.length][];
+    private final boolean plainDecimals = usesPlainDecimals(Locale.getDefault(Locale.Category.FORMAT));
+    private final byte[] newline = System.lineSeparator().getBytes(charset);
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final byte[] bytes = buffer.array();
+    private int pos;
+    private long bytesWritten;
+
+    /**
+     * Creates a writer over an open channel. The channel is closed when this
+     * writer is closed.
+     *
+     * @param channel where the CSV bytes go
+     */
+    public ProductCsvWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes the header row.
+     *
+     * @throws IOException if the channel fails
+     */
+    public void writeHeader() throws IOException {
+        appendText(HEADER);
+    }
+
+    /**
+     * Writes the header row with more columns after PriceRange.
+     *
+     * @param extraColumns comma-separated names of the extra columns, or null for none
+     * @throws IOException if the channel fails
+     */
+    public void writeHeader(String extraColumns) throws IOException {
+        if (extraColumns == null) {
+            writeHeader();
+            return;
+        }
+        appendText(HEADER.substring(0, HEADER.length() - 1) + "," + extraColumns + "\n");
+    }
+
+    /**
+     * Appends one product as a CSV row.
+     *
+     * @param p the transformed product
+     * @throws IOException if the channel fails
+     */
+    public void write(Product p) throws IOException {
+        writeRow(p.getProductId(), p.getName(), p.getPrice(), p.getPriceCents(),
+            p.getCategoryEntry(), p.getPriceRange(), p.getExtraColumns());
+    }
+
+    /**
+     * Appends every row of a columnar batch, without creating Product objects.
+     *
+     * @param batch the transformed batch
+     * @throws IOException if the channel fails
+     */
+    public void write(ProductBatch batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            writeRow(batch.getProductId(i), batch.getName(i), batch.getPrice(i), batch.getPriceCents(i),
+                batch.getCategoryEntry(i), batch.getPriceRange(i), null);
+        }
+    }
+
+    private void writeRow(int id, String name, double price, long cents, Category category,
+            String priceRange, String extraColumns) throws IOException {
+        appendInt(id);
+        appendByte(',');
+        appendText(csvField(name));
+        appendByte(',');
+        appendPrice(price, cents);
+        appendByte(',');
+        if (category != null) {
+            // encoded once per category, not per row
+            byte[] encoded = category.csvEncoded(charset);
+            appendBytes(encoded, 0, encoded.length);
+        } else {
+            appendText(null);
+        }
+        appendByte(',');
+        appendPriceRange(priceRange);
+        if (extraColumns != null) {
+            appendByte(',');
+            appendText(extraColumns);
+        }
+        appendBytes(newline, 0, newline.length);
+    }
+
+    /**
+     * Copies bytes from a file straight to the output, after any buffered
+     * rows. Used to reuse rows of a previous output file without decoding
+     * and re-encoding them.
+     *
+     * @param source the file to copy from
+     * @param position offset of the first byte to copy
+     * @param count number of bytes to copy
+     * @throws IOException if either file fails or the source is too short
+     */
+    public void transferFrom(FileChannel source, long position, long count) throws IOException {
+        flush();
+        long done = 0;
+        while (done < count) {
+            long n = source.transferTo(position + done, count - done, channel);
+            if (n <= 0) {
+                throw new EOFException("Source ended before offset " + (position + count));
+            }
+            done += n;
+        }
+        bytesWritten += count;
+    }
+
+    /**
+     * @return the number of bytes handed to the channel or still buffered
+     */
+    public long getBytesWritten() {
+        return bytesWritten + pos;
+    }
+
+    /**
+     * Writes any buffered bytes to the channel.
+     *
+     * @throws IOException if the channel fails
+     */
+    public void flush() throws IOException {
+        buffer.clear().limit(pos);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        bytesWritten += pos;
+        pos = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void appendByte(char c) throws IOException {
+        if (pos == bytes.length) {
+            flush();
+        }
+        bytes[pos++] = (byte) c;
+    }
+
+    private void appendBytes(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (pos == bytes.length) {
+                flush();
+            }
+            int n = Math.min(len, bytes.length - pos);
+            System.arraycopy(b, off, bytes, pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void appendText(String s) throws IOException {
+        if (s == null) {
+            s = "null";
+        }
+        int length = s.length();
+        if (asciiCompatible && length <= bytes.length) {
+            if (pos + length > bytes.length) {
+                flush();
+            }
+            int start = pos;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    pos = start;
+                    byte[] encoded = s.getBytes(charset);
+                    appendBytes(encoded, 0, encoded.length);
+                    return;
+                }
+                bytes[pos++] = (byte) c;
+            }
+            return;
+        }
+        byte[] encoded = s.getBytes(charset);
+        appendBytes(encoded, 0, encoded.length);
+    }
+
+    private void appendPriceRange(String priceRange) throws IOException {
+        String[] labels = ProductBatch.PRICE_RANGES;
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equals(priceRange)) {
+                if (priceRangeBytes[i] == null) {
+                    priceRangeBytes[i] = labels[i].getBytes(charset);
+                }
+                appendBytes(priceRangeBytes[i], 0, priceRangeBytes[i].length);
+                return;
+            }
+        }
+        appendText(priceRange);
+    }
+
+    private void appendInt(int value) throws IOException {
+        if (pos + 11 > bytes.length) {
+            flush();
+        }
+        long v = value;
+        if (v < 0) {
+            bytes[pos++] = '-';
+            v = -v;
+        }
+        appendDigits(v, 1);
+    }
+
+    /**
+     * Appends the digits of a non-negative number, zero-padded to at least
+     * minDigits. The caller must have made room in the buffer.
+     */
+    private void appendDigits(long v, int minDigits) {
+        int digits = 1;
+        for (long t = v / 10; t > 0; t /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            bytes[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        pos += digits;
+    }
+
+    /**
+     * Appends a price the way {@code String.format("%.2f", price)} would.
+     *
+     * @param price the price
+     * @param cents the same price in cents, or {@link Cents#NONE} if unknown
+     */
+    private void appendPrice(double price, long cents) throws IOException {
+        if (cents == Cents.NONE) {
+            cents = Cents.of(price);
+        }
+        if (plainDecimals && asciiCompatible && cents != Cents.NONE && cents >= 0) {
+            // price is the closest double to cents/100, so %.2f prints exactly cents/100.
+            appendCents(cents);
+        } else {
+            appendText(String.format("%.2f", price));
+        }
+    }
+
+    /**
+     * Appends a non-negative amount in cents as units, '.', and two digits.
+     *
+     * @param cents the amount in cents
+     * @throws IOException if the channel fails
+     */
+    private void appendCents(long cents) throws IOException {
+        if (pos + 24 > bytes.length) {
+            flush();
+        }
+        appendDigits(cents / 100, 1);
+        bytes[pos++] = '.';
+        appendDigits(cents % 100, 2);
+    }
+
+    /**
+     * Quotes a field for a CSV row if it contains a comma or a double quote,
+     * doubling the quotes inside; other text is returned unchanged.
+     *
+     * @param field the field text, or null
+     * @return the text to write for the field, or null if field is null
+     */
+    static String csvField(String field) {
+        if (field == null || !needsQuoting(field)) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    private static boolean needsQuoting(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        StringBuilder ascii = new StringBuilder(128);
+        for (char c = 0; c < 128; c++) {
+            ascii.append(c);
+        }
+        return new String(ascii.toString().getBytes(charset), StandardCharsets.ISO_8859_1)
+            .contentEquals(ascii);
+    }
+
+    private static boolean usesPlainDecimals(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        return symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+    }
+}
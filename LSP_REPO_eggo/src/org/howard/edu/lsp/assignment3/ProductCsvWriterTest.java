@@ -0,0 +1,122 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.howard.edu.lsp.util.CsvTokenizer;
+
+public class ProductCsvWriterTest {
+    @TempDir
+    Path dir;
+
+    /** The bytes of the writer's output. */
+    private static byte[] written(List<Product> products) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ProductCsvWriter writer = new ProductCsvWriter(Channels.newChannel(out))) {
+            writer.writeHeader();
+            for (Product p : products) {
+                writer.write(p);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** The bytes the loader wrote before ProductCsvWriter: each toString through a BufferedWriter. */
+    private static byte[] formatted(List<Product> products) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out))) {
+            writer.write(ProductCsvWriter.HEADER);
+            for (Product p : products) {
+                writer.write(p.toString());
+                writer.newLine();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static Product product(int id, String name, double price) {
+        Product p = new Product(id, name, price, id % 3 == 0 ? "Electronics" : "Books");
+        p.setPriceRange(ProductBatch.PRICE_RANGES[id % ProductBatch.PRICE_RANGES.length]);
+        return p;
+    }
+
+    @Test
+    public void testEdgePricesMatchStringFormat() throws IOException {
+        double[] prices = {
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e20, -1e20, Double.MAX_VALUE,
+            Double.MIN_VALUE, 0.0, -0.0, -0.004, -0.005, -12.5, 0.005, 0.015, 1.005, 2.675, 10.115, 1234.565,
+            0.125, 3.14159, 1 / 3.0, 99.999, 99.99, 1e-9, 92233720368547758.07, 42
+        };
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < prices.length; i++) {
+            products.add(product(i, "Item" + i, prices[i]));
+        }
+        products.add(Product.ofCents(100, "Cents", 123456, Category.of("Books")));
+        Product untransformed = new Product(101, "Untransformed", 5.5, (String) null);
+        products.add(untransformed);
+
+        assertArrayEquals(formatted(products), written(products));
+    }
+
+    @Test
+    public void testRowsAcrossBufferFlushesMatchStringFormat() throws IOException {
+        List<Product> products = new ArrayList<>();
+        // About 1.5 MB of rows of varying length, so flushes of the 256 KB buffer land mid-row.
+        for (int i = 0; i < 30_000; i++) {
+            String name = "Item" + "x".repeat(i % 37) + (i % 101 == 0 ? "\u00e9" : "") + (i % 97 == 0 ? ", boxed" : "");
+            products.add(product(i, name, i % 7 == 0 ? i / 7.0 : i * 0.01));
+        }
+        // A name longer than the buffer itself.
+        products.add(15_000, product(30_000, "y".repeat(300_000), 1.5));
+
+        byte[] expected = formatted(products);
+        assertTrue(expected.length > 4 * (1 << 18));
+        assertArrayEquals(expected, written(products));
+    }
+
+    @Test
+    public void testQuotedFieldsRoundTrip() throws IOException {
+        Path input = dir.resolve("in.csv");
+        Files.writeString(input, "ProductID,Name,Price,Category\n"
+            + "\"14\",\"Item480818 \"\"v2\"\", boxed\",526,Garden & More\n"
+            + "15,\"Lamp, desk\",\"12.50\",\"Home, Office\"\n"
+            + "16,Plain,3.00,Books\n");
+        List<Product> products = new Extractor(new RejectLog(null, 0)).extract(input.toString());
+        new Transformer().transform(products);
+        Path output = dir.resolve("out.csv");
+        new Loader().load(products, output.toString());
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(4, lines.size());
+        assertEquals("16,PLAIN,3.00,Books,Low", lines.get(3), "plain fields are written as before");
+        String[][] expected = {
+            {"14", "ITEM480818 \"V2\", BOXED", "526.00", "Garden & More", "Premium"},
+            {"15", "LAMP, DESK", "12.50", "Home, Office", "Medium"},
+            {"16", "PLAIN", "3.00", "Books", "Low"},
+        };
+        for (int row = 0; row < expected.length; row++) {
+            String line = lines.get(row + 1);
+            assertEquals(line, products.get(row).toString(), "toString matches the writer");
+            CsvTokenizer csv = new CsvTokenizer(new StringReader(line));
+            assertTrue(csv.next());
+            assertNull(csv.error(), line);
+            assertEquals(5, csv.fieldCount(), line);
+            for (int f = 0; f < 5; f++) {
+                assertEquals(expected[row][f], csv.field(f), line);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * A pull-based source of products that holds an open input.
+ * Products are produced one at a time as the caller asks for them,
+ * so only the current row needs to be in memory.
+ */
+public interface ProductIterator extends Iterator<Product>, Closeable {
+}
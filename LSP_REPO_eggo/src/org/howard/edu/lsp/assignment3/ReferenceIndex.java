@@ -0,0 +1,35 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+
+/**
+ * Reference data keyed by ProductID, for {@link ReferenceJoin} to look up
+ * once per product. Implemented by the in-memory {@link HeapReferenceIndex}
+ * and the file-backed {@link MappedReferenceIndex}; both are open-addressing
+ * hash tables over primitive int keys and may be probed from several
+ * threads at once.
+ */
+public interface ReferenceIndex extends Closeable {
+    /**
+     * Looks up the reference columns of a product.
+     *
+     * @param productId the product ID
+     * @return the row's columns after ProductID, comma-separated, or null if there is no row
+     */
+    String lookup(int productId);
+
+    /**
+     * @return the names of the reference columns after ProductID, comma-separated
+     */
+    String getHeader();
+
+    /**
+     * @return the number of reference rows indexed
+     */
+    int size();
+
+    /**
+     * @return reference rows left out because they were malformed or repeated a ProductID
+     */
+    int getRowsSkipped();
+}
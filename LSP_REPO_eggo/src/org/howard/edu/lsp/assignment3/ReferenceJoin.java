@@ -0,0 +1,133 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Enriches transformed products with the columns of a {@link ReferenceIndex}
+ * row that has the same ProductID, as a left join: a product without a
+ * reference row keeps its place in the output with the reference columns
+ * left empty. The columns are carried on the product
+ * ({@link Product#setExtraColumns}) and written after PriceRange by a
+ * {@link Loader} created with {@link #getHeader()}.
+ */
+public class ReferenceJoin {
+    private final ReferenceIndex index;
+    private final String missing;
+    private long matched;
+    private long unmatched;
+
+    /**
+     * Creates a join against an index. The index is not closed by the join.
+     *
+     * @param index the reference rows by ProductID
+     */
+    public ReferenceJoin(ReferenceIndex index) {
+        this.index = index;
+        // One empty field per column: the separators between them, outside quoted names.
+        StringBuilder empty = new StringBuilder();
+        boolean quoted = false;
+        for (char c : index.getHeader().toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                empty.append(',');
+            }
+        }
+        this.missing = empty.toString();
+    }
+
+    /** @return the reference column names, for {@link Loader#Loader(Loader.Format, String)} */
+    public String getHeader() {
+        return index.getHeader();
+    }
+
+    /**
+     * Sets a product's reference columns.
+     *
+     * @param p a transformed product
+     * @return whether the product had a reference row
+     */
+    boolean enrich(Product p) {
+        String columns = index.lookup(p.getProductId());
+        p.setExtraColumns(columns != null ? columns : missing);
+        return columns != null;
+    }
+
+    /**
+     * Enriches products as they stream past.
+     *
+     * @param products the transformed products
+     * @return the same products, in the same order, enriched
+     */
+    public Iterator<Product> join(Iterator<Product> products) {
+        return new Iterator<Product>() {
+            @Override
+            public boolean hasNext() {
+                return products.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                Product p = products.next();
+                if (enrich(p)) {
+                    matched++;
+                } else {
+                    unmatched++;
+                }
+                return p;
+            }
+        };
+    }
+
+    /**
+     * Enriches a list of products, probing the index from several threads.
+     *
+     * @param products the transformed products
+     * @param parallelism number of worker threads to use
+     */
+    public void join(List<Product> products, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        int chunks = Math.min(parallelism * 4, Math.max(1, products.size() / 4096));
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int c = 0; c < chunks; c++) {
+                int from = (int) ((long) products.size() * c / chunks);
+                int to = (int) ((long) products.size() * (c + 1) / chunks);
+                tasks.add(pool.submit(() -> {
+                    int found = 0;
+                    for (int i = from; i < to; i++) {
+                        if (enrich(products.get(i))) {
+                            found++;
+                        }
+                    }
+                    return found;
+                }));
+            }
+            int found = 0;
+            for (ForkJoinTask<Integer> task : tasks) {
+                found += task.join();
+            }
+            matched += found;
+            unmatched += products.size() - found;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** @return products that had a reference row */
+    public long getMatched() {
+        return matched;
+    }
+
+    /** @return products without a reference row */
+    public long getUnmatched() {
+        return unmatched;
+    }
+}
@@ -0,0 +1,154 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+public class ReferenceJoinTest {
+
+    @TempDir
+    Path dir;
+
+    private Path writeReference(int[] ids) throws IOException {
+        StringBuilder csv = new StringBuilder("ProductID,SupplierID,\"Supplier, Name\"\n");
+        for (int id : ids) {
+            csv.append(id).append(",S").append(id % 100).append(',')
+                .append(id % 3 == 0 ? "\"Acme, Inc.\"" : "Supplier " + id).append('\n');
+        }
+        csv.append("x,bad,id\n").append("7,too,many,columns\n");
+        Path reference = dir.resolve("suppliers.csv");
+        Files.writeString(reference, csv);
+        return reference;
+    }
+
+    private static int[] randomIds(int count) {
+        Random random = new Random(11);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i % 10 == 0 ? random.nextInt() : i * 7 - 1000;
+        }
+        ids[0] = 0;
+        ids[1] = Integer.MIN_VALUE;
+        return ids;
+    }
+
+    private static String expected(int id) {
+        return "S" + (id % 100) + "," + (id % 3 == 0 ? "\"Acme, Inc.\"" : "Supplier " + id);
+    }
+
+    @Test
+    public void testHeapAndMappedIndexesAgree() throws IOException {
+        int[] ids = randomIds(20_000);
+        Path reference = writeReference(ids);
+        try (ReferenceIndex heap = HeapReferenceIndex.load(reference);
+             ReferenceIndex mapped = MappedReferenceIndex.open(reference, dir.resolve("suppliers.idx"))) {
+            for (ReferenceIndex index : new ReferenceIndex[] {heap, mapped}) {
+                assertEquals("SupplierID,\"Supplier, Name\"", index.getHeader());
+                assertEquals(2, index.getRowsSkipped());
+                assertEquals(ids.length, index.size());
+                for (int id : ids) {
+                    assertEquals(expected(id), index.lookup(id), Integer.toString(id));
+                }
+                assertNull(index.lookup(-1001));
+                assertNull(index.lookup(Integer.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    public void testFirstRowWinsForARepeatedId() throws IOException {
+        Path reference = dir.resolve("repeated.csv");
+        Files.writeString(reference, "ProductID,Supplier\n1,first\n2,other\n1,second\n");
+        try (ReferenceIndex heap = HeapReferenceIndex.load(reference);
+             ReferenceIndex mapped = MappedReferenceIndex.open(reference, dir.resolve("repeated.idx"))) {
+            assertEquals("first", heap.lookup(1));
+            assertEquals("first", mapped.lookup(1));
+            assertEquals(1, heap.getRowsSkipped());
+            assertEquals(1, mapped.getRowsSkipped());
+        }
+    }
+
+    @Test
+    public void testIndexFileIsRebuiltWhenTheReferenceChanges() throws IOException {
+        Path reference = dir.resolve("changing.csv");
+        Path indexFile = dir.resolve("changing.idx");
+        Files.writeString(reference, "ProductID,Supplier\n1,old\n");
+        try (ReferenceIndex index = MappedReferenceIndex.open(reference, indexFile)) {
+            assertEquals("old", index.lookup(1));
+        }
+        FileTime built = Files.getLastModifiedTime(indexFile);
+        try (ReferenceIndex index = MappedReferenceIndex.open(reference, indexFile)) {
+            assertEquals("old", index.lookup(1));
+        }
+        assertEquals(built, Files.getLastModifiedTime(indexFile));
+
+        Files.writeString(reference, "ProductID,Supplier\n1,new\n2,added\n");
+        Files.setLastModifiedTime(reference, FileTime.fromMillis(built.toMillis() + 5000));
+        try (ReferenceIndex index = MappedReferenceIndex.open(reference, indexFile)) {
+            assertEquals("new", index.lookup(1));
+            assertEquals("added", index.lookup(2));
+        }
+    }
+
+    @Test
+    public void testJoinLeavesColumnsEmptyWithoutAMatch() throws IOException {
+        Path reference = writeReference(new int[] {1, 3});
+        List<Product> products = new ArrayList<>();
+        for (int id = 1; id <= 4; id++) {
+            Product p = new Product(id, "Item" + id, 5.0, "Toys");
+            new Transformer().transform(p);
+            products.add(p);
+        }
+        try (ReferenceIndex index = HeapReferenceIndex.load(reference)) {
+            ReferenceJoin join = new ReferenceJoin(index);
+            Iterator<Product> joined = join.join(products.iterator());
+            assertEquals("1,ITEM1,5.00,Toys,Low,S1,Supplier 1", joined.next().toString());
+            assertEquals("2,ITEM2,5.00,Toys,Low,,", joined.next().toString());
+            assertEquals("3,ITEM3,5.00,Toys,Low,S3,\"Acme, Inc.\"", joined.next().toString());
+            joined.next();
+            assertEquals(2, join.getMatched());
+            assertEquals(2, join.getUnmatched());
+
+            Path out = dir.resolve("joined.csv");
+            new Loader(Loader.Format.CSV, join.getHeader()).load(products, out.toString());
+            assertTrue(Files.readString(out).startsWith(
+                "ProductID,Name,Price,Category,PriceRange,SupplierID,\"Supplier, Name\"\n1,ITEM1,5.00,Toys,Low,S1,"));
+        }
+    }
+
+    @Test
+    public void testParallelJoinMatchesStreamingJoin() throws IOException {
+        int[] ids = randomIds(50_000);
+        Path reference = writeReference(ids);
+        List<Product> streamed = new ArrayList<>();
+        List<Product> parallel = new ArrayList<>();
+        for (int i = 0; i < 60_000; i++) {
+            int id = i < ids.length ? ids[(i * 31) % ids.length] : -i;
+            streamed.add(new Product(id, "Item", 1.0, "Toys"));
+            parallel.add(new Product(id, "Item", 1.0, "Toys"));
+        }
+        try (ReferenceIndex index = MappedReferenceIndex.open(reference, dir.resolve("suppliers.idx"))) {
+            ReferenceJoin one = new ReferenceJoin(index);
+            for (Iterator<Product> it = one.join(streamed.iterator()); it.hasNext();) {
+                it.next();
+            }
+            ReferenceJoin many = new ReferenceJoin(index);
+            many.join(parallel, 4);
+            assertEquals(one.getMatched(), many.getMatched());
+            assertEquals(one.getUnmatched(), many.getUnmatched());
+            for (int i = 0; i < streamed.size(); i++) {
+                assertEquals(streamed.get(i).getExtraColumns(), parallel.get(i).getExtraColumns());
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+
+import org.howard.edu.lsp.util.Compression;
+import org.howard.edu.lsp.util.CsvTokenizer;
+
+/**
+ * Reads a reference CSV file for an index: a header, then rows whose first
+ * column is an int ProductID. The other columns of each row are joined
+ * back into one comma-separated String, quoting any field that needs it,
+ * so they can be written out as they are. Rows that do not tokenize,
+ * have a different number of columns than the header, or have no valid
+ * ProductID are skipped and counted. A {@code .gz} file is decompressed
+ * on the fly.
+ */
+class ReferenceRows implements Closeable {
+    private final CsvTokenizer csv;
+    private final String header;
+    private final int columns;
+    private int id;
+    private int skipped;
+
+    ReferenceRows(Path reference) throws IOException {
+        csv = new CsvTokenizer(new InputStreamReader(Compression.newInputStream(reference)));
+        try {
+            if (!csv.next() || csv.error() != null || csv.fieldCount() < 2) {
+                throw new IOException(reference + " needs a header with ProductID and at least one more column");
+            }
+            columns = csv.fieldCount();
+            header = joinColumns();
+        } catch (IOException e) {
+            csv.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next valid row.
+     *
+     * @return false at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    boolean next() throws IOException {
+        while (csv.next()) {
+            if (csv.error() != null || csv.fieldCount() != columns) {
+                skipped++;
+                continue;
+            }
+            try {
+                id = csv.intField(0);
+            } catch (NumberFormatException e) {
+                skipped++;
+                continue;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** @return the ProductID of the current row */
+    int id() {
+        return id;
+    }
+
+    /** @return the other columns of the current row, comma-separated */
+    String values() {
+        return joinColumns();
+    }
+
+    /** @return the header's column names after ProductID, comma-separated */
+    String header() {
+        return header;
+    }
+
+    /** @return the number of columns after ProductID */
+    int valueColumns() {
+        return columns - 1;
+    }
+
+    /** Counts a row the index did not take, such as a repeated ProductID. */
+    void skip() {
+        skipped++;
+    }
+
+    /** @return rows skipped so far */
+    int skipped() {
+        return skipped;
+    }
+
+    private String joinColumns() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < csv.fieldCount(); i++) {
+            if (i > 1) {
+                sb.append(',');
+            }
+            sb.append(ProductCsvWriter.csvField(csv.field(i)));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        csv.close();
+    }
+}
@@ -0,0 +1,317 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the input rows the Extractor could not turn into products.
+ * <p>
+ * Every rejected row is counted by {@link Reason}. If a rejects file is
+ * given, each row is also written there with its line number and reason.
+ * Rows are gathered into large chunks and written by a background thread,
+ * so a feed with millions of bad rows does not wait on the disk row by
+ * row; if the writer falls behind, a bounded queue holds the caller back
+ * rather than dropping rows. The console only gets a sample: at most
+ * {@code consolePerSecond} "Skipping malformed line" messages each second,
+ * followed by a note of how many were left out.
+ * <p>
+ * Rows from one thread at a time; close the log to flush the file and
+ * print the last note.
+ */
+public class RejectLog implements Closeable {
+    /** Why a row was rejected. */
+    public enum Reason {
+        /** The line is not valid CSV, such as an unterminated quote. */
+        MALFORMED_CSV("malformed CSV"),
+        /** The row does not have exactly four columns. */
+        WRONG_COLUMN_COUNT("wrong number of columns"),
+        /** The ProductID is not an integer. */
+        INVALID_ID("invalid ProductID"),
+        /** The price is not a number. */
+        INVALID_PRICE("invalid price");
+
+        private final String description;
+
+        Reason(String description) {
+            this.description = description;
+        }
+
+        /** @return a short human-readable description */
+        public String getDescription() { return description; }
+
+        /** @return the reason in lowercase, as written to the rejects file */
+        public String code() { return name().toLowerCase(); }
+    }
+
+    /** Console messages per second for the pipeline runs unless configured otherwise. */
+    public static final int DEFAULT_CONSOLE_PER_SECOND = 10;
+
+    private static final int CHUNK_CHARS = 1 << 16;
+    private static final int QUEUE_CHUNKS = 16;
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+    private static final String END = new String();
+
+    private final String path;
+    private final int consolePerSecond;
+    private final AtomicLongArray counts = new AtomicLongArray(Reason.values().length);
+
+    private final BlockingQueue<String> queue;
+    private final Thread writer;
+    private volatile IOException failure;
+    private StringBuilder pending;
+
+    private final List<Entry> buffered;
+
+    private long windowStart;
+    private int printedInWindow;
+    private long suppressed;
+    private boolean closed;
+
+    /**
+     * Creates a log that counts rows and prints every one to the console.
+     * Nothing is held back or written in the background, so a caller that
+     * never closes the log loses nothing.
+     */
+    public RejectLog() {
+        this(null, Integer.MAX_VALUE, null, null);
+    }
+
+    /**
+     * Creates a log.
+     *
+     * @param path the rejects file to create, or null for none
+     * @param consolePerSecond console messages allowed per second; 0 for none
+     * @throws IOException if the rejects file cannot be created
+     */
+    public RejectLog(String path, int consolePerSecond) throws IOException {
+        this(path, consolePerSecond,
+            path != null ? Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8) : null, null);
+    }
+
+    private RejectLog(String path, int consolePerSecond, Writer out, List<Entry> buffered) {
+        if (consolePerSecond < 0) {
+            throw new IllegalArgumentException("consolePerSecond must not be negative: " + consolePerSecond);
+        }
+        this.path = path;
+        this.consolePerSecond = consolePerSecond;
+        this.buffered = buffered;
+        this.windowStart = System.nanoTime() - WINDOW_NANOS;
+        if (out == null) {
+            this.queue = null;
+            this.writer = null;
+            return;
+        }
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        this.pending = new StringBuilder(CHUNK_CHARS + 256).append("Line,Reason,Row\n");
+        this.writer = new Thread(() -> drain(out), "reject-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Returns a log that holds rows in memory, for a worker parsing part of
+     * the input whose line numbers are only known relative to its start.
+     *
+     * @return a buffering log; pass it to {@link #replayInto} when done
+     */
+    static RejectLog buffering() {
+        return new RejectLog(null, 0, null, new ArrayList<>());
+    }
+
+    /**
+     * Records a rejected row.
+     *
+     * @param line the row's line number in the input, counting the header as line 1
+     * @param reason why it was rejected
+     * @param text the raw row
+     */
+    public void reject(long line, Reason reason, String text) {
+        counts.incrementAndGet(reason.ordinal());
+        if (buffered != null) {
+            buffered.add(new Entry(line, reason, text));
+            return;
+        }
+        if (consolePerSecond > 0) {
+            long now = System.nanoTime();
+            if (now - windowStart >= WINDOW_NANOS) {
+                printSuppressed();
+                windowStart = now;
+                printedInWindow = 0;
+            }
+            if (printedInWindow < consolePerSecond) {
+                printedInWindow++;
+                System.out.println("Skipping malformed line: " + text);
+            } else {
+                suppressed++;
+            }
+        }
+        if (queue != null && failure == null) {
+            pending.append(line).append(',').append(reason.code()).append(',');
+            appendQuoted(pending, text);
+            pending.append('\n');
+            if (pending.length() >= CHUNK_CHARS) {
+                handOff();
+            }
+        }
+    }
+
+    /**
+     * Records the rows of a buffering log, in order, shifting their line
+     * numbers by an offset.
+     *
+     * @param target the log to add the rows to
+     * @param lineOffset lines before the start of the buffered rows
+     */
+    void replayInto(RejectLog target, long lineOffset) {
+        for (Entry e : buffered) {
+            target.reject(e.line + lineOffset, e.reason, e.text);
+        }
+        buffered.clear();
+    }
+
+    /**
+     * Adds rows rejected before this log was created, for a run that
+     * continues an earlier one. Only the counts change; nothing is logged.
+     *
+     * @param reason a reject reason
+     * @param count rows the earlier run rejected for that reason
+     */
+    void addCount(Reason reason, long count) {
+        counts.addAndGet(reason.ordinal(), count);
+    }
+
+    /**
+     * @param reason a reject reason
+     * @return rows rejected for that reason so far
+     */
+    public long getCount(Reason reason) {
+        return counts.get(reason.ordinal());
+    }
+
+    /** @return rows rejected so far for any reason */
+    public long getTotal() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /** @return the rejects file, or null if rows only go to the console */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Writes out the remaining rows, waits for the rejects file to be
+     * closed and prints how many console messages were left out.
+     *
+     * @throws IOException if writing the rejects file failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        printSuppressed();
+        if (writer == null) {
+            return;
+        }
+        handOff();
+        put(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing rejects", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void printSuppressed() {
+        if (suppressed > 0) {
+            System.out.println("... " + suppressed + " more malformed lines not shown"
+                + (path != null ? " (all are in " + path + ")" : ""));
+            suppressed = 0;
+        }
+    }
+
+    private void handOff() {
+        if (pending.length() > 0) {
+            put(pending.toString());
+            pending.setLength(0);
+        }
+    }
+
+    private void put(String chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IOException("Interrupted while writing rejects", e);
+        }
+    }
+
+    /** Runs on the writer thread until the end marker arrives. */
+    private void drain(Writer out) {
+        try (Writer w = out) {
+            for (String chunk = queue.take(); chunk != END; chunk = queue.take()) {
+                if (failure == null) {
+                    w.write(chunk);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            drainAfterFailure();
+        } catch (InterruptedException e) {
+            failure = new IOException("Interrupted while writing rejects", e);
+        }
+    }
+
+    /** Keeps taking chunks after a write error so the caller never blocks. */
+    private void drainAfterFailure() {
+        try {
+            while (queue.take() != END) {
+                // discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void appendQuoted(StringBuilder sb, String text) {
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static final class Entry {
+        final long line;
+        final Reason reason;
+        final String text;
+
+        Entry(long line, Reason reason, String text) {
+            this.line = line;
+            this.reason = reason;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class RejectLogTest {
+    private static final String INPUT = "ProductID,Name,Price,Category\n"
+        + "1,Book,12.99,Education\n"
+        + "2,Pen,1.50\n"
+        + "x,Lamp,20.00,Home\n"
+        + "4,Desk,abc,Home\n"
+        + "5,\"Chair,Home,30,Home\n"
+        + "6,\"Quoted \"\"Sofa\"\"\",500.00,Home\n";
+
+    @TempDir
+    Path dir;
+
+    private String writeInput(String csv) throws IOException {
+        Path in = dir.resolve("products.csv");
+        Files.writeString(in, csv);
+        return in.toString();
+    }
+
+    @Test
+    public void testRejectsFileHasLineNumbersAndReasons() throws IOException {
+        String input = writeInput(INPUT + "7,Bad\"Row,1.00,Home,extra\n");
+        String rejectsPath = dir.resolve("rejects.csv").toString();
+        RejectLog rejects = new RejectLog(rejectsPath, 0);
+        Extractor extractor = new Extractor(rejects);
+        assertEquals(2, extractor.extract(input).size());
+        rejects.close();
+
+        assertEquals(2, rejects.getCount(RejectLog.Reason.WRONG_COLUMN_COUNT));
+        assertEquals(1, rejects.getCount(RejectLog.Reason.INVALID_ID));
+        assertEquals(1, rejects.getCount(RejectLog.Reason.INVALID_PRICE));
+        assertEquals(1, rejects.getCount(RejectLog.Reason.MALFORMED_CSV));
+        assertEquals(5, rejects.getTotal());
+        assertEquals(extractor.getRowsSkipped(), rejects.getTotal());
+        assertEquals("Line,Reason,Row\n"
+            + "3,wrong_column_count,\"2,Pen,1.50\"\n"
+            + "4,invalid_id,\"x,Lamp,20.00,Home\"\n"
+            + "5,invalid_price,\"4,Desk,abc,Home\"\n"
+            + "6,malformed_csv,\"5,\"\"Chair,Home,30,Home\"\n"
+            + "8,wrong_column_count,\"7,Bad\"\"Row,1.00,Home,extra\"\n",
+            Files.readString(Path.of(rejectsPath)));
+    }
+
+    @Test
+    public void testParallelExtractionReportsTheSameRows() throws IOException {
+        StringBuilder csv = new StringBuilder("ProductID,Name,Price,Category\n");
+        for (int i = 0; i < 200_000; i++) {
+            csv.append(i).append(",Item").append(i).append(i % 97 == 0 ? ",abc" : ",1.25")
+                .append(i % 89 == 0 ? "\n" : ",Toys\n");
+        }
+        String input = writeInput(csv.toString());
+
+        String serialPath = dir.resolve("serial.csv").toString();
+        try (RejectLog rejects = new RejectLog(serialPath, 0)) {
+            new Extractor(rejects).extract(input);
+        }
+        String parallelPath = dir.resolve("parallel.csv").toString();
+        try (RejectLog rejects = new RejectLog(parallelPath, 0)) {
+            new Extractor(rejects).extractParallel(input, 4);
+        }
+        assertEquals(Files.readString(Path.of(serialPath)), Files.readString(Path.of(parallelPath)));
+        assertTrue(Files.readString(Path.of(serialPath)).contains("\n99,invalid_price,\"97,Item97,abc,Toys\"\n"));
+    }
+
+    @Test
+    public void testConsoleIsRateLimited() throws IOException {
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        RejectLog rejects = new RejectLog(null, 3);
+        try {
+            for (int i = 0; i < 100; i++) {
+                rejects.reject(i + 2, RejectLog.Reason.INVALID_PRICE, "row " + i);
+            }
+            rejects.close();
+        } finally {
+            System.setOut(out);
+        }
+        String[] lines = captured.toString().split(System.lineSeparator());
+        assertEquals(4, lines.length);
+        assertEquals("Skipping malformed line: row 0", lines[0]);
+        assertEquals("... 97 more malformed lines not shown", lines[3]);
+        assertEquals(100, rejects.getCount(RejectLog.Reason.INVALID_PRICE));
+    }
+
+    @Test
+    public void testDefaultExtractorPrintsEveryRow() throws IOException {
+        StringBuilder csv = new StringBuilder("ProductID,Name,Price,Category\n");
+        for (int i = 0; i < 50; i++) {
+            csv.append(i).append(",Item,abc,Home\n");
+        }
+        String input = writeInput(csv.toString());
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        Extractor extractor = new Extractor();
+        try {
+            // Never closed: the default log has nothing to flush or summarize.
+            assertTrue(extractor.extract(input).isEmpty());
+        } finally {
+            System.setOut(out);
+        }
+        String[] lines = captured.toString().split(System.lineSeparator());
+        assertEquals(50, lines.length);
+        assertEquals("Skipping malformed line: 49,Item,abc,Home", lines[49]);
+        assertEquals(50, extractor.getRejects().getTotal());
+    }
+}
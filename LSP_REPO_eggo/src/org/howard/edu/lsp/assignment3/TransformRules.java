@@ -0,0 +1,373 @@
+package org.howard.edu.lsp.assignment3;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.howard.edu.lsp.util.Cents;
+
+/**
+ * The business rules {@link Transformer} applies, compiled from a properties
+ * file into lookup structures so adding rules does not add per-row work.
+ * <p>
+ * The file format:
+ * <pre>
+ * # Inclusive upper bounds of the Low, Medium and High price ranges;
+ * # anything above the last one is Premium.
+ * priceRanges=10.00,100.00,500.00
+ *
+ * # One block per category rule; the id only groups the keys.
+ * rule.electronics.category=Electronics
+ * rule.electronics.discount=10
+ * rule.electronics.promoteAbove=500.00
+ * rule.electronics.promoteTo=Premium Electronics
+ * </pre>
+ * Category names match ignoring case. {@code discount} is a percentage
+ * taken off the price; {@code promoteAbove} moves the product to the
+ * {@code promoteTo} category when its (discounted) price is above it. Both
+ * are optional. Prices have at most two decimals. Without
+ * {@code priceRanges} the built-in cutoffs are used.
+ * <p>
+ * Each category's rule is looked up once and remembered on the
+ * {@link Category}, and price ranges are found by binary search over the
+ * sorted cutoffs in cents.
+ */
+public final class TransformRules {
+    /** The rules file the pipeline reads if it exists. */
+    public static final String DEFAULT_PATH = "data/rules.properties";
+
+    private static final TransformRules DEFAULTS = compile(defaultProperties(), "built-in rules");
+
+    private final Map<String, CategoryRule> byName;
+    private final long[] rangeCents;
+    private final double[] rangePrices;
+    private final String fingerprint;
+
+    private TransformRules(Map<String, CategoryRule> byName, long[] rangeCents) {
+        this.byName = byName;
+        this.rangeCents = rangeCents;
+        this.rangePrices = new double[rangeCents.length];
+        for (int i = 0; i < rangeCents.length; i++) {
+            rangePrices[i] = Cents.toDouble(rangeCents[i]);
+        }
+
+        StringBuilder sb = new StringBuilder("uppercase-name;ranges=");
+        for (int i = 0; i < rangeCents.length; i++) {
+            sb.append(i == 0 ? "" : ",").append(rangeCents[i]);
+        }
+        for (Map.Entry<String, CategoryRule> e : new TreeMap<>(byName).entrySet()) {
+            sb.append(';').append(e.getKey()).append(':').append(e.getValue());
+        }
+        this.fingerprint = sb.toString();
+    }
+
+    /**
+     * Returns the rules the pipeline has always applied: 10% off
+     * Electronics, Premium Electronics above $500 after the discount, and
+     * range cutoffs at $10, $100 and $500.
+     *
+     * @return the built-in rules
+     */
+    public static TransformRules defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Reads and compiles a rules file.
+     *
+     * @param path the properties file
+     * @return the compiled rules
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static TransformRules load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return compile(properties, path.toString());
+    }
+
+    /**
+     * Compiles rules given as properties, in the file format above.
+     *
+     * @param properties the rules
+     * @return the compiled rules
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static TransformRules of(Properties properties) {
+        return compile(properties, "rules");
+    }
+
+    private static Properties defaultProperties() {
+        Properties p = new Properties();
+        p.setProperty("priceRanges", "10.00,100.00,500.00");
+        p.setProperty("rule.electronics.category", Category.ELECTRONICS);
+        p.setProperty("rule.electronics.discount", "10");
+        p.setProperty("rule.electronics.promoteAbove", "500.00");
+        p.setProperty("rule.electronics.promoteTo", Category.PREMIUM_ELECTRONICS);
+        return p;
+    }
+
+    private static TransformRules compile(Properties properties, String source) {
+        long[] ranges = DEFAULTS != null ? DEFAULTS.rangeCents : null;
+        Map<String, String[]> blocks = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (key.equals("priceRanges")) {
+                ranges = parseRanges(value, source);
+            } else if (key.startsWith("rule.") && key.lastIndexOf('.') > "rule.".length()) {
+                int dot = key.lastIndexOf('.');
+                String[] block = blocks.computeIfAbsent(key.substring("rule.".length(), dot), id -> new String[4]);
+                switch (key.substring(dot + 1)) {
+                    case "category": block[0] = value; break;
+                    case "discount": block[1] = value; break;
+                    case "promoteAbove": block[2] = value; break;
+                    case "promoteTo": block[3] = value; break;
+                    default: throw invalid(source, key, "unknown rule property");
+                }
+            } else {
+                throw invalid(source, key, "unknown property");
+            }
+        }
+        if (ranges == null) {
+            throw invalid(source, "priceRanges", "missing");
+        }
+
+        Map<String, CategoryRule> byName = new HashMap<>();
+        for (Map.Entry<String, String[]> e : blocks.entrySet()) {
+            String prefix = "rule." + e.getKey() + ".";
+            String[] block = e.getValue();
+            if (block[0] == null || block[0].isEmpty()) {
+                throw invalid(source, prefix + "category", "missing");
+            }
+            if ((block[2] == null) != (block[3] == null)) {
+                throw invalid(source, prefix + (block[2] == null ? "promoteAbove" : "promoteTo"),
+                    "promoteAbove and promoteTo go together");
+            }
+            CategoryRule rule = new CategoryRule(block[0]);
+            if (block[1] != null) {
+                rule.setDiscount(parseDecimal(block[1], source, prefix + "discount"), source, prefix + "discount");
+            }
+            if (block[2] != null) {
+                rule.promoteAboveCents = parseCents(block[2], source, prefix + "promoteAbove");
+                rule.promoteAbovePrice = Cents.toDouble(rule.promoteAboveCents);
+                rule.promoteTo = block[3];
+            }
+            if (byName.put(foldCase(block[0]), rule) != null) {
+                throw invalid(source, prefix + "category", "more than one rule for " + block[0]);
+            }
+        }
+        return new TransformRules(Collections.unmodifiableMap(byName), ranges);
+    }
+
+    private static long[] parseRanges(String value, String source) {
+        String[] parts = value.split(",");
+        if (parts.length != ProductBatch.PRICE_RANGES.length - 1) {
+            throw invalid(source, "priceRanges", "expected " + (ProductBatch.PRICE_RANGES.length - 1)
+                + " cutoffs for " + String.join(", ", ProductBatch.PRICE_RANGES));
+        }
+        long[] cents = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            cents[i] = parseCents(parts[i].trim(), source, "priceRanges");
+            if (i > 0 && cents[i] <= cents[i - 1]) {
+                throw invalid(source, "priceRanges", "cutoffs must be increasing");
+            }
+        }
+        return cents;
+    }
+
+    private static BigDecimal parseDecimal(String value, String source, String key) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw invalid(source, key, "not a number: " + value);
+        }
+    }
+
+    private static long parseCents(String value, String source, String key) {
+        try {
+            return parseDecimal(value, source, key).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw invalid(source, key, "not a whole number of cents: " + value);
+        }
+    }
+
+    private static IllegalArgumentException invalid(String source, String key, String problem) {
+        return new IllegalArgumentException(source + ": " + key + ": " + problem);
+    }
+
+    /**
+     * Maps names that {@link String#equalsIgnoreCase} considers equal, and
+     * only those, to the same key.
+     */
+    private static String foldCase(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Finds the rule for a category. The answer is remembered on the
+     * category, so rows sharing an interned category pay for the lookup once.
+     *
+     * @param category the category, or null
+     * @return the rule, or null if none applies
+     */
+    public CategoryRule ruleFor(Category category) {
+        if (category == null) {
+            return null;
+        }
+        Binding binding = category.ruleBinding;
+        if (binding == null || binding.rules != this) {
+            binding = new Binding(this, byName.get(foldCase(category.getName())));
+            category.ruleBinding = binding;
+        }
+        return binding.rule;
+    }
+
+    /**
+     * Returns the price range for a price in cents, as an index into
+     * {@link ProductBatch#PRICE_RANGES}.
+     *
+     * @param cents the price in cents (not {@link Cents#NONE})
+     * @return the first range whose cutoff is at least the price, or the last range
+     */
+    public int priceRangeIndex(long cents) {
+        long[] bounds = rangeCents;
+        int lo = 0;
+        int hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cents <= bounds[mid]) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the price range for a price, as an index into
+     * {@link ProductBatch#PRICE_RANGES}. NaN lands in the last range.
+     *
+     * @param price the price
+     * @return the first range whose cutoff is at least the price, or the last range
+     */
+    public int priceRangeIndex(double price) {
+        double[] bounds = rangePrices;
+        int lo = 0;
+        int hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (price <= bounds[mid]) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /** @return the range cutoffs as prices, lowest first; must not be modified */
+    double[] rangePrices() {
+        return rangePrices;
+    }
+
+    /**
+     * Describes these rules. Two rule sets with the same fingerprint
+     * transform every product the same way.
+     *
+     * @return a canonical description of the rules
+     */
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return fingerprint;
+    }
+
+    /** What happens to products in one category. */
+    public static final class CategoryRule {
+        private final String category;
+        private boolean discounted;
+        private int numerator = 1;
+        private int denominator = 1;
+        private double factor = 1.0;
+        private long promoteAboveCents = Cents.NONE;
+        private double promoteAbovePrice;
+        private String promoteTo;
+
+        private CategoryRule(String category) {
+            this.category = category;
+        }
+
+        private void setDiscount(BigDecimal percent, String source, String key) {
+            if (percent.signum() < 0 || percent.compareTo(BigDecimal.valueOf(100)) > 0) {
+                throw invalid(source, key, "must be between 0 and 100: " + percent);
+            }
+            if (percent.signum() == 0) {
+                return;
+            }
+            // Price is multiplied by (100 - percent) / 100 as an exact fraction.
+            BigDecimal multiplier = BigDecimal.ONE.subtract(percent.movePointLeft(2)).stripTrailingZeros();
+            int scale = Math.max(multiplier.scale(), 0);
+            if (scale > 4) { // Cents.scale takes denominators up to 10000
+                throw invalid(source, key, "too many decimals: " + percent);
+            }
+            discounted = true;
+            numerator = multiplier.movePointRight(scale).intValueExact();
+            denominator = BigDecimal.ONE.movePointRight(scale).intValueExact();
+            factor = multiplier.doubleValue();
+        }
+
+        /** @return the category name the rule was written for */
+        public String getCategory() { return category; }
+        /** @return whether the rule takes a discount off the price */
+        public boolean isDiscounted() { return discounted; }
+        /** @return numerator of the price multiplier */
+        public int getNumerator() { return numerator; }
+        /** @return denominator of the price multiplier, at most 10000 */
+        public int getDenominator() { return denominator; }
+        /** @return the price multiplier as the closest double */
+        public double getFactor() { return factor; }
+        /** @return whether the rule moves expensive products to another category */
+        public boolean promotes() { return promoteTo != null; }
+        /** @return the price, in cents, a product must be above to be promoted */
+        public long getPromoteAboveCents() { return promoteAboveCents; }
+        /** @return the same cutoff as a price */
+        public double getPromoteAbovePrice() { return promoteAbovePrice; }
+        /** @return the category expensive products move to, or null */
+        public String getPromoteTo() { return promoteTo; }
+
+        @Override
+        public String toString() {
+            return (discounted ? "*" + numerator + "/" + denominator : "")
+                + (promoteTo != null ? ">" + promoteAboveCents + "=" + promoteTo : "");
+        }
+    }
+
+    /** A category's rule, tagged with the rule set it came from. */
+    static final class Binding {
+        final TransformRules rules;
+        final CategoryRule rule;
+
+        Binding(TransformRules rules, CategoryRule rule) {
+            this.rules = rules;
+            this.rule = rule;
+        }
+    }
+}
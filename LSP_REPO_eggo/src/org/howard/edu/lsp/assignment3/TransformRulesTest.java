@@ -0,0 +1,158 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+public class TransformRulesTest {
+
+    private static Properties properties(String... keysAndValues) {
+        Properties p = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            p.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return p;
+    }
+
+    private static List<Product> sampleProducts() {
+        String[] categories = {"Electronics", "ELECTRONICS", "Books", "Toys", "toys", "Garden"};
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            double price = i % 9 == 0 ? i / 3.0 : i * 0.37;
+            products.add(new Product(i, "item" + i, price, categories[i % categories.length]));
+        }
+        products.add(new Product(-1, "nan", Double.NaN, "Books"));
+        return products;
+    }
+
+    private static void assertSameRows(List<Product> expected, List<Product> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Product e = expected.get(i);
+            Product a = actual.get(i);
+            assertEquals(e.getName(), a.getName());
+            assertEquals(Double.doubleToLongBits(e.getPrice()), Double.doubleToLongBits(a.getPrice()));
+            assertEquals(e.getCategory(), a.getCategory());
+            assertEquals(e.getPriceRange(), a.getPriceRange());
+        }
+    }
+
+    @Test
+    public void testDefaultsKeepTheOriginalRules() {
+        Product laptop = new Product(1, "laptop", 999.99, "electronics");
+        Product phone = new Product(2, "phone", 555.56, "Electronics");
+        Product book = new Product(3, "book", 10.00, "Books");
+        Transformer transformer = new Transformer();
+        for (Product p : List.of(laptop, phone, book)) {
+            transformer.transform(p);
+        }
+        assertEquals(899.99, laptop.getPrice());
+        assertEquals(Category.PREMIUM_ELECTRONICS, laptop.getCategory());
+        assertEquals("Premium", laptop.getPriceRange());
+        assertEquals(500.0, phone.getPrice());
+        assertEquals("electronics", phone.getCategory().toLowerCase());
+        assertEquals("High", phone.getPriceRange());
+        assertEquals("Low", book.getPriceRange());
+    }
+
+    @Test
+    public void testShippedRulesFileMatchesDefaults() throws IOException {
+        Path file = Paths.get("data/rules.properties");
+        if (file.toFile().exists()) {
+            assertEquals(TransformRules.defaults().fingerprint(), TransformRules.load(file).fingerprint());
+        }
+    }
+
+    @Test
+    public void testPriceRangesUseInclusiveCutoffs() {
+        TransformRules rules = TransformRules.of(properties("priceRanges", "5.00, 20.00, 75.50"));
+        assertEquals(0, rules.priceRangeIndex(5_00L));
+        assertEquals(1, rules.priceRangeIndex(5_01L));
+        assertEquals(2, rules.priceRangeIndex(75_50L));
+        assertEquals(3, rules.priceRangeIndex(75_51L));
+        assertEquals(0, rules.priceRangeIndex(-3.0));
+        assertEquals(1, rules.priceRangeIndex(20.0));
+        assertEquals(3, rules.priceRangeIndex(Double.NaN));
+        assertNull(rules.ruleFor(Category.of("Electronics")));
+    }
+
+    @Test
+    public void testCategoryRulesFromProperties() {
+        TransformRules rules = TransformRules.of(properties(
+            "rule.toys.category", "Toys",
+            "rule.toys.discount", "12.5",
+            "rule.garden.category", "garden",
+            "rule.garden.promoteAbove", "100",
+            "rule.garden.promoteTo", "Outdoor Living"));
+
+        TransformRules.CategoryRule toys = rules.ruleFor(Category.of("TOYS"));
+        assertTrue(toys.isDiscounted());
+        assertEquals(875, toys.getNumerator());
+        assertEquals(1000, toys.getDenominator());
+        assertEquals(0.875, toys.getFactor());
+
+        Transformer transformer = new Transformer(rules);
+        Product toy = new Product(1, "kite", 10.01, "toys");
+        transformer.transform(toy);
+        assertEquals(8.76, toy.getPrice());
+
+        Product shed = new Product(2, "shed", 100.01, "Garden");
+        Product pot = new Product(3, "pot", 100.00, "Garden");
+        transformer.transform(shed);
+        transformer.transform(pot);
+        assertEquals("Outdoor Living", shed.getCategory());
+        assertEquals(100.01, shed.getPrice());
+        assertEquals("Garden", pot.getCategory());
+        assertNotEquals(TransformRules.defaults().fingerprint(), rules.fingerprint());
+    }
+
+    @Test
+    public void testBatchMatchesPerRowWithCustomRules() {
+        TransformRules rules = TransformRules.of(properties(
+            "priceRanges", "50,150,600",
+            "rule.electronics.category", "electronics",
+            "rule.electronics.discount", "10",
+            "rule.electronics.promoteAbove", "500",
+            "rule.electronics.promoteTo", "Premium Electronics",
+            "rule.toys.category", "Toys",
+            "rule.toys.discount", "33.33",
+            "rule.garden.category", "Garden",
+            "rule.garden.promoteAbove", "250.00",
+            "rule.garden.promoteTo", "Big Garden"));
+        Transformer transformer = new Transformer(rules);
+
+        List<Product> perRow = sampleProducts();
+        transformer.transform(perRow);
+
+        ProductBatch batch = ProductBatch.from(sampleProducts());
+        transformer.transform(batch);
+        assertSameRows(perRow, batch.toProducts());
+    }
+
+    @Test
+    public void testInvalidRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("priceRanges", "10,5,20")));
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("priceRanges", "10,20")));
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("priceRanges", "10.001,20,30")));
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("rule.a.category", "A", "rule.a.discount", "120")));
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("rule.a.category", "A", "rule.a.promoteTo", "B")));
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("rule.a.category", "A", "rule.b.category", "a")));
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("rule.a.discount", "5")));
+        assertThrows(IllegalArgumentException.class,
+            () -> TransformRules.of(properties("discount", "5")));
+    }
+}
@@ -1,57 +1,194 @@
-package org.howard.edu.lsp.assignment3;
-
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.List;
-
-/**
- * Applies transformations to Product objects according to business rules.
- * Handles name formatting, discounts, recategorization, and price range calculation.
- */
-
-public class Transformer {
-	/**
-     * Applies all transformations to the given product.
-     *
-     * @param product the product to transform
-     */
-    public void transform(List<Product> products) {
-        for (Product p : products) {
-            // 1. Uppercase name
-            p.setName(p.getName().toUpperCase());
-
-            double originalPrice = p.getPrice();
-
-            // 2. Apply discount for Electronics
-            if (p.getCategory().equalsIgnoreCase("Electronics")) {
-                double discounted = round(originalPrice * 0.9);
-                p.setPrice(discounted);
-
-                // 3. Premium Electronics
-                if (discounted > 500.0) {
-                    p.setCategory("Premium Electronics");
-                }
-            }
-
-            // 4. Determine PriceRange
-            p.setPriceRange(determinePriceRange(p.getPrice()));
-        }
-    }
-
-    private double round(double value) {
-        return new BigDecimal(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
-    }
-    
-    /**
-     * Determines the price range category for a given price.
-     *
-     * @param price the final product price
-     * @return a string label ("Low", "Medium", "High", "Premium")
-     */
-    private String determinePriceRange(double price) {
-        if (price <= 10.00) return "Low";
-        if (price <= 100.00) return "Medium";
-        if (price <= 500.00) return "High";
-        return "Premium";
-    }
-}
+package org.howard.edu.lsp.assignment3;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.howard.edu.lsp.util.Cents;
+
+/**
+ * Applies transformations to Product objects according to business rules.
+ * Handles name formatting, discounts, recategorization, and price range calculation.
+ * The discounts, promotions and range cutoffs come from {@link TransformRules}.
+ * Prices held in cents are discounted and classified with integer arithmetic;
+ * the results are identical to the former BigDecimal rounding.
+ */
+
+public class Transformer {
+    private static final String[] PRICE_RANGES = ProductBatch.PRICE_RANGES;
+
+    private final TransformRules rules;
+
+    /**
+     * Creates a transformer with the built-in rules.
+     */
+    public Transformer() {
+        this(TransformRules.defaults());
+    }
+
+    /**
+     * Creates a transformer that applies the given rules.
+     *
+     * @param rules the compiled business rules
+     */
+    public Transformer(TransformRules rules) {
+        this.rules = rules;
+    }
+
+    /** @return the rules this transformer applies */
+    public TransformRules getRules() {
+        return rules;
+    }
+
+	/**
+     * Applies all transformations to the given products.
+     *
+     * @param products the products to transform
+     */
+    public void transform(List<Product> products) {
+        for (Product p : products) {
+            transform(p);
+        }
+    }
+
+    /**
+     * Returns a view of the given iterator that transforms each product
+     * as it is pulled, so a streaming pipeline never holds more than one row.
+     *
+     * @param products the source of untransformed products
+     * @return an iterator over the same products, transformed
+     */
+    public Iterator<Product> transform(Iterator<Product> products) {
+        return new Iterator<Product>() {
+            @Override
+            public boolean hasNext() {
+                return products.hasNext();
+            }
+
+            @Override
+            public Product next() {
+                Product p = products.next();
+                transform(p);
+                return p;
+            }
+        };
+    }
+
+    /**
+     * Applies all transformations to the given product.
+     *
+     * @param p the product to transform
+     */
+    public void transform(Product p) {
+        // 1. Uppercase name
+        p.setName(p.getName().toUpperCase());
+
+        long cents = p.getPriceCents();
+
+        // 2. Apply the category's discount (rule looked up once per category)
+        Category category = p.getCategoryEntry();
+        TransformRules.CategoryRule rule = rules.ruleFor(category);
+        if (rule != null) {
+            if (rule.isDiscounted()) {
+                if (cents != Cents.NONE) {
+                    cents = Cents.scale(cents, rule.getNumerator(), rule.getDenominator(), rule.getFactor());
+                    p.setPriceCents(cents);
+                } else {
+                    p.setPrice(Cents.round(p.getPrice() * rule.getFactor()));
+                    cents = p.getPriceCents();
+                }
+            }
+
+            // 3. Promote expensive products (e.g. Premium Electronics)
+            if (rule.promotes() && (cents != Cents.NONE
+                    ? cents > rule.getPromoteAboveCents()
+                    : p.getPrice() > rule.getPromoteAbovePrice())) {
+                p.setCategory(category.related(rule.getPromoteTo()));
+            }
+        }
+
+        // 4. Determine PriceRange
+        p.setPriceRange(PRICE_RANGES[cents != Cents.NONE
+            ? rules.priceRangeIndex(cents)
+            : rules.priceRangeIndex(p.getPrice())]);
+    }
+
+    /**
+     * Applies all transformations to a columnar batch. Category rules are
+     * decided once per distinct category, and the per-row work runs as
+     * simple loops over the batch's arrays.
+     *
+     * @param batch the batch to transform in place
+     */
+    public void transform(ProductBatch batch) {
+        int size = batch.size();
+        String[] names = batch.names();
+        double[] prices = batch.prices();
+        long[] cents = batch.priceCents();
+        int[] categories = batch.categoryCodes();
+        byte[] ranges = batch.priceRanges();
+
+        // 1. Uppercase names
+        for (int i = 0; i < size; i++) {
+            names[i] = names[i].toUpperCase();
+        }
+
+        // Look up each dictionary entry's rule once.
+        CategoryDictionary dictionary = batch.getCategories();
+        int categoryCount = dictionary.size();
+        TransformRules.CategoryRule[] ruleByCode = new TransformRules.CategoryRule[categoryCount];
+        int[] promoteTo = new int[categoryCount];
+        boolean anyRules = false;
+        for (int c = 0; c < categoryCount; c++) {
+            TransformRules.CategoryRule rule = rules.ruleFor(dictionary.get(c));
+            ruleByCode[c] = rule;
+            promoteTo[c] = rule != null && rule.promotes() ? dictionary.intern(rule.getPromoteTo()).getCode() : -1;
+            anyRules |= rule != null;
+        }
+
+        // 2. and 3. Apply discounts and promote expensive products
+        if (anyRules) {
+            for (int i = 0; i < size; i++) {
+                int c = categories[i];
+                TransformRules.CategoryRule rule = c >= 0 && c < categoryCount ? ruleByCode[c] : null;
+                if (rule == null) {
+                    continue;
+                }
+                if (rule.isDiscounted()) {
+                    if (cents[i] != Cents.NONE) {
+                        cents[i] = Cents.scale(cents[i], rule.getNumerator(), rule.getDenominator(),
+                            rule.getFactor());
+                        prices[i] = Cents.toDouble(cents[i]);
+                    } else {
+                        prices[i] = Cents.round(prices[i] * rule.getFactor());
+                        cents[i] = Cents.of(prices[i]);
+                    }
+                }
+                if (promoteTo[c] >= 0 && prices[i] > rule.getPromoteAbovePrice()) {
+                    categories[i] = promoteTo[c];
+                }
+            }
+        }
+
+        // 4. Price range as a branch-free count of cutoffs exceeded
+        // (written as !(p <= x) so NaN lands in Premium, as it does per row)
+        double[] bounds = rules.rangePrices();
+        double low = bounds[0];
+        double medium = bounds[1];
+        double high = bounds[2];
+        for (int i = 0; i < size; i++) {
+            double p = prices[i];
+            ranges[i] = (byte) ((p <= low ? 0 : 1) + (p <= medium ? 0 : 1) + (p <= high ? 0 : 1));
+        }
+    }
+
+    /**
+     * Describes the rules this transformer applies. Anything that keeps
+     * transformed output from an earlier run (such as incremental mode)
+     * compares it to make sure the rules have not changed since.
+     *
+     * @return a string that changes whenever the transformation rules change
+     */
+    public String rulesFingerprint() {
+        return rules.fingerprint();
+    }
+}
@@ -0,0 +1,73 @@
+package org.howard.edu.lsp.assignment3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransformerTest {
+
+    /** Products covering every rule: discounts, promotions, range cutoffs, inexact prices and no category. */
+    private static List<Product> sampleProducts() {
+        String[] categories = {"Electronics", "electronics", "Books", "Toys", null, Category.PREMIUM_ELECTRONICS};
+        double[] edges = {0, 10, 10.01, 100, 100.01, 500, 500.01, 555.56, 555.57, 999.99, -1};
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            double price = i < edges.length ? edges[i] : i % 7 == 0 ? i / 3.0 : i * 0.37;
+            products.add(new Product(i, "item " + i, price, categories[i % categories.length]));
+        }
+        products.add(new Product(-1, "nan", Double.NaN, "Books"));
+        return products;
+    }
+
+    private static byte[] csv(List<Product> products) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ProductCsvWriter writer = new ProductCsvWriter(Channels.newChannel(bytes))) {
+            writer.writeHeader();
+            for (Product p : products) {
+                writer.write(p);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] csv(ProductBatch batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ProductCsvWriter writer = new ProductCsvWriter(Channels.newChannel(bytes))) {
+            writer.writeHeader();
+            writer.write(batch);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testBatchPathWritesTheSameBytesAsListPath() throws IOException {
+        Transformer transformer = new Transformer();
+        List<Product> list = sampleProducts();
+        transformer.transform(list);
+
+        ProductBatch batch = ProductBatch.from(sampleProducts());
+        transformer.transform(batch);
+
+        byte[] expected = csv(list);
+        assertEquals(new String(expected, "UTF-8"), new String(csv(batch), "UTF-8"));
+        assertArrayEquals(expected, csv(batch));
+    }
+
+    @Test
+    public void testBatchKeepsMissingCategory() {
+        List<Product> products = new ArrayList<>();
+        products.add(new Product(1, "loose", 5.0, (String) null));
+        ProductBatch batch = ProductBatch.from(products);
+        new Transformer().transform(batch);
+        assertNull(batch.getCategory(0));
+        assertNull(batch.getCategoryEntry(0));
+        assertNull(batch.toProducts().get(0).getCategory());
+        assertEquals("Low", batch.getPriceRange(0));
+    }
+}
@@ -0,0 +1,245 @@
+package org.howard.edu.lsp.assignment6;
+
+import java.util.Arrays;
+
+/**
+ * Container for a sparse chunk: its values in a sorted {@code char[]}
+ * (unsigned 16-bit), found by binary search. It turns into a run or bitmap
+ * container when it grows past {@link #MAX_ARRAY} values.
+ */
+final class ArrayContainer extends Container {
+    private char[] values;
+    private int cardinality;
+
+    ArrayContainer() {
+        values = new char[4];
+    }
+
+    private ArrayContainer(char[] values, int cardinality) {
+        this.values = values;
+        this.cardinality = cardinality;
+    }
+
+    static ArrayContainer fromWords(long[] words, int cardinality) {
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int i = 0; i < words.length; i++) {
+            long w = words[i];
+            while (w != 0) {
+                values[n++] = (char) (i * 64 + Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return new ArrayContainer(values, cardinality);
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int x) {
+        return Arrays.binarySearch(values, 0, cardinality, (char) x) >= 0;
+    }
+
+    @Override
+    Container add(int x) {
+        int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+        if (i >= 0) {
+            return this;
+        }
+        if (cardinality == MAX_ARRAY) {
+            return convert().add(x);
+        }
+        i = -i - 1;
+        if (cardinality == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, Math.min(MAX_ARRAY, cardinality * 2)));
+        }
+        System.arraycopy(values, i, values, i + 1, cardinality - i);
+        values[i] = (char) x;
+        cardinality++;
+        return this;
+    }
+
+    /** Moves a full array into a run or bitmap container, whichever is smaller. */
+    private Container convert() {
+        int runs = cardinality == 0 ? 0 : 1;
+        for (int i = 1; i < cardinality; i++) {
+            if (values[i] != values[i - 1] + 1) {
+                runs++;
+            }
+        }
+        if (runs * 4 < BITMAP_BYTES) {
+            return RunContainer.fromSorted(values, cardinality, runs);
+        }
+        long[] words = new long[WORDS];
+        setBits(words);
+        return new BitmapContainer(words, cardinality);
+    }
+
+    @Override
+    Container remove(int x) {
+        int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+        if (i >= 0) {
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+        }
+        return this;
+    }
+
+    @Override
+    int min() {
+        return values[0];
+    }
+
+    @Override
+    int max() {
+        return values[cardinality - 1];
+    }
+
+    @Override
+    int ceiling(int x) {
+        int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+        if (i >= 0) {
+            return x;
+        }
+        i = -i - 1;
+        return i < cardinality ? values[i] : -1;
+    }
+
+    @Override
+    int floor(int x) {
+        int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+        if (i >= 0) {
+            return x;
+        }
+        i = -i - 2;
+        return i >= 0 ? values[i] : -1;
+    }
+
+    @Override
+    int rank(int x) {
+        int i = Arrays.binarySearch(values, 0, cardinality, (char) x);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    @Override
+    int toArray(int[] out, int offset, int high) {
+        for (int i = 0; i < cardinality; i++) {
+            out[offset + i] = high | values[i];
+        }
+        return cardinality;
+    }
+
+    @Override
+    long[] toWords() {
+        long[] words = new long[WORDS];
+        setBits(words);
+        return words;
+    }
+
+    void setBits(long[] words) {
+        for (int i = 0; i < cardinality; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+    }
+
+    void clearBits(long[] words) {
+        for (int i = 0; i < cardinality; i++) {
+            words[values[i] >>> 6] &= ~(1L << values[i]);
+        }
+    }
+
+    @Override
+    Container copy() {
+        return new ArrayContainer(Arrays.copyOf(values, Math.max(cardinality, 4)), cardinality);
+    }
+
+    @Override
+    int sizeInBytes() {
+        return values.length * 2;
+    }
+
+    @Override
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < cardinality; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    /** Merges two sorted arrays; a union too big for an array becomes a bitmap. */
+    Container union(ArrayContainer o) {
+        if (cardinality + o.cardinality > MAX_ARRAY) {
+            long[] words = toWords();
+            o.setBits(words);
+            return Container.fromWords(words);
+        }
+        char[] merged = new char[Math.max(cardinality + o.cardinality, 4)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < cardinality && j < o.cardinality) {
+            char a = values[i];
+            char b = o.values[j];
+            if (a < b) {
+                merged[n++] = a;
+                i++;
+            } else if (a > b) {
+                merged[n++] = b;
+                j++;
+            } else {
+                merged[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        while (i < cardinality) {
+            merged[n++] = values[i++];
+        }
+        while (j < o.cardinality) {
+            merged[n++] = o.values[j++];
+        }
+        return new ArrayContainer(merged, n);
+    }
+
+    /** Intersects two sorted arrays by merging. */
+    Container intersection(ArrayContainer o) {
+        char[] common = new char[Math.max(Math.min(cardinality, o.cardinality), 4)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < cardinality && j < o.cardinality) {
+            char a = values[i];
+            char b = o.values[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                common[n++] = a;
+                i++;
+                j++;
+            }
+        }
+        return new ArrayContainer(common, n);
+    }
+
+    /**
+     * @param keep whether to keep the values the other container has (and)
+     *             or the ones it does not have (and not)
+     * @return a new array container with the kept values
+     */
+    Container filter(Container o, boolean keep) {
+        char[] kept = new char[Math.max(cardinality, 4)];
+        int n = 0;
+        for (int i = 0; i < cardinality; i++) {
+            if (o.contains(values[i]) == keep) {
+                kept[n++] = values[i];
+            }
+        }
+        return new ArrayContainer(kept, n);
+    }
+}
@@ -0,0 +1,135 @@
+package org.howard.edu.lsp.assignment6;
+
+/**
+ * Container for a dense chunk: one bit per possible value in 1024 longs
+ * (8 KB, one bit per value when the chunk is full). It turns back into an
+ * array container when it shrinks to {@link #MAX_ARRAY} values, and into a
+ * single run when it fills up.
+ */
+final class BitmapContainer extends Container {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int x) {
+        return (words[x >>> 6] & (1L << x)) != 0;
+    }
+
+    @Override
+    Container add(int x) {
+        long bit = 1L << x;
+        if ((words[x >>> 6] & bit) == 0) {
+            words[x >>> 6] |= bit;
+            if (++cardinality == WORDS * 64) {
+                return Container.fromWords(words);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    Container remove(int x) {
+        long bit = 1L << x;
+        if ((words[x >>> 6] & bit) != 0) {
+            words[x >>> 6] &= ~bit;
+            if (--cardinality <= MAX_ARRAY) {
+                return ArrayContainer.fromWords(words, cardinality);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    int min() {
+        int i = 0;
+        while (words[i] == 0) {
+            i++;
+        }
+        return i * 64 + Long.numberOfTrailingZeros(words[i]);
+    }
+
+    @Override
+    int max() {
+        int i = WORDS - 1;
+        while (words[i] == 0) {
+            i--;
+        }
+        return i * 64 + 63 - Long.numberOfLeadingZeros(words[i]);
+    }
+
+    @Override
+    int ceiling(int x) {
+        return nextSetBit(words, x);
+    }
+
+    @Override
+    int floor(int x) {
+        return previousSetBit(words, x);
+    }
+
+    @Override
+    int rank(int x) {
+        int last = x >>> 6;
+        int rank = Long.bitCount(words[last] & (-1L >>> (63 - (x & 63))));
+        for (int i = 0; i < last; i++) {
+            rank += Long.bitCount(words[i]);
+        }
+        return rank;
+    }
+
+    @Override
+    int toArray(int[] out, int offset, int high) {
+        int n = offset;
+        for (int i = 0; i < WORDS; i++) {
+            long w = words[i];
+            while (w != 0) {
+                out[n++] = high | (i * 64 + Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return n - offset;
+    }
+
+    @Override
+    long[] toWords() {
+        return words.clone();
+    }
+
+    @Override
+    long[] readWords() {
+        return words;
+    }
+
+    @Override
+    Container copy() {
+        return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int sizeInBytes() {
+        return BITMAP_BYTES;
+    }
+
+    @Override
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < WORDS; i++) {
+            long w = words[i];
+            while (w != 0) {
+                sum += i * 64 + Long.numberOfTrailingZeros(w);
+                w &= w - 1;
+            }
+        }
+        return sum;
+    }
+}
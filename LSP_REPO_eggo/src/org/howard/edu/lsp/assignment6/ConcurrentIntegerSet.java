@@ -0,0 +1,409 @@
+package org.howard.edu.lsp.assignment6;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe set of integers for many threads at once, with lock-free
+ * {@link #contains}.
+ * <p>
+ * Values are spread by hash over a fixed number of stripes, each an
+ * open-addressing table in an {@link AtomicLongArray} guarded by its own
+ * lock. A slot holds either nothing, a value, or a tombstone, and only ever
+ * moves forward through those states: a value is written into an empty
+ * slot and removed by turning it into a tombstone, never back. Readers
+ * therefore take no lock: they probe the table with volatile reads, and
+ * an empty slot proves the value absent, because a writer always fills
+ * the first empty slot of the probe sequence. Writers lock one stripe, so
+ * writers on different stripes do not wait for each other. When a
+ * stripe's table fills up (tombstones included) it is rebuilt without the
+ * tombstones and published with a volatile write; readers still on the old
+ * table see a state the set had during their call.
+ * <p>
+ * Bulk operations ({@link #union}, {@link #intersect}, {@link #diff},
+ * {@link #clear}) lock every stripe, compute the new contents with
+ * {@link IntegerSet}, build a complete new set of stripes and install it
+ * with a single volatile write, so readers see either all of an operation
+ * or none of it and are never blocked. Writers that were waiting on a
+ * replaced stripe retry on the new one. The other operand of a bulk
+ * operation is read through {@link #snapshot()} first, so no thread ever
+ * holds the locks of two sets. {@link #length()} adds up the stripes
+ * without locking and is exact only when no writer is active.
+ */
+public class ConcurrentIntegerSet {
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = 1;
+    private static final long PRESENT = 1L << 32; // set in every slot holding a value
+    private static final int MIN_SLOTS = 8;
+
+    /** One lock-guarded hash table for the values whose hash picks it. */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile AtomicLongArray slots;
+        volatile int size;
+        int used; // values and tombstones
+        boolean retired; // replaced by a bulk operation; guarded by lock
+
+        Stripe(int capacity) {
+            slots = new AtomicLongArray(capacity);
+        }
+    }
+
+    private final int stripeBits;
+    private volatile Stripe[] stripes;
+
+    /**
+     * Creates a set with enough stripes for the machine's cores.
+     */
+    public ConcurrentIntegerSet() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a set.
+     *
+     * @param concurrencyLevel roughly how many threads are expected to
+     *                         write at once; rounded up to a power of two
+     */
+    public ConcurrentIntegerSet(int concurrencyLevel) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("concurrencyLevel must be at least 1: " + concurrencyLevel);
+        }
+        int stripeCount = Integer.highestOneBit(Math.min(concurrencyLevel, 1 << 16) * 2 - 1);
+        stripeBits = Integer.numberOfTrailingZeros(stripeCount);
+        stripes = newStripes(new int[stripeCount]);
+    }
+
+    private static Stripe[] newStripes(int[] sizes) {
+        Stripe[] result = new Stripe[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            result[i] = new Stripe(capacityFor(sizes[i]));
+        }
+        return result;
+    }
+
+    private static int capacityFor(int values) {
+        long needed = (long) values * 2;
+        if (needed >= 1 << 30) {
+            throw new IllegalStateException("too many values in one stripe: " + values);
+        }
+        return Math.max(MIN_SLOTS, Integer.highestOneBit((int) needed) << 1);
+    }
+
+    /** Murmur3's 32-bit finalizer: the top bits pick the stripe, the bottom ones the slot. */
+    private static int mix(int value) {
+        int h = value;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private int stripeIndex(int hash) {
+        return stripeBits == 0 ? 0 : hash >>> (32 - stripeBits);
+    }
+
+    private static long encode(int value) {
+        return PRESENT | (value & 0xffffffffL);
+    }
+
+    /**
+     * Returns true if the set contains the value, otherwise false. Never
+     * blocks.
+     *
+     * @param value the integer value to check
+     * @return true if the value is in the set; false otherwise
+     */
+    public boolean contains(int value) {
+        int hash = mix(value);
+        AtomicLongArray slots = stripes[stripeIndex(hash)].slots;
+        long wanted = encode(value);
+        int mask = slots.length() - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long slot = slots.get(i);
+            if (slot == wanted) {
+                return true;
+            }
+            if (slot == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds an item to the set or does nothing if already present.
+     *
+     * @param item the integer to add
+     * @return true if the item was added; false if it was already present
+     */
+    public boolean add(int item) {
+        int hash = mix(item);
+        Stripe stripe = lock(hash);
+        try {
+            long wanted = encode(item);
+            AtomicLongArray slots = stripe.slots;
+            int mask = slots.length() - 1;
+            int i = hash & mask;
+            for (long slot; (slot = slots.get(i)) != EMPTY; i = (i + 1) & mask) {
+                if (slot == wanted) {
+                    return false;
+                }
+            }
+            if ((stripe.used + 1) * 4L > slots.length() * 3L) {
+                slots = rebuild(stripe);
+                mask = slots.length() - 1;
+                i = hash & mask;
+                while (slots.get(i) != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+            }
+            slots.set(i, wanted);
+            stripe.used++;
+            stripe.size++;
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes an item from the set or does nothing if not there.
+     *
+     * @param item the integer to remove
+     * @return true if the item was removed; false if it was not there
+     */
+    public boolean remove(int item) {
+        int hash = mix(item);
+        Stripe stripe = lock(hash);
+        try {
+            long wanted = encode(item);
+            AtomicLongArray slots = stripe.slots;
+            int mask = slots.length() - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                long slot = slots.get(i);
+                if (slot == EMPTY) {
+                    return false;
+                }
+                if (slot == wanted) {
+                    slots.set(i, TOMBSTONE);
+                    stripe.size--;
+                    return true;
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /** Locks the current stripe for a hash, retrying if a bulk operation replaced it meanwhile. */
+    private Stripe lock(int hash) {
+        while (true) {
+            Stripe stripe = stripes[stripeIndex(hash)];
+            stripe.lock.lock();
+            if (!stripe.retired) {
+                return stripe;
+            }
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Copies a stripe's values into a new table sized for them plus room
+     * to grow, leaving the tombstones behind, and publishes it.
+     */
+    private static AtomicLongArray rebuild(Stripe stripe) {
+        AtomicLongArray old = stripe.slots;
+        AtomicLongArray slots = new AtomicLongArray(capacityFor(stripe.size + 1));
+        int mask = slots.length() - 1;
+        for (int j = 0; j < old.length(); j++) {
+            long slot = old.get(j);
+            if ((slot & PRESENT) != 0) {
+                int i = mix((int) slot) & mask;
+                while (slots.get(i) != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                slots.set(i, slot);
+            }
+        }
+        stripe.used = stripe.size;
+        stripe.slots = slots;
+        return slots;
+    }
+
+    /**
+     * Returns the number of elements. Under concurrent updates the result
+     * may miss updates made while it is being computed.
+     *
+     * @return the size of the set
+     */
+    public int length() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.size;
+        }
+        return total;
+    }
+
+    /**
+     * Returns true if the set is empty, false otherwise, with the same
+     * caveat as {@link #length()}.
+     *
+     * @return true if the set contains no elements; false otherwise
+     */
+    public boolean isEmpty() {
+        return length() == 0;
+    }
+
+    /**
+     * Returns a copy of the set as it was at one instant. Writers wait
+     * while it is taken; readers do not.
+     *
+     * @return the elements, in a new unsynchronized set
+     */
+    public IntegerSet snapshot() {
+        Stripe[] current = lockAll();
+        try {
+            return collect(current);
+        } finally {
+            unlockAll(current);
+        }
+    }
+
+    /** Removes every element at once. */
+    public void clear() {
+        replace(null, Operation.CLEAR);
+    }
+
+    /**
+     * Set union: atomically adds every element the other set has at the
+     * moment this call starts.
+     *
+     * @param other the set to union with; may be this set
+     */
+    public void union(ConcurrentIntegerSet other) {
+        replace(other.snapshot(), Operation.UNION);
+    }
+
+    /**
+     * Set intersection: atomically keeps only the elements the other set
+     * has at the moment this call starts.
+     *
+     * @param other the set to intersect with; may be this set
+     */
+    public void intersect(ConcurrentIntegerSet other) {
+        replace(other.snapshot(), Operation.INTERSECT);
+    }
+
+    /**
+     * Set difference: atomically removes every element the other set has
+     * at the moment this call starts.
+     *
+     * @param other the set whose elements to remove; may be this set
+     */
+    public void diff(ConcurrentIntegerSet other) {
+        replace(other.snapshot(), Operation.DIFF);
+    }
+
+    private enum Operation { CLEAR, UNION, INTERSECT, DIFF }
+
+    /**
+     * Computes new contents under every stripe lock and installs them as a
+     * new set of stripes with one volatile write.
+     */
+    private void replace(IntegerSet other, Operation operation) {
+        Stripe[] current = lockAll();
+        try {
+            IntegerSet contents;
+            if (operation == Operation.CLEAR) {
+                contents = new IntegerSet();
+            } else {
+                contents = collect(current);
+                if (operation == Operation.UNION) {
+                    contents.union(other);
+                } else if (operation == Operation.INTERSECT) {
+                    contents.intersect(other);
+                } else {
+                    contents.diff(other);
+                }
+            }
+            Stripe[] next = build(contents, current.length);
+            stripes = next;
+            for (Stripe stripe : current) {
+                stripe.retired = true;
+            }
+        } finally {
+            unlockAll(current);
+        }
+    }
+
+    /** Locks every stripe of the current generation, in index order. */
+    private Stripe[] lockAll() {
+        while (true) {
+            Stripe[] current = stripes;
+            for (Stripe stripe : current) {
+                stripe.lock.lock();
+            }
+            if (stripes == current) {
+                return current;
+            }
+            unlockAll(current);
+        }
+    }
+
+    private static void unlockAll(Stripe[] current) {
+        for (Stripe stripe : current) {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static IntegerSet collect(Stripe[] current) {
+        IntegerSet contents = new IntegerSet();
+        for (Stripe stripe : current) {
+            AtomicLongArray slots = stripe.slots;
+            for (int i = 0; i < slots.length(); i++) {
+                long slot = slots.get(i);
+                if ((slot & PRESENT) != 0) {
+                    contents.add((int) slot);
+                }
+            }
+        }
+        return contents;
+    }
+
+    /** Builds a full set of stripes holding the contents; nothing else sees them yet. */
+    private Stripe[] build(IntegerSet contents, int stripeCount) {
+        int[] sizes = new int[stripeCount];
+        for (PrimitiveIterator.OfInt it = contents.iterator(); it.hasNext(); ) {
+            sizes[stripeIndex(mix(it.nextInt()))]++;
+        }
+        Stripe[] result = newStripes(sizes);
+        for (PrimitiveIterator.OfInt it = contents.iterator(); it.hasNext(); ) {
+            int value = it.nextInt();
+            int hash = mix(value);
+            Stripe stripe = result[stripeIndex(hash)];
+            AtomicLongArray slots = stripe.slots;
+            int mask = slots.length() - 1;
+            int i = hash & mask;
+            while (slots.get(i) != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            slots.lazySet(i, encode(value));
+            stripe.used++;
+            stripe.size++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a String representation of a snapshot, in ascending order.
+     *
+     * @return a string representing the set in list format
+     */
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
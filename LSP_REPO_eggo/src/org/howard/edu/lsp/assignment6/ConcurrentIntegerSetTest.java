@@ -0,0 +1,320 @@
+package org.howard.edu.lsp.assignment6;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrentIntegerSetTest {
+
+    @Test
+    public void testMatchesTreeSetSingleThreaded() {
+        Random random = new Random(5);
+        TreeSet<Integer> expected = new TreeSet<>();
+        ConcurrentIntegerSet set = new ConcurrentIntegerSet(4);
+        int[] edges = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+        for (int value : edges) {
+            assertTrue(set.add(value));
+            expected.add(value);
+        }
+        // Small range so values are removed and added back, filling the tables with tombstones.
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(2_000) - 1_000;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.length());
+        for (int value = -1_001; value <= 1_001; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        for (int value : edges) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        assertTrue(set.contains(Integer.MIN_VALUE) && set.contains(Integer.MAX_VALUE));
+        assertEquals(expected.toString(), set.toString());
+    }
+
+    @Test
+    public void testBulkOperations() {
+        ConcurrentIntegerSet a = new ConcurrentIntegerSet();
+        ConcurrentIntegerSet b = new ConcurrentIntegerSet();
+        for (int i = 0; i < 10; i++) {
+            a.add(i);
+            b.add(i + 5);
+        }
+        a.union(b);
+        assertEquals(15, a.length());
+        assertTrue(a.add(20), "writes go to the new stripes after a bulk operation");
+        a.intersect(b);
+        assertEquals("[5, 6, 7, 8, 9, 10, 11, 12, 13, 14]", a.toString());
+        a.remove(5);
+        a.diff(b);
+        assertTrue(a.isEmpty());
+        b.union(b);
+        assertEquals(10, b.length());
+        b.clear();
+        assertTrue(b.isEmpty());
+        assertFalse(b.contains(5));
+    }
+
+    @Test
+    public void testRejectsBadConcurrencyLevel() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentIntegerSet(0));
+    }
+
+    @Test
+    public void testConcurrentWritersOnDisjointValues() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        ConcurrentIntegerSet set = new ConcurrentIntegerSet(threads);
+        runTogether(threads, t -> {
+            for (int i = 0; i < perThread; i++) {
+                assertTrue(set.add(i * threads + t));
+            }
+            for (int i = 0; i < perThread; i += 2) {
+                assertTrue(set.remove(i * threads + t));
+            }
+        });
+        assertEquals(threads * perThread / 2, set.length());
+        for (int value = 0; value < threads * perThread; value++) {
+            assertEquals((value / threads) % 2 == 1, set.contains(value));
+        }
+    }
+
+    @Test
+    public void testExactlyOneThreadWinsEachValue() throws Exception {
+        int threads = 4;
+        int values = 20_000;
+        ConcurrentIntegerSet set = new ConcurrentIntegerSet(2);
+        int[][] added = new int[threads][];
+        runTogether(threads, t -> {
+            int[] mine = new int[values];
+            for (int i = 0; i < values; i++) {
+                mine[i] = set.add(i) ? 1 : 0;
+            }
+            added[t] = mine;
+        });
+        for (int i = 0; i < values; i++) {
+            int winners = 0;
+            for (int t = 0; t < threads; t++) {
+                winners += added[t][i];
+            }
+            assertEquals(1, winners, "add(" + i + ") must succeed exactly once");
+        }
+        assertEquals(values, set.length());
+    }
+
+    @Test
+    public void testReadersNeverSeeHalfABulkOperation() throws Exception {
+        ConcurrentIntegerSet set = new ConcurrentIntegerSet();
+        int pairs = 2_000;
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> writer = pool.submit(() -> {
+                for (int i = 0; i < pairs; i++) {
+                    ConcurrentIntegerSet pair = new ConcurrentIntegerSet(1);
+                    pair.add(2 * i);
+                    pair.add(2 * i + 1);
+                    set.union(pair);
+                    set.add(-1 - i); // point writes racing with the bulk ones
+                }
+                done.set(true);
+                return null;
+            });
+            Future<?> pointReader = pool.submit(() -> {
+                while (!done.get()) {
+                    for (int i = 0; i < pairs; i++) {
+                        // Values are never removed, so once 2i is seen 2i + 1 must be there too.
+                        if (set.contains(2 * i)) {
+                            assertTrue(set.contains(2 * i + 1), "half of pair " + i);
+                        }
+                    }
+                }
+                return null;
+            });
+            Future<?> snapshotReader = pool.submit(() -> {
+                while (!done.get()) {
+                    IntegerSet snapshot = set.snapshot();
+                    for (int i = 0; i < pairs; i++) {
+                        assertEquals(snapshot.contains(2 * i), snapshot.contains(2 * i + 1), "half of pair " + i);
+                    }
+                }
+                return null;
+            });
+            writer.get(60, TimeUnit.SECONDS);
+            pointReader.get(60, TimeUnit.SECONDS);
+            snapshotReader.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(3 * pairs, set.length());
+    }
+
+    /**
+     * Runs many short rounds in which three threads race a few operations
+     * on one value, records when each call started and returned, and checks
+     * every history is linearizable: some order of the calls that respects
+     * real time (a call that returned before another started comes first)
+     * must give the same results on a plain set.
+     */
+    @Test
+    public void testHistoriesAreLinearizable() throws Exception {
+        int threads = 3;
+        int opsPerThread = 3;
+        int rounds = 3_000;
+        ConcurrentIntegerSet set = new ConcurrentIntegerSet(2);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        Call[][][] history = new Call[rounds][threads][];
+        runTogether(threads, t -> {
+            Random random = new Random(t);
+            for (int round = 0; round < rounds; round++) {
+                barrier.await();
+                Call[] calls = new Call[opsPerThread];
+                for (int i = 0; i < opsPerThread; i++) {
+                    calls[i] = new Call(Kind.values()[random.nextInt(Kind.values().length)]);
+                    calls[i].run(set, round);
+                }
+                history[round][t] = calls;
+                barrier.await();
+                if (t == 0) {
+                    List<Call> all = new ArrayList<>();
+                    for (Call[] perThread : history[round]) {
+                        all.addAll(List.of(perThread));
+                    }
+                    assertTrue(linearizable(all, 0, false, new HashSet<>()), "not linearizable: " + all);
+                }
+            }
+        });
+    }
+
+    private enum Kind { ADD, REMOVE, CONTAINS, UNION, CLEAR }
+
+    /** One call of a history: what it did, what it returned and when. */
+    private static final class Call {
+        final Kind kind;
+        boolean result;
+        long start;
+        long end;
+
+        Call(Kind kind) {
+            this.kind = kind;
+        }
+
+        void run(ConcurrentIntegerSet set, int value) {
+            ConcurrentIntegerSet single = null;
+            if (kind == Kind.UNION) {
+                single = new ConcurrentIntegerSet(1);
+                single.add(value);
+            }
+            start = System.nanoTime();
+            switch (kind) {
+                case ADD:
+                    result = set.add(value);
+                    break;
+                case REMOVE:
+                    result = set.remove(value);
+                    break;
+                case CONTAINS:
+                    result = set.contains(value);
+                    break;
+                case UNION:
+                    set.union(single);
+                    break;
+                default:
+                    set.clear();
+                    break;
+            }
+            end = System.nanoTime();
+        }
+
+        /** @return the value's presence afterwards, or null if the result does not fit the state */
+        Boolean apply(boolean present) {
+            switch (kind) {
+                case ADD:
+                    return result == !present ? Boolean.TRUE : null;
+                case REMOVE:
+                    return result == present ? Boolean.FALSE : null;
+                case CONTAINS:
+                    return result == present ? present : null;
+                case UNION:
+                    return Boolean.TRUE;
+                default:
+                    return Boolean.FALSE;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return kind + "=" + result + "@" + start + ".." + end;
+        }
+    }
+
+    /** Wing and Gong's search: try each call that nothing still pending must precede. */
+    private static boolean linearizable(List<Call> calls, int done, boolean present, Set<Long> failed) {
+        if (done == (1 << calls.size()) - 1) {
+            return true;
+        }
+        long key = ((long) done << 1) | (present ? 1 : 0);
+        if (failed.contains(key)) {
+            return false;
+        }
+        for (int i = 0; i < calls.size(); i++) {
+            if ((done & (1 << i)) != 0 || !minimal(calls, done, i)) {
+                continue;
+            }
+            Boolean after = calls.get(i).apply(present);
+            if (after != null && linearizable(calls, done | (1 << i), after, failed)) {
+                return true;
+            }
+        }
+        failed.add(key);
+        return false;
+    }
+
+    private static boolean minimal(List<Call> calls, int done, int candidate) {
+        for (int j = 0; j < calls.size(); j++) {
+            if ((done & (1 << j)) == 0 && calls.get(j).end < calls.get(candidate).start) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private interface Body {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runTogether(int threads, Body body) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.howard.edu.lsp.assignment6;
+
+/**
+ * The values of one 2^16-value chunk of a {@link RoaringIntSet}, as low
+ * 16 bits (0 to 65535).
+ * <p>
+ * There are three representations, each the smallest for some shape of
+ * data: a sorted array for sparse chunks ({@link ArrayContainer}, 2 bytes
+ * per value, up to {@link #MAX_ARRAY} values), a 65536-bit bitmap for dense
+ * ones ({@link BitmapContainer}, 8 KB) and runs of consecutive values
+ * ({@link RunContainer}, 4 bytes per run). Point updates may return a
+ * different container when the current one stops being a good fit; the set
+ * operations return a new container in whichever representation is
+ * smallest for the result, and never modify their operands.
+ * <p>
+ * The set operations dispatch on the operand types: two arrays are merged,
+ * an array against anything else is filtered value by value with
+ * {@link #contains}, and everything else is combined as bitmap words, 64
+ * values per instruction.
+ */
+abstract class Container {
+    /** Most values an array container holds; above this a bitmap is smaller. */
+    static final int MAX_ARRAY = 4096;
+    /** Words of a bitmap container. */
+    static final int WORDS = 1024;
+    /** Bytes of a bitmap container. */
+    static final int BITMAP_BYTES = WORDS * 8;
+
+    /** @return the number of values */
+    abstract int cardinality();
+
+    /** @return whether the low bits are in the container */
+    abstract boolean contains(int x);
+
+    /**
+     * Adds a value. Compare {@link #cardinality()} before and after to find
+     * out whether it was new.
+     *
+     * @return this container or its replacement
+     */
+    abstract Container add(int x);
+
+    /**
+     * Removes a value. Compare {@link #cardinality()} before and after to
+     * find out whether it was there.
+     *
+     * @return this container or its replacement, possibly empty
+     */
+    abstract Container remove(int x);
+
+    /** @return the smallest value; the container must not be empty */
+    abstract int min();
+
+    /** @return the largest value; the container must not be empty */
+    abstract int max();
+
+    /** @return the smallest value at least x, or -1 if there is none */
+    abstract int ceiling(int x);
+
+    /** @return the largest value at most x, or -1 if there is none */
+    abstract int floor(int x);
+
+    /** @return how many values are at most x */
+    abstract int rank(int x);
+
+    /**
+     * Writes the values in ascending order, each combined with the high bits.
+     *
+     * @return the number of values written
+     */
+    abstract int toArray(int[] out, int offset, int high);
+
+    /** @return the values as a new bitmap of {@link #WORDS} words */
+    abstract long[] toWords();
+
+    /** @return the values as bitmap words that the caller only reads */
+    long[] readWords() {
+        return toWords();
+    }
+
+    /** @return an independent copy */
+    abstract Container copy();
+
+    /** @return the approximate memory used by the values, in bytes */
+    abstract int sizeInBytes();
+
+    /** @return the sum of the values */
+    abstract long sum();
+
+    /** @return a container with the values in this one or the other */
+    Container or(Container o) {
+        if (this instanceof ArrayContainer && o instanceof ArrayContainer) {
+            return ((ArrayContainer) this).union((ArrayContainer) o);
+        }
+        if (this instanceof ArrayContainer) {
+            return o.or(this);
+        }
+        long[] words = toWords();
+        if (o instanceof ArrayContainer) {
+            ((ArrayContainer) o).setBits(words);
+        } else {
+            long[] other = o.readWords();
+            for (int i = 0; i < WORDS; i++) {
+                words[i] |= other[i];
+            }
+        }
+        return fromWords(words);
+    }
+
+    /** @return a container with the values in both this one and the other */
+    Container and(Container o) {
+        if (this instanceof ArrayContainer && o instanceof ArrayContainer) {
+            return ((ArrayContainer) this).intersection((ArrayContainer) o);
+        }
+        if (this instanceof ArrayContainer) {
+            return ((ArrayContainer) this).filter(o, true);
+        }
+        if (o instanceof ArrayContainer) {
+            return ((ArrayContainer) o).filter(this, true);
+        }
+        long[] words = toWords();
+        long[] other = o.readWords();
+        for (int i = 0; i < WORDS; i++) {
+            words[i] &= other[i];
+        }
+        return fromWords(words);
+    }
+
+    /** @return a container with the values in this one but not the other */
+    Container andNot(Container o) {
+        if (this instanceof ArrayContainer) {
+            return ((ArrayContainer) this).filter(o, false);
+        }
+        long[] words = toWords();
+        if (o instanceof ArrayContainer) {
+            ((ArrayContainer) o).clearBits(words);
+        } else {
+            long[] other = o.readWords();
+            for (int i = 0; i < WORDS; i++) {
+                words[i] &= ~other[i];
+            }
+        }
+        return fromWords(words);
+    }
+
+    /** @return whether both containers hold the same values, whatever their representation */
+    boolean sameValues(Container o) {
+        return cardinality() == o.cardinality() && andNot(o).cardinality() == 0;
+    }
+
+    /**
+     * Builds the smallest container for a bitmap.
+     *
+     * @param words the bitmap; it may become the container's own
+     */
+    static Container fromWords(long[] words) {
+        int cardinality = 0;
+        int runs = 0;
+        long previous = 0;
+        for (long w : words) {
+            cardinality += Long.bitCount(w);
+            // A run starts at each set bit whose lower neighbour is clear.
+            runs += Long.bitCount(w & ~((w << 1) | (previous >>> 63)));
+            previous = w;
+        }
+        switch (best(cardinality, runs)) {
+            case ARRAY:
+                return ArrayContainer.fromWords(words, cardinality);
+            case RUN:
+                return RunContainer.fromWords(words, runs, cardinality);
+            default:
+                return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    /** @return the first set bit at or after from, or -1 */
+    static int nextSetBit(long[] words, int from) {
+        int i = from >>> 6;
+        long w = words[i] & (-1L << from);
+        while (w == 0) {
+            if (++i == words.length) {
+                return -1;
+            }
+            w = words[i];
+        }
+        return i * 64 + Long.numberOfTrailingZeros(w);
+    }
+
+    /** @return the last set bit at or before from, or -1 */
+    static int previousSetBit(long[] words, int from) {
+        int i = from >>> 6;
+        long w = words[i] & (-1L >>> (63 - (from & 63)));
+        while (w == 0) {
+            if (--i < 0) {
+                return -1;
+            }
+            w = words[i];
+        }
+        return i * 64 + 63 - Long.numberOfLeadingZeros(w);
+    }
+
+    /** @return the first clear bit at or after from, or the bitmap's length */
+    static int nextClearBit(long[] words, int from) {
+        int i = from >>> 6;
+        long w = ~words[i] & (-1L << from);
+        while (w == 0) {
+            if (++i == words.length) {
+                return words.length * 64;
+            }
+            w = ~words[i];
+        }
+        return i * 64 + Long.numberOfTrailingZeros(w);
+    }
+
+    /** Representations a container can have. */
+    enum Kind { ARRAY, BITMAP, RUN }
+
+    /** @return the smallest representation for a chunk with these figures */
+    static Kind best(int cardinality, int runs) {
+        int runBytes = runs * 4;
+        if (cardinality <= MAX_ARRAY) {
+            return runBytes < cardinality * 2 ? Kind.RUN : Kind.ARRAY;
+        }
+        return runBytes < BITMAP_BYTES ? Kind.RUN : Kind.BITMAP;
+    }
+}
@@ -1,18 +1,23 @@
 package org.howard.edu.lsp.assignment6;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 /**
- * The IntegerSet class models a mathematical set of integers using an ArrayList.
+ * The IntegerSet class models a mathematical set of integers using a
+ * compressed bitmap of primitive ints ({@link RoaringIntSet}): each chunk of
+ * 65536 values is kept as a sorted array, a bitmap or runs, whichever is
+ * smallest, and the set operations combine chunks word by word. Elements
+ * are kept in order, so the smallest and largest element (cached) and the
+ * ordered queries below are cheap.
  * Duplicates are not allowed, and all standard set operations are supported.
  * 
  * @author Jada Gilfillian
  * @version 1.0
  */
 public class IntegerSet  {
-  private List<Integer> set = new ArrayList<Integer>();
+  private final RoaringIntSet set = new RoaringIntSet();
 
   // Clears the internal representation of the set.
   public void clear() { 
@@ -41,7 +46,18 @@ public class IntegerSet  {
       if (this == o) return true;
       if (!(o instanceof IntegerSet)) return false;
       IntegerSet other = (IntegerSet) o;
-      return set.containsAll(other.set) && other.set.containsAll(set);
+      return set.sameValues(other.set);
+  }
+
+  /**
+   * Returns a hash code consistent with equals: the sum of the elements,
+   * as for {@link java.util.Set#hashCode()}.
+   *
+   * @return the hash code of the set
+   */
+  @Override
+  public int hashCode() {
+      return set.sum();
   }
 
   /**
@@ -63,7 +79,7 @@ public class IntegerSet  {
       if (set.isEmpty()) {
           throw new IllegalStateException("Set is empty");
       }
-      return Collections.max(set);
+      return set.max();
   }
 
   /**
@@ -76,7 +92,61 @@ public class IntegerSet  {
       if (set.isEmpty()) {
           throw new IllegalStateException("Set is empty");
       }
-      return Collections.min(set);
+      return set.min();
+  }
+
+  /**
+   * Returns the smallest element greater than or equal to the value.
+   *
+   * @param value the value to search from
+   * @return the smallest element that is at least value
+   * @throws NoSuchElementException if every element is smaller than value
+   */
+  public int ceiling(int value) {
+      return set.ceiling(value);
+  }
+
+  /**
+   * Returns the largest element less than or equal to the value.
+   *
+   * @param value the value to search from
+   * @return the largest element that is at most value
+   * @throws NoSuchElementException if every element is greater than value
+   */
+  public int floor(int value) {
+      return set.floor(value);
+  }
+
+  /**
+   * Returns how many elements are less than or equal to the value.
+   *
+   * @param value the value to rank
+   * @return the number of elements at most value
+   */
+  public int rank(int value) {
+      return set.rank(value);
+  }
+
+  /**
+   * Returns how many elements lie in a range.
+   *
+   * @param from the lowest value of the range
+   * @param to the highest value of the range (included)
+   * @return the number of elements between from and to, or 0 if from is greater than to
+   */
+  public int countInRange(int from, int to) {
+      return set.rangeCount(from, to);
+  }
+
+  /**
+   * Returns the elements in ascending order as primitive ints, without boxing.
+   * The iterator throws ConcurrentModificationException if the set is changed
+   * while it is in use.
+   *
+   * @return an iterator over the elements in ascending order
+   */
+  public PrimitiveIterator.OfInt iterator() {
+      return set.iterator();
   }
 
   /** Adds an item to the set or does nothing if already present.
@@ -84,9 +154,7 @@ public class IntegerSet  {
    * @param item the integer to add
    */
   public void add(int item) { 
-      if (!set.contains(item)) {
-          set.add(item);
-      }
+      set.add(item);
   }
 
   /**
@@ -95,7 +163,7 @@ public class IntegerSet  {
    * @param item the integer to remove
    */
   public void remove(int item) { 
-      set.remove(Integer.valueOf(item));
+      set.remove(item);
   }
 
   /**
@@ -104,11 +172,7 @@ public class IntegerSet  {
    * @param other the other IntegerSet to union with
    */
   public void union(IntegerSet other) { 
-      for (int value : other.set) {
-          if (!set.contains(value)) {
-              set.add(value);
-          }
-      }
+      set.assign(set.or(other.set));
   }
 
   /**
@@ -117,7 +181,7 @@ public class IntegerSet  {
    * @param other the other IntegerSet to intersect with
    */
   public void intersect(IntegerSet other) { 
-      set.retainAll(other.set);
+      set.assign(set.and(other.set));
   }
 
   /**
@@ -126,7 +190,7 @@ public class IntegerSet  {
    * @param other the other IntegerSet to compare with
    */
   public void diff(IntegerSet other) { 
-      set.removeAll(other.set);
+      set.assign(set.andNot(other.set));
   }
 
   /** 
@@ -135,9 +199,7 @@ public class IntegerSet  {
    * @param other the other IntegerSet to complement with
    */
   public void complement(IntegerSet other) { 
-      List<Integer> temp = new ArrayList<>(other.set);
-      temp.removeAll(set);
-      set = temp;
+      set.assign(other.set.andNot(set));
   }
 
   /**
@@ -151,11 +213,12 @@ public class IntegerSet  {
 
   /**
    * Returns a String representation; overrides Object.toString().
+   * The elements are listed in ascending order.
    * 
    * @return a string representing the set in list format
    */
   @Override
   public String toString() { 
-      return set.toString();
+      return Arrays.toString(set.toArray());
   }
 }
@@ -3,7 +3,11 @@ package org.howard.edu.lsp.assignment6;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
 
 public class IntegerSetTest {
 
@@ -135,4 +139,163 @@ public class IntegerSetTest {
         String output = set.toString();
         assertTrue(output.startsWith("[") && output.endsWith("]"));
     }
+
+    @Test
+    public void testZeroAndNegativeValues() {
+        IntegerSet set = new IntegerSet();
+        set.add(0);
+        set.add(-5);
+        set.add(Integer.MIN_VALUE);
+        assertTrue(set.contains(0));
+        assertEquals(Integer.MIN_VALUE, set.smallest());
+        assertEquals(0, set.largest());
+        assertEquals("[" + Integer.MIN_VALUE + ", -5, 0]", set.toString());
+        set.remove(0);
+        assertFalse(set.contains(0));
+        assertEquals(-5, set.largest());
+    }
+
+    @Test
+    public void testHashCodeMatchesEquals() {
+        IntegerSet set1 = new IntegerSet();
+        IntegerSet set2 = new IntegerSet();
+        for (int i = 0; i < 100; i++) {
+            set1.add(i);
+            set2.add(99 - i);
+        }
+        assertEquals(set1, set2);
+        assertEquals(set1.hashCode(), set2.hashCode());
+    }
+
+    @Test
+    public void testDiffWithItself() {
+        IntegerSet set = new IntegerSet();
+        for (int i = 0; i < 50; i++) {
+            set.add(i * 7);
+        }
+        set.diff(set);
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testLargeSetsMatchTreeSet() {
+        Random random = new Random(42);
+        IntegerSet a = new IntegerSet();
+        IntegerSet b = new IntegerSet();
+        TreeSet<Integer> expectedA = new TreeSet<>();
+        TreeSet<Integer> expectedB = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            int x = random.nextInt(40_000) - 20_000;
+            int y = random.nextInt(40_000) - 20_000;
+            a.add(x);
+            expectedA.add(x);
+            b.add(y);
+            expectedB.add(y);
+            if (i % 3 == 0) {
+                int z = random.nextInt(40_000) - 20_000;
+                a.remove(z);
+                expectedA.remove(z);
+            }
+        }
+        assertEquals(expectedA.size(), a.length());
+        for (int x = -20_000; x < 20_000; x++) {
+            assertEquals(expectedA.contains(x), a.contains(x));
+        }
+        assertEquals(expectedA.toString(), a.toString());
+
+        IntegerSet union = copyOf(a);
+        union.union(b);
+        TreeSet<Integer> expected = new TreeSet<>(expectedA);
+        expected.addAll(expectedB);
+        assertEquals(expected.toString(), union.toString());
+
+        IntegerSet intersect = copyOf(a);
+        intersect.intersect(b);
+        expected = new TreeSet<>(expectedA);
+        expected.retainAll(expectedB);
+        assertEquals(expected.toString(), intersect.toString());
+
+        IntegerSet diff = copyOf(a);
+        diff.diff(b);
+        expected = new TreeSet<>(expectedA);
+        expected.removeAll(expectedB);
+        assertEquals(expected.toString(), diff.toString());
+
+        IntegerSet complement = copyOf(a);
+        complement.complement(b);
+        expected = new TreeSet<>(expectedB);
+        expected.removeAll(expectedA);
+        assertEquals(expected.toString(), complement.toString());
+    }
+
+    private static IntegerSet copyOf(IntegerSet set) {
+        IntegerSet copy = new IntegerSet();
+        copy.union(set);
+        return copy;
+    }
+
+    @Test
+    public void testSmallestAndLargestWhileDraining() {
+        IntegerSet set = new IntegerSet();
+        for (int i = 0; i < 1000; i++) {
+            set.add(i * 3);
+        }
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i * 3, set.smallest());
+            assertEquals((999 - i) * 3, set.largest());
+            set.remove(set.smallest());
+            set.remove(set.largest());
+        }
+        assertTrue(set.isEmpty());
+        set.add(-4);
+        assertEquals(-4, set.smallest());
+        assertEquals(-4, set.largest());
+    }
+
+    @Test
+    public void testCeilingFloorRankAndRange() {
+        IntegerSet set = new IntegerSet();
+        set.add(10); set.add(20); set.add(30); set.add(-70_000); set.add(200_000);
+        assertEquals(20, set.ceiling(11));
+        assertEquals(20, set.ceiling(20));
+        assertEquals(200_000, set.ceiling(31));
+        assertEquals(-70_000, set.ceiling(Integer.MIN_VALUE));
+        assertThrows(NoSuchElementException.class, () -> set.ceiling(200_001));
+        assertEquals(10, set.floor(19));
+        assertEquals(30, set.floor(199_999));
+        assertThrows(NoSuchElementException.class, () -> set.floor(-70_001));
+
+        assertEquals(0, set.rank(-70_001));
+        assertEquals(1, set.rank(-70_000));
+        assertEquals(3, set.rank(25));
+        assertEquals(5, set.rank(Integer.MAX_VALUE));
+        assertEquals(3, set.countInRange(10, 30));
+        assertEquals(5, set.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, set.countInRange(30, 10));
+
+        set.remove(20);
+        assertEquals(2, set.rank(25));
+        assertEquals(30, set.ceiling(11));
+    }
+
+    @Test
+    public void testIteratorIsAscendingAndFailsFast() {
+        IntegerSet set = new IntegerSet();
+        set.add(5); set.add(-100_000); set.add(65_536); set.add(65_535); set.add(0);
+        PrimitiveIterator.OfInt it = set.iterator();
+        StringBuilder seen = new StringBuilder();
+        while (it.hasNext()) {
+            seen.append(it.nextInt()).append(' ');
+        }
+        assertEquals("-100000 0 5 65535 65536 ", seen.toString());
+        assertThrows(NoSuchElementException.class, it::nextInt);
+
+        PrimitiveIterator.OfInt changed = set.iterator();
+        changed.nextInt();
+        set.add(7);
+        assertThrows(ConcurrentModificationException.class, changed::nextInt);
+        PrimitiveIterator.OfInt united = set.iterator();
+        set.union(new IntegerSet());
+        assertThrows(ConcurrentModificationException.class, united::nextInt);
+    }
 }
@@ -0,0 +1,534 @@
+package org.howard.edu.lsp.assignment6;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compressed set of ints in the style of Roaring bitmaps, the backing store
+ * of {@link IntegerSet}.
+ * <p>
+ * The int range is cut into 2^16-value chunks by the high 16 bits of each
+ * value. Each chunk that has values gets a {@link Container} holding their
+ * low 16 bits as an array, a bitmap or runs, whichever is smallest for that
+ * chunk, so sparse ids cost about 2 bytes each and dense ranges a bit or
+ * less each. Chunks are kept in a sorted array of keys, searched by binary
+ * search with the last chunk used remembered for runs of nearby values.
+ * Keys have the sign bit flipped so that chunk order is signed int order,
+ * which makes iteration ascending.
+ * <p>
+ * Union, intersection and difference walk the two key arrays together and
+ * combine matching chunks with the containers' word-wise operations;
+ * chunks only one side has are copied or skipped whole. Chunks do not
+ * depend on each other, so for large sets (see {@link #PARALLEL_THRESHOLD})
+ * the chunk pairs are combined on the common fork-join pool.
+ * <p>
+ * Values are always in order, so ordered queries come cheaply: ceiling and
+ * floor search the keys and then one container, and rank adds the sizes of
+ * the earlier chunks to a rank within one container. Chunk sizes are kept
+ * in a Fenwick tree, so both that sum and the update after an add or
+ * remove take O(log chunks); adding or dropping a whole chunk already
+ * shifts the key array, and just marks the tree to be rebuilt in linear
+ * time by the next ordered query. The smallest and
+ * largest values are cached; add keeps them current, and removing one of
+ * them only marks it to be looked up again on the next request.
+ */
+final class RoaringIntSet {
+    /** Combined size of two sets from which their set operations run in parallel. */
+    static final long PARALLEL_THRESHOLD = 1 << 20;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int chunks;
+    private int cardinality;
+    private int last = -1; // index of the chunk used most recently
+
+    private int[] sizes = new int[5]; // Fenwick tree of chunk cardinalities, 1-based
+    private boolean sizesValid; // false after chunks were inserted or removed
+    private int min;
+    private int max;
+    private boolean minKnown;
+    private boolean maxKnown;
+    private int modCount;
+
+    private static char key(int value) {
+        return (char) ((value >>> 16) ^ 0x8000);
+    }
+
+    private static int high(char key) {
+        return (key ^ 0x8000) << 16;
+    }
+
+    private static int low(int value) {
+        return value & 0xffff;
+    }
+
+    /** @return the chunk index of the key, or -(insertion point) - 1 */
+    private int find(char key) {
+        int l = last;
+        if (l >= 0 && l < chunks && keys[l] == key) {
+            return l;
+        }
+        int i = Arrays.binarySearch(keys, 0, chunks, key);
+        if (i >= 0) {
+            last = i;
+        }
+        return i;
+    }
+
+    /** @return the number of values */
+    int size() {
+        return cardinality;
+    }
+
+    /** @return whether the set has no values */
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /** @return whether the value is in the set */
+    boolean contains(int value) {
+        int i = find(key(value));
+        return i >= 0 && containers[i].contains(low(value));
+    }
+
+    /** @return whether the value was added (false if it was already there) */
+    boolean add(int value) {
+        char key = key(value);
+        int i = find(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new ArrayContainer());
+            last = i;
+        }
+        Container c = containers[i];
+        int size = c.cardinality();
+        containers[i] = c = c.add(low(value));
+        if (c.cardinality() == size) {
+            return false;
+        }
+        sizeChanged(i, 1);
+        if (cardinality++ == 0) {
+            min = max = value;
+            minKnown = maxKnown = true;
+        } else {
+            if (minKnown && value < min) {
+                min = value;
+            }
+            if (maxKnown && value > max) {
+                max = value;
+            }
+        }
+        modCount++;
+        return true;
+    }
+
+    /** @return whether the value was removed (false if it was not there) */
+    boolean remove(int value) {
+        int i = find(key(value));
+        if (i < 0) {
+            return false;
+        }
+        Container c = containers[i];
+        int size = c.cardinality();
+        containers[i] = c = c.remove(low(value));
+        if (c.cardinality() == size) {
+            return false;
+        }
+        cardinality--;
+        if (c.cardinality() == 0) {
+            removeChunk(i);
+        } else {
+            sizeChanged(i, -1);
+        }
+        if (value == min) {
+            minKnown = false;
+        }
+        if (value == max) {
+            maxKnown = false;
+        }
+        modCount++;
+        return true;
+    }
+
+    /** Adds delta to chunk i's entry in the Fenwick tree, if it is built. */
+    private void sizeChanged(int i, int delta) {
+        if (sizesValid) {
+            for (int k = i + 1; k <= chunks; k += k & -k) {
+                sizes[k] += delta;
+            }
+        }
+    }
+
+    private void insertChunk(int i, char key, Container c) {
+        if (chunks == keys.length) {
+            grow();
+        }
+        System.arraycopy(keys, i, keys, i + 1, chunks - i);
+        System.arraycopy(containers, i, containers, i + 1, chunks - i);
+        keys[i] = key;
+        containers[i] = c;
+        chunks++;
+        sizesValid = false;
+    }
+
+    private void grow() {
+        keys = Arrays.copyOf(keys, chunks * 2);
+        containers = Arrays.copyOf(containers, chunks * 2);
+    }
+
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, chunks - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, chunks - i - 1);
+        containers[--chunks] = null;
+        last = -1;
+        sizesValid = false;
+    }
+
+    /** Appends a chunk after all others, dropping it if it is empty. */
+    private void append(char key, Container c) {
+        if (c.cardinality() == 0) {
+            return;
+        }
+        if (chunks == keys.length) {
+            grow();
+        }
+        keys[chunks] = key;
+        containers[chunks] = c;
+        chunks++;
+        cardinality += c.cardinality();
+        sizesValid = false;
+    }
+
+    /** Removes every value. */
+    void clear() {
+        assign(new RoaringIntSet());
+    }
+
+    /**
+     * Takes over the values of another set, which must not be used
+     * afterwards. Iterators over this set stop working.
+     */
+    void assign(RoaringIntSet other) {
+        keys = other.keys;
+        containers = other.containers;
+        chunks = other.chunks;
+        cardinality = other.cardinality;
+        last = -1;
+        sizesValid = false;
+        minKnown = false;
+        maxKnown = false;
+        modCount++;
+    }
+
+    /** @return the smallest value; the set must not be empty */
+    int min() {
+        if (!minKnown) {
+            min = high(keys[0]) | containers[0].min();
+            minKnown = true;
+        }
+        return min;
+    }
+
+    /** @return the largest value; the set must not be empty */
+    int max() {
+        if (!maxKnown) {
+            max = high(keys[chunks - 1]) | containers[chunks - 1].max();
+            maxKnown = true;
+        }
+        return max;
+    }
+
+    /**
+     * @return the smallest value at least {@code value}
+     * @throws NoSuchElementException if there is none
+     */
+    int ceiling(int value) {
+        int i = Arrays.binarySearch(keys, 0, chunks, key(value));
+        if (i >= 0) {
+            int low = containers[i].ceiling(low(value));
+            if (low >= 0) {
+                return high(keys[i]) | low;
+            }
+            i++;
+        } else {
+            i = -i - 1;
+        }
+        if (i == chunks) {
+            throw new NoSuchElementException("No element at least " + value);
+        }
+        return high(keys[i]) | containers[i].min();
+    }
+
+    /**
+     * @return the largest value at most {@code value}
+     * @throws NoSuchElementException if there is none
+     */
+    int floor(int value) {
+        int i = Arrays.binarySearch(keys, 0, chunks, key(value));
+        if (i >= 0) {
+            int low = containers[i].floor(low(value));
+            if (low >= 0) {
+                return high(keys[i]) | low;
+            }
+            i--;
+        } else {
+            i = -i - 2;
+        }
+        if (i < 0) {
+            throw new NoSuchElementException("No element at most " + value);
+        }
+        return high(keys[i]) | containers[i].max();
+    }
+
+    /** @return how many values are at most {@code value} */
+    int rank(int value) {
+        int i = Arrays.binarySearch(keys, 0, chunks, key(value));
+        if (i < 0) {
+            return valuesBefore(-i - 1);
+        }
+        return valuesBefore(i) + containers[i].rank(low(value));
+    }
+
+    /** @return how many values are in the chunks before chunk i */
+    private int valuesBefore(int i) {
+        if (i == chunks) {
+            return cardinality;
+        }
+        if (!sizesValid) {
+            buildSizes();
+        }
+        int sum = 0;
+        for (int k = i; k > 0; k -= k & -k) {
+            sum += sizes[k];
+        }
+        return sum;
+    }
+
+    /** Builds the Fenwick tree of chunk sizes in one pass, each node adding itself to its parent. */
+    private void buildSizes() {
+        if (sizes.length <= chunks) {
+            sizes = new int[keys.length + 1];
+        }
+        for (int k = 1; k <= chunks; k++) {
+            sizes[k] = containers[k - 1].cardinality();
+        }
+        for (int k = 1; k <= chunks; k++) {
+            int parent = k + (k & -k);
+            if (parent <= chunks) {
+                sizes[parent] += sizes[k];
+            }
+        }
+        sizesValid = true;
+    }
+
+    /** @return how many values are between from and to, both included */
+    int rangeCount(int from, int to) {
+        if (from > to) {
+            return 0;
+        }
+        return rank(to) - (from == Integer.MIN_VALUE ? 0 : rank(from - 1));
+    }
+
+    /**
+     * @return the values in ascending order, as unboxed ints; the iterator
+     *         fails if the set changes while it is in use
+     */
+    PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private final int expectedModCount = modCount;
+            private int chunk;
+            private int next = chunks > 0 ? containers[0].min() : -1;
+
+            @Override
+            public boolean hasNext() {
+                return chunk < chunks;
+            }
+
+            @Override
+            public int nextInt() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (chunk >= chunks) {
+                    throw new NoSuchElementException();
+                }
+                int value = high(keys[chunk]) | next;
+                next = next < 0xffff ? containers[chunk].ceiling(next + 1) : -1;
+                if (next < 0 && ++chunk < chunks) {
+                    next = containers[chunk].min();
+                }
+                return value;
+            }
+        };
+    }
+
+    /** @return the values in ascending order */
+    int[] toArray() {
+        int[] values = new int[cardinality];
+        int n = 0;
+        for (int i = 0; i < chunks; i++) {
+            n += containers[i].toArray(values, n, high(keys[i]));
+        }
+        return values;
+    }
+
+    /** @return a new set of the values in this set or the other */
+    RoaringIntSet or(RoaringIntSet other) {
+        return combine(other, Op.OR, PARALLEL_THRESHOLD);
+    }
+
+    /** @return a new set of the values in both this set and the other */
+    RoaringIntSet and(RoaringIntSet other) {
+        return combine(other, Op.AND, PARALLEL_THRESHOLD);
+    }
+
+    /** @return a new set of the values in this set but not the other */
+    RoaringIntSet andNot(RoaringIntSet other) {
+        return combine(other, Op.AND_NOT, PARALLEL_THRESHOLD);
+    }
+
+    /** Set operations, applied chunk by chunk. */
+    enum Op {
+        OR, AND, AND_NOT;
+
+        /**
+         * Combines one chunk of each side; either may be null for a chunk
+         * that side does not have. Operands are never modified.
+         *
+         * @return the chunk of the result; null or empty if it has no values
+         */
+        Container apply(Container left, Container right) {
+            switch (this) {
+                case OR:
+                    return left == null ? right.copy() : right == null ? left.copy() : left.or(right);
+                case AND:
+                    return left == null || right == null ? null : left.and(right);
+                default:
+                    return left == null ? null : right == null ? left.copy() : left.andNot(right);
+            }
+        }
+    }
+
+    /**
+     * Applies a set operation. The chunks of both sides are first lined up
+     * by key; if the two sets hold at least {@code threshold} values
+     * between them, the chunk pairs are then combined on the common
+     * fork-join pool, otherwise on the calling thread. Chunks are
+     * independent, so the result is the same either way.
+     *
+     * @param threshold combined size from which to go parallel
+     */
+    RoaringIntSet combine(RoaringIntSet other, Op op, long threshold) {
+        // Line up the chunks: each key either side has, with both sides' containers.
+        char[] pairKeys = new char[chunks + other.chunks];
+        Container[] left = new Container[pairKeys.length];
+        Container[] right = new Container[pairKeys.length];
+        int pairs = 0;
+        int i = 0;
+        int j = 0;
+        while (i < chunks || j < other.chunks) {
+            int c = i == chunks ? 1 : j == other.chunks ? -1 : Character.compare(keys[i], other.keys[j]);
+            if (c <= 0) {
+                pairKeys[pairs] = keys[i];
+                left[pairs] = containers[i++];
+            }
+            if (c >= 0) {
+                pairKeys[pairs] = other.keys[j];
+                right[pairs] = other.containers[j++];
+            }
+            if (op == Op.OR || (op == Op.AND ? c == 0 : c <= 0)) {
+                pairs++;
+            } else {
+                left[pairs] = null;
+                right[pairs] = null;
+            }
+        }
+
+        Container[] results = new Container[pairs];
+        if ((long) cardinality + other.cardinality >= threshold && pairs > 1) {
+            ForkJoinPool.commonPool().invoke(new CombineTask(op, left, right, results, 0, pairs));
+        } else {
+            for (int k = 0; k < pairs; k++) {
+                results[k] = op.apply(left[k], right[k]);
+            }
+        }
+
+        RoaringIntSet result = new RoaringIntSet();
+        for (int k = 0; k < pairs; k++) {
+            if (results[k] != null) {
+                result.append(pairKeys[k], results[k]);
+            }
+        }
+        return result;
+    }
+
+    /** Combines a range of chunk pairs, splitting it in halves down to a few chunks. */
+    private static final class CombineTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int CHUNKS_PER_TASK = 4;
+
+        private final Op op;
+        private final Container[] left;
+        private final Container[] right;
+        private final Container[] results;
+        private final int from;
+        private final int to;
+
+        CombineTask(Op op, Container[] left, Container[] right, Container[] results, int from, int to) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNKS_PER_TASK) {
+                for (int k = from; k < to; k++) {
+                    results[k] = op.apply(left[k], right[k]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CombineTask(op, left, right, results, from, mid),
+                new CombineTask(op, left, right, results, mid, to));
+        }
+    }
+
+    /** @return whether both sets hold the same values */
+    boolean sameValues(RoaringIntSet other) {
+        if (cardinality != other.cardinality || chunks != other.chunks) {
+            return false;
+        }
+        for (int i = 0; i < chunks; i++) {
+            if (keys[i] != other.keys[i] || !containers[i].sameValues(other.containers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return the sum of the values, wrapping around like int arithmetic */
+    int sum() {
+        long sum = 0;
+        for (int i = 0; i < chunks; i++) {
+            sum += (long) high(keys[i]) * containers[i].cardinality() + containers[i].sum();
+        }
+        return (int) sum;
+    }
+
+    /** @return the approximate memory used by the values and chunk index, in bytes */
+    long sizeInBytes() {
+        long bytes = keys.length * 2L + containers.length * 4L;
+        for (int i = 0; i < chunks; i++) {
+            bytes += 16 + containers[i].sizeInBytes();
+        }
+        return bytes;
+    }
+}
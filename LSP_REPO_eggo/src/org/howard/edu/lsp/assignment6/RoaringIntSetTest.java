@@ -0,0 +1,253 @@
+package org.howard.edu.lsp.assignment6;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class RoaringIntSetTest {
+
+    private static RoaringIntSet of(TreeSet<Integer> values) {
+        RoaringIntSet set = new RoaringIntSet();
+        for (int v : values) {
+            set.add(v);
+        }
+        return set;
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void testDenseRangeTakesAFewBytes() {
+        RoaringIntSet set = new RoaringIntSet();
+        for (int i = 0; i < 1_000_000; i++) {
+            set.add(i);
+        }
+        assertEquals(1_000_000, set.size());
+        assertTrue(set.sizeInBytes() < 2_000, "one run per chunk: " + set.sizeInBytes());
+        assertEquals(0, set.min());
+        assertEquals(999_999, set.max());
+
+        set.remove(500_000);
+        assertFalse(set.contains(500_000));
+        assertTrue(set.contains(500_001));
+        assertEquals(999_999, set.size());
+    }
+
+    @Test
+    public void testRandomDenseChunkUsesABitmap() {
+        Random random = new Random(7);
+        RoaringIntSet set = new RoaringIntSet();
+        for (int i = 0; i < 1 << 20; i++) {
+            if (random.nextBoolean()) {
+                set.add(i);
+            }
+        }
+        // 16 chunks of about 32768 values each: 8 KB bitmaps, about 2 bits per value.
+        assertTrue(set.sizeInBytes() < 16 * 8300, "bitmaps: " + set.sizeInBytes());
+        double bitsPerValue = set.sizeInBytes() * 8.0 / set.size();
+        assertTrue(bitsPerValue < 2.1, "bits per value: " + bitsPerValue);
+    }
+
+    @Test
+    public void testContainersConvertBothWays() {
+        TreeSet<Integer> expected = new TreeSet<>();
+        RoaringIntSet set = new RoaringIntSet();
+        // Every other value: too many runs for a run container, so array then bitmap.
+        for (int i = 0; i < 20_000; i += 2) {
+            set.add(i);
+            expected.add(i);
+        }
+        assertArrayEquals(toArray(expected), set.toArray());
+        // Fill the gaps: the bitmap fills up into runs.
+        for (int i = 1; i < 65_536; i += 2) {
+            set.add(i);
+            expected.add(i);
+        }
+        for (int i = 20_000; i < 65_536; i += 2) {
+            set.add(i);
+            expected.add(i);
+        }
+        assertEquals(65_536, set.size());
+        assertTrue(set.sizeInBytes() < 100, "a full chunk is one run: " + set.sizeInBytes());
+        // Punch holes until the runs are bigger than a bitmap, then shrink back to an array.
+        for (int i = 1; i < 65_536; i += 3) {
+            set.remove(i);
+            expected.remove(i);
+        }
+        assertArrayEquals(toArray(expected), set.toArray());
+        for (int i = 0; i < 60_000; i++) {
+            set.remove(i);
+            expected.remove(i);
+        }
+        assertArrayEquals(toArray(expected), set.toArray());
+        assertEquals(expected.size(), set.size());
+    }
+
+    @Test
+    public void testSignedOrderAcrossChunks() {
+        RoaringIntSet set = new RoaringIntSet();
+        int[] values = {Integer.MAX_VALUE, 70_000, 0, -1, -70_000, Integer.MIN_VALUE, 65_535, 65_536};
+        for (int v : values) {
+            set.add(v);
+        }
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, set.toArray());
+        assertEquals(Integer.MIN_VALUE, set.min());
+        assertEquals(Integer.MAX_VALUE, set.max());
+    }
+
+    @Test
+    public void testSetOperationsOnMixedContainers() {
+        Random random = new Random(11);
+        TreeSet<Integer> a = new TreeSet<>();
+        TreeSet<Integer> b = new TreeSet<>();
+        for (int chunk = -3; chunk < 4; chunk++) {
+            int base = chunk << 16;
+            for (int i = 0; i < 65_536; i++) {
+                // Per chunk, a mix of sparse, dense and ranged shapes on each side.
+                boolean inA = chunk % 3 == 0 ? random.nextInt(50) == 0
+                    : chunk % 3 == 1 || chunk % 3 == -2 ? random.nextBoolean()
+                    : i > 1_000 && i < 40_000;
+                boolean inB = chunk % 2 == 0 ? random.nextInt(4) == 0 : i > 20_000 && i < 60_000;
+                if (inA) {
+                    a.add(base + i);
+                }
+                if (inB) {
+                    b.add(base + i);
+                }
+            }
+        }
+        RoaringIntSet ra = of(a);
+        RoaringIntSet rb = of(b);
+
+        TreeSet<Integer> expected = new TreeSet<>(a);
+        expected.addAll(b);
+        assertArrayEquals(toArray(expected), ra.or(rb).toArray());
+        assertEquals(expected.size(), ra.or(rb).size());
+
+        expected = new TreeSet<>(a);
+        expected.retainAll(b);
+        assertArrayEquals(toArray(expected), ra.and(rb).toArray());
+        assertArrayEquals(toArray(expected), rb.and(ra).toArray());
+
+        expected = new TreeSet<>(a);
+        expected.removeAll(b);
+        assertArrayEquals(toArray(expected), ra.andNot(rb).toArray());
+
+        expected = new TreeSet<>(b);
+        expected.removeAll(a);
+        assertArrayEquals(toArray(expected), rb.andNot(ra).toArray());
+
+        // The operands are left as they were.
+        assertArrayEquals(toArray(a), ra.toArray());
+        assertArrayEquals(toArray(b), rb.toArray());
+        assertTrue(ra.or(rb).andNot(rb).sameValues(ra.andNot(rb)));
+    }
+
+    @Test
+    public void testParallelOperationsMatchSequential() {
+        Random random = new Random(3);
+        RoaringIntSet a = new RoaringIntSet();
+        RoaringIntSet b = new RoaringIntSet();
+        for (int i = 0; i < 400_000; i++) {
+            a.add(random.nextInt(5_000_000) - 2_500_000);
+            b.add(random.nextInt(3_000_000));
+        }
+        for (int i = 1_000_000; i < 1_700_000; i++) {
+            a.add(i);
+        }
+        for (RoaringIntSet.Op op : RoaringIntSet.Op.values()) {
+            RoaringIntSet sequential = a.combine(b, op, Long.MAX_VALUE);
+            RoaringIntSet parallel = a.combine(b, op, 0);
+            assertTrue(parallel.sameValues(sequential), op.name());
+            assertEquals(sequential.size(), parallel.size(), op.name());
+            assertArrayEquals(sequential.toArray(), parallel.toArray(), op.name());
+        }
+        RoaringIntSet empty = new RoaringIntSet();
+        assertTrue(empty.combine(a, RoaringIntSet.Op.AND, 0).isEmpty());
+        assertTrue(a.combine(empty, RoaringIntSet.Op.OR, 0).sameValues(a));
+    }
+
+    @Test
+    public void testOrderedQueriesMatchTreeSet() {
+        Random random = new Random(5);
+        TreeSet<Integer> expected = new TreeSet<>();
+        RoaringIntSet set = new RoaringIntSet();
+        // A sparse chunk, a dense chunk, a ranged chunk and scattered outliers.
+        for (int i = 0; i < 3_000; i++) {
+            expected.add(random.nextInt(65_536));
+        }
+        for (int i = 0; i < 65_536; i++) {
+            if (random.nextInt(3) > 0) {
+                expected.add((1 << 16) + i);
+            }
+        }
+        for (int i = 1_000; i < 30_000; i++) {
+            expected.add((3 << 16) + i);
+        }
+        for (int i = 0; i < 50; i++) {
+            expected.add(random.nextInt());
+        }
+        for (int v : expected) {
+            set.add(v);
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            int probe = i % 2 == 0 ? random.nextInt(5 << 16) - (1 << 16) : random.nextInt();
+            assertEquals(expected.headSet(probe, true).size(), set.rank(probe));
+            Integer ceiling = expected.ceiling(probe);
+            if (ceiling != null) {
+                assertEquals(ceiling.intValue(), set.ceiling(probe));
+            }
+            Integer floor = expected.floor(probe);
+            if (floor != null) {
+                assertEquals(floor.intValue(), set.floor(probe));
+            }
+            if (i % 100 == 0) {
+                // Changes in the middle invalidate the later prefix sums.
+                set.remove(probe);
+                expected.remove(probe);
+                set.add(probe + 1);
+                expected.add(probe + 1);
+            }
+        }
+        assertEquals(expected.subSet(100, true, 200_000, true).size(), set.rangeCount(100, 200_000));
+
+        PrimitiveIterator.OfInt it = set.iterator();
+        for (int v : expected) {
+            assertEquals(v, it.nextInt());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testRankStaysExactWhileChunksChange() {
+        Random random = new Random(24);
+        TreeSet<Integer> expected = new TreeSet<>();
+        RoaringIntSet set = new RoaringIntSet();
+        for (int i = 0; i < 50_000; i++) {
+            // Few values per chunk, so chunks are created and emptied often.
+            int value = (random.nextInt(600) - 300) << 16 | random.nextInt(4);
+            if (random.nextInt(5) < 3) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+            int probe = (random.nextInt(620) - 310) << 16 | random.nextInt(4);
+            assertEquals(expected.headSet(probe, true).size(), set.rank(probe), "after step " + i);
+        }
+        set.clear();
+        assertEquals(0, set.rank(Integer.MAX_VALUE));
+        set.add(7);
+        assertEquals(1, set.rank(7));
+        assertEquals(0, set.rank(6));
+    }
+}
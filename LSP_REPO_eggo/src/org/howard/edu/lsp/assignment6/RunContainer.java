@@ -0,0 +1,252 @@
+package org.howard.edu.lsp.assignment6;
+
+import java.util.Arrays;
+
+/**
+ * Container for a chunk made of ranges of consecutive values: each run is
+ * a start and a length minus one, two chars side by side in one sorted
+ * array, so a full chunk takes 4 bytes. Runs never touch or overlap; point
+ * updates extend, merge, shrink or split them. It turns into an array or
+ * bitmap container when that would be smaller.
+ */
+final class RunContainer extends Container {
+    private char[] runs; // start, length - 1, start, length - 1, ...
+    private int count;
+    private int cardinality;
+
+    private RunContainer(char[] runs, int count, int cardinality) {
+        this.runs = runs;
+        this.count = count;
+        this.cardinality = cardinality;
+    }
+
+    static RunContainer fromSorted(char[] values, int cardinality, int runCount) {
+        char[] runs = new char[Math.max(runCount * 2, 2)];
+        int n = 0;
+        int i = 0;
+        while (i < cardinality) {
+            int start = values[i];
+            int end = start;
+            while (++i < cardinality && values[i] == end + 1) {
+                end++;
+            }
+            runs[2 * n] = (char) start;
+            runs[2 * n + 1] = (char) (end - start);
+            n++;
+        }
+        return new RunContainer(runs, n, cardinality);
+    }
+
+    static RunContainer fromWords(long[] words, int runCount, int cardinality) {
+        char[] runs = new char[Math.max(runCount * 2, 2)];
+        int n = 0;
+        int x = 0;
+        int limit = words.length * 64;
+        while (x < limit) {
+            x = nextSetBit(words, x);
+            if (x < 0) {
+                break;
+            }
+            int end = nextClearBit(words, x);
+            runs[2 * n] = (char) x;
+            runs[2 * n + 1] = (char) (end - 1 - x);
+            n++;
+            x = end;
+        }
+        return new RunContainer(runs, n, cardinality);
+    }
+
+    private int start(int run) {
+        return runs[2 * run];
+    }
+
+    private int end(int run) {
+        return runs[2 * run] + runs[2 * run + 1];
+    }
+
+    /** @return the index of the last run starting at or before x, or -1 */
+    private int find(int x) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (start(mid) <= x) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    boolean contains(int x) {
+        int i = find(x);
+        return i >= 0 && x <= end(i);
+    }
+
+    @Override
+    Container add(int x) {
+        int i = find(x);
+        if (i >= 0 && x <= end(i)) {
+            return this;
+        }
+        boolean extendsPrevious = i >= 0 && end(i) + 1 == x;
+        boolean joinsNext = i + 1 < count && start(i + 1) == x + 1;
+        if (extendsPrevious && joinsNext) {
+            runs[2 * i + 1] = (char) (end(i + 1) - start(i));
+            delete(i + 1);
+        } else if (extendsPrevious) {
+            runs[2 * i + 1]++;
+        } else if (joinsNext) {
+            runs[2 * (i + 1)]--;
+            runs[2 * (i + 1) + 1]++;
+        } else {
+            insert(i + 1, x, x);
+        }
+        cardinality++;
+        return shrink();
+    }
+
+    @Override
+    Container remove(int x) {
+        int i = find(x);
+        if (i < 0 || x > end(i)) {
+            return this;
+        }
+        int start = start(i);
+        int end = end(i);
+        if (start == end) {
+            delete(i);
+        } else if (x == start) {
+            runs[2 * i]++;
+            runs[2 * i + 1]--;
+        } else if (x == end) {
+            runs[2 * i + 1]--;
+        } else {
+            runs[2 * i + 1] = (char) (x - 1 - start);
+            insert(i + 1, x + 1, end);
+        }
+        cardinality--;
+        return shrink();
+    }
+
+    private void insert(int run, int start, int end) {
+        if (2 * count + 2 > runs.length) {
+            runs = Arrays.copyOf(runs, Math.max(4, runs.length * 2));
+        }
+        System.arraycopy(runs, 2 * run, runs, 2 * run + 2, 2 * (count - run));
+        runs[2 * run] = (char) start;
+        runs[2 * run + 1] = (char) (end - start);
+        count++;
+    }
+
+    private void delete(int run) {
+        System.arraycopy(runs, 2 * run + 2, runs, 2 * run, 2 * (count - run - 1));
+        count--;
+    }
+
+    /** Switches to an array or bitmap once the runs take more room than either. */
+    private Container shrink() {
+        if (cardinality == 0 || best(cardinality, count) == Kind.RUN) {
+            return this;
+        }
+        return Container.fromWords(toWords());
+    }
+
+    @Override
+    int min() {
+        return start(0);
+    }
+
+    @Override
+    int max() {
+        return end(count - 1);
+    }
+
+    @Override
+    int ceiling(int x) {
+        int i = find(x);
+        if (i >= 0 && x <= end(i)) {
+            return x;
+        }
+        return i + 1 < count ? start(i + 1) : -1;
+    }
+
+    @Override
+    int floor(int x) {
+        int i = find(x);
+        return i < 0 ? -1 : Math.min(x, end(i));
+    }
+
+    @Override
+    int rank(int x) {
+        int i = find(x);
+        if (i < 0) {
+            return 0;
+        }
+        int rank = Math.min(x, end(i)) - start(i) + 1;
+        for (int r = 0; r < i; r++) {
+            rank += runs[2 * r + 1] + 1;
+        }
+        return rank;
+    }
+
+    @Override
+    int toArray(int[] out, int offset, int high) {
+        int n = offset;
+        for (int r = 0; r < count; r++) {
+            for (int x = start(r), end = end(r); x <= end; x++) {
+                out[n++] = high | x;
+            }
+        }
+        return n - offset;
+    }
+
+    @Override
+    long[] toWords() {
+        long[] words = new long[WORDS];
+        for (int r = 0; r < count; r++) {
+            int start = start(r);
+            int end = end(r) + 1; // exclusive
+            int first = start >>> 6;
+            int last = (end - 1) >>> 6;
+            if (first == last) {
+                words[first] |= (-1L >>> (64 - (end - start))) << start;
+                continue;
+            }
+            words[first] |= -1L << start;
+            for (int i = first + 1; i < last; i++) {
+                words[i] = -1L;
+            }
+            words[last] |= -1L >>> -end;
+        }
+        return words;
+    }
+
+    @Override
+    Container copy() {
+        return new RunContainer(Arrays.copyOf(runs, Math.max(2 * count, 2)), count, cardinality);
+    }
+
+    @Override
+    int sizeInBytes() {
+        return runs.length * 2;
+    }
+
+    @Override
+    long sum() {
+        long sum = 0;
+        for (int r = 0; r < count; r++) {
+            long start = start(r);
+            long end = end(r);
+            sum += (start + end) * (end - start + 1) / 2;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,132 @@
+package org.howard.edu.lsp.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic product CSV files shaped like data/products.csv:
+ * CRLF line endings, a mix of whole-line quoted and plain records, a few
+ * dozen categories (including Electronics in different cases), prices that
+ * do and do not land on whole cents, and a small share of malformed rows.
+ * The same seed always produces the same file.
+ */
+public class CsvGenerator {
+    /** Share of rows that the pipelines should skip as malformed. */
+    public static final double DEFAULT_MALFORMED_RATE = 0.02;
+
+    private static final String[] CATEGORIES = buildCategories();
+
+    private final long seed;
+    private final double malformedRate;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed random seed
+     * @param malformedRate share of rows to make malformed, between 0 and 1
+     */
+    public CsvGenerator(long seed, double malformedRate) {
+        this.seed = seed;
+        this.malformedRate = malformedRate;
+    }
+
+    /**
+     * Writes a file with a header and the given number of data rows.
+     *
+     * @param path the file to create or replace
+     * @param rows number of data rows
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path, int rows) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder line = new StringBuilder(64);
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            out.write("\"ProductID,Name,Price,Category\"\r\n");
+            for (int id = 1; id <= rows; id++) {
+                line.setLength(0);
+                appendRow(line, random, id);
+                line.append("\r\n");
+                out.append(line);
+            }
+        }
+    }
+
+    private void appendRow(StringBuilder line, Random random, int id) {
+        String name = "Item" + random.nextInt(1_000_000);
+        String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        String price = price(random);
+
+        if (random.nextDouble() < malformedRate) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    line.append(id).append(',').append(name).append(',').append(price);
+                    return;
+                case 1:
+                    line.append(id).append(',').append(name).append(",n/a,").append(category);
+                    return;
+                default:
+                    line.append(id).append(',').append(name).append(',').append(price)
+                        .append(',').append(category).append(",extra");
+                    return;
+            }
+        }
+
+        int style = random.nextInt(10);
+        if (style < 5) {
+            line.append('"').append(id).append(',').append(name).append(',').append(price)
+                .append(',').append(category).append('"');
+        } else if (style < 9) {
+            line.append(id).append(',').append(name).append(',').append(price).append(',').append(category);
+        } else {
+            line.append('"').append(id).append("\",\"").append(name).append(" \"\"v2\"\", boxed\",")
+                .append(price).append(',').append(category);
+        }
+    }
+
+    private static String price(Random random) {
+        int kind = random.nextInt(10);
+        if (kind < 7) {
+            // whole cents, up to 2000.00
+            long cents = random.nextInt(200_000);
+            return (cents / 100) + "." + (cents % 100 < 10 ? "0" : "") + (cents % 100);
+        }
+        if (kind < 9) {
+            return Integer.toString(random.nextInt(1200));
+        }
+        // more than two decimals, so the double path is exercised too
+        return String.format(Locale.ROOT, "%d.%03d", random.nextInt(1000), random.nextInt(1000));
+    }
+
+    private static String[] buildCategories() {
+        String[] base = {"Electronics", "electronics", "ELECTRONICS", "Education", "Stationery",
+            "Toys", "Home", "Garden", "Sports", "Books", "Music", "Grocery", "Health", "Beauty",
+            "Automotive", "Tools", "Office", "Pets", "Baby", "Jewelry"};
+        String[] all = new String[base.length * 2];
+        for (int i = 0; i < base.length; i++) {
+            all[i] = base[i];
+            all[base.length + i] = base[i] + " & More";
+        }
+        return all;
+    }
+
+    /**
+     * Writes a synthetic file from the command line.
+     *
+     * @param args output path, row count, and optionally a seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CsvGenerator <output.csv> <rows> [seed]");
+            return;
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        new CsvGenerator(seed, DEFAULT_MALFORMED_RATE).write(Paths.get(args[0]), Integer.parseInt(args[1]));
+    }
+}
@@ -0,0 +1,190 @@
+package org.howard.edu.lsp.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.howard.edu.lsp.assignment3.ConcurrentPipeline;
+import org.howard.edu.lsp.assignment3.Extractor;
+import org.howard.edu.lsp.assignment3.Loader;
+import org.howard.edu.lsp.assignment3.Product;
+import org.howard.edu.lsp.assignment3.ProductBatch;
+import org.howard.edu.lsp.assignment3.ProductIterator;
+import org.howard.edu.lsp.assignment3.Transformer;
+
+/**
+ * Benchmarks each stage of the assignment3 pipeline (extract, transform,
+ * load) and the whole pipeline in each of its modes, against the
+ * assignment2 implementation, over synthetic CSV files.
+ * <p>
+ * Options:
+ * <ul>
+ *   <li>{@code --rows=10000,1000000} sizes of the generated inputs
+ *       (10000000 works too, given enough heap for the list-based stages)</li>
+ *   <li>{@code --warmup=N} untimed iterations per benchmark (default 3)</li>
+ *   <li>{@code --iterations=N} timed iterations per benchmark (default 5)</li>
+ *   <li>{@code --threads=N} workers for the parallel and pipelined modes
+ *       (default: one per core)</li>
+ * </ul>
+ * The gzip rows read a gzip copy of the same input (decompressed on a
+ * read-ahead thread) and, for "in+out", also write gzip; compare them with
+ * "a3 extract" and "a3 pipeline streaming" for the cost of compression.
+ * Run with a fixed heap (for example {@code -Xms2g -Xmx2g}) so GC numbers
+ * are comparable between runs.
+ */
+public class EtlBenchmark {
+    private final int warmups;
+    private final int iterations;
+    private final int threads;
+
+    private EtlBenchmark(int warmups, int iterations, int threads) {
+        this.warmups = warmups;
+        this.iterations = iterations;
+        this.threads = threads;
+    }
+
+    /**
+     * Runs the benchmarks and prints one line per benchmark and input size.
+     *
+     * @param args command line options
+     * @throws Exception if a stage fails
+     */
+    public static void main(String[] args) throws Exception {
+        long[] sizes = {10_000, 1_000_000};
+        int warmups = 3;
+        int iterations = 5;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (String arg : args) {
+            if (arg.startsWith("--rows=")) {
+                String[] parts = arg.substring("--rows=".length()).split(",");
+                sizes = new long[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    sizes[i] = Long.parseLong(parts[i].trim());
+                }
+            } else if (arg.startsWith("--warmup=")) {
+                warmups = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else {
+                System.err.println("Error: Unknown option " + arg);
+                return;
+            }
+        }
+
+        Path dir = Files.createTempDirectory("etl-bench");
+        try {
+            EtlBenchmark benchmark = new EtlBenchmark(warmups, iterations, threads);
+            System.out.println(StageBenchmark.header());
+            for (long size : sizes) {
+                benchmark.runAll(dir, (int) size);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private void runAll(Path dir, int size) throws Exception {
+        Path input = dir.resolve("products-" + size + ".csv");
+        Path output = dir.resolve("transformed-" + size + ".csv");
+        new CsvGenerator(size, CsvGenerator.DEFAULT_MALFORMED_RATE).write(input, size);
+        String in = input.toString();
+        String out = output.toString();
+
+        // Extract
+        report("a3 extract", size, true, () -> () -> new Extractor().extract(in));
+        report("a3 extract mmap", size, true, () -> () -> drain(new Extractor().iterateMapped(in)));
+        report("a3 extract parallel", size, false, () -> () -> new Extractor().extractParallel(in, threads));
+
+        // Transform, each iteration on a freshly extracted copy
+        report("a3 transform list", size, true, () -> {
+            List<Product> products = new Extractor().extract(in);
+            return () -> new Transformer().transform(products);
+        });
+        report("a3 transform batch", size, true, () -> {
+            ProductBatch batch = ProductBatch.from(new Extractor().extract(in));
+            return () -> new Transformer().transform(batch);
+        });
+
+        // Load
+        report("a3 load", size, true, () -> {
+            List<Product> products = new Extractor().extract(in);
+            new Transformer().transform(products);
+            return () -> new Loader().load(products, out);
+        });
+
+        // End to end
+        report("a3 pipeline streaming", size, true, () -> () -> {
+            try (ProductIterator products = new Extractor().iterate(in)) {
+                new Loader().load(new Transformer().transform(products), out);
+            }
+        });
+        report("a3 pipeline mmap", size, true, () -> () -> {
+            try (ProductIterator products = new Extractor().iterateMapped(in)) {
+                new Loader().load(new Transformer().transform(products), out);
+            }
+        });
+        report("a3 pipeline parallel", size, false, () -> () -> {
+            List<Product> products = new Extractor().extractParallel(in, threads);
+            new Transformer().transform(products);
+            new Loader().load(products, out);
+        });
+        report("a3 pipeline pipelined", size, false, () -> () ->
+            new ConcurrentPipeline(threads).run(new Extractor().iterate(in), new Transformer(), new Loader(), out));
+
+        // Compressed input and output, against the plain streaming rows above
+        Path gzipInput = dir.resolve("products-" + size + ".csv.gz");
+        try (InputStream from = Files.newInputStream(input);
+             OutputStream to = new GZIPOutputStream(Files.newOutputStream(gzipInput))) {
+            from.transferTo(to);
+        }
+        String gzIn = gzipInput.toString();
+        String gzOut = dir.resolve("transformed-" + size + ".csv.gz").toString();
+        report("a3 extract gzip", size, false, () -> () -> drain(new Extractor().iterate(gzIn)));
+        report("a3 pipeline gzip in", size, false, () -> () -> {
+            try (ProductIterator products = new Extractor().iterate(gzIn)) {
+                new Loader().load(new Transformer().transform(products), out);
+            }
+        });
+        report("a3 pipeline gzip in+out", size, false, () -> () -> {
+            try (ProductIterator products = new Extractor().iterate(gzIn)) {
+                new Loader().load(new Transformer().transform(products), gzOut);
+            }
+        });
+
+        report("a2 pipeline", size, true, () -> () ->
+            org.howard.edu.lsp.assignment2.ETLPipeline.run(in, out));
+    }
+
+    private void report(String name, int rows, boolean singleThreaded, StageBenchmark.Setup setup)
+            throws Exception {
+        System.out.println(new StageBenchmark(name, rows, singleThreaded).run(setup, warmups, iterations));
+    }
+
+    private static void drain(ProductIterator products) throws IOException {
+        try (ProductIterator it = products) {
+            while (it.hasNext()) {
+                it.next();
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(paths::add);
+        }
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+}
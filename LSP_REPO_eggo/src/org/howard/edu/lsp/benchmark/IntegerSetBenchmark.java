@@ -0,0 +1,101 @@
+package org.howard.edu.lsp.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.howard.edu.lsp.assignment6.IntegerSet;
+
+/**
+ * Benchmarks the set operations of the assignment6 {@link IntegerSet} on
+ * large random sets, to show how the parallel operations scale.
+ * <p>
+ * Options:
+ * <ul>
+ *   <li>{@code --size=10000,10000000} members of each operand</li>
+ *   <li>{@code --density=0.25} share of the value range that is in a set;
+ *       higher densities give bitmap chunks, lower ones array chunks</li>
+ *   <li>{@code --warmup=N} untimed iterations per benchmark (default 3)</li>
+ *   <li>{@code --iterations=N} timed iterations per benchmark (default 5)</li>
+ * </ul>
+ * Set operations on sets above the parallel threshold run on the common
+ * fork-join pool, so to measure scaling run this once per pool size, for
+ * example with
+ * {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism=1}, then
+ * 8, 16 and 32, and compare the ms/op columns. Sizes below the threshold
+ * show the sequential cost. Each iteration starts from fresh copies of the
+ * operands; copying is not timed.
+ */
+public class IntegerSetBenchmark {
+    /**
+     * Runs the benchmarks and prints one line per operation and size.
+     *
+     * @param args command line options
+     * @throws Exception if an operation fails
+     */
+    public static void main(String[] args) throws Exception {
+        long[] sizes = {10_000, 10_000_000};
+        double density = 0.25;
+        int warmups = 3;
+        int iterations = 5;
+
+        for (String arg : args) {
+            if (arg.startsWith("--size=")) {
+                String[] parts = arg.substring("--size=".length()).split(",");
+                sizes = new long[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    sizes[i] = Long.parseLong(parts[i].trim());
+                }
+            } else if (arg.startsWith("--density=")) {
+                density = Double.parseDouble(arg.substring("--density=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmups = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else {
+                System.err.println("Error: Unknown option " + arg);
+                return;
+            }
+        }
+
+        System.out.println("common pool parallelism: " + ForkJoinPool.getCommonPoolParallelism());
+        System.out.println(StageBenchmark.header());
+        for (long size : sizes) {
+            IntegerSet a = randomSet(1, (int) size, density);
+            IntegerSet b = randomSet(2, (int) size, density);
+            report("union", size, warmups, iterations, a, b, (x, y) -> x.union(y));
+            report("intersect", size, warmups, iterations, a, b, (x, y) -> x.intersect(y));
+            report("diff", size, warmups, iterations, a, b, (x, y) -> x.diff(y));
+            report("complement", size, warmups, iterations, a, b, (x, y) -> x.complement(y));
+        }
+    }
+
+    /** One set operation, applied to the first operand. */
+    private interface Operation {
+        void apply(IntegerSet target, IntegerSet other);
+    }
+
+    private static void report(String name, long size, int warmups, int iterations,
+            IntegerSet a, IntegerSet b, Operation operation) throws Exception {
+        StageBenchmark benchmark = new StageBenchmark("IntegerSet " + name, size, false);
+        System.out.println(benchmark.run(() -> {
+            IntegerSet target = copyOf(a);
+            return () -> operation.apply(target, b);
+        }, warmups, iterations));
+    }
+
+    private static IntegerSet randomSet(long seed, int size, double density) {
+        Random random = new Random(seed);
+        int range = (int) Math.min(Integer.MAX_VALUE, (long) (size / density));
+        IntegerSet set = new IntegerSet();
+        while (set.length() < size) {
+            set.add(random.nextInt(range));
+        }
+        return set;
+    }
+
+    private static IntegerSet copyOf(IntegerSet set) {
+        IntegerSet copy = new IntegerSet();
+        copy.union(set);
+        return copy;
+    }
+}
@@ -0,0 +1,122 @@
+package org.howard.edu.lsp.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * Minimal timing harness for one benchmark: runs untimed warm-up
+ * iterations, then timed ones, and reports the mean time, throughput in
+ * rows per second, bytes allocated per row and GC activity.
+ * <p>
+ * Allocation is read from the calling thread's allocation counter, so for
+ * stages that do their work on other threads it only covers the part done
+ * by the caller; those results are marked with {@code *}. GC counts and
+ * times cover the whole JVM.
+ */
+public class StageBenchmark {
+    /** Work to time. May throw anything; a failure aborts the benchmark. */
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /** Builds a fresh, untimed input for one iteration and returns the work to time. */
+    public interface Setup {
+        Task prepare() throws Exception;
+    }
+
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    private final String name;
+    private final long rows;
+    private final boolean singleThreaded;
+
+    /**
+     * @param name label printed in the report
+     * @param rows rows processed by one iteration, for the rows/s figure
+     * @param singleThreaded whether all the work runs on the calling thread
+     */
+    public StageBenchmark(String name, long rows, boolean singleThreaded) {
+        this.name = name;
+        this.rows = rows;
+        this.singleThreaded = singleThreaded;
+    }
+
+    /**
+     * Runs the benchmark. Anything printed to System.out meanwhile (such as
+     * skipped-row messages) is discarded.
+     *
+     * @param setup builds the input of each iteration
+     * @param warmups untimed iterations
+     * @param iterations timed iterations
+     * @return one formatted report line
+     * @throws Exception if the stage fails
+     */
+    public String run(Setup setup, int warmups, int iterations) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(DISCARD);
+        try {
+            return measure(setup, warmups, iterations);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private String measure(Setup setup, int warmups, int iterations) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            setup.prepare().run();
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocation = threads instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) threads
+            : null;
+        long nanos = 0;
+        long allocated = 0;
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (int i = 0; i < iterations; i++) {
+            Task task = setup.prepare();
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            long allocatedBefore = allocation != null ? allocation.getCurrentThreadAllocatedBytes() : 0;
+            long start = System.nanoTime();
+            task.run();
+            nanos += System.nanoTime() - start;
+            allocated += allocation != null ? allocation.getCurrentThreadAllocatedBytes() - allocatedBefore : 0;
+            gcCount += gcCount() - gcCountBefore;
+            gcMillis += gcMillis() - gcMillisBefore;
+        }
+
+        double seconds = nanos / 1e9 / iterations;
+        String bytesPerRow = allocation == null ? "n/a"
+            : String.format(Locale.ROOT, "%.1f%s", (double) allocated / iterations / rows, singleThreaded ? "" : "*");
+        return String.format(Locale.ROOT, "%-28s %10d %10.1f %14.0f %12s %6d %8d",
+            name, rows, seconds * 1000, rows / seconds, bytesPerRow, gcCount, gcMillis);
+    }
+
+    /** @return the column headings matching {@link #run}'s report lines */
+    public static String header() {
+        return String.format(Locale.ROOT, "%-28s %10s %10s %14s %12s %6s %8s",
+            "benchmark", "rows", "ms/op", "rows/s", "alloc B/row", "gc", "gc ms");
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,103 @@
+package org.howard.edu.lsp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds that any number of
+ * threads can record into without locking.
+ * <p>
+ * Values below 16 ns get a bucket each; above that every power of two is
+ * split into 8 buckets, so a reported percentile is within 12.5% of the
+ * true value. The whole histogram is under 4 KB no matter how many values
+ * are recorded.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration; negative values count as zero
+     */
+    public void record(long nanos) {
+        long v = Math.max(nanos, 0);
+        counts.incrementAndGet(index(v));
+        count.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /** @return the number of durations recorded */
+    public long getCount() { return count.sum(); }
+    /** @return the total of all durations, in nanoseconds */
+    public long getSum() { return sum.sum(); }
+    /** @return the longest duration, in nanoseconds, or 0 if none */
+    public long getMax() { return max.get(); }
+
+    /** @return the mean duration in nanoseconds, or 0 if none */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * Returns an upper estimate of a percentile: the top of the bucket it
+     * falls in, capped at the largest recorded value.
+     *
+     * @param quantile between 0 and 1, such as 0.99
+     * @return the duration in nanoseconds, or 0 if none were recorded
+     */
+    public long getPercentile(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private static int index(long v) {
+        if (v < LINEAR_LIMIT) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    /** @return the largest value that falls in bucket i */
+    private static long upperBound(int i) {
+        if (i < LINEAR_LIMIT) {
+            return i;
+        }
+        int exponent = (i - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        long sub = (i - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long low = (1L << exponent) + sub * width;
+        return low + (width - 1);
+    }
+}
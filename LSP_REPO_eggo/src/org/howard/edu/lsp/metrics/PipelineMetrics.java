@@ -0,0 +1,396 @@
+package org.howard.edu.lsp.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.howard.edu.lsp.util.AtomicFiles;
+
+/**
+ * Metrics for one pipeline run: per-stage rows, bytes, time and batch
+ * latency ({@link StageMetrics}), named counters, and JVM figures (GC
+ * collections and time, bytes allocated by the pipeline's threads, heap
+ * in use).
+ * <p>
+ * The metrics can be written as JSON or in the Prometheus text format,
+ * at the end of the run and, for long runs, periodically in between. Each
+ * dump replaces the previous file with {@link AtomicFiles#replace}, so a
+ * scraper never sees a half-written file.
+ * <p>
+ * {@link #disabled()} returns an instance that ignores every update. Code
+ * that would add per-row work to collect metrics (such as wrapping
+ * iterators in {@link TimedIterator}) checks {@link #isEnabled()} first,
+ * so a run without metrics pays nothing per row.
+ */
+public final class PipelineMetrics implements Closeable {
+    /** Stage reading and parsing the input. */
+    public static final String EXTRACT = "extract";
+    /** Stage applying the business rules. */
+    public static final String TRANSFORM = "transform";
+    /** Stage encoding and writing the output. */
+    public static final String LOAD = "load";
+
+    private static final PipelineMetrics DISABLED = new PipelineMetrics(false, null);
+
+    private final boolean enabled;
+    private final Path dumpPath;
+    private final Map<String, StageMetrics> stages = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentSkipListMap<>();
+    private final Map<Long, Long> threadStart = new ConcurrentHashMap<>();
+    private final LongAdder finishedThreadBytes = new LongAdder();
+    private final long gcCountStart;
+    private final long gcMillisStart;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private ScheduledExecutorService reporter;
+
+    private PipelineMetrics(boolean enabled, Path dumpPath) {
+        this.enabled = enabled;
+        this.dumpPath = dumpPath;
+        for (String name : new String[] {EXTRACT, TRANSFORM, LOAD}) {
+            stages.put(name, new StageMetrics(name, enabled));
+        }
+        this.gcCountStart = enabled ? gcCount() : 0;
+        this.gcMillisStart = enabled ? gcMillis() : 0;
+    }
+
+    /**
+     * Starts collecting metrics. The calling thread's allocations are
+     * counted from now on.
+     *
+     * @param dumpPath where {@link #dump()} writes; a name ending in
+     *        {@code .prom} gets the Prometheus text format, anything else JSON
+     * @return the metrics
+     */
+    public static PipelineMetrics start(String dumpPath) {
+        PipelineMetrics metrics = new PipelineMetrics(true, dumpPath != null ? Paths.get(dumpPath) : null);
+        metrics.threadStarted();
+        return metrics;
+    }
+
+    /** @return metrics that ignore every update and never write anything */
+    public static PipelineMetrics disabled() {
+        return DISABLED;
+    }
+
+    /** @return whether updates are recorded */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns a stage, creating it the first time it is asked for.
+     *
+     * @param name the stage name, such as {@link #EXTRACT}
+     * @return the stage's metrics
+     */
+    public StageMetrics stage(String name) {
+        synchronized (stages) {
+            return stages.computeIfAbsent(name, n -> new StageMetrics(n, enabled));
+        }
+    }
+
+    /**
+     * Sets a named counter, such as the number of rows read.
+     *
+     * @param name the counter name: lowercase letters, digits and underscores
+     * @param value the value
+     */
+    public void setCounter(String name, long value) {
+        if (enabled) {
+            counters.computeIfAbsent(name, n -> new AtomicLong()).set(value);
+        }
+    }
+
+    /**
+     * Adds to a named counter.
+     *
+     * @param name the counter name: lowercase letters, digits and underscores
+     * @param delta the amount to add
+     */
+    public void addCounter(String name, long delta) {
+        if (enabled) {
+            counters.computeIfAbsent(name, n -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    /**
+     * Counts the calling thread's allocations from now on. Pipeline threads
+     * call this when they start and {@link #threadFinished()} when they end.
+     */
+    public void threadStarted() {
+        if (enabled) {
+            long bytes = currentThreadAllocatedBytes();
+            if (bytes >= 0) {
+                threadStart.put(Thread.currentThread().getId(), bytes);
+            }
+        }
+    }
+
+    /**
+     * Stops counting the calling thread's allocations, keeping what it
+     * allocated since {@link #threadStarted()}.
+     */
+    public void threadFinished() {
+        if (enabled) {
+            Long start = threadStart.remove(Thread.currentThread().getId());
+            if (start != null) {
+                finishedThreadBytes.add(currentThreadAllocatedBytes() - start);
+            }
+        }
+    }
+
+    /** @return bytes allocated by the counted threads since they started */
+    public long getAllocatedBytes() {
+        long total = finishedThreadBytes.sum();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            for (Map.Entry<Long, Long> e : threadStart.entrySet()) {
+                long bytes = allocation.getThreadAllocatedBytes(e.getKey());
+                if (bytes >= 0) {
+                    total += bytes - e.getValue();
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Writes the metrics every {@code intervalMillis} on a background
+     * thread until the metrics are closed.
+     *
+     * @param intervalMillis time between dumps
+     */
+    public synchronized void startReporting(long intervalMillis) {
+        if (!enabled || dumpPath == null || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            try {
+                dump();
+            } catch (IOException e) {
+                System.err.println("Warning: could not write metrics: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks the run as finished, stops periodic reporting and writes the
+     * final metrics. Closing again has no effect.
+     *
+     * @throws IOException if the metrics file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!enabled || endNanos != 0) {
+            return;
+        }
+        synchronized (this) {
+            if (reporter != null) {
+                reporter.shutdownNow();
+                try {
+                    reporter.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        threadFinished();
+        endNanos = System.nanoTime();
+        dump();
+    }
+
+    /** @return seconds since the metrics started, up to the end of the run */
+    public double getElapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1e9;
+    }
+
+    /**
+     * Writes the current metrics to the dump path, if there is one.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void dump() throws IOException {
+        if (!enabled || dumpPath == null) {
+            return;
+        }
+        String text = dumpPath.getFileName().toString().endsWith(".prom") ? toPrometheus() : toJson();
+        Path temp = dumpPath.resolveSibling(dumpPath.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(text);
+        }
+        AtomicFiles.replace(temp, dumpPath);
+    }
+
+    /** @return the metrics as a JSON object */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        sb.append("  \"finished\": ").append(endNanos != 0).append(",\n");
+        sb.append("  \"elapsedSeconds\": ").append(number(getElapsedSeconds())).append(",\n");
+        sb.append("  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, AtomicLong> e : counters.entrySet()) {
+            sb.append(separator).append("    \"").append(e.getKey()).append("\": ").append(e.getValue().get());
+            separator = ",\n";
+        }
+        sb.append(counters.isEmpty() ? "},\n" : "\n  },\n");
+        sb.append("  \"stages\": {");
+        separator = "\n";
+        for (StageMetrics s : stages()) {
+            LatencyHistogram batches = s.getBatchLatency();
+            sb.append(separator).append("    \"").append(s.getName()).append("\": {");
+            sb.append("\"rows\": ").append(s.getRows());
+            sb.append(", \"bytes\": ").append(s.getBytes());
+            sb.append(", \"seconds\": ").append(number(s.getNanos() / 1e9));
+            sb.append(", \"rowsPerSecond\": ").append(number(s.getRowsPerSecond()));
+            sb.append(", \"bytesPerSecond\": ").append(number(s.getBytesPerSecond()));
+            sb.append(", \"batches\": {\"count\": ").append(batches.getCount());
+            sb.append(", \"meanMs\": ").append(number(batches.getMean() / 1e6));
+            sb.append(", \"p50Ms\": ").append(number(batches.getPercentile(0.5) / 1e6));
+            sb.append(", \"p90Ms\": ").append(number(batches.getPercentile(0.9) / 1e6));
+            sb.append(", \"p99Ms\": ").append(number(batches.getPercentile(0.99) / 1e6));
+            sb.append(", \"maxMs\": ").append(number(batches.getMax() / 1e6)).append("}}");
+            separator = ",\n";
+        }
+        sb.append("\n  },\n");
+        sb.append("  \"jvm\": {");
+        sb.append("\"gcCollections\": ").append(gcCount() - gcCountStart);
+        sb.append(", \"gcSeconds\": ").append(number((gcMillis() - gcMillisStart) / 1e3));
+        sb.append(", \"allocatedBytes\": ").append(getAllocatedBytes());
+        sb.append(", \"heapUsedBytes\": ").append(heapUsed()).append("}\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /** @return the metrics in the Prometheus text exposition format */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        gauge(sb, "etl_elapsed_seconds", "Seconds since the run started.", number(getElapsedSeconds()));
+        gauge(sb, "etl_finished", "1 once the run has finished.", endNanos != 0 ? "1" : "0");
+        for (Map.Entry<String, AtomicLong> e : counters.entrySet()) {
+            String name = "etl_" + e.getKey() + "_total";
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            sb.append(name).append(' ').append(e.getValue().get()).append('\n');
+        }
+
+        List<StageMetrics> all = stages();
+        sb.append("# HELP etl_stage_rows_total Rows processed by each stage.\n");
+        sb.append("# TYPE etl_stage_rows_total counter\n");
+        for (StageMetrics s : all) {
+            sb.append("etl_stage_rows_total{stage=\"").append(s.getName()).append("\"} ")
+                .append(s.getRows()).append('\n');
+        }
+        sb.append("# HELP etl_stage_bytes_total Bytes read or written by each stage.\n");
+        sb.append("# TYPE etl_stage_bytes_total counter\n");
+        for (StageMetrics s : all) {
+            sb.append("etl_stage_bytes_total{stage=\"").append(s.getName()).append("\"} ")
+                .append(s.getBytes()).append('\n');
+        }
+        sb.append("# HELP etl_stage_seconds_total Time each stage spent working, summed over threads.\n");
+        sb.append("# TYPE etl_stage_seconds_total counter\n");
+        for (StageMetrics s : all) {
+            sb.append("etl_stage_seconds_total{stage=\"").append(s.getName()).append("\"} ")
+                .append(number(s.getNanos() / 1e9)).append('\n');
+        }
+        sb.append("# HELP etl_stage_batch_seconds Time each stage took per batch.\n");
+        sb.append("# TYPE etl_stage_batch_seconds summary\n");
+        for (StageMetrics s : all) {
+            LatencyHistogram batches = s.getBatchLatency();
+            for (double q : new double[] {0.5, 0.9, 0.99}) {
+                sb.append("etl_stage_batch_seconds{stage=\"").append(s.getName()).append("\",quantile=\"")
+                    .append(q).append("\"} ").append(number(batches.getPercentile(q) / 1e9)).append('\n');
+            }
+            sb.append("etl_stage_batch_seconds_sum{stage=\"").append(s.getName()).append("\"} ")
+                .append(number(batches.getSum() / 1e9)).append('\n');
+            sb.append("etl_stage_batch_seconds_count{stage=\"").append(s.getName()).append("\"} ")
+                .append(batches.getCount()).append('\n');
+        }
+
+        counter(sb, "etl_gc_collections_total", "Garbage collections during the run.",
+            Long.toString(gcCount() - gcCountStart));
+        counter(sb, "etl_gc_seconds_total", "Time spent in garbage collection during the run.",
+            number((gcMillis() - gcMillisStart) / 1e3));
+        counter(sb, "etl_allocated_bytes_total", "Bytes allocated by the pipeline threads.",
+            Long.toString(getAllocatedBytes()));
+        gauge(sb, "etl_heap_used_bytes", "Heap in use.", Long.toString(heapUsed()));
+        return sb.toString();
+    }
+
+    private List<StageMetrics> stages() {
+        synchronized (stages) {
+            return new ArrayList<>(stages.values());
+        }
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, String value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, String value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads instanceof com.sun.management.ThreadMXBean
+            ? ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes()
+            : -1;
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,120 @@
+package org.howard.edu.lsp.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class PipelineMetricsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testHistogramPercentilesAreWithinABucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 10_000; v++) {
+            histogram.record(v * 1000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500.0, histogram.getMean(), 0.001);
+        long p50 = histogram.getPercentile(0.5);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p50 >= 5_000_000 && p50 <= 5_000_000 * 1.125, "p50 " + p50);
+        assertTrue(p99 >= 9_900_000 && p99 <= 10_000_000, "p99 " + p99);
+        assertEquals(10_000_000, histogram.getPercentile(1.0));
+        assertEquals(0, new LatencyHistogram().getPercentile(0.5));
+    }
+
+    @Test
+    public void testTimedIteratorsSplitTimeBetweenStages() {
+        PipelineMetrics metrics = PipelineMetrics.start(null);
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            rows.add(i);
+        }
+        TimedIterator<Integer> extracted = new TimedIterator<>(rows.iterator(),
+            metrics.stage(PipelineMetrics.EXTRACT), null, null, 1000);
+        Iterator<Integer> transformed = new TimedIterator<>(extracted,
+            metrics.stage(PipelineMetrics.TRANSFORM), metrics.stage(PipelineMetrics.LOAD), extracted, 1000);
+        long sum = 0;
+        while (transformed.hasNext()) {
+            sum += transformed.next();
+        }
+        assertEquals(2500L * 2499 / 2, sum);
+
+        for (String name : new String[] {PipelineMetrics.EXTRACT, PipelineMetrics.TRANSFORM, PipelineMetrics.LOAD}) {
+            StageMetrics stage = metrics.stage(name);
+            assertEquals(2500, stage.getRows(), name);
+            assertEquals(3, stage.getBatchLatency().getCount(), name);
+            assertTrue(stage.getNanos() >= 0, name);
+        }
+    }
+
+    @Test
+    public void testDisabledMetricsIgnoreUpdates() throws IOException {
+        PipelineMetrics metrics = PipelineMetrics.disabled();
+        assertFalse(metrics.isEnabled());
+        metrics.stage(PipelineMetrics.LOAD).recordBatch(10, 1000);
+        metrics.stage(PipelineMetrics.LOAD).addBytes(100);
+        metrics.setCounter("rows_read", 10);
+        metrics.close();
+        assertEquals(0, metrics.stage(PipelineMetrics.LOAD).getRows());
+        assertEquals(0, metrics.stage(PipelineMetrics.LOAD).getBatchLatency().getCount());
+        assertFalse(metrics.toJson().contains("rows_read"));
+    }
+
+    @Test
+    public void testTrackedBytesShowBeforeTheRunEnds() throws IOException {
+        Path json = dir.resolve("live.json");
+        PipelineMetrics metrics = PipelineMetrics.start(json.toString());
+        long[] read = {0};
+        metrics.stage(PipelineMetrics.EXTRACT).trackBytes(() -> read[0]);
+        metrics.stage(PipelineMetrics.EXTRACT).addBytes(10);
+        read[0] = 1234;
+        assertEquals(1244, metrics.stage(PipelineMetrics.EXTRACT).getBytes());
+        metrics.dump();
+        assertTrue(Files.readString(json).contains("\"bytes\": 1244"), Files.readString(json));
+        metrics.close();
+
+        PipelineMetrics disabled = PipelineMetrics.disabled();
+        disabled.stage(PipelineMetrics.EXTRACT).trackBytes(() -> 99);
+        assertEquals(0, disabled.stage(PipelineMetrics.EXTRACT).getBytes());
+    }
+
+    @Test
+    public void testDumpWritesJsonAndPrometheus() throws IOException {
+        Path json = dir.resolve("metrics.json");
+        PipelineMetrics metrics = PipelineMetrics.start(json.toString());
+        metrics.stage(PipelineMetrics.EXTRACT).recordBatch(1024, 2_000_000);
+        metrics.stage(PipelineMetrics.EXTRACT).addBytes(4096);
+        metrics.setCounter("rows_read", 1024);
+        metrics.addCounter("rows_skipped", 2);
+        metrics.addCounter("rows_skipped", 3);
+        metrics.close();
+
+        String text = Files.readString(json);
+        assertTrue(text.contains("\"finished\": true"), text);
+        assertTrue(text.contains("\"rows_skipped\": 5"), text);
+        assertTrue(text.contains("\"extract\": {\"rows\": 1024, \"bytes\": 4096, \"seconds\": 0.002000"), text);
+        assertFalse(Files.exists(dir.resolve("metrics.json.tmp")));
+
+        Path prom = dir.resolve("metrics.prom");
+        PipelineMetrics other = PipelineMetrics.start(prom.toString());
+        other.stage(PipelineMetrics.TRANSFORM).recordBatch(10, 1_000_000_000);
+        other.setCounter("rows_read", 10);
+        other.close();
+        String exposition = Files.readString(prom);
+        assertTrue(exposition.contains("etl_rows_read_total 10\n"), exposition);
+        assertTrue(exposition.contains("etl_stage_seconds_total{stage=\"transform\"} 1.000000\n"), exposition);
+        assertTrue(exposition.contains("etl_stage_batch_seconds_count{stage=\"transform\"} 1\n"), exposition);
+    }
+}
@@ -0,0 +1,92 @@
+package org.howard.edu.lsp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters for one pipeline stage: rows, bytes, time spent working, and a
+ * histogram of how long each batch took. Safe to update from several
+ * threads, such as the transform workers of a concurrent pipeline.
+ * <p>
+ * Stages of a disabled {@link PipelineMetrics} ignore every update.
+ */
+public final class StageMetrics {
+    private final String name;
+    private final boolean enabled;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LatencyHistogram batches = new LatencyHistogram();
+    private volatile LongSupplier byteSource;
+
+    StageMetrics(String name, boolean enabled) {
+        this.name = name;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Records one batch of work.
+     *
+     * @param batchRows rows the batch held
+     * @param batchNanos time the stage spent on it
+     */
+    public void recordBatch(long batchRows, long batchNanos) {
+        if (!enabled) {
+            return;
+        }
+        rows.add(batchRows);
+        nanos.add(batchNanos);
+        batches.record(batchNanos);
+    }
+
+    /**
+     * Adds to the bytes this stage read or wrote.
+     *
+     * @param count number of bytes
+     */
+    public void addBytes(long count) {
+        if (enabled) {
+            bytes.add(count);
+        }
+    }
+
+    /**
+     * Counts bytes from a live source, such as how far a reader has got or
+     * how large an output file has grown, on top of {@link #addBytes}.
+     * Periodic dumps then show the bytes so far rather than 0 until the run
+     * ends. The source is read from the reporting thread.
+     *
+     * @param source thread-safe count of bytes so far, or null to stop tracking
+     */
+    public void trackBytes(LongSupplier source) {
+        if (enabled) {
+            byteSource = source;
+        }
+    }
+
+    /** @return the stage name */
+    public String getName() { return name; }
+    /** @return rows processed so far */
+    public long getRows() { return rows.sum(); }
+    /** @return bytes read or written so far */
+    public long getBytes() {
+        LongSupplier source = byteSource;
+        return bytes.sum() + (source != null ? source.getAsLong() : 0);
+    }
+    /** @return time spent working, summed over all threads, in nanoseconds */
+    public long getNanos() { return nanos.sum(); }
+    /** @return the time each batch took */
+    public LatencyHistogram getBatchLatency() { return batches; }
+
+    /** @return rows per second of stage time, or 0 before any work */
+    public double getRowsPerSecond() {
+        long n = getNanos();
+        return n == 0 ? 0 : getRows() * 1e9 / n;
+    }
+
+    /** @return bytes per second of stage time, or 0 before any work */
+    public double getBytesPerSecond() {
+        long n = getNanos();
+        return n == 0 ? 0 : getBytes() * 1e9 / n;
+    }
+}
@@ -0,0 +1,90 @@
+package org.howard.edu.lsp.metrics;
+
+/**
+ * Times the stages of a loop that extracts, transforms and loads each row
+ * itself instead of chaining iterators (for those, see
+ * {@link TimedIterator}).
+ * <p>
+ * The loop calls {@link #lap(int)} after each piece of work on a row: the
+ * time since the previous lap, and one row, go to that stage. A stage that
+ * a row skips (a malformed row is never transformed) simply gets no lap.
+ * Timings are gathered in plain fields and handed to the stages once per
+ * batch of rows; with metrics disabled every call returns at once.
+ * <p>
+ * Not thread-safe; use one per loop.
+ */
+public final class StageTimer {
+    /** Index of the extract stage for {@link #lap(int)}. */
+    public static final int EXTRACT = 0;
+    /** Index of the transform stage for {@link #lap(int)}. */
+    public static final int TRANSFORM = 1;
+    /** Index of the load stage for {@link #lap(int)}. */
+    public static final int LOAD = 2;
+
+    private final boolean enabled;
+    private final StageMetrics[] stages;
+    private final int batchRows;
+    private final long[] nanos = new long[3];
+    private final int[] rows = new int[3];
+    private long last;
+
+    /**
+     * @param metrics where the timings go
+     * @param batchRows rows per recorded batch
+     */
+    public StageTimer(PipelineMetrics metrics, int batchRows) {
+        if (batchRows < 1) {
+            throw new IllegalArgumentException("batchRows must be at least 1: " + batchRows);
+        }
+        this.enabled = metrics.isEnabled();
+        this.stages = new StageMetrics[] {
+            metrics.stage(PipelineMetrics.EXTRACT),
+            metrics.stage(PipelineMetrics.TRANSFORM),
+            metrics.stage(PipelineMetrics.LOAD)
+        };
+        this.batchRows = batchRows;
+        this.last = enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Starts timing afresh, so time spent outside the loop (such as writing
+     * a checkpoint) is not charged to the next lap.
+     */
+    public void restart() {
+        if (enabled) {
+            last = System.nanoTime();
+        }
+    }
+
+    /**
+     * Charges the time since the previous lap, and one row, to a stage.
+     *
+     * @param stage {@link #EXTRACT}, {@link #TRANSFORM} or {@link #LOAD}
+     */
+    public void lap(int stage) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        nanos[stage] += now - last;
+        last = now;
+        if (++rows[stage] == batchRows) {
+            flush(stage);
+        }
+    }
+
+    /** Hands the timings of every unfinished batch to the stages. */
+    public void finish() {
+        for (int stage = 0; stage < rows.length; stage++) {
+            if (rows[stage] > 0) {
+                flush(stage);
+            }
+        }
+    }
+
+    private void flush(int stage) {
+        stages[stage].recordBatch(rows[stage], nanos[stage]);
+        rows[stage] = 0;
+        nanos[stage] = 0;
+    }
+}
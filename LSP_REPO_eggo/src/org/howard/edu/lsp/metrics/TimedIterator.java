@@ -0,0 +1,120 @@
+package org.howard.edu.lsp.metrics;
+
+import java.util.Iterator;
+
+/**
+ * Times a stage of a streaming pipeline, where stages are chained
+ * iterators and every row passes through all of them on one thread.
+ * <p>
+ * Time spent inside {@code hasNext()} and {@code next()} counts towards
+ * this iterator's stage, minus any time spent in a nested timed iterator
+ * that it pulls from. Time between calls, when the caller is working on
+ * the row it got, counts towards the consumer stage. Timings are gathered
+ * in plain fields and handed to the stages once per batch of rows, so the
+ * cost per row is two {@link System#nanoTime()} calls.
+ * <p>
+ * Not thread-safe; use one per streaming pipeline.
+ *
+ * @param <T> the row type
+ */
+public final class TimedIterator<T> implements Iterator<T> {
+    private final Iterator<T> source;
+    private final StageMetrics stage;
+    private final StageMetrics consumer;
+    private final TimedIterator<?> nested;
+    private final int batchRows;
+
+    private long inside;
+    private long outside;
+    private long lastExit;
+    private boolean started;
+    private boolean open;
+    private int rows;
+    private long batchInside;
+    private long batchOutside;
+    private long batchNested;
+
+    /**
+     * @param source the iterator to time
+     * @param stage the stage doing the work inside the source, or null
+     * @param consumer the stage working on each row between calls, or null
+     * @param nested a timed iterator the source pulls from, whose time is
+     *        not counted twice, or null
+     * @param batchRows rows per recorded batch
+     */
+    public TimedIterator(Iterator<T> source, StageMetrics stage, StageMetrics consumer,
+            TimedIterator<?> nested, int batchRows) {
+        if (batchRows < 1) {
+            throw new IllegalArgumentException("batchRows must be at least 1: " + batchRows);
+        }
+        this.source = source;
+        this.stage = stage;
+        this.consumer = consumer;
+        this.nested = nested;
+        this.batchRows = batchRows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        enter();
+        boolean more = source.hasNext();
+        if (!more) {
+            exit();
+            flush();
+        }
+        return more;
+    }
+
+    @Override
+    public T next() {
+        enter();
+        T row = source.next();
+        exit();
+        if (++rows == batchRows) {
+            flush();
+        }
+        return row;
+    }
+
+    /** @return time spent inside this iterator so far, nested stages included */
+    long getInsideNanos() {
+        return inside;
+    }
+
+    private void enter() {
+        if (!open) {
+            long now = System.nanoTime();
+            if (started) {
+                outside += now - lastExit;
+            }
+            started = true;
+            lastExit = now;
+            open = true;
+        }
+    }
+
+    private void exit() {
+        long now = System.nanoTime();
+        inside += now - lastExit;
+        lastExit = now;
+        open = false;
+    }
+
+    /** Hands the current batch's timings to the stages. */
+    private void flush() {
+        if (rows == 0) {
+            return;
+        }
+        long nestedNow = nested != null ? nested.getInsideNanos() : 0;
+        if (stage != null) {
+            stage.recordBatch(rows, (inside - batchInside) - (nestedNow - batchNested));
+        }
+        if (consumer != null) {
+            consumer.recordBatch(rows, outside - batchOutside);
+        }
+        batchInside = inside;
+        batchOutside = outside;
+        batchNested = nestedNow;
+        rows = 0;
+    }
+}
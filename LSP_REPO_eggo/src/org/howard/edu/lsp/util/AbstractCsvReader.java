@@ -0,0 +1,275 @@
+package org.howard.edu.lsp.util;
+
+import java.util.Arrays;
+
+/**
+ * Tokenizing and field parsing shared by {@link CsvTokenizer} and
+ * {@link MappedCsvReader}. A subclass holds the current record in an array
+ * of its own (chars or bytes) and exposes it through {@link #charAt(int)};
+ * this class splits it into fields, kept as offsets into that array, and
+ * parses them without creating Strings.
+ * <p>
+ * Quoting follows RFC 4180: a field that starts with a double quote may
+ * contain commas, and a doubled quote inside it stands for one quote.
+ * Whitespace around a field is ignored, as it was with {@code trim()}.
+ * Numeric fields are parsed straight from the record. Inputs outside the
+ * simple fast path fall back to {@link Integer#parseInt} and
+ * {@link Double#parseDouble}, so results and errors match them exactly.
+ */
+abstract class AbstractCsvReader implements CsvReader {
+    static final int MAX_FAST_DIGITS = 15;
+    /** Largest cent amount returned by centsField; keeps cents / 100.0 exact. */
+    static final long MAX_FAST_CENTS = 999_999_999_999_999L;
+    static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] escaped = new boolean[8];
+    private int count;
+    private String error;
+
+    /**
+     * Returns one character of the record being tokenized. Bytes are
+     * returned unsigned, so UTF-8 continuation bytes never look like ASCII.
+     *
+     * @param index offset into the subclass's current record array
+     * @return the character or byte there
+     */
+    abstract int charAt(int index);
+
+    /**
+     * Creates a String from part of the current record array.
+     *
+     * @param from offset of the first character
+     * @param to offset just past the last character
+     * @param collapseQuotes whether doubled quotes stand for one quote
+     * @return the text
+     */
+    abstract String text(int from, int to, boolean collapseQuotes);
+
+    /**
+     * Splits part of the current record array into fields, replacing the
+     * current fields.
+     *
+     * @param from offset of the first character
+     * @param to offset just past the last character
+     * @return true if the record tokenized cleanly; otherwise
+     *         {@link #error()} says why
+     */
+    final boolean split(int from, int to) {
+        count = 0;
+        error = null;
+        int i = from;
+        while (true) {
+            while (i < to && charAt(i) <= ' ') {
+                i++;
+            }
+            if (i < to && charAt(i) == '"') {
+                int start = ++i;
+                boolean hasEscapes = false;
+                while (true) {
+                    if (i >= to) {
+                        error = "unterminated quoted field";
+                        return false;
+                    }
+                    if (charAt(i) == '"') {
+                        if (i + 1 < to && charAt(i + 1) == '"') {
+                            hasEscapes = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                addField(start, i, hasEscapes);
+                i++;
+                while (i < to && charAt(i) <= ' ') {
+                    i++;
+                }
+                if (i < to && charAt(i) != ',') {
+                    error = "unexpected character after closing quote";
+                    return false;
+                }
+            } else {
+                int start = i;
+                while (i < to && charAt(i) != ',') {
+                    i++;
+                }
+                int end = i;
+                while (end > start && charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                addField(start, end, false);
+            }
+            if (i >= to) {
+                return true;
+            }
+            i++; // skip the comma
+        }
+    }
+
+    private void addField(int start, int end, boolean hasEscapes) {
+        if (count == starts.length) {
+            int n = count * 2;
+            starts = Arrays.copyOf(starts, n);
+            ends = Arrays.copyOf(ends, n);
+            escaped = Arrays.copyOf(escaped, n);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        escaped[count] = hasEscapes;
+        count++;
+    }
+
+    /**
+     * @param from where the record passed to {@link #split} started
+     * @return true if the record just split is a single quoted field, the
+     *         way {@code data/products.csv} is exported, and should be
+     *         decoded and split again
+     */
+    final boolean isWholeRecordQuoted(int from) {
+        return count == 1 && starts[0] > from && charAt(starts[0] - 1) == '"';
+    }
+
+    /** @return offset of a field's first character in the current record array */
+    final int fieldStart(int field) {
+        return starts[field];
+    }
+
+    /** @return offset just past a field's last character */
+    final int fieldEnd(int field) {
+        return ends[field];
+    }
+
+    /** @return true if the field contains doubled quotes */
+    final boolean hasEscapes(int field) {
+        return escaped[field];
+    }
+
+    @Override
+    public String error() {
+        return error;
+    }
+
+    @Override
+    public int fieldCount() {
+        return count;
+    }
+
+    /**
+     * {@inheritDoc} Only this call allocates.
+     */
+    @Override
+    public String field(int field) {
+        return text(starts[field], ends[field], escaped[field]);
+    }
+
+    @Override
+    public int intField(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        if (!escaped[field] && i < end && end - i <= 10) {
+            boolean negative = charAt(i) == '-';
+            if (negative || charAt(i) == '+') {
+                i++;
+            }
+            if (i < end) {
+                long value = 0;
+                while (i < end) {
+                    int d = charAt(i) - '0';
+                    if (d < 0 || d > 9) {
+                        break;
+                    }
+                    value = value * 10 + d;
+                    i++;
+                }
+                if (i == end && value <= (negative ? 1L << 31 : Integer.MAX_VALUE)) {
+                    return (int) (negative ? -value : value);
+                }
+            }
+        }
+        return Integer.parseInt(field(field));
+    }
+
+    /**
+     * {@inheritDoc} Plain decimals with up to 15 digits are converted with a
+     * single exact division, which is correctly rounded.
+     */
+    @Override
+    public double doubleField(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        if (!escaped[field] && i < end) {
+            boolean negative = charAt(i) == '-';
+            if (negative || charAt(i) == '+') {
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = -1;
+            for (; i < end; i++) {
+                int c = charAt(i);
+                if (c >= '0' && c <= '9') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (c == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else {
+                    break;
+                }
+            }
+            if (i == end && digits > 0 && digits <= MAX_FAST_DIGITS) {
+                double value = fractionDigits > 0
+                    ? mantissa / POWERS_OF_TEN[fractionDigits]
+                    : mantissa;
+                return negative ? -value : value;
+            }
+        }
+        return Double.parseDouble(field(field));
+    }
+
+    @Override
+    public long centsField(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        if (escaped[field] || i == end) {
+            return Cents.NONE;
+        }
+        boolean negative = charAt(i) == '-';
+        if (negative || charAt(i) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            int c = charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return Cents.NONE;
+            }
+        }
+        if (digits == 0 || digits > MAX_FAST_DIGITS || fractionDigits > 2 || (negative && mantissa == 0)) {
+            return Cents.NONE; // also leaves -0.0 to doubleField
+        }
+        long cents = fractionDigits == 2 ? mantissa : fractionDigits == 1 ? mantissa * 10 : mantissa * 100;
+        if (cents > MAX_FAST_CENTS) {
+            return Cents.NONE;
+        }
+        return negative ? -cents : cents;
+    }
+}
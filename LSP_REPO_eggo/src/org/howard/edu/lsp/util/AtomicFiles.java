@@ -0,0 +1,34 @@
+package org.howard.edu.lsp.util;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files so that readers see either the old contents or the new,
+ * never a half-written file: the new contents are written to a temporary
+ * file next to the target, which is then renamed over it.
+ */
+public final class AtomicFiles {
+    private AtomicFiles() {
+    }
+
+    /**
+     * Moves a finished file over another. The rename is atomic where the
+     * file system supports it; elsewhere it falls back to a plain replacing
+     * move rather than failing.
+     *
+     * @param from the finished file, normally in the same directory as to
+     * @param to the file to replace
+     * @throws IOException if the file cannot be moved
+     */
+    public static void replace(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
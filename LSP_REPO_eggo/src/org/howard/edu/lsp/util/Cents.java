@@ -0,0 +1,133 @@
+package org.howard.edu.lsp.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point helpers for prices held as a whole number of cents in a
+ * {@code long}.
+ * <p>
+ * The pipelines used to round with
+ * {@code new BigDecimal(value).setScale(2, RoundingMode.HALF_UP)}, which
+ * rounds the exact binary value of a double. Everything here reproduces
+ * that result bit for bit without allocating: discounts on exact cent
+ * amounts are done in integer arithmetic, and the rare exact half-cent
+ * ties (where the binary error of {@code price * factor} decides the
+ * outcome) are settled with a fused multiply-add whose sign is exact.
+ */
+public final class Cents {
+    /** Marker for a price that is not a whole number of cents. */
+    public static final long NONE = Long.MIN_VALUE;
+
+    /** Largest magnitude handled without BigDecimal; keeps cents below 2^52. */
+    private static final double MAX_FAST_VALUE = 1e13;
+    /**
+     * Largest cent amount for the integer discount path. Below it the
+     * rounding error of the double computation is far smaller than the gap
+     * between a non-tie result and the rounding boundary.
+     */
+    private static final long MAX_EXACT_CENTS = 100_000_000_000L;
+
+    private Cents() {
+    }
+
+    /**
+     * Returns the cent amount a double stands for, if it is the closest
+     * double to a whole number of cents.
+     *
+     * @param value a price
+     * @return the price in cents, or {@link #NONE} if it is not an exact
+     *         cent amount (or is negative zero, NaN or out of range)
+     */
+    public static long of(double value) {
+        if (!(Math.abs(value) < MAX_FAST_VALUE) || Double.doubleToRawLongBits(value) == Long.MIN_VALUE) {
+            return NONE;
+        }
+        long cents = Math.round(value * 100);
+        return cents / 100.0 == value ? cents : NONE;
+    }
+
+    /**
+     * Converts cents to the closest double, which is exactly what
+     * {@code Double.parseDouble} returns for the same decimal text.
+     *
+     * @param cents a cent amount (not {@link #NONE})
+     * @return the price as a double
+     */
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Rounds a double to two decimals, half up, with the same result as
+     * {@code new BigDecimal(value).setScale(2, HALF_UP).doubleValue()}.
+     *
+     * @param value the value to round
+     * @return the rounded value
+     * @throws NumberFormatException if value is NaN or infinite, as BigDecimal does
+     */
+    public static double round(double value) {
+        if (!(Math.abs(value) < MAX_FAST_VALUE)) {
+            return new BigDecimal(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+        }
+        return toDouble(roundHalfUp(value));
+    }
+
+    /**
+     * Rounds the exact binary value of a double to cents, half up, with the
+     * same result as {@code new BigDecimal(value).setScale(2, HALF_UP)}.
+     *
+     * @param value the value to round
+     * @return the rounded amount in cents
+     * @throws NumberFormatException if value is NaN or infinite, as BigDecimal does
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public static long roundHalfUp(double value) {
+        if (!(Math.abs(value) < MAX_FAST_VALUE)) {
+            return new BigDecimal(value).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+        // Find c = floor(100 * value) exactly; fma gives the exact sign of 100 * value - c.
+        long c = (long) Math.floor(value * 100);
+        while (Math.fma(value, 100, -c) < 0) {
+            c--;
+        }
+        while (Math.fma(value, 100, -(c + 1)) >= 0) {
+            c++;
+        }
+        double aboveHalf = Math.fma(value, 100, -(c + 0.5));
+        // HALF_UP rounds ties away from zero.
+        if (value >= 0) {
+            return aboveHalf >= 0 ? c + 1 : c;
+        }
+        return aboveHalf > 0 ? c + 1 : c;
+    }
+
+    /**
+     * Multiplies a cent amount by {@code numerator / denominator} and rounds
+     * to cents, with the same result as
+     * {@code roundHalfUp(toDouble(cents) * factor)} where factor is the
+     * double closest to the fraction (for a 10% discount: 9, 10 and 0.9).
+     * Non-tie results come from integer arithmetic alone.
+     *
+     * @param cents the amount in cents
+     * @param numerator numerator of the multiplier
+     * @param denominator denominator of the multiplier, at most 10000
+     * @param factor the double the old code multiplied by
+     * @return the scaled amount in cents
+     */
+    public static long scale(long cents, int numerator, int denominator, double factor) {
+        if (Math.abs(cents) <= MAX_EXACT_CENTS) {
+            long q = cents * numerator;
+            long base = Math.floorDiv(q, denominator);
+            long twiceRemainder = 2 * Math.floorMod(q, denominator);
+            if (twiceRemainder > denominator) {
+                return base + 1;
+            }
+            if (twiceRemainder < denominator) {
+                return base;
+            }
+        }
+        // An exact half-cent tie, or too large to reason about cheaply.
+        return roundHalfUp(toDouble(cents) * factor);
+    }
+}
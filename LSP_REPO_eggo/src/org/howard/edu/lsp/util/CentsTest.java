@@ -0,0 +1,72 @@
+package org.howard.edu.lsp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+public class CentsTest {
+    private static final int SAMPLES = 1_000_000;
+
+    private static double reference(double value) {
+        return new BigDecimal(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    @Test
+    public void testOfAcceptsOnlyExactCents() {
+        assertEquals(1299, Cents.of(12.99));
+        assertEquals(-5, Cents.of(-0.05));
+        assertEquals(0, Cents.of(0.0));
+        assertEquals(Cents.NONE, Cents.of(-0.0));
+        assertEquals(Cents.NONE, Cents.of(12.345));
+        assertEquals(Cents.NONE, Cents.of(Double.NaN));
+        assertEquals(Cents.NONE, Cents.of(Double.POSITIVE_INFINITY));
+        assertEquals(Cents.NONE, Cents.of(1e13));
+    }
+
+    @Test
+    public void testRoundMatchesBigDecimal() {
+        Random random = new Random(8);
+        double[] fixed = {0.005, 0.015, 1.005, 2.675, -2.675, 999.995, 0.125, -0.125,
+            1e-300, -1e-300, 123456789.125, 9.999999999999e12, 1e13, 1e15};
+        for (double v : fixed) {
+            assertEquals(reference(v), Cents.round(v), Double.toString(v));
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            double v = (random.nextDouble() - 0.25) * Math.pow(10, random.nextInt(10));
+            assertEquals(reference(v), Cents.round(v), Double.toString(v));
+        }
+    }
+
+    @Test
+    public void testRoundOfHalfCentsMatchesBigDecimal() {
+        Random random = new Random(80);
+        for (int i = 0; i < SAMPLES; i++) {
+            // x.xx5 prices are where the binary representation decides the tie.
+            long tenths = random.nextInt(100_000_000) * 10L + 5;
+            double v = tenths / 1000.0;
+            assertEquals(reference(v), Cents.round(v), Double.toString(v));
+        }
+    }
+
+    @Test
+    public void testScaleMatchesDoubleDiscount() {
+        Random random = new Random(800);
+        for (int i = 0; i < SAMPLES; i++) {
+            long cents = random.nextInt(4) == 0
+                ? random.nextInt(10_000) * 10L + 5  // discount lands on a half cent
+                : random.nextLong() % 1_000_000_000_000L;
+            double expected = reference(Cents.toDouble(cents) * 0.9);
+            assertEquals(expected, Cents.toDouble(Cents.scale(cents, 9, 10, 0.9)), Long.toString(cents));
+        }
+    }
+
+    @Test
+    public void testNonFiniteValuesFailLikeBigDecimal() {
+        assertThrows(NumberFormatException.class, () -> Cents.round(Double.NaN));
+        assertThrows(NumberFormatException.class, () -> Cents.roundHalfUp(Double.POSITIVE_INFINITY));
+    }
+}
@@ -0,0 +1,96 @@
+package org.howard.edu.lsp.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opens pipeline input and output files, compressing or decompressing them
+ * on the fly when the file name ends in {@code .gz}.
+ * <p>
+ * A gzip input is inflated on a background thread a few chunks ahead of
+ * the reader (see {@link ReadAheadInputStream}), so decompression overlaps
+ * with tokenizing instead of adding to it. A gzip output is deflated as it
+ * is written. Other files are opened as they are.
+ */
+public final class Compression {
+    /** File name suffix of gzip files. */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private Compression() {
+    }
+
+    /**
+     * @param path a file name
+     * @return whether the file is read and written as gzip
+     */
+    public static boolean isCompressed(Path path) {
+        Path name = path.getFileName();
+        return name != null && name.toString().toLowerCase(Locale.ROOT).endsWith(GZIP_SUFFIX);
+    }
+
+    /**
+     * Opens a file for reading, decompressing it ahead of the caller if it
+     * is gzip.
+     *
+     * @param path the file
+     * @return the file's (uncompressed) bytes
+     * @throws IOException if the file cannot be opened or is not valid gzip
+     */
+    public static InputStream newInputStream(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        if (!isCompressed(path)) {
+            return in;
+        }
+        try {
+            return new ReadAheadInputStream(new GZIPInputStream(in, BUFFER_BYTES),
+                "gunzip-" + path.getFileName());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates or truncates a file for writing, compressing it if it is gzip.
+     *
+     * @param path the file
+     * @return a channel for the file's (uncompressed) bytes
+     * @throws IOException if the file cannot be created
+     */
+    public static WritableByteChannel newOutputChannel(Path path) throws IOException {
+        if (isCompressed(path)) {
+            return gzip(Files.newOutputStream(path));
+        }
+        return FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Wraps a stream in a gzip compressor. Closing the channel finishes the
+     * gzip data and closes the stream.
+     *
+     * @param out where the compressed bytes go
+     * @return a channel for the uncompressed bytes
+     * @throws IOException if the gzip header cannot be written
+     */
+    public static WritableByteChannel gzip(OutputStream out) throws IOException {
+        try {
+            return Channels.newChannel(new GZIPOutputStream(out, BUFFER_BYTES));
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.howard.edu.lsp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] sample(int size) {
+        byte[] data = new byte[size];
+        Random random = new Random(17);
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + random.nextInt(4));
+        }
+        return data;
+    }
+
+    private Path gzip(String name, byte[] data) throws IOException {
+        Path path = dir.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            out.write(data);
+        }
+        return path;
+    }
+
+    private static byte[] readAll(InputStream in, int readSize) throws IOException {
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        byte[] buf = new byte[readSize];
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+            all.write(buf, 0, n);
+        }
+        return all.toByteArray();
+    }
+
+    @Test
+    public void testDetectsGzipByExtension() {
+        assertTrue(Compression.isCompressed(Path.of("data/products.csv.gz")));
+        assertTrue(Compression.isCompressed(Path.of("PRODUCTS.CSV.GZ")));
+        assertFalse(Compression.isCompressed(Path.of("data/products.csv")));
+        assertFalse(Compression.isCompressed(Path.of("data.gz/products.csv")));
+    }
+
+    @Test
+    public void testReadAheadReturnsEveryByte() throws IOException {
+        for (int size : new int[] {0, 1, ReadAheadInputStream.CHUNK_BYTES,
+                ReadAheadInputStream.CHUNK_BYTES * (ReadAheadInputStream.CHUNKS_AHEAD + 3) + 7}) {
+            byte[] data = sample(size);
+            Path path = gzip("sample-" + size + ".gz", data);
+            try (InputStream in = Compression.newInputStream(path)) {
+                assertArrayEquals(data, readAll(in, 1000), "size " + size);
+                assertEquals(-1, in.read());
+            }
+            try (InputStream in = Compression.newInputStream(path)) {
+                for (int i = 0; i < Math.min(size, 5000); i++) {
+                    assertEquals(data[i] & 0xFF, in.read());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPlainFilesAreNotDecompressed() throws IOException {
+        Path path = dir.resolve("plain.csv");
+        Files.write(path, new byte[] {1, 2, 3});
+        try (InputStream in = Compression.newInputStream(path)) {
+            assertArrayEquals(new byte[] {1, 2, 3}, readAll(in, 10));
+        }
+    }
+
+    @Test
+    public void testTruncatedInputFailsAfterTheGoodBytes() throws IOException {
+        byte[] data = sample(1 << 20);
+        Path whole = gzip("whole.gz", data);
+        byte[] compressed = Files.readAllBytes(whole);
+        Path truncated = dir.resolve("truncated.gz");
+        Files.write(truncated, Arrays.copyOf(compressed, compressed.length / 2));
+
+        try (InputStream in = Compression.newInputStream(truncated)) {
+            byte[] first = new byte[1000];
+            assertEquals(1000, in.readNBytes(first, 0, 1000));
+            assertArrayEquals(Arrays.copyOf(data, 1000), first);
+            assertThrows(IOException.class, () -> readAll(in, 1 << 16));
+        }
+    }
+
+    @Test
+    public void testCloseStopsReadingEarly() throws IOException {
+        Path path = gzip("large.gz", sample(8 << 20));
+        InputStream in = Compression.newInputStream(path);
+        assertTrue(in.read() >= 0);
+        in.close();
+        assertThrows(IOException.class, () -> in.read());
+    }
+
+    @Test
+    public void testOutputChannelCompressesByExtension() throws IOException {
+        byte[] data = sample(300_000);
+        Path gz = dir.resolve("out.csv.gz");
+        Path plain = dir.resolve("out.csv");
+        for (Path path : new Path[] {gz, plain}) {
+            try (WritableByteChannel out = Compression.newOutputChannel(path)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+        assertArrayEquals(data, Files.readAllBytes(plain));
+        assertTrue(Files.size(gz) < data.length / 2);
+        try (InputStream in = Compression.newInputStream(gz)) {
+            assertArrayEquals(data, readAll(in, 4096));
+        }
+    }
+}
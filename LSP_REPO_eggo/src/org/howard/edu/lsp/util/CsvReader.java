@@ -0,0 +1,74 @@
+package org.howard.edu.lsp.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads CSV records one at a time and exposes the current record's fields.
+ * Implemented by the char-based {@link CsvTokenizer} and the byte-based
+ * {@link MappedCsvReader} so row conversion code can work with either.
+ */
+public interface CsvReader extends Closeable {
+    /**
+     * Reads and tokenizes the next line. Line terminators are the same as for
+     * {@link java.io.BufferedReader#readLine()}.
+     *
+     * @return false at end of input, true if a record was read (check
+     *         {@link #error()} to see whether it tokenized cleanly)
+     * @throws IOException if the input cannot be read
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the reason the current record failed to tokenize, or null
+     */
+    String error();
+
+    /**
+     * @return the number of fields in the current record
+     */
+    int fieldCount();
+
+    /**
+     * @return the raw text of the current record, for error messages
+     */
+    String line();
+
+    /**
+     * Returns a field as a String.
+     *
+     * @param field zero-based field index
+     * @return the field text with quoting removed
+     */
+    String field(int field);
+
+    /**
+     * Parses a field as an int, with the same results as
+     * {@link Integer#parseInt(String)}.
+     *
+     * @param field zero-based field index
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    int intField(int field);
+
+    /**
+     * Parses a field as a double, with the same results as
+     * {@link Double#parseDouble(String)}.
+     *
+     * @param field zero-based field index
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not a valid double
+     */
+    double doubleField(int field);
+
+    /**
+     * Parses a field written as a plain decimal with at most two fraction
+     * digits directly into cents, without going through a double.
+     *
+     * @param field zero-based field index
+     * @return the amount in cents, or {@link Cents#NONE} if the field is not
+     *         in that form (use {@link #doubleField(int)} for those)
+     */
+    long centsField(int field);
+}
@@ -0,0 +1,209 @@
+package org.howard.edu.lsp.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Hand-written CSV tokenizer that reads records into a reusable char buffer
+ * and exposes the fields as offsets into it, so no String is created for a
+ * field unless the caller asks for one. Quoting and field parsing are
+ * described in {@code AbstractCsvReader}.
+ * <p>
+ * A record whose entire text is one quoted field (the way
+ * {@code data/products.csv} is exported) is unwrapped and tokenized again.
+ * Each line is one record; quoted fields may not span lines.
+ */
+public class CsvTokenizer extends AbstractCsvReader {
+
+    private final Reader in;
+    private final char[] input = new char[8192];
+    private int inputPos;
+    private int inputLimit;
+    private boolean skipLF;
+
+    private char[] line = new char[256];
+    private int lineLength;
+    private char[] unwrapped = new char[256];
+
+    private char[] src;
+
+    /**
+     * Creates a tokenizer over a character stream. The tokenizer does its own
+     * buffering, so the reader does not need to be buffered.
+     *
+     * @param in the CSV text
+     */
+    public CsvTokenizer(Reader in) {
+        this.in = in;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        lineLength = 0;
+        boolean any = false;
+        while (true) {
+            if (inputPos >= inputLimit) {
+                inputLimit = in.read(input, 0, input.length);
+                inputPos = 0;
+                if (inputLimit <= 0) {
+                    inputLimit = 0;
+                    if (!any) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+            if (skipLF) {
+                skipLF = false;
+                if (input[inputPos] == '\n') {
+                    inputPos++;
+                    continue;
+                }
+            }
+            any = true;
+            int start = inputPos;
+            int i = start;
+            while (i < inputLimit && input[i] != '\n' && input[i] != '\r') {
+                i++;
+            }
+            append(input, start, i - start);
+            inputPos = i;
+            if (i < inputLimit) {
+                skipLF = input[i] == '\r';
+                inputPos++;
+                break;
+            }
+        }
+        tokenize(line, 0, lineLength);
+        return true;
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException if the reader cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Tokenizes one record held in the given array, replacing the current
+     * record. The array is referenced, not copied, until the next call.
+     *
+     * @param buf the characters of the record, without a line terminator
+     * @param off offset of the first character
+     * @param len number of characters
+     * @return true if the record tokenized cleanly
+     */
+    public boolean tokenize(char[] buf, int off, int len) {
+        if (buf != line) {
+            lineLength = 0;
+            append(buf, off, len);
+            buf = line;
+            off = 0;
+        }
+        src = buf;
+        if (!split(off, off + len)) {
+            return false;
+        }
+        if (isWholeRecordQuoted(off)) {
+            // The whole record is quoted: decode it and split the contents.
+            int n = decode(0, unwrapped);
+            if (n > unwrapped.length) {
+                unwrapped = new char[Math.max(n, unwrapped.length * 2)];
+                decode(0, unwrapped);
+            }
+            src = unwrapped;
+            return split(0, n);
+        }
+        return true;
+    }
+
+    private void append(char[] buf, int off, int len) {
+        if (lineLength + len > line.length) {
+            char[] bigger = new char[Math.max(lineLength + len, line.length * 2)];
+            System.arraycopy(line, 0, bigger, 0, lineLength);
+            line = bigger;
+        }
+        System.arraycopy(buf, off, line, lineLength, len);
+        lineLength += len;
+    }
+
+    /**
+     * Copies a field with doubled quotes collapsed into the destination.
+     *
+     * @return the decoded length; nothing is copied if it exceeds dest
+     */
+    private int decode(int field, char[] dest) {
+        int start = fieldStart(field);
+        int end = fieldEnd(field);
+        if (!hasEscapes(field)) {
+            int n = end - start;
+            if (n <= dest.length) {
+                System.arraycopy(src, start, dest, 0, n);
+            }
+            return n;
+        }
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            if (n < dest.length) {
+                dest[n] = src[i];
+            }
+            n++;
+            if (src[i] == '"') {
+                i++; // skip the second quote of the pair
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public String line() {
+        return new String(line, 0, lineLength);
+    }
+
+    /**
+     * Returns a 64-bit hash of the raw text of the current record, without
+     * allocating. Records with the same text always hash the same, so the
+     * hash can be stored to recognise unchanged records in a later run.
+     *
+     * @return the hash of the current record's text
+     */
+    public long lineHash() {
+        // FNV-1a over the chars, then a final avalanche so nearby lines spread out
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < lineLength; i++) {
+            h ^= line[i];
+            h *= 0x100000001b3L;
+        }
+        h ^= lineLength;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    int charAt(int index) {
+        return src[index];
+    }
+
+    @Override
+    String text(int from, int to, boolean collapseQuotes) {
+        if (!collapseQuotes) {
+            return new String(src, from, to - from);
+        }
+        StringBuilder sb = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            sb.append(src[i]);
+            if (src[i] == '"') {
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+}
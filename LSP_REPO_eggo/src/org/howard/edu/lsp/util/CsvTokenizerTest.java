@@ -0,0 +1,108 @@
+package org.howard.edu.lsp.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class CsvTokenizerTest {
+
+    private static CsvTokenizer tokenize(String text) throws IOException {
+        CsvTokenizer csv = new CsvTokenizer(new StringReader(text));
+        assertTrue(csv.next());
+        return csv;
+    }
+
+    @Test
+    public void testPlainFieldsAreTrimmed() throws IOException {
+        CsvTokenizer csv = tokenize(" 1 , Book ,12.99,Education ");
+        assertNull(csv.error());
+        assertEquals(4, csv.fieldCount());
+        assertEquals(1, csv.intField(0));
+        assertEquals("Book", csv.field(1));
+        assertEquals(12.99, csv.doubleField(2));
+        assertEquals("Education", csv.field(3));
+    }
+
+    @Test
+    public void testQuotedFieldsWithCommasAndEscapedQuotes() throws IOException {
+        CsvTokenizer csv = tokenize("5,\"Pen, \"\"blue\"\"\",1.00,Stationery");
+        assertEquals(4, csv.fieldCount());
+        assertEquals("Pen, \"blue\"", csv.field(1));
+        assertEquals(1.0, csv.doubleField(2));
+    }
+
+    @Test
+    public void testWholeRecordQuotedIsUnwrapped() throws IOException {
+        CsvTokenizer csv = tokenize("\"2,Laptop,999.99,Electronics\"");
+        assertEquals(4, csv.fieldCount());
+        assertEquals(2, csv.intField(0));
+        assertEquals("Laptop", csv.field(1));
+        assertEquals("Electronics", csv.field(3));
+    }
+
+    @Test
+    public void testLineTerminators() throws IOException {
+        CsvTokenizer csv = new CsvTokenizer(new StringReader("a\r\nb\rc\n\nd"));
+        String[] expected = {"a", "b", "c", "", "d"};
+        for (String e : expected) {
+            assertTrue(csv.next());
+            assertEquals(e, csv.line());
+        }
+        assertFalse(csv.next());
+    }
+
+    @Test
+    public void testMalformedQuoting() throws IOException {
+        assertNotNull(tokenize("1,\"Book,2.00,X").error());
+        assertNotNull(tokenize("1,\"Book\"x,2.00,X").error());
+    }
+
+    @Test
+    public void testNumbersMatchJdkParsing() throws IOException {
+        String[] values = {"0", "-0", "+7", "2147483647", "-2147483648", "2147483648",
+            "12.345", ".5", "5.", "1e3", "NaN", "0.1000000000000000055511151231257827",
+            "123456789012345678", "abc", "-", "1.2.3"};
+        for (String v : values) {
+            CsvTokenizer csv = tokenize(v);
+            assertEquals(parseDoubleOrNull(v), parseOrNull(() -> csv.doubleField(0)), v);
+            assertEquals(parseIntOrNull(v), parseOrNull(() -> csv.intField(0)), v);
+        }
+    }
+
+    @Test
+    public void testCentsFieldAgreesWithDoubleField() throws IOException {
+        String[] values = {"12.99", "0.5", "-3", "+7.10", "999999999999.99", ".25", "5.",
+            "-0", "-0.00", "1.005", "1e3", "12,99", "NaN", "", "9999999999999.99"};
+        long[] expected = {1299, 50, -300, 710, 99999999999999L, 25, 500,
+            Cents.NONE, Cents.NONE, Cents.NONE, Cents.NONE, Cents.NONE, Cents.NONE, Cents.NONE,
+            999999999999999L};
+        for (int i = 0; i < values.length; i++) {
+            CsvTokenizer csv = new CsvTokenizer(new StringReader("\"" + values[i] + "\",x"));
+            assertTrue(csv.next());
+            long cents = csv.centsField(0);
+            assertEquals(expected[i], cents, values[i]);
+            if (cents != Cents.NONE) {
+                assertEquals(csv.doubleField(0), Cents.toDouble(cents), values[i]);
+            }
+        }
+    }
+
+    private static Object parseOrNull(java.util.function.Supplier<Object> parser) {
+        try {
+            return parser.get();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Object parseDoubleOrNull(String v) {
+        return parseOrNull(() -> Double.parseDouble(v));
+    }
+
+    private static Object parseIntOrNull(String v) {
+        return parseOrNull(() -> Integer.parseInt(v));
+    }
+}
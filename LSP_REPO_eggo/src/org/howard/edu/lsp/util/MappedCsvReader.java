@@ -0,0 +1,255 @@
+package org.howard.edu.lsp.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV reader that memory-maps the input file and works on the mapped bytes
+ * without decoding the file to chars first. Record boundaries are found in
+ * the mapping itself; each record's bytes are then copied once into a
+ * reusable array (a bulk copy is much cheaper than per-byte buffer access)
+ * and tokenized there. Strings are only created for fields the caller asks
+ * for with {@link #field(int)}.
+ * <p>
+ * The file is mapped in windows of a fixed size, so inputs larger than
+ * 2 GB are supported; a record that crosses the end of a window is read by
+ * mapping the next window from the start of that record. Records must be
+ * shorter than the window. Tokenizing is shared with {@link CsvTokenizer}
+ * through {@code AbstractCsvReader}. Text is decoded as UTF-8 (ASCII is
+ * copied directly).
+ */
+public class MappedCsvReader extends AbstractCsvReader {
+    /** Default size of each mapped window. */
+    public static final long DEFAULT_WINDOW_BYTES = 256L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowBytes;
+    private MappedByteBuffer window;
+    private final ByteBuffer peek = ByteBuffer.allocate(1);
+    private long windowStart;
+    private long position;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private byte[] unwrapped = new byte[256];
+    private byte[] scratch = new byte[256];
+
+    private byte[] src;
+
+    /**
+     * Opens a file for mapped reading with the default window size.
+     *
+     * @param path the CSV file
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedCsvReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_BYTES);
+    }
+
+    /**
+     * Opens a file for mapped reading.
+     *
+     * @param path the CSV file
+     * @param windowBytes how much of the file to map at a time
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedCsvReader(Path path, long windowBytes) throws IOException {
+        if (windowBytes < 1 || windowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("window size out of range: " + windowBytes);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IOException if a record does not fit in one window
+     */
+    @Override
+    public boolean next() throws IOException {
+        if (position >= size) {
+            return false;
+        }
+        if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+            map(position);
+        }
+        if (!findLine()) {
+            map(position);
+            if (!findLine()) {
+                throw new IOException("Record at offset " + position
+                    + " is longer than the mapping window of " + windowBytes + " bytes");
+            }
+        }
+        src = line;
+        split(0, lineLength);
+        if (isWholeRecordQuoted(0)) {
+            // The whole record is quoted: decode it and split the contents.
+            int n = decode(0);
+            src = unwrapped;
+            split(0, n);
+        }
+        return true;
+    }
+
+    /**
+     * @return the file offset just past the current record
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Moves to a file offset, which must be the start of a record, such as
+     * an earlier {@link #position()}. The next call to {@link #next()} reads
+     * the record there.
+     *
+     * @param offset the file offset
+     */
+    public void seek(long offset) {
+        if (offset < 0 || offset > size) {
+            throw new IllegalArgumentException("offset out of range: " + offset);
+        }
+        position = offset;
+    }
+
+    private void map(long start) throws IOException {
+        long length = Math.min(windowBytes, size - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        windowStart = start;
+    }
+
+    /**
+     * Locates the line at the current position inside the window and moves
+     * the position past its terminator.
+     *
+     * @return false if the line (with its terminator) runs past the window
+     * @throws IOException if the byte after the window cannot be read
+     */
+    private boolean findLine() throws IOException {
+        MappedByteBuffer window = this.window;
+        int limit = window.limit();
+        boolean atEof = windowStart + limit == size;
+        int start = (int) (position - windowStart);
+        int i = start;
+        while (i < limit) {
+            byte b = window.get(i);
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            i++;
+        }
+        int next;
+        if (i == limit) {
+            if (!atEof) {
+                return false;
+            }
+            next = i;
+        } else if (window.get(i) == '\r') {
+            if (i + 1 == limit && !atEof) {
+                if (start > 0) {
+                    return false; // the \n may be in the next window
+                }
+                // The record fills the window; look past it for the \n.
+                next = byteAfterWindow() == '\n' ? i + 2 : i + 1;
+            } else {
+                next = (i + 1 < limit && window.get(i + 1) == '\n') ? i + 2 : i + 1;
+            }
+        } else {
+            next = i + 1;
+        }
+        lineLength = i - start;
+        if (line.length < lineLength) {
+            line = new byte[Math.max(lineLength, line.length * 2)];
+        }
+        window.get(start, line, 0, lineLength);
+        position = windowStart + next;
+        return true;
+    }
+
+    private int byteAfterWindow() throws IOException {
+        peek.clear();
+        if (channel.read(peek, windowStart + window.limit()) < 1) {
+            return -1;
+        }
+        return peek.get(0);
+    }
+
+    /**
+     * Copies a field into the unwrap buffer with doubled quotes collapsed.
+     *
+     * @return the decoded length
+     */
+    private int decode(int field) {
+        int start = fieldStart(field);
+        int end = fieldEnd(field);
+        boolean escaped = hasEscapes(field);
+        if (unwrapped.length < end - start) {
+            unwrapped = new byte[Math.max(end - start, unwrapped.length * 2)];
+        }
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            byte b = src[i];
+            unwrapped[n++] = b;
+            if (b == '"' && escaped) {
+                i++; // skip the second quote of the pair
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public String line() {
+        return text(line, 0, lineLength, false);
+    }
+
+    @Override
+    int charAt(int index) {
+        return src[index] & 0xff;
+    }
+
+    @Override
+    String text(int from, int to, boolean collapseQuotes) {
+        return text(src, from, to, collapseQuotes);
+    }
+
+    /**
+     * Decodes bytes, collapsing doubled quotes if asked to. ASCII text is
+     * copied without a decoder.
+     */
+    private String text(byte[] buf, int from, int to, boolean collapseQuotes) {
+        if (collapseQuotes) {
+            if (scratch.length < to - from) {
+                scratch = new byte[Math.max(to - from, scratch.length * 2)];
+            }
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                scratch[n++] = buf[i];
+                if (buf[i] == '"') {
+                    i++;
+                }
+            }
+            buf = scratch;
+            from = 0;
+            to = n;
+        }
+        boolean ascii = true;
+        for (int i = from; i < to && ascii; i++) {
+            ascii = buf[i] >= 0;
+        }
+        return new String(buf, from, to - from, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,187 @@
+package org.howard.edu.lsp.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class MappedCsvReaderTest {
+    /** Small enough that most test files span many windows. */
+    private static final long WINDOW = 64;
+
+    @TempDir
+    Path dir;
+
+    private Path write(String text) throws IOException {
+        Path file = dir.resolve("input.csv");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Reads the text with both readers and checks that every record has the
+     * same fields, the same parsed numbers and the same errors.
+     *
+     * @return the number of records read
+     */
+    private int assertSameAsTokenizer(String text) throws IOException {
+        int records = 0;
+        try (MappedCsvReader mapped = new MappedCsvReader(write(text), WINDOW);
+             CsvTokenizer chars = new CsvTokenizer(new StringReader(text))) {
+            while (chars.next()) {
+                assertTrue(mapped.next(), "mapped reader ended early at record " + records);
+                String where = "record " + records + ": " + chars.line();
+                assertEquals(chars.line(), mapped.line(), where);
+                assertEquals(chars.error(), mapped.error(), where);
+                if (chars.error() == null) {
+                    assertEquals(chars.fieldCount(), mapped.fieldCount(), where);
+                    for (int f = 0; f < chars.fieldCount(); f++) {
+                        assertEquals(chars.field(f), mapped.field(f), where);
+                        assertEquals(chars.centsField(f), mapped.centsField(f), where);
+                        assertEquals(parseInt(chars, f), parseInt(mapped, f), where);
+                        assertEquals(parseDouble(chars, f), parseDouble(mapped, f), where);
+                    }
+                }
+                records++;
+            }
+            assertFalse(mapped.next(), "mapped reader has extra records");
+        }
+        return records;
+    }
+
+    private static String parseInt(CsvReader csv, int field) {
+        try {
+            return String.valueOf(csv.intField(field));
+        } catch (NumberFormatException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static String parseDouble(CsvReader csv, int field) {
+        try {
+            return String.valueOf(csv.doubleField(field));
+        } catch (NumberFormatException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Test
+    public void testRecordsCrossingWindowsMatchTokenizer() throws IOException {
+        Random random = new Random(4);
+        String[] names = {"Pen", "Laptop bag", "Café mug ☕", "\"Quoted, name\"", "  spaced  ", ""};
+        String[] prices = {"1", "12.5", "999.99", "-0.00", "1e3", "abc", "100000000000000.01", " 7.25 "};
+        String[] endings = {"\n", "\r\n", "\r"};
+        StringBuilder text = new StringBuilder("ProductID,Name,Price,Category\n");
+        for (int i = 0; i < 500; i++) {
+            text.append(random.nextInt(3) == 0 ? "" + (random.nextInt() >> random.nextInt(32)) : "" + i)
+                .append(',').append(names[random.nextInt(names.length)])
+                .append(',').append(prices[random.nextInt(prices.length)])
+                .append(',').append(random.nextBoolean() ? "Electronics" : "Books")
+                .append(endings[random.nextInt(endings.length)]);
+        }
+        text.append("last,row,without,terminator");
+        assertEquals(502, assertSameAsTokenizer(text.toString()));
+    }
+
+    @Test
+    public void testCrLfSplitAcrossWindowEdge() throws IOException {
+        StringBuilder first = new StringBuilder("1,");
+        while (first.length() < WINDOW - 1) {
+            first.append('x');
+        }
+        // The \r is the last byte of the first window and the \n the first of the second.
+        String text = first + "\r\n2,y,3.50,Books\r\n";
+        assertEquals('\r', text.charAt((int) WINDOW - 1));
+        assertEquals(2, assertSameAsTokenizer(text));
+
+        try (MappedCsvReader csv = new MappedCsvReader(write(text), WINDOW)) {
+            assertTrue(csv.next());
+            assertEquals(WINDOW + 1, csv.position(), "the \\n belongs to the first record");
+            assertTrue(csv.next());
+            assertEquals("2", csv.field(0));
+            assertEquals(350, csv.centsField(2));
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    public void testQuotedFieldsAndWholeRecordQuoting() throws IOException {
+        String text = "5,\"Pen, \"\"blue\"\"\",1.00,Stationery\n"
+            + "\"2,Laptop,999.99,Electronics\"\n"
+            + "\"3,\"\"Mug, large\"\",4.5,Kitchen\"\n"
+            + "7,\"unterminated,1.00,Books\n"
+            + "8,\"closed\"x,1.00,Books\n"
+            + "9,\"café \"\"crème\"\"\",2.00,Food\n";
+        assertEquals(6, assertSameAsTokenizer(text));
+
+        try (MappedCsvReader csv = new MappedCsvReader(write(text), WINDOW)) {
+            assertTrue(csv.next());
+            assertEquals("Pen, \"blue\"", csv.field(1));
+            assertTrue(csv.next());
+            assertEquals(4, csv.fieldCount());
+            assertEquals(2, csv.intField(0));
+            assertEquals(99999, csv.centsField(2));
+            assertTrue(csv.next());
+            assertEquals("Mug, large", csv.field(1));
+            assertTrue(csv.next());
+            assertEquals("unterminated quoted field", csv.error());
+            assertTrue(csv.next());
+            assertEquals("unexpected character after closing quote", csv.error());
+            assertTrue(csv.next());
+            assertEquals("café \"crème\"", csv.field(1));
+        }
+    }
+
+    @Test
+    public void testSeekRereadsFromARecordStart() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append(i).append(",item ").append(i).append(',').append(i).append(".25,Books\r\n");
+        }
+        Path file = write(text.toString());
+        try (MappedCsvReader csv = new MappedCsvReader(file, WINDOW)) {
+            List<Long> starts = new ArrayList<>();
+            starts.add(csv.position());
+            while (csv.next()) {
+                starts.add(csv.position());
+            }
+            assertEquals(41, starts.size());
+            assertEquals(Files.size(file), (long) starts.get(40));
+
+            for (int i : new int[] {37, 3, 0, 20}) {
+                csv.seek(starts.get(i));
+                assertTrue(csv.next());
+                assertEquals(i, csv.intField(0));
+                assertEquals("item " + i, csv.field(1));
+                assertEquals(starts.get(i + 1), csv.position());
+            }
+            csv.seek(starts.get(40));
+            assertFalse(csv.next());
+            assertThrows(IllegalArgumentException.class, () -> csv.seek(-1));
+            assertThrows(IllegalArgumentException.class, () -> csv.seek(Files.size(file) + 1));
+        }
+    }
+
+    @Test
+    public void testRecordLongerThanWindowIsRejected() throws IOException {
+        StringBuilder text = new StringBuilder("1,short,1.00,Books\n2,");
+        for (int i = 0; i < WINDOW; i++) {
+            text.append('z');
+        }
+        text.append(",1.00,Books\n");
+        try (MappedCsvReader csv = new MappedCsvReader(write(text.toString()), WINDOW)) {
+            assertTrue(csv.next());
+            IOException e = assertThrows(IOException.class, csv::next);
+            assertTrue(e.getMessage().contains("longer than the mapping window"), e.getMessage());
+        }
+    }
+}
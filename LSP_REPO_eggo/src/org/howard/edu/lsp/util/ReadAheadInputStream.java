@@ -0,0 +1,168 @@
+package org.howard.edu.lsp.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream that reads its source on a background thread, a few chunks
+ * ahead of the caller. Used for decompression, so inflating the next chunk
+ * overlaps with the caller tokenizing the current one.
+ * <p>
+ * Chunk buffers are recycled between the two threads, so a long stream
+ * allocates only a handful of them. An exception from the source is
+ * thrown to the caller once the chunks read before it have been consumed.
+ * Closing the stream stops the background thread and closes the source.
+ */
+class ReadAheadInputStream extends InputStream {
+    static final int CHUNK_BYTES = 1 << 16;
+    static final int CHUNKS_AHEAD = 4;
+
+    private static final Chunk END = new Chunk(new byte[0]);
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(CHUNKS_AHEAD + 1);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNKS_AHEAD + 2);
+    private final Thread reader;
+    private volatile IOException failure;
+
+    private Chunk current;
+    private int pos;
+    private boolean ended;
+    private boolean closed;
+
+    /**
+     * Starts reading a stream in the background.
+     *
+     * @param source the stream to read ahead of the caller; closed by this stream
+     * @param threadName name of the background thread
+     */
+    ReadAheadInputStream(InputStream source, String threadName) {
+        this.source = source;
+        for (int i = 0; i < CHUNKS_AHEAD + 2; i++) {
+            free.add(new Chunk(new byte[CHUNK_BYTES]));
+        }
+        this.reader = new Thread(this::fill, threadName);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return current.bytes[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - pos);
+        System.arraycopy(current.bytes, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.length - pos : 0;
+    }
+
+    /** Makes sure the current chunk has bytes left; returns false at the end of the stream. */
+    private boolean ensureAvailable() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (current == null || pos == current.length) {
+            if (ended) {
+                return false;
+            }
+            if (current != null) {
+                free.add(current);
+                current = null;
+            }
+            Chunk next;
+            try {
+                next = full.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading ahead", e);
+            }
+            if (next == END) {
+                ended = true;
+                if (failure != null) {
+                    throw failure;
+                }
+                return false;
+            }
+            current = next;
+            pos = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Runs on the background thread until the source ends, fails or the stream is closed. */
+    private void fill() {
+        try (InputStream in = source) {
+            while (true) {
+                Chunk chunk = free.take();
+                int n = 0;
+                while (n < chunk.bytes.length) {
+                    int r = in.read(chunk.bytes, n, chunk.bytes.length - n);
+                    if (r < 0) {
+                        break;
+                    }
+                    n += r;
+                }
+                chunk.length = n;
+                if (n > 0) {
+                    full.put(chunk);
+                }
+                if (n < chunk.bytes.length) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e);
+        } catch (InterruptedException e) {
+            return; // closed by the caller
+        }
+        try {
+            full.put(END);
+        } catch (InterruptedException e) {
+            // closed by the caller
+        }
+    }
+
+    private static final class Chunk {
+        final byte[] bytes;
+        int length;
+
+        Chunk(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}